@@ -0,0 +1,202 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.benchmarks;
+
+import com.io7m.modulechaser.tests.ChaserSyntheticJars;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Functions to write representative jar files for benchmarks.
+ */
+
+public final class ChaserBenchmarkJars
+{
+  /**
+   * The number of entries in "fat" jar files.
+   */
+
+  public static final int FAT_ENTRIES = 30_000;
+
+  private ChaserBenchmarkJars()
+  {
+
+  }
+
+  /**
+   * The kinds of jar files that can be written.
+   */
+
+  public enum Kind
+  {
+    /**
+     * A small jar file containing a module descriptor.
+     */
+
+    TINY_MODULAR,
+
+    /**
+     * A jar file with {@link #FAT_ENTRIES} entries and an
+     * {@code Automatic-Module-Name} manifest attribute.
+     */
+
+    FAT_AUTOMATIC,
+
+    /**
+     * A jar file with {@link #FAT_ENTRIES} entries and no module
+     * information at all; this is the worst case for lookups.
+     */
+
+    FAT_PLAIN,
+
+    /**
+     * A multi-release jar file with {@link #FAT_ENTRIES} entries and a
+     * module descriptor in {@code META-INF/versions/9}.
+     */
+
+    MULTI_RELEASE
+  }
+
+  /**
+   * Write a jar file of the given kind into the given directory.
+   *
+   * @param directory The output directory
+   * @param kind      The kind of jar file
+   *
+   * @return The written file
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static Path write(
+    final Path directory,
+    final Kind kind)
+    throws IOException
+  {
+    Objects.requireNonNull(directory, "directory");
+    Objects.requireNonNull(kind, "kind");
+
+    final String name = "com.io7m.benchmark." + kind.name().toLowerCase();
+    final Path file = directory.resolve(name + ".jar");
+    Files.createDirectories(directory);
+
+    final Manifest manifest = new Manifest();
+    final Attributes attributes = manifest.getMainAttributes();
+    attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+
+    switch (kind) {
+      case TINY_MODULAR: {
+        try (JarOutputStream output = open(file, manifest)) {
+          entry(output, "module-info.class", ChaserSyntheticJars.moduleInfo(name));
+          entry(output, classPath(name, 0), classBytes(0));
+        }
+        break;
+      }
+
+      case FAT_AUTOMATIC: {
+        attributes.putValue("Automatic-Module-Name", name);
+        try (JarOutputStream output = open(file, manifest)) {
+          classes(output, name, FAT_ENTRIES);
+        }
+        break;
+      }
+
+      case FAT_PLAIN: {
+        try (JarOutputStream output = open(file, manifest)) {
+          classes(output, name, FAT_ENTRIES);
+        }
+        break;
+      }
+
+      case MULTI_RELEASE: {
+        attributes.putValue("Multi-Release", "true");
+        try (JarOutputStream output = open(file, manifest)) {
+          classes(output, name, FAT_ENTRIES);
+          entry(output, "META-INF/versions/9/module-info.class", ChaserSyntheticJars.moduleInfo(name));
+        }
+        break;
+      }
+    }
+    return file;
+  }
+
+  private static JarOutputStream open(
+    final Path file,
+    final Manifest manifest)
+    throws IOException
+  {
+    final OutputStream stream = Files.newOutputStream(file);
+    try {
+      return new JarOutputStream(stream, manifest);
+    } catch (final IOException e) {
+      stream.close();
+      throw e;
+    }
+  }
+
+  private static void classes(
+    final JarOutputStream output,
+    final String name,
+    final int count)
+    throws IOException
+  {
+    for (int index = 0; index < count; ++index) {
+      entry(output, classPath(name, index), classBytes(index));
+    }
+  }
+
+  private static String classPath(
+    final String name,
+    final int index)
+  {
+    return new StringBuilder(64)
+      .append(name.replace('.', '/'))
+      .append("/p")
+      .append(index / 100)
+      .append("/C")
+      .append(index)
+      .append(".class")
+      .toString();
+  }
+
+  private static byte[] classBytes(
+    final int index)
+  {
+    return ("class " + index).getBytes(UTF_8);
+  }
+
+  private static void entry(
+    final JarOutputStream output,
+    final String name,
+    final byte[] data)
+    throws IOException
+  {
+    output.putNextEntry(new JarEntry(name));
+    output.write(data);
+    output.closeEntry();
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.benchmarks;
+
+import com.io7m.modulechaser.maven_plugin.ChaserCompactGraph;
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyEdge;
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyNode;
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyResolved;
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyResolverType;
+import com.io7m.modulechaser.maven_plugin.ChaserModularizationStatusModularizedAutomaticModuleName;
+import com.io7m.modulechaser.maven_plugin.ChaserModularizationStatusModularizedFully;
+import com.io7m.modulechaser.maven_plugin.ChaserModularizationStatusNotModularized;
+import com.io7m.modulechaser.maven_plugin.ChaserModularizationStatusType;
+import com.io7m.modulechaser.maven_plugin.ChaserReport;
+import com.io7m.modulechaser.maven_plugin.ChaserReportDependency;
+import org.jgrapht.graph.DirectedAcyclicGraph;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Functions to construct synthetic graphs and reports for benchmarks.
+ */
+
+public final class ChaserBenchmarkReports
+{
+  private ChaserBenchmarkReports()
+  {
+
+  }
+
+  /**
+   * Construct a graph of {@code size} distinct dependencies in which each
+   * dependency {@code i > 0} is depended upon by dependency
+   * {@code (i - 1) / fanOut}.
+   *
+   * @param size   The number of dependencies
+   * @param fanOut The number of dependencies of each non-leaf dependency
+   *
+   * @return A dependency graph
+   */
+
+  public static DirectedAcyclicGraph<ChaserDependencyNode, ChaserDependencyEdge> graph(
+    final int size,
+    final int fanOut)
+  {
+    if (size < 1 || fanOut < 1) {
+      throw new IllegalArgumentException(
+        new StringBuilder(64)
+          .append("Unusable graph parameters: size ")
+          .append(size)
+          .append(", fan-out ")
+          .append(fanOut)
+          .toString());
+    }
+
+    final DirectedAcyclicGraph<ChaserDependencyNode, ChaserDependencyEdge> graph =
+      new DirectedAcyclicGraph<>(ChaserDependencyEdge.class);
+
+    final List<ChaserDependencyNode> nodes = new ArrayList<>(size);
+    for (int index = 0; index < size; ++index) {
+      final ChaserDependencyNode node = node(index);
+      nodes.add(node);
+      graph.addVertex(node);
+      if (index > 0) {
+        final ChaserDependencyNode parent = nodes.get((index - 1) / fanOut);
+        graph.addEdge(parent, node, ChaserDependencyEdge.of(parent, node));
+      }
+    }
+    return graph;
+  }
+
+  /**
+   * Construct a report for the given graph without examining any files.
+   * The dependencies are given a mixture of modularization statuses.
+   *
+   * @param graph The dependency graph
+   *
+   * @return A report
+   */
+
+  public static ChaserReport report(
+    final DirectedAcyclicGraph<ChaserDependencyNode, ChaserDependencyEdge> graph)
+  {
+    Objects.requireNonNull(graph, "graph");
+
+    final ChaserCompactGraph compact = ChaserCompactGraph.of(graph);
+    final List<ChaserReportDependency> reports =
+      new ArrayList<>(compact.size());
+
+    for (int index = 0; index < compact.size(); ++index) {
+      final ChaserDependencyNode node = compact.node(index);
+      reports.add(
+        ChaserReportDependency.of(
+          status(node, index, node.version()),
+          status(node, index + 1, "2.0.0")));
+    }
+    return ChaserReport.of(compact, reports);
+  }
+
+  /**
+   * Construct a resolver that resolves every dependency to one of the given
+   * files, without performing any I/O.
+   *
+   * @param files The files
+   *
+   * @return A resolver
+   */
+
+  public static ChaserDependencyResolverType resolver(
+    final List<Path> files)
+  {
+    final List<Path> files_copy = List.copyOf(files);
+    if (files_copy.isEmpty()) {
+      throw new IllegalArgumentException("At least one file is required");
+    }
+
+    return node -> {
+      final int index =
+        Math.floorMod(node.artifact().hashCode(), files_copy.size());
+      final Path file = files_copy.get(index);
+      return ChaserDependencyResolved.of(node, file, "2.0.0", file);
+    };
+  }
+
+  private static ChaserModularizationStatusType status(
+    final ChaserDependencyNode node,
+    final int index,
+    final String version)
+  {
+    switch (index % 3) {
+      case 0:
+        return ChaserModularizationStatusModularizedFully.of(
+          node.group(), version);
+      case 1:
+        return ChaserModularizationStatusModularizedAutomaticModuleName.of(
+          node.group(), version);
+      default:
+        return ChaserModularizationStatusNotModularized.of(version);
+    }
+  }
+
+  private static ChaserDependencyNode node(
+    final int index)
+  {
+    return ChaserDependencyNode.of(
+      "com.io7m.benchmark.g" + index % 97,
+      "a" + index,
+      "1.0." + index,
+      Optional.empty(),
+      "jar",
+      "compile");
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.benchmarks;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.ArtifactHandler;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.shared.dependency.graph.DependencyNode;
+import org.apache.maven.shared.dependency.graph.internal.DefaultDependencyNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Functions to construct synthetic dependency trees for benchmarks.
+ */
+
+public final class ChaserBenchmarkTrees
+{
+  private static final ArtifactHandler HANDLER =
+    new DefaultArtifactHandler("jar");
+
+  private ChaserBenchmarkTrees()
+  {
+
+  }
+
+  /**
+   * Construct a "diamond-heavy" dependency tree. Every node at depth
+   * {@code d < depth} has {@code fanOut} children, and the children at
+   * each depth are drawn from a pool of only {@code width} distinct
+   * artifacts. The same artifact therefore appears many times in the tree
+   * beneath different parents, as it does in the verbose dependency trees
+   * of real projects.
+   *
+   * @param depth  The depth of the tree
+   * @param fanOut The number of children of each non-leaf node
+   * @param width  The number of distinct artifacts at each depth
+   *
+   * @return The root of the tree
+   */
+
+  public static DependencyNode diamonds(
+    final int depth,
+    final int fanOut,
+    final int width)
+  {
+    if (depth < 0 || fanOut < 1 || width < 1) {
+      throw new IllegalArgumentException(
+        new StringBuilder(64)
+          .append("Unusable tree parameters: depth ")
+          .append(depth)
+          .append(", fan-out ")
+          .append(fanOut)
+          .append(", width ")
+          .append(width)
+          .toString());
+    }
+
+    final DefaultDependencyNode root =
+      new DefaultDependencyNode(null, artifact(0, 0), null, null, null);
+    populate(root, 0, 0, depth, fanOut, width);
+    return root;
+  }
+
+  /**
+   * @param level The depth of the artifact in the tree
+   * @param index The index of the artifact at the given depth
+   *
+   * @return A synthetic artifact
+   */
+
+  public static Artifact artifact(
+    final int level,
+    final int index)
+  {
+    return new DefaultArtifact(
+      "com.io7m.benchmark.l" + level,
+      "a" + index,
+      "1.0." + index,
+      "compile",
+      "jar",
+      null,
+      HANDLER);
+  }
+
+  private static void populate(
+    final DefaultDependencyNode node,
+    final int index,
+    final int level,
+    final int depth,
+    final int fanOut,
+    final int width)
+  {
+    if (level == depth) {
+      node.setChildren(List.of());
+      return;
+    }
+
+    final List<DependencyNode> children = new ArrayList<>(fanOut);
+    for (int child = 0; child < fanOut; ++child) {
+      final int child_index = (index * 31 + child * 7) % width;
+      final DefaultDependencyNode child_node =
+        new DefaultDependencyNode(
+          node, artifact(level + 1, child_index), null, null, null);
+      populate(child_node, child_index, level + 1, depth, fanOut, width);
+      children.add(child_node);
+    }
+    node.setChildren(children);
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.benchmarks;
+
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyEdge;
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyNode;
+import com.io7m.modulechaser.maven_plugin.ChaserGraphs;
+import org.apache.maven.shared.dependency.graph.DependencyNode;
+import org.jgrapht.graph.DirectedAcyclicGraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for converting dependency trees to graphs.
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChaserGraphsBenchmark
+{
+  @Param({"4", "6", "8"})
+  private int depth;
+
+  @Param({"4"})
+  private int fanOut;
+
+  @Param({"8", "64"})
+  private int width;
+
+  private DependencyNode tree;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public ChaserGraphsBenchmark()
+  {
+
+  }
+
+  /**
+   * Construct the dependency tree.
+   */
+
+  @Setup(Level.Trial)
+  public void setup()
+  {
+    this.tree =
+      ChaserBenchmarkTrees.diamonds(this.depth, this.fanOut, this.width);
+  }
+
+  /**
+   * Convert the dependency tree to a graph.
+   *
+   * @return The graph
+   */
+
+  @Benchmark
+  public DirectedAcyclicGraph<ChaserDependencyNode, ChaserDependencyEdge> graphOf()
+  {
+    return ChaserGraphs.graphOf(this.tree);
+  }
+}
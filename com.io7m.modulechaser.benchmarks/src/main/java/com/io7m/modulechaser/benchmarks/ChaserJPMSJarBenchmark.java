@@ -0,0 +1,133 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.benchmarks;
+
+import com.io7m.modulechaser.maven_plugin.ChaserJPMSChannelJar;
+import com.io7m.modulechaser.maven_plugin.ChaserJPMSJar;
+import com.io7m.modulechaser.maven_plugin.ChaserJPMSModuleName;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for determining the module name of jar files.
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChaserJPMSJarBenchmark
+{
+  @Param({"TINY_MODULAR", "FAT_AUTOMATIC", "FAT_PLAIN", "MULTI_RELEASE"})
+  private ChaserBenchmarkJars.Kind kind;
+
+  private Path directory;
+  private Path file;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public ChaserJPMSJarBenchmark()
+  {
+
+  }
+
+  /**
+   * Write the jar file.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @Setup(Level.Trial)
+  public void setup()
+    throws IOException
+  {
+    this.directory = Files.createTempDirectory("modulechaser-benchmark");
+    this.file = ChaserBenchmarkJars.write(this.directory, this.kind);
+  }
+
+  /**
+   * Delete the jar file.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @TearDown(Level.Trial)
+  public void tearDown()
+    throws IOException
+  {
+    Files.deleteIfExists(this.file);
+    Files.deleteIfExists(this.directory);
+  }
+
+  /**
+   * Open the jar file with {@link java.util.jar.JarFile} and determine its
+   * module name. This is the baseline against which the direct reader is
+   * measured.
+   *
+   * @return The module name
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @Benchmark
+  public Optional<ChaserJPMSModuleName> jarFile()
+    throws IOException
+  {
+    try (ChaserJPMSJar jar = ChaserJPMSJar.open(this.file)) {
+      return jar.moduleName();
+    }
+  }
+
+  /**
+   * Read the central directory of the jar file directly and determine its
+   * module name.
+   *
+   * @return The module name
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @Benchmark
+  public Optional<ChaserJPMSModuleName> centralDirectory()
+    throws IOException
+  {
+    try (ChaserJPMSChannelJar jar = ChaserJPMSChannelJar.open(this.file)) {
+      return jar.moduleName();
+    }
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.benchmarks;
+
+import com.io7m.modulechaser.maven_plugin.ChaserReport;
+import com.io7m.modulechaser.maven_plugin.ChaserReportXHTML;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.TransformerException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for serializing reports as XHTML.
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChaserReportXHTMLBenchmark
+{
+  @Param({"1000", "10000"})
+  private int rows;
+
+  private ChaserReport report;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public ChaserReportXHTMLBenchmark()
+  {
+
+  }
+
+  /**
+   * Construct the report.
+   */
+
+  @Setup(Level.Trial)
+  public void setup()
+  {
+    this.report =
+      ChaserBenchmarkReports.report(ChaserBenchmarkReports.graph(this.rows, 4));
+  }
+
+  /**
+   * Serialize the report, discarding the output.
+   *
+   * @throws ParserConfigurationException On XML parser issues
+   * @throws TransformerException         On XML serializer issues
+   */
+
+  @Benchmark
+  public void writeXHTMLPage()
+    throws ParserConfigurationException, TransformerException
+  {
+    ChaserReportXHTML.writeXHTMLPage(this.report, OutputStream.nullOutputStream());
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.benchmarks;
+
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyEdge;
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyNode;
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyResolverType;
+import com.io7m.modulechaser.maven_plugin.ChaserReport;
+import com.io7m.modulechaser.maven_plugin.ChaserReportConfiguration;
+import com.io7m.modulechaser.maven_plugin.ChaserReports;
+import org.jgrapht.graph.DirectedAcyclicGraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for producing reports. Dependencies are resolved by a stub
+ * resolver to a small set of local jar files, so the benchmark measures the
+ * report machinery and jar inspection rather than artifact resolution.
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChaserReportsBenchmark
+{
+  @Param({"100", "1000"})
+  private int size;
+
+  @Param({"1", "4"})
+  private int parallelism;
+
+  private Path directory;
+  private List<Path> files;
+  private DirectedAcyclicGraph<ChaserDependencyNode, ChaserDependencyEdge> graph;
+  private ChaserDependencyResolverType resolver;
+  private ChaserReportConfiguration configuration;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public ChaserReportsBenchmark()
+  {
+
+  }
+
+  /**
+   * Write the jar files and construct the graph.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @Setup(Level.Trial)
+  public void setup()
+    throws IOException
+  {
+    this.directory = Files.createTempDirectory("modulechaser-benchmark");
+    this.files = new ArrayList<>();
+    for (final ChaserBenchmarkJars.Kind kind : ChaserBenchmarkJars.Kind.values()) {
+      this.files.add(ChaserBenchmarkJars.write(this.directory, kind));
+    }
+
+    this.graph = ChaserBenchmarkReports.graph(this.size, 4);
+    this.resolver = ChaserBenchmarkReports.resolver(this.files);
+    this.configuration =
+      ChaserReportConfiguration.builder()
+        .setParallelism(this.parallelism)
+        .build();
+  }
+
+  /**
+   * Delete the jar files.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @TearDown(Level.Trial)
+  public void tearDown()
+    throws IOException
+  {
+    for (final Path file : this.files) {
+      Files.deleteIfExists(file);
+    }
+    Files.deleteIfExists(this.directory);
+  }
+
+  /**
+   * Produce a report.
+   *
+   * @return The report
+   *
+   * @throws InterruptedException On interruption
+   */
+
+  @Benchmark
+  public ChaserReport reportOf()
+    throws InterruptedException
+  {
+    return ChaserReports.reportOf(this.resolver, this.graph, this.configuration);
+  }
+}
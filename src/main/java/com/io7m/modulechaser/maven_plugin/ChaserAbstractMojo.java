@@ -0,0 +1,823 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.maven_plugin;
+
+import com.io7m.modulechaser.maven_plugin.ChaserReportXHTMLOptionsType.ShardMode;
+import com.io7m.modulechaser.maven_plugin.ChaserReportXHTMLOptionsType.TableMode;
+import com.io7m.modulechaser.maven_plugin.ChaserReportXHTMLOptionsType.TreeMode;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.handler.manager.ArtifactHandlerManager;
+import org.apache.maven.artifact.metadata.ArtifactMetadataSource;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.DefaultProjectBuildingRequest;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.ProjectBuildingRequest;
+import org.apache.maven.shared.dependency.graph.DependencyGraphBuilder;
+import org.apache.maven.shared.dependency.graph.DependencyGraphBuilderException;
+import org.apache.maven.shared.dependency.graph.DependencyNode;
+import org.apache.maven.shared.transfer.artifact.resolve.ArtifactResolver;
+import org.apache.maven.shared.transfer.dependencies.resolve.DependencyResolver;
+import org.jgrapht.graph.DirectedAcyclicGraph;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * The base class of the module chaser mojos.
+ */
+
+public abstract class ChaserAbstractMojo extends AbstractMojo
+{
+  private static final String RESOLVER_THREAD_NAME =
+    "com.io7m.modulechaser.resolver";
+
+  @Parameter(
+    required = true,
+    defaultValue = "${project.build.directory}/modulechaser/modules.xhtml",
+    name = "outputFile",
+    property = "modulechaser.outputFile")
+  private String outputFile;
+
+  @Parameter(
+    required = true,
+    defaultValue = "XHTML",
+    name = "outputType",
+    property = "modulechaser.outputType")
+  private String outputType;
+
+  @Parameter(
+    required = true,
+    defaultValue = "FULL",
+    name = "treeMode",
+    property = "modulechaser.treeMode")
+  private String treeMode;
+
+  @Parameter(
+    required = true,
+    defaultValue = "0",
+    name = "treeDepthLimit",
+    property = "modulechaser.treeDepthLimit")
+  private int treeDepthLimit;
+
+  @Parameter(
+    required = true,
+    defaultValue = "STATIC",
+    name = "tableMode",
+    property = "modulechaser.tableMode")
+  private String tableMode;
+
+  @Parameter(
+    required = true,
+    defaultValue = "GROUP",
+    name = "shardMode",
+    property = "modulechaser.shardMode")
+  private String shardMode;
+
+  @Parameter(
+    required = true,
+    defaultValue = "1000",
+    name = "shardChunkSize",
+    property = "modulechaser.shardChunkSize")
+  private int shardChunkSize;
+
+  @Parameter(
+    required = true,
+    name = "scopes",
+    property = "modulechaser.scopes")
+  private String[] scopes;
+
+  @Parameter(
+    required = true,
+    defaultValue = "1",
+    name = "parallelism",
+    property = "modulechaser.parallelism")
+  private int parallelism;
+
+  @Parameter(
+    required = true,
+    defaultValue = "0",
+    name = "metadataParallelism",
+    property = "modulechaser.metadataParallelism")
+  private int metadataParallelism;
+
+  @Parameter(
+    required = true,
+    defaultValue = "0",
+    name = "fetchParallelism",
+    property = "modulechaser.fetchParallelism")
+  private int fetchParallelism;
+
+  @Parameter(
+    required = true,
+    defaultValue = "64",
+    name = "pipelineQueueCapacity",
+    property = "modulechaser.pipelineQueueCapacity")
+  private int pipelineQueueCapacity;
+
+  @Parameter(
+    required = true,
+    defaultValue = "STAGED",
+    name = "resolutionMode",
+    property = "modulechaser.resolutionMode")
+  private String resolutionMode;
+
+  @Parameter(
+    required = true,
+    defaultValue = "256",
+    name = "maximumInFlight",
+    property = "modulechaser.maximumInFlight")
+  private int maximumInFlight;
+
+  @Parameter(
+    required = true,
+    defaultValue = "false",
+    name = "useVirtualThreads",
+    property = "modulechaser.useVirtualThreads")
+  private boolean useVirtualThreads;
+
+  @Parameter(
+    required = true,
+    defaultValue = "false",
+    name = "useStatusCache",
+    property = "modulechaser.useStatusCache")
+  private boolean useStatusCache;
+
+  @Parameter(
+    required = true,
+    defaultValue = "${settings.localRepository}/.modulechaser",
+    name = "cacheDirectory",
+    property = "modulechaser.cacheDirectory")
+  private String cacheDirectory;
+
+  @Parameter(
+    required = true,
+    defaultValue = "PT0S",
+    name = "versionCacheTTL",
+    property = "modulechaser.versionCacheTTL")
+  private String versionCacheTTL;
+
+  @Parameter(
+    name = "versionCacheRepositoryTTLs")
+  private Map<String, String> versionCacheRepositoryTTLs;
+
+  @Parameter(
+    required = true,
+    defaultValue = "false",
+    name = "useRemoteInspection",
+    property = "modulechaser.useRemoteInspection")
+  private boolean useRemoteInspection;
+
+  @Parameter(
+    required = true,
+    defaultValue = "false",
+    name = "offline",
+    property = "modulechaser.offline")
+  private boolean offline;
+
+  @Parameter(
+    required = true,
+    defaultValue = "false",
+    name = "searchFirstModularVersions",
+    property = "modulechaser.searchFirstModularVersions")
+  private boolean searchFirstModularVersions;
+
+  @Parameter(
+    required = true,
+    defaultValue = "16",
+    name = "versionProbeLimit",
+    property = "modulechaser.versionProbeLimit")
+  private int versionProbeLimit;
+
+  @Parameter(
+    required = true,
+    defaultValue = "false",
+    name = "useReportState",
+    property = "modulechaser.useReportState")
+  private boolean useReportState;
+
+  @Parameter(
+    required = true,
+    defaultValue = "P1D",
+    name = "reportStateMaximumAge",
+    property = "modulechaser.reportStateMaximumAge")
+  private String reportStateMaximumAge;
+
+  @Parameter(
+    required = true,
+    defaultValue = "${project.build.directory}/modulechaser/metrics.json",
+    name = "metricsFile",
+    property = "modulechaser.metricsFile")
+  private String metricsFile;
+
+  @Parameter(
+    defaultValue = "${project}",
+    readonly = true,
+    required = true)
+  private MavenProject project;
+
+  @Parameter(
+    defaultValue = "${session}",
+    readonly = true,
+    required = true)
+  private MavenSession session;
+
+  @Parameter(
+    defaultValue = "${reactorProjects}",
+    readonly = true,
+    required = true)
+  private List<MavenProject> reactorProjects;
+
+  @Component(hint = "default")
+  private DependencyGraphBuilder dependencyGraphBuilder;
+
+  @Component
+  private DependencyResolver dependencyResolver;
+
+  @Component
+  private ArtifactResolver artifactResolver;
+
+  @Component
+  private ArtifactHandlerManager artifactHandlerManager;
+
+  @Component(hint = "maven")
+  private ArtifactMetadataSource metadataSource;
+
+  /**
+   * The base class of the module chaser mojos.
+   */
+
+  protected ChaserAbstractMojo()
+  {
+
+  }
+
+  /**
+   * Determine the projects that will be analyzed. The dependency graphs of
+   * the returned projects are merged into a single graph, and the resulting
+   * report contains a dependency tree for each project.
+   *
+   * @param inProject         The current project
+   * @param inReactorProjects The projects in the reactor
+   *
+   * @return The projects that will be analyzed
+   */
+
+  protected abstract List<MavenProject> projectsToAnalyze(
+    MavenProject inProject,
+    List<MavenProject> inReactorProjects);
+
+  @Override
+  public final void execute()
+    throws MojoExecutionException, MojoFailureException
+  {
+    Objects.requireNonNull(
+      this.artifactResolver, "this.artifactResolver");
+    Objects.requireNonNull(
+      this.artifactHandlerManager, "this.artifactHandlerManager");
+    Objects.requireNonNull(
+      this.session, "this.session");
+    Objects.requireNonNull(
+      this.project, "this.project");
+    Objects.requireNonNull(
+      this.dependencyGraphBuilder, "this.dependencyGraphBuilder");
+    Objects.requireNonNull(
+      this.metadataSource, "this.metadataSource");
+
+    if (this.scopes.length == 0) {
+      this.scopes = new String[]{"compile", "provided", "runtime"};
+    }
+
+    final SerializerType serialize = this.getSerializer();
+    final boolean async = this.isAsyncResolution();
+    final Log log = this.getLog();
+
+    final ChaserMetrics metrics = ChaserMetrics.create();
+
+    try {
+      long time_start = System.nanoTime();
+
+      final List<MavenProject> projects =
+        this.projectsToAnalyze(this.project, this.reactorProjects);
+
+      final List<DependencyNode> trees = this.dependencyTrees(projects);
+      final DirectedAcyclicGraph<ChaserDependencyNode, ChaserDependencyEdge> graph =
+        ChaserGraphs.graphOf(trees);
+      final List<ChaserDependencyNode> roots = rootsOf(trees);
+
+      metrics.recordPhase(
+        ChaserMetrics.Phase.GRAPH_BUILD,
+        System.nanoTime() - time_start);
+
+      final Optional<ChaserStatusCache> status_cache = this.statusCache();
+
+      final boolean offline_effective =
+        this.offline || this.session.isOffline();
+      if (offline_effective) {
+        log.info("Offline: Only locally available versions will be examined");
+      }
+
+      final Path path = Paths.get(this.outputFile);
+      final Optional<ChaserReportState> report_state =
+        this.reportState(path, offline_effective);
+
+      final ChaserVersionCache version_cache =
+        ChaserVersionCache.open(
+          Paths.get(this.cacheDirectory),
+          Clock.systemUTC(),
+          Duration.parse(this.versionCacheTTL),
+          this.repositoryTTLs());
+
+      final Optional<ChaserRemoteJarInspector> remote_inspector =
+        this.remoteInspector(offline_effective, metrics);
+
+      final ChaserResolverContext resolver_context =
+        ChaserResolverContext.builder()
+          .setLog(log)
+          .setProject(this.project)
+          .setRemoteRepositories(remoteRepositoriesOf(projects))
+          .setSession(this.session)
+          .setArtifactHandlerManager(this.artifactHandlerManager)
+          .setArtifactResolver(this.artifactResolver)
+          .setMetadataSource(this.metadataSource)
+          .setVersionCache(version_cache)
+          .setRemoteInspector(remote_inspector)
+          .setOffline(offline_effective)
+          .setMetrics(metrics)
+          .build();
+
+      final Optional<ChaserVersionSourceType> version_source =
+        this.versionSource(resolver_context);
+
+      final ChaserReportConfiguration configuration =
+        ChaserReportConfiguration.builder()
+          .setParallelism(this.parallelism)
+          .setMetadataParallelism(parallelismOr(this.metadataParallelism))
+          .setFetchParallelism(parallelismOr(this.fetchParallelism))
+          .setPipelineQueueCapacity(this.pipelineQueueCapacity)
+          .setMaximumInFlight(this.maximumInFlight)
+          .setStatusCache(status_cache)
+          .setPreviousState(report_state)
+          .setVersionSource(version_source)
+          .setVersionProbeLimit(this.versionProbeLimit)
+          .setMetrics(metrics)
+          .build();
+
+      time_start = System.nanoTime();
+      final ChaserReport report_graph =
+        this.reportOf(
+          async, resolverOf(resolver_context), graph, configuration);
+
+      final ChaserReport report =
+        ChaserReport.builder()
+          .setCompactGraph(report_graph.compactGraph())
+          .setReportsById(report_graph.reportsById())
+          .setRoots(roots)
+          .build();
+
+      metrics.recordPhase(
+        ChaserMetrics.Phase.ANALYSIS,
+        System.nanoTime() - time_start);
+      metrics.add(
+        ChaserMetrics.Counter.COALESCED_REQUESTS,
+        version_cache.coalesced() + resolver_context.highestArtifacts().shared());
+
+      time_start = System.nanoTime();
+      if (status_cache.isPresent()) {
+        status_cache.get().save();
+      }
+      version_cache.save();
+      metrics.recordPhase(
+        ChaserMetrics.Phase.CACHE_SAVE,
+        System.nanoTime() - time_start);
+
+      time_start = System.nanoTime();
+      Files.createDirectories(path.getParent());
+      serialize.serialize(path, report);
+      metrics.recordPhase(
+        ChaserMetrics.Phase.SERIALIZATION,
+        System.nanoTime() - time_start);
+
+      if (report_state.isPresent()) {
+        this.saveReportState(report_state.get(), report);
+      }
+
+      this.saveMetrics(metrics);
+    } catch (final Exception e) {
+      throw new MojoExecutionException(e.getMessage(), e);
+    }
+  }
+
+  private List<DependencyNode> dependencyTrees(
+    final List<MavenProject> projects)
+    throws DependencyGraphBuilderException
+  {
+    final List<DependencyNode> trees = new ArrayList<>(projects.size());
+    for (final MavenProject analyzed : projects) {
+      this.getLog().debug("Building dependency graph for " + analyzed.getId());
+
+      final ProjectBuildingRequest request =
+        new DefaultProjectBuildingRequest(
+          this.session.getProjectBuildingRequest());
+
+      request.setProject(analyzed);
+      trees.add(
+        this.dependencyGraphBuilder.buildDependencyGraph(
+          request, this::filterArtifact, this.reactorProjects));
+    }
+    return trees;
+  }
+
+  private static List<ChaserDependencyNode> rootsOf(
+    final List<DependencyNode> trees)
+  {
+    final List<ChaserDependencyNode> roots = new ArrayList<>(trees.size());
+    for (final DependencyNode tree : trees) {
+      final ChaserDependencyNode root = ChaserGraphs.nodeOf(tree);
+      if (!roots.contains(root)) {
+        roots.add(root);
+      }
+    }
+    return roots;
+  }
+
+  /**
+   * The remote repositories of all of the given projects, in project order.
+   * Repositories are identified by their IDs, and the first repository seen
+   * with a given ID is used.
+   */
+
+  private static List<ArtifactRepository> remoteRepositoriesOf(
+    final List<MavenProject> projects)
+  {
+    final Map<String, ArtifactRepository> repositories = new LinkedHashMap<>();
+    for (final MavenProject analyzed : projects) {
+      for (final ArtifactRepository repository
+        : analyzed.getRemoteArtifactRepositories()) {
+        repositories.putIfAbsent(repository.getId(), repository);
+      }
+    }
+    return List.copyOf(repositories.values());
+  }
+
+  private Optional<ChaserStatusCache> statusCache()
+    throws IOException
+  {
+    if (this.useStatusCache) {
+      return Optional.of(ChaserStatusCache.open(Paths.get(this.cacheDirectory)));
+    }
+    return Optional.empty();
+  }
+
+  private Optional<ChaserReportState> reportState(
+    final Path path,
+    final boolean offlineEffective)
+    throws IOException
+  {
+    if (this.useReportState) {
+      final ChaserReportState state =
+        ChaserReportState.open(
+          ChaserReportState.stateFileFor(path),
+          Clock.systemUTC(),
+          Duration.parse(this.reportStateMaximumAge),
+          this.searchFirstModularVersions,
+          offlineEffective);
+      this.getLog().debug("Report state: " + state.size() + " previous entries");
+      return Optional.of(state);
+    }
+    return Optional.empty();
+  }
+
+  private Optional<ChaserRemoteJarInspector> remoteInspector(
+    final boolean offlineEffective,
+    final ChaserMetrics metrics)
+  {
+    if (this.useRemoteInspection && !offlineEffective) {
+      return Optional.of(
+        ChaserRemoteJarInspector.create(
+          HttpClient.newBuilder()
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(Duration.ofSeconds(30L))
+            .build(),
+          Paths.get(this.cacheDirectory).resolve("reduced"),
+          Duration.ofSeconds(60L),
+          metrics));
+    }
+    return Optional.empty();
+  }
+
+  private Optional<ChaserVersionSourceType> versionSource(
+    final ChaserResolverContext resolver_context)
+  {
+    if (!this.searchFirstModularVersions) {
+      return Optional.empty();
+    }
+
+    return Optional.of(new ChaserVersionSourceType()
+    {
+      @Override
+      public List<String> versions(
+        final ChaserDependencyNode node)
+        throws Exception
+      {
+        return ChaserResolvers.versionsOf(resolver_context, node);
+      }
+
+      @Override
+      public Path fetch(
+        final ChaserDependencyNode node)
+        throws Exception
+      {
+        return ChaserResolvers.fetchVersion(resolver_context, node);
+      }
+    });
+  }
+
+  private void saveReportState(
+    final ChaserReportState state,
+    final ChaserReport report)
+    throws IOException
+  {
+    this.getLog().info(
+      new StringBuilder(64)
+        .append("Reused ")
+        .append(state.reused())
+        .append(" of ")
+        .append(report.dependenciesTotal())
+        .append(" dependencies from the previous report")
+        .toString());
+    state.save();
+  }
+
+  private void saveMetrics(
+    final ChaserMetrics metrics)
+    throws IOException
+  {
+    this.getLog().info("Metrics: " + metrics.summary());
+
+    final Path metrics_path = Paths.get(this.metricsFile);
+    Files.createDirectories(metrics_path.getParent());
+    try (OutputStream output = Files.newOutputStream(metrics_path)) {
+      metrics.writeJSON(output);
+    }
+  }
+
+  private boolean isAsyncResolution()
+    throws MojoFailureException
+  {
+    switch (this.resolutionMode.toUpperCase()) {
+      case "STAGED":
+        return false;
+      case "ASYNC":
+        return true;
+      default: {
+        throw new MojoFailureException(
+          new StringBuilder(64)
+            .append("Unsupported resolution mode")
+            .append(System.lineSeparator())
+            .append("  Use: STAGED, ASYNC")
+            .append(System.lineSeparator())
+            .toString());
+      }
+    }
+  }
+
+  private ChaserReport reportOf(
+    final boolean async,
+    final ChaserDependencyResolverType resolver,
+    final DirectedAcyclicGraph<ChaserDependencyNode, ChaserDependencyEdge> graph,
+    final ChaserReportConfiguration configuration)
+    throws InterruptedException
+  {
+    if (!async) {
+      return ChaserReports.reportOf(resolver, graph, configuration);
+    }
+
+    /*
+     * Resolution blocks on network I/O, so it is given its own executor.
+     * With virtual threads, as many resolutions can be in flight as the
+     * configuration allows, regardless of the number of platform threads.
+     */
+
+    final ExecutorService executor =
+      ChaserExecutors.executor(
+        RESOLVER_THREAD_NAME,
+        this.parallelismOr(this.fetchParallelism),
+        this.useVirtualThreads);
+
+    try {
+      return ChaserReports.reportOfAsync(
+        ChaserAsyncResolvers.ofBlocking(resolver, executor),
+        graph,
+        configuration);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private int parallelismOr(
+    final int value)
+  {
+    if (value <= 0) {
+      return Math.max(1, this.parallelism);
+    }
+    return value;
+  }
+
+  private Map<String, Duration> repositoryTTLs()
+  {
+    final Map<String, Duration> results = new HashMap<>();
+    if (this.versionCacheRepositoryTTLs != null) {
+      for (final Map.Entry<String, String> entry
+        : this.versionCacheRepositoryTTLs.entrySet()) {
+        results.put(entry.getKey(), Duration.parse(entry.getValue()));
+      }
+    }
+    return results;
+  }
+
+  private boolean filterArtifact(final Artifact artifact)
+  {
+    for (final String scope : this.scopes) {
+      final String a_scope = artifact.getScope().toUpperCase();
+      final String s_scope = scope.toUpperCase();
+      if (Objects.equals(s_scope, a_scope)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private SerializerType getSerializer()
+    throws MojoFailureException
+  {
+    final SerializerType serialize;
+    switch (this.outputType.toUpperCase()) {
+      case "XHTML": {
+        final ChaserReportXHTMLOptions options = this.getXHTMLOptions();
+        serialize = (path, report) -> {
+          try (OutputStream output = Files.newOutputStream(path)) {
+            ChaserReportXHTML.writeXHTMLPage(report, options, output);
+          }
+        };
+        break;
+      }
+
+      case "XHTML_SHARDED": {
+        final ChaserReportXHTMLOptions options = this.getXHTMLOptions();
+        serialize = (path, report) -> {
+          final int written =
+            ChaserReportXHTML.writeXHTMLShards(report, options, path);
+          this.getLog().info(
+            new StringBuilder(64)
+              .append("Wrote ")
+              .append(written)
+              .append(" changed report pages")
+              .toString());
+        };
+        break;
+      }
+
+      case "JSON": {
+        serialize = (path, report) -> {
+          try (OutputStream output = Files.newOutputStream(path)) {
+            ChaserReportJSON.writeJSON(report, output);
+          }
+        };
+        break;
+      }
+
+      default: {
+        throw new MojoFailureException(
+          new StringBuilder(64)
+            .append("Unsupported output type")
+            .append(System.lineSeparator())
+            .append("  Use: XHTML, XHTML_SHARDED, JSON")
+            .append(System.lineSeparator())
+            .toString());
+      }
+    }
+    return serialize;
+  }
+
+  private ChaserReportXHTMLOptions getXHTMLOptions()
+    throws MojoFailureException
+  {
+    final TreeMode mode;
+    try {
+      mode = TreeMode.valueOf(this.treeMode.toUpperCase());
+    } catch (final IllegalArgumentException e) {
+      throw new MojoFailureException(
+        new StringBuilder(64)
+          .append("Unsupported tree mode")
+          .append(System.lineSeparator())
+          .append("  Use: FULL, SHARED")
+          .append(System.lineSeparator())
+          .toString());
+    }
+
+    final TableMode table_mode;
+    try {
+      table_mode = TableMode.valueOf(this.tableMode.toUpperCase());
+    } catch (final IllegalArgumentException e) {
+      throw new MojoFailureException(
+        new StringBuilder(64)
+          .append("Unsupported table mode")
+          .append(System.lineSeparator())
+          .append("  Use: STATIC, INTERACTIVE")
+          .append(System.lineSeparator())
+          .toString());
+    }
+
+    final ShardMode shard_mode;
+    try {
+      shard_mode = ShardMode.valueOf(this.shardMode.toUpperCase());
+    } catch (final IllegalArgumentException e) {
+      throw new MojoFailureException(
+        new StringBuilder(64)
+          .append("Unsupported shard mode")
+          .append(System.lineSeparator())
+          .append("  Use: GROUP, CHUNK")
+          .append(System.lineSeparator())
+          .toString());
+    }
+
+    try {
+      return ChaserReportXHTMLOptions.builder()
+        .setTreeMode(mode)
+        .setTreeDepthLimit(this.treeDepthLimit)
+        .setTableMode(table_mode)
+        .setShardMode(shard_mode)
+        .setShardChunkSize(this.shardChunkSize)
+        .setWriteParallelism(Math.max(1, this.parallelism))
+        .build();
+    } catch (final IllegalArgumentException e) {
+      throw new MojoFailureException(e.getMessage(), e);
+    }
+  }
+
+  private static ChaserStagedDependencyResolverType resolverOf(
+    final ChaserResolverContext context)
+  {
+    return new ChaserStagedDependencyResolverType()
+    {
+      @Override
+      public ChaserDependencyPlan plan(
+        final ChaserDependencyNode node)
+        throws Exception
+      {
+        return ChaserResolvers.plan(context, node);
+      }
+
+      @Override
+      public ChaserDependencyResolved fetch(
+        final ChaserDependencyPlan plan)
+        throws Exception
+      {
+        return ChaserResolvers.fetch(context, plan);
+      }
+    };
+  }
+
+  private interface SerializerType
+  {
+    void serialize(
+      Path output,
+      ChaserReport report)
+      throws Exception;
+  }
+}
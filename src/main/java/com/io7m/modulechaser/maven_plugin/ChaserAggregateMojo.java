@@ -0,0 +1,56 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.maven_plugin;
+
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+
+import java.util.List;
+
+/**
+ * A module chaser mojo that runs once per reactor. The dependency graphs of
+ * all projects in the reactor are merged into a single graph, each distinct
+ * dependency is resolved exactly once, and a single combined report is
+ * produced with a dependency tree for each project. Dependencies are
+ * resolved against the remote repositories of all projects in the reactor.
+ */
+
+@Mojo(
+  name = "chaseModulesAggregate",
+  aggregator = true,
+  requiresDependencyCollection = ResolutionScope.TEST,
+  threadSafe = true)
+public final class ChaserAggregateMojo extends ChaserAbstractMojo
+{
+  /**
+   * A module chaser mojo that runs once per reactor.
+   */
+
+  public ChaserAggregateMojo()
+  {
+
+  }
+
+  @Override
+  protected List<MavenProject> projectsToAnalyze(
+    final MavenProject inProject,
+    final List<MavenProject> inReactorProjects)
+  {
+    return List.copyOf(inReactorProjects);
+  }
+}
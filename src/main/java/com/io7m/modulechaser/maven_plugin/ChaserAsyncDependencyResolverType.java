@@ -0,0 +1,45 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.maven_plugin;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * An asynchronous dependency resolver.
+ *
+ * Resolutions are started without waiting for earlier resolutions to
+ * complete, so an implementation that performs non-blocking I/O can have
+ * many resolutions in flight without dedicating a thread to each.
+ *
+ * @see ChaserAsyncResolvers#ofBlocking(ChaserDependencyResolverType, java.util.concurrent.Executor)
+ * @see ChaserReports#reportOfAsync
+ */
+
+public interface ChaserAsyncDependencyResolverType
+{
+  /**
+   * Start resolving the given node. Failures are delivered through the
+   * returned stage rather than being thrown.
+   *
+   * @param node The node
+   *
+   * @return The resolved dependency, when resolution completes
+   */
+
+  CompletionStage<ChaserDependencyResolved> resolveAsync(
+    ChaserDependencyNode node);
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.maven_plugin;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Functions over asynchronous resolvers.
+ */
+
+public final class ChaserAsyncResolvers
+{
+  private ChaserAsyncResolvers()
+  {
+
+  }
+
+  /**
+   * Adapt a blocking resolver. Each resolution runs on the given executor,
+   * and so the number of resolutions that can be in flight at once is
+   * bounded by the number of threads that the executor provides. An
+   * executor that starts a virtual thread for each task (see
+   * {@link ChaserExecutors#virtualThreadExecutor()}) places no such bound.
+   *
+   * @param resolver The blocking resolver
+   * @param executor The executor
+   *
+   * @return An asynchronous resolver
+   */
+
+  public static ChaserAsyncDependencyResolverType ofBlocking(
+    final ChaserDependencyResolverType resolver,
+    final Executor executor)
+  {
+    Objects.requireNonNull(resolver, "resolver");
+    Objects.requireNonNull(executor, "executor");
+
+    return node -> {
+      Objects.requireNonNull(node, "node");
+
+      final CompletableFuture<ChaserDependencyResolved> future =
+        new CompletableFuture<>();
+
+      executor.execute(() -> {
+        try {
+          future.complete(resolver.resolve(node));
+        } catch (final Throwable e) {
+          future.completeExceptionally(e);
+        }
+      });
+      return future;
+    };
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.maven_plugin;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A map of in-flight and completed computations, keyed by the request that
+ * they satisfy. The first request for a given key performs the computation
+ * on the requesting thread; any other request for the same key, whether it
+ * arrives while the computation is in flight or after it has completed,
+ * receives the same result. A computation that fails is shared with the
+ * requests that were waiting on it, but is then forgotten, so that a later
+ * request will try again.
+ *
+ * @param <K> The type of keys
+ * @param <V> The type of results
+ * @param <X> The type of exceptions raised by computations
+ */
+
+public final class ChaserCoalescer<K, V, X extends Exception>
+{
+  private final Class<X> exceptionClass;
+  private final ConcurrentHashMap<K, CompletableFuture<V>> results;
+  private final LongAdder shared;
+
+  private ChaserCoalescer(
+    final Class<X> inExceptionClass)
+  {
+    this.exceptionClass =
+      Objects.requireNonNull(inExceptionClass, "exceptionClass");
+    this.results = new ConcurrentHashMap<>();
+    this.shared = new LongAdder();
+  }
+
+  /**
+   * Create an empty coalescer.
+   *
+   * @param exceptionClass The type of exceptions raised by computations
+   * @param <K>            The type of keys
+   * @param <V>            The type of results
+   * @param <X>            The type of exceptions raised by computations
+   *
+   * @return A coalescer
+   */
+
+  public static <K, V, X extends Exception> ChaserCoalescer<K, V, X> create(
+    final Class<X> exceptionClass)
+  {
+    return new ChaserCoalescer<>(exceptionClass);
+  }
+
+  /**
+   * A computation.
+   *
+   * @param <V> The type of results
+   * @param <X> The type of exceptions raised
+   */
+
+  public interface ComputationType<V, X extends Exception>
+  {
+    /**
+     * @return The result of the computation
+     *
+     * @throws X On errors
+     */
+
+    V compute()
+      throws X;
+  }
+
+  /**
+   * Retrieve the result for the given key, performing {@code computation}
+   * if no other request for the key has been made.
+   *
+   * @param key         The key
+   * @param computation The computation
+   *
+   * @return The result
+   *
+   * @throws X On errors
+   */
+
+  public V get(
+    final K key,
+    final ComputationType<V, X> computation)
+    throws X
+  {
+    Objects.requireNonNull(key, "key");
+    Objects.requireNonNull(computation, "computation");
+
+    final CompletableFuture<V> created = new CompletableFuture<>();
+    final CompletableFuture<V> existing = this.results.putIfAbsent(key, created);
+    if (existing != null) {
+      this.shared.increment();
+      return this.await(existing);
+    }
+
+    try {
+      final V result = computation.compute();
+      created.complete(result);
+      return result;
+    } catch (final Exception | Error e) {
+      this.results.remove(key, created);
+      created.completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  private V await(
+    final CompletableFuture<V> future)
+    throws X
+  {
+    try {
+      return future.join();
+    } catch (final CompletionException e) {
+      final Throwable cause = e.getCause();
+      if (this.exceptionClass.isInstance(cause)) {
+        throw this.exceptionClass.cast(cause);
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  /**
+   * @return The number of requests that received a result computed for an
+   * earlier request
+   */
+
+  public long shared()
+  {
+    return this.shared.sum();
+  }
+
+  /**
+   * @return The number of distinct keys for which results are held or in
+   * flight
+   */
+
+  public int size()
+  {
+    return this.results.size();
+  }
+}
@@ -0,0 +1,357 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.maven_plugin;
+
+import org.jgrapht.graph.DirectedAcyclicGraph;
+import org.jgrapht.traverse.TopologicalOrderIterator;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * A compact, immutable representation of a dependency graph.
+ *
+ * Each node is assigned an integer identifier equal to its position in a
+ * topological order of the graph (a node is numbered before any of its
+ * dependencies), so the topological order is simply the sequence of
+ * identifiers {@code 0 .. size() - 1}, and the reverse topological order is
+ * the same sequence backwards. Edges are stored in compressed sparse row
+ * form: the successors of node {@code n} are the entries of a single shared
+ * array between two offsets, and the same is done for predecessors. The
+ * order of successors matches the order in which the edges were added to
+ * the original graph. Nodes are found by identifier through a single array
+ * of identifiers sorted by node, rather than through a hash map, so the
+ * graph holds no per-node objects other than the nodes themselves.
+ */
+
+public final class ChaserCompactGraph
+{
+  /**
+   * The natural order of nodes ignores classifiers, but nodes that differ
+   * only in their classifiers are distinct nodes of the graph.
+   */
+
+  private static final Comparator<ChaserDependencyNode> NODE_ORDER =
+    Comparator.<ChaserDependencyNode>naturalOrder()
+      .thenComparing(node -> node.classifier().orElse(""));
+
+  private final ChaserDependencyNode[] nodes;
+  private final int[] sorted;
+  private final int[] successorOffsets;
+  private final int[] successors;
+  private final int[] predecessorOffsets;
+  private final int[] predecessors;
+
+  private ChaserCompactGraph(
+    final ChaserDependencyNode[] inNodes,
+    final int[] inSorted,
+    final int[] inSuccessorOffsets,
+    final int[] inSuccessors,
+    final int[] inPredecessorOffsets,
+    final int[] inPredecessors)
+  {
+    this.nodes =
+      Objects.requireNonNull(inNodes, "nodes");
+    this.sorted =
+      Objects.requireNonNull(inSorted, "sorted");
+    this.successorOffsets =
+      Objects.requireNonNull(inSuccessorOffsets, "successorOffsets");
+    this.successors =
+      Objects.requireNonNull(inSuccessors, "successors");
+    this.predecessorOffsets =
+      Objects.requireNonNull(inPredecessorOffsets, "predecessorOffsets");
+    this.predecessors =
+      Objects.requireNonNull(inPredecessors, "predecessors");
+  }
+
+  /**
+   * Build a compact graph from the given graph.
+   *
+   * @param graph The graph
+   *
+   * @return A compact graph
+   */
+
+  public static ChaserCompactGraph of(
+    final DirectedAcyclicGraph<ChaserDependencyNode, ChaserDependencyEdge> graph)
+  {
+    Objects.requireNonNull(graph, "graph");
+
+    final int size = graph.vertexSet().size();
+    final int edge_count = graph.edgeSet().size();
+
+    final ChaserDependencyNode[] nodes = new ChaserDependencyNode[size];
+    final Map<ChaserDependencyNode, Integer> ids = new HashMap<>(size * 2);
+
+    final TopologicalOrderIterator<ChaserDependencyNode, ChaserDependencyEdge> iter =
+      new TopologicalOrderIterator<>(graph);
+
+    int index = 0;
+    while (iter.hasNext()) {
+      final ChaserDependencyNode node = iter.next();
+      nodes[index] = node;
+      ids.put(node, Integer.valueOf(index));
+      ++index;
+    }
+
+    /*
+     * Successors are written directly in node order. Predecessors are
+     * counted first, and then placed using the running offsets.
+     */
+
+    final int[] successor_offsets = new int[size + 1];
+    final int[] successors = new int[edge_count];
+    final int[] predecessor_offsets = new int[size + 1];
+    final int[] predecessors = new int[edge_count];
+
+    int edge_index = 0;
+    for (int source = 0; source < size; ++source) {
+      successor_offsets[source] = edge_index;
+      for (final ChaserDependencyEdge edge : graph.outgoingEdgesOf(nodes[source])) {
+        final int target = ids.get(edge.target()).intValue();
+        successors[edge_index] = target;
+        ++predecessor_offsets[target + 1];
+        ++edge_index;
+      }
+    }
+    successor_offsets[size] = edge_index;
+
+    for (int node = 0; node < size; ++node) {
+      predecessor_offsets[node + 1] += predecessor_offsets[node];
+    }
+
+    final int[] predecessor_next = new int[size];
+    for (int source = 0; source < size; ++source) {
+      for (int edge = successor_offsets[source];
+           edge < successor_offsets[source + 1];
+           ++edge) {
+        final int target = successors[edge];
+        predecessors[predecessor_offsets[target] + predecessor_next[target]] =
+          source;
+        ++predecessor_next[target];
+      }
+    }
+
+    return new ChaserCompactGraph(
+      nodes,
+      sortedIdsOf(nodes),
+      successor_offsets,
+      successors,
+      predecessor_offsets,
+      predecessors);
+  }
+
+  private static int[] sortedIdsOf(
+    final ChaserDependencyNode[] nodes)
+  {
+    final Integer[] boxed = new Integer[nodes.length];
+    for (int id = 0; id < nodes.length; ++id) {
+      boxed[id] = Integer.valueOf(id);
+    }
+    Arrays.sort(boxed, Comparator.comparing(id -> nodes[id.intValue()], NODE_ORDER));
+
+    final int[] sorted = new int[nodes.length];
+    for (int index = 0; index < sorted.length; ++index) {
+      sorted[index] = boxed[index].intValue();
+    }
+    return sorted;
+  }
+
+  /**
+   * @return The number of nodes in the graph
+   */
+
+  public int size()
+  {
+    return this.nodes.length;
+  }
+
+  /**
+   * @return The number of edges in the graph
+   */
+
+  public int edgeCount()
+  {
+    return this.successors.length;
+  }
+
+  /**
+   * @param id The node identifier
+   *
+   * @return The node with the given identifier
+   */
+
+  public ChaserDependencyNode node(
+    final int id)
+  {
+    return this.nodes[id];
+  }
+
+  /**
+   * @param node The node
+   *
+   * @return The identifier of the given node
+   *
+   * @throws IllegalArgumentException If the node is not in the graph
+   */
+
+  public int idOf(
+    final ChaserDependencyNode node)
+  {
+    Objects.requireNonNull(node, "node");
+
+    int low = 0;
+    int high = this.sorted.length - 1;
+    while (low <= high) {
+      final int middle = (low + high) >>> 1;
+      final int id = this.sorted[middle];
+      final int order = NODE_ORDER.compare(this.nodes[id], node);
+      if (order < 0) {
+        low = middle + 1;
+      } else if (order > 0) {
+        high = middle - 1;
+      } else {
+        return id;
+      }
+    }
+
+    throw new IllegalArgumentException(
+      new StringBuilder(64)
+        .append("Node is not present in the graph")
+        .append(System.lineSeparator())
+        .append("  Node: ")
+        .append(node.toTerseString())
+        .append(System.lineSeparator())
+        .toString());
+  }
+
+  /**
+   * @param id The node identifier
+   *
+   * @return The number of direct dependencies of the node
+   */
+
+  public int successorCount(
+    final int id)
+  {
+    return this.successorOffsets[id + 1] - this.successorOffsets[id];
+  }
+
+  /**
+   * @param id    The node identifier
+   * @param index The index of the dependency, in {@code [0, successorCount(id))}
+   *
+   * @return The identifier of the given direct dependency of the node
+   */
+
+  public int successor(
+    final int id,
+    final int index)
+  {
+    Objects.checkIndex(index, this.successorCount(id));
+    return this.successors[this.successorOffsets[id] + index];
+  }
+
+  /**
+   * @param id The node identifier
+   *
+   * @return The number of nodes that directly depend on the node
+   */
+
+  public int predecessorCount(
+    final int id)
+  {
+    return this.predecessorOffsets[id + 1] - this.predecessorOffsets[id];
+  }
+
+  /**
+   * @param id    The node identifier
+   * @param index The index of the dependent, in {@code [0, predecessorCount(id))}
+   *
+   * @return The identifier of the given direct dependent of the node
+   */
+
+  public int predecessor(
+    final int id,
+    final int index)
+  {
+    Objects.checkIndex(index, this.predecessorCount(id));
+    return this.predecessors[this.predecessorOffsets[id] + index];
+  }
+
+  /**
+   * @return The nodes in topological order (a node appears before any of its
+   * dependencies)
+   */
+
+  public List<ChaserDependencyNode> topologicalOrder()
+  {
+    return new NodeList(this.nodes, false);
+  }
+
+  /**
+   * @return The nodes in reverse topological order (a node appears after all
+   * of its dependencies)
+   */
+
+  public List<ChaserDependencyNode> reverseTopologicalOrder()
+  {
+    return new NodeList(this.nodes, true);
+  }
+
+  /**
+   * An unmodifiable view of the node array.
+   */
+
+  private static final class NodeList
+    extends AbstractList<ChaserDependencyNode> implements RandomAccess
+  {
+    private final ChaserDependencyNode[] nodes;
+    private final boolean reversed;
+
+    NodeList(
+      final ChaserDependencyNode[] inNodes,
+      final boolean inReversed)
+    {
+      this.nodes = Objects.requireNonNull(inNodes, "nodes");
+      this.reversed = inReversed;
+    }
+
+    @Override
+    public ChaserDependencyNode get(
+      final int index)
+    {
+      Objects.checkIndex(index, this.nodes.length);
+      if (this.reversed) {
+        return this.nodes[this.nodes.length - 1 - index];
+      }
+      return this.nodes[index];
+    }
+
+    @Override
+    public int size()
+    {
+      return this.nodes.length;
+    }
+  }
+}
@@ -18,10 +18,15 @@ package com.io7m.modulechaser.maven_plugin;
 
 import org.immutables.value.Value;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Objects;
 import java.util.Optional;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 /**
  * A node in the dependency graph.
  */
@@ -75,9 +80,12 @@ public interface ChaserDependencyNodeType
   String scope();
 
   /**
+   * The terse string is computed once and cached.
+   *
    * @return The node formatted as a terse string
    */
 
+  @Value.Lazy
   default String toTerseString()
   {
     return new StringBuilder(64)
@@ -92,6 +100,29 @@ public interface ChaserDependencyNodeType
       .toString();
   }
 
+  /**
+   * A short identifier for the node that is stable across runs and is
+   * suitable for use as an XML ID or URI fragment. The identifier is derived
+   * from the first 96 bits of a SHA-256 hash of {@link #toTerseString()};
+   * it is computed once and cached.
+   *
+   * @return The anchor identifier for the node
+   */
+
+  @Value.Lazy
+  default String anchorId()
+  {
+    try {
+      final MessageDigest digest =
+        MessageDigest.getInstance("SHA-256");
+      final byte[] result =
+        digest.digest(this.toTerseString().getBytes(UTF_8));
+      return "dep_" + Hex.show(Arrays.copyOf(result, 12));
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
   @Override
   default int compareTo(final ChaserDependencyNodeType other)
   {
@@ -0,0 +1,44 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.maven_plugin;
+
+import org.immutables.value.Value;
+
+/**
+ * The result of the metadata stage of resolving a dependency: the highest
+ * available version has been determined, but no artifacts have been
+ * fetched.
+ */
+
+@ChaserImmutableStyleType
+@Value.Immutable
+public interface ChaserDependencyPlanType
+{
+  /**
+   * @return The dependency
+   */
+
+  @Value.Parameter
+  ChaserDependencyNode source();
+
+  /**
+   * @return The highest available version of the dependency
+   */
+
+  @Value.Parameter
+  String highestVersion();
+}
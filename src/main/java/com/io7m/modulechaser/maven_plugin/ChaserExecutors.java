@@ -0,0 +1,130 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.maven_plugin;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Functions to create the executors used for concurrent work.
+ */
+
+public final class ChaserExecutors
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(ChaserExecutors.class);
+
+  private ChaserExecutors()
+  {
+
+  }
+
+  /**
+   * Create an executor that uses a fixed pool of {@code threads} daemon
+   * threads.
+   *
+   * @param name    The name prefix for threads
+   * @param threads The number of threads
+   *
+   * @return An executor
+   */
+
+  public static ExecutorService executor(
+    final String name,
+    final int threads)
+  {
+    Objects.requireNonNull(name, "name");
+
+    return Executors.newFixedThreadPool(
+      threads, runnable -> createThread(name, runnable));
+  }
+
+  /**
+   * Create an executor for blocking work. If {@code virtual} is
+   * {@code true} and the running JDK supports virtual threads, the executor
+   * starts a new virtual thread for each task. Otherwise, the executor uses
+   * a fixed pool of {@code threads} daemon threads.
+   *
+   * @param name    The name prefix for threads
+   * @param threads The number of platform threads
+   * @param virtual {@code true} if virtual threads should be used if possible
+   *
+   * @return An executor
+   */
+
+  public static ExecutorService executor(
+    final String name,
+    final int threads,
+    final boolean virtual)
+  {
+    Objects.requireNonNull(name, "name");
+
+    if (virtual) {
+      final Optional<ExecutorService> executor_opt = virtualThreadExecutor();
+      if (executor_opt.isPresent()) {
+        return executor_opt.get();
+      }
+      LOG.warn("virtual threads are not available; using {} threads", threads);
+    }
+    return executor(name, threads);
+  }
+
+  /**
+   * Create an executor that starts a new virtual thread for each task. The
+   * executor is located reflectively, as virtual threads are not available
+   * on all of the JDKs on which the plugin runs.
+   *
+   * @return An executor, if the running JDK supports virtual threads
+   */
+
+  public static Optional<ExecutorService> virtualThreadExecutor()
+  {
+    try {
+      final Method method =
+        Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return Optional.of((ExecutorService) method.invoke(null));
+    } catch (final NoSuchMethodException
+      | IllegalAccessException
+      | InvocationTargetException e) {
+      LOG.debug("virtual threads unavailable: {}", e.toString());
+      return Optional.empty();
+    }
+  }
+
+  static Thread createThread(
+    final String name,
+    final Runnable runnable)
+  {
+    final Thread thread = new Thread(runnable);
+    thread.setName(
+      new StringBuilder(64)
+        .append(name)
+        .append("[")
+        .append(thread.getId())
+        .append("]")
+        .toString());
+    thread.setDaemon(true);
+    return thread;
+  }
+}
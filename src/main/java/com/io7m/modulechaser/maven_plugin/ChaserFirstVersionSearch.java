@@ -0,0 +1,340 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.maven_plugin;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A search for the earliest versions of an artifact that reached each level
+ * of modularization.
+ *
+ * The search assumes that modularization is monotonic: Once a version of
+ * an artifact declares a module name, all later versions declare a module
+ * name, and once a version contains a module descriptor, all later versions
+ * contain a module descriptor. Under this assumption, the earliest version
+ * at each level can be found by a binary search over the sorted list of
+ * versions, inspecting {@code O(log n)} versions rather than all of them.
+ *
+ * The search does not inspect versions itself. Instead, {@link #nextProbe()}
+ * names the next version whose status is required, and the caller supplies
+ * that status with {@link #record(String, ChaserModularizationStatusType)}
+ * whenever it becomes available; this allows the fetching and inspection
+ * of each version to be performed wherever the caller chooses.
+ *
+ * Statuses that are already known (such as those of the current and
+ * highest versions of a dependency) can be supplied with
+ * {@link #assume(String, ChaserModularizationStatusType)}, and are used to
+ * narrow the search without probing. Probe results are shared between the
+ * searches for each level. The total number of probes is limited; a search
+ * that would exceed the limit, or that encounters a version whose status
+ * cannot be determined, is abandoned and is not complete.
+ */
+
+public final class ChaserFirstVersionSearch
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(ChaserFirstVersionSearch.class);
+
+  private static final int LEVEL_UNKNOWN = -1;
+  private static final int LEVEL_NOT_MODULAR = 0;
+  private static final int LEVEL_MODULAR = 1;
+  private static final int LEVEL_FULLY_MODULAR = 2;
+
+  private final List<String> versions;
+  private final int probeLimit;
+  private final int[] levels;
+  private int probes;
+  private int level;
+  private boolean abandoned;
+  private Optional<String> firstModular;
+  private Optional<String> firstFullyModular;
+
+  private ChaserFirstVersionSearch(
+    final List<String> inVersions,
+    final int inProbeLimit)
+  {
+    this.versions = Objects.requireNonNull(inVersions, "versions");
+    this.probeLimit = inProbeLimit;
+    this.levels = new int[inVersions.size()];
+    Arrays.fill(this.levels, LEVEL_UNKNOWN);
+    this.probes = 0;
+    this.level = LEVEL_MODULAR;
+    this.abandoned = false;
+    this.firstModular = Optional.empty();
+    this.firstFullyModular = Optional.empty();
+  }
+
+  /**
+   * Create a new search.
+   *
+   * @param versions   The available versions, in ascending order
+   * @param probeLimit The maximum number of probes
+   *
+   * @return A new search
+   */
+
+  public static ChaserFirstVersionSearch create(
+    final List<String> versions,
+    final int probeLimit)
+  {
+    if (probeLimit < 0) {
+      throw new IllegalArgumentException(
+        new StringBuilder(64)
+          .append("Probe limit must be non-negative")
+          .append(System.lineSeparator())
+          .append("  Received: ")
+          .append(probeLimit)
+          .append(System.lineSeparator())
+          .toString());
+    }
+    return new ChaserFirstVersionSearch(List.copyOf(versions), probeLimit);
+  }
+
+  private static int levelOf(
+    final ChaserModularizationStatusType status)
+  {
+    switch (status.kind()) {
+      case MODULARIZED_FULLY:
+        return LEVEL_FULLY_MODULAR;
+      case MODULARIZED_AUTOMATIC_MODULE_NAME:
+        return LEVEL_MODULAR;
+      case NOT_MODULARIZED:
+      case NOT_JAR:
+        return LEVEL_NOT_MODULAR;
+      case UNAVAILABLE:
+      case UNAVAILABLE_OFFLINE:
+        return LEVEL_UNKNOWN;
+    }
+    throw new IllegalStateException("Unreachable code");
+  }
+
+  /**
+   * Record the already-known status of a version. Versions that are not in
+   * the list of versions, and statuses that do not indicate a level of
+   * modularization, are ignored.
+   *
+   * @param version The version
+   * @param status  The status of the version
+   */
+
+  public void assume(
+    final String version,
+    final ChaserModularizationStatusType status)
+  {
+    Objects.requireNonNull(version, "version");
+    Objects.requireNonNull(status, "status");
+
+    final int index = this.versions.indexOf(version);
+    if (index >= 0) {
+      this.levels[index] = levelOf(status);
+    }
+  }
+
+  /**
+   * Record the status of a version named by {@link #nextProbe()}. A status
+   * that does not indicate a level of modularization abandons the search.
+   *
+   * @param version The version
+   * @param status  The status of the version
+   */
+
+  public void record(
+    final String version,
+    final ChaserModularizationStatusType status)
+  {
+    Objects.requireNonNull(version, "version");
+    Objects.requireNonNull(status, "status");
+
+    final int index = this.versions.indexOf(version);
+    if (index < 0) {
+      throw new IllegalArgumentException(
+        new StringBuilder(64)
+          .append("Version is not one of the searched versions")
+          .append(System.lineSeparator())
+          .append("  Received: ")
+          .append(version)
+          .append(System.lineSeparator())
+          .toString());
+    }
+
+    ++this.probes;
+    final int probed = levelOf(status);
+    LOG.debug("probe {}: level {}", version, Integer.valueOf(probed));
+    if (probed == LEVEL_UNKNOWN) {
+      this.abandoned = true;
+      return;
+    }
+    this.levels[index] = probed;
+  }
+
+  /**
+   * Determine the next version that must be probed. If no version is
+   * returned, the search has finished, and the results are available.
+   *
+   * @return The next version to probe, if any
+   */
+
+  public Optional<String> nextProbe()
+  {
+    while (!this.isFinished()) {
+      final Optional<Integer> probe = this.nextProbeAtLevel();
+      if (probe.isPresent()) {
+        if (this.probes >= this.probeLimit) {
+          LOG.debug("probe limit reached ({} probes)", Integer.valueOf(this.probes));
+          this.abandoned = true;
+          return Optional.empty();
+        }
+        return Optional.of(this.versions.get(probe.get().intValue()));
+      }
+    }
+    return Optional.empty();
+  }
+
+  private boolean isFinished()
+  {
+    return this.abandoned || this.level > LEVEL_FULLY_MODULAR;
+  }
+
+  /**
+   * Narrow the search for the current level as far as the known levels
+   * allow. If a version must be probed to narrow it further, the index of
+   * that version is returned. Otherwise, the result for the current level
+   * is recorded, and the search moves on to the next level.
+   */
+
+  private Optional<Integer> nextProbeAtLevel()
+  {
+    final int count = this.versions.size();
+    if (count == 0) {
+      return this.finishLevel(Optional.empty());
+    }
+
+    /*
+     * Find the narrowest range [low, high] that is known to contain the
+     * first version at the current level: high is the earliest version
+     * known to be at the level, and low follows the latest earlier version
+     * known to be below it. If no version is known to be at the level, the
+     * highest version must be probed.
+     */
+
+    int high = this.earliestKnownAtLevel();
+    if (high == -1) {
+      final int last = this.levels[count - 1];
+      if (last == LEVEL_UNKNOWN) {
+        return Optional.of(Integer.valueOf(count - 1));
+      }
+      return this.finishLevel(Optional.empty());
+    }
+
+    int low = this.latestKnownBelowLevel(high) + 1;
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+      final int known = this.levels[middle];
+      if (known == LEVEL_UNKNOWN) {
+        return Optional.of(Integer.valueOf(middle));
+      }
+      if (known >= this.level) {
+        high = middle;
+      } else {
+        low = middle + 1;
+      }
+    }
+
+    return this.finishLevel(Optional.of(this.versions.get(high)));
+  }
+
+  private int earliestKnownAtLevel()
+  {
+    for (int index = 0; index < this.levels.length; ++index) {
+      if (this.levels[index] >= this.level) {
+        return index;
+      }
+    }
+    return -1;
+  }
+
+  private int latestKnownBelowLevel(
+    final int before)
+  {
+    for (int index = before - 1; index >= 0; --index) {
+      final int known = this.levels[index];
+      if (known != LEVEL_UNKNOWN && known < this.level) {
+        return index;
+      }
+    }
+    return -1;
+  }
+
+  private Optional<Integer> finishLevel(
+    final Optional<String> result)
+  {
+    if (this.level == LEVEL_MODULAR) {
+      this.firstModular = result;
+    } else {
+      this.firstFullyModular = result;
+    }
+    ++this.level;
+    return Optional.empty();
+  }
+
+  /**
+   * @return The number of probes recorded so far
+   */
+
+  public int probes()
+  {
+    return this.probes;
+  }
+
+  /**
+   * @return {@code true} if the search finished without being abandoned
+   */
+
+  public boolean isComplete()
+  {
+    return this.level > LEVEL_FULLY_MODULAR && !this.abandoned;
+  }
+
+  /**
+   * The earliest version that declares a module name, either with an
+   * {@code Automatic-Module-Name} manifest entry or a module descriptor.
+   *
+   * @return The earliest such version, if one exists and has been found
+   */
+
+  public Optional<String> firstModular()
+  {
+    return this.firstModular;
+  }
+
+  /**
+   * The earliest version that contains a module descriptor.
+   *
+   * @return The earliest such version, if one exists and has been found
+   */
+
+  public Optional<String> firstFullyModular()
+  {
+    return this.firstFullyModular;
+  }
+}
@@ -19,9 +19,22 @@ package com.io7m.modulechaser.maven_plugin;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.shared.dependency.graph.DependencyNode;
 import org.jgrapht.graph.DirectedAcyclicGraph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Functions handling dependency graphs.
@@ -29,13 +42,19 @@ import java.util.Optional;
 
 public final class ChaserGraphs
 {
+  private static final Logger LOG =
+    LoggerFactory.getLogger(ChaserGraphs.class);
+
   private ChaserGraphs()
   {
 
   }
 
   /**
-   * Create a dependency graph for the given node.
+   * Create a dependency graph for the given node. Each distinct dependency
+   * is expanded exactly once, regardless of the number of paths through
+   * which it is reachable, and the tree is traversed without recursion so
+   * that arbitrarily deep trees can be processed.
    *
    * @param node The root node
    *
@@ -46,30 +65,273 @@ public final class ChaserGraphs
     final DependencyNode node)
   {
     Objects.requireNonNull(node, "node");
+    return graphOf(List.of(node));
+  }
+
+  /**
+   * Create a single dependency graph by merging the dependency trees of the
+   * given root nodes. A dependency that appears in more than one tree
+   * appears exactly once in the resulting graph, and is expanded exactly
+   * once.
+   *
+   * @param nodes The root nodes
+   *
+   * @return A dependency graph
+   */
+
+  public static DirectedAcyclicGraph<ChaserDependencyNode, ChaserDependencyEdge> graphOf(
+    final List<DependencyNode> nodes)
+  {
+    Objects.requireNonNull(nodes, "nodes");
+
+    final Set<ChaserDependencyNode> vertices = new LinkedHashSet<>();
+    final Set<ChaserDependencyEdge> edges = new LinkedHashSet<>();
+    final Map<DependencyNode, ChaserDependencyNode> converted =
+      new IdentityHashMap<>();
+    final Set<ChaserDependencyNode> expanded = new HashSet<>();
+
+    for (final DependencyNode node : nodes) {
+      addTree(vertices, edges, converted, expanded, node);
+    }
+    return graphOfEdges(vertices, edges);
+  }
+
+  /**
+   * @param node A dependency tree node
+   *
+   * @return The graph node that represents the given dependency tree node
+   */
+
+  public static ChaserDependencyNode nodeOf(
+    final DependencyNode node)
+  {
+    Objects.requireNonNull(node, "node");
+    return chaserNodeOfNode(node);
+  }
+
+  private static void addTree(
+    final Set<ChaserDependencyNode> vertices,
+    final Set<ChaserDependencyEdge> edges,
+    final Map<DependencyNode, ChaserDependencyNode> converted,
+    final Set<ChaserDependencyNode> expanded,
+    final DependencyNode node)
+  {
+    /*
+     * The root of a tree is always expanded, even if the same artifact has
+     * already been encountered as a dependency in another tree: The
+     * dependencies declared by a project take precedence over whatever
+     * another project's tree happened to record for it.
+     */
+
+    final ChaserDependencyNode root = chaserNodeOf(converted, node);
+    vertices.add(root);
+    expanded.add(root);
+
+    final ArrayDeque<Frame> stack = new ArrayDeque<>();
+    stack.push(new Frame(root, node.getChildren().iterator()));
+
+    /*
+     * The tree is walked depth-first in the same order as a recursive
+     * traversal, so that vertices and edges are recorded in the same order.
+     * The same dependency may appear in many places in the tree, but its
+     * subtree is only walked the first time it is encountered.
+     */
+
+    while (!stack.isEmpty()) {
+      final Frame frame = stack.peek();
+      if (!frame.children.hasNext()) {
+        stack.pop();
+        continue;
+      }
+
+      final DependencyNode child_node = frame.children.next();
+      final ChaserDependencyNode child = chaserNodeOf(converted, child_node);
+      vertices.add(child);
+      edges.add(ChaserDependencyEdge.of(frame.node, child));
 
+      if (expanded.add(child)) {
+        stack.push(new Frame(child, child_node.getChildren().iterator()));
+      }
+    }
+  }
+
+  /**
+   * Build a graph from the given vertices and edges.
+   *
+   * A directed acyclic graph maintains a topological order of its vertices
+   * as edges are added, and an edge that runs backwards in the current order
+   * forces the vertices between its endpoints to be reordered. Diamonds in
+   * the dependency tree produce such edges, and so adding the vertices in
+   * the order that they were encountered would take time quadratic in the
+   * size of the graph. Instead, the vertices are added in a topological
+   * order computed up front, so that every edge runs forwards. If the
+   * merged trees contain a cycle, there is no such order, and the edges are
+   * instead added one at a time in the order they were encountered,
+   * dropping any edge that would introduce a cycle.
+   */
+
+  private static DirectedAcyclicGraph<ChaserDependencyNode, ChaserDependencyEdge> graphOfEdges(
+    final Set<ChaserDependencyNode> vertices,
+    final Set<ChaserDependencyEdge> edges)
+  {
     final DirectedAcyclicGraph<ChaserDependencyNode, ChaserDependencyEdge> graph =
       new DirectedAcyclicGraph<>(ChaserDependencyEdge.class);
 
-    graphBuild(graph, node);
+    final Optional<List<ChaserDependencyNode>> order =
+      topologicalOrderOf(vertices, edges);
+
+    if (order.isPresent()) {
+      for (final ChaserDependencyNode vertex : order.get()) {
+        graph.addVertex(vertex);
+      }
+      for (final ChaserDependencyEdge edge : edges) {
+        graph.addEdge(edge.source(), edge.target(), edge);
+      }
+      return graph;
+    }
+
+    for (final ChaserDependencyNode vertex : vertices) {
+      graph.addVertex(vertex);
+    }
+    for (final ChaserDependencyEdge edge : edges) {
+      try {
+        graph.addEdge(edge.source(), edge.target(), edge);
+      } catch (final IllegalArgumentException e) {
+
+        /*
+         * Each individual tree is acyclic, but the trees of different
+         * projects can disagree on the dependencies of an artifact
+         * (due to version mediation and exclusions), and so merging them
+         * can introduce a cycle. The offending edge is dropped.
+         */
+
+        LOG.warn(
+          "ignoring dependency {} -> {}: it would introduce a cycle",
+          edge.source().toTerseString(),
+          edge.target().toTerseString());
+      }
+    }
     return graph;
   }
 
-  private static void graphBuild(
-    final DirectedAcyclicGraph<ChaserDependencyNode, ChaserDependencyEdge> graph,
-    final DependencyNode node)
+  /**
+   * Compute a topological order of the given vertices, in which each vertex
+   * appears before all of its dependencies.
+   *
+   * @return The order, or nothing if the edges contain a cycle
+   */
+
+  private static Optional<List<ChaserDependencyNode>> topologicalOrderOf(
+    final Set<ChaserDependencyNode> vertices,
+    final Set<ChaserDependencyEdge> edges)
+  {
+    final int size = vertices.size();
+    final ChaserDependencyNode[] nodes =
+      vertices.toArray(new ChaserDependencyNode[0]);
+    final Map<ChaserDependencyNode, Integer> ids = new HashMap<>(size * 2);
+    for (int id = 0; id < size; ++id) {
+      ids.put(nodes[id], Integer.valueOf(id));
+    }
+
+    final int[] sources = new int[edges.size()];
+    final int[] targets = new int[edges.size()];
+
+    int edge_index = 0;
+    for (final ChaserDependencyEdge edge : edges) {
+      sources[edge_index] = ids.get(edge.source()).intValue();
+      targets[edge_index] = ids.get(edge.target()).intValue();
+      ++edge_index;
+    }
+
+    final int[] order = kahnOrderOf(size, sources, targets);
+    if (order.length < size) {
+      return Optional.empty();
+    }
+
+    final List<ChaserDependencyNode> ordered = new ArrayList<>(size);
+    for (final int id : order) {
+      ordered.add(nodes[id]);
+    }
+    return Optional.of(ordered);
+  }
+
+  /**
+   * Order the vertices {@code 0 .. size - 1} using Kahn's algorithm. The
+   * successors of each vertex are stored in compressed sparse row form, as
+   * in {@link ChaserCompactGraph}.
+   *
+   * @return The ordered vertices, which are fewer than {@code size} if the
+   * edges contain a cycle
+   */
+
+  private static int[] kahnOrderOf(
+    final int size,
+    final int[] sources,
+    final int[] targets)
   {
-    final ChaserDependencyNode current = chaserNodeOfNode(node);
-    graph.addVertex(current);
-
-    for (final DependencyNode child_node : node.getChildren()) {
-      final ChaserDependencyNode child_current = chaserNodeOfNode(child_node);
-      graph.addVertex(child_current);
-      graph.addEdge(
-        current,
-        child_current,
-        ChaserDependencyEdge.of(current, child_current));
-      graphBuild(graph, child_node);
+    final int[] offsets = new int[size + 1];
+    final int[] in_degree = new int[size];
+    for (int edge = 0; edge < sources.length; ++edge) {
+      ++offsets[sources[edge] + 1];
+      ++in_degree[targets[edge]];
+    }
+    for (int id = 0; id < size; ++id) {
+      offsets[id + 1] += offsets[id];
     }
+
+    final int[] successors = new int[sources.length];
+    final int[] next = Arrays.copyOf(offsets, size);
+    for (int edge = 0; edge < sources.length; ++edge) {
+      successors[next[sources[edge]]] = targets[edge];
+      ++next[sources[edge]];
+    }
+
+    /*
+     * The output array is used as the queue.
+     */
+
+    final int[] queue = new int[size];
+    int tail = 0;
+    for (int id = 0; id < size; ++id) {
+      if (in_degree[id] == 0) {
+        queue[tail] = id;
+        ++tail;
+      }
+    }
+
+    for (int head = 0; head < tail; ++head) {
+      final int id = queue[head];
+      for (int edge = offsets[id]; edge < offsets[id + 1]; ++edge) {
+        final int target = successors[edge];
+        --in_degree[target];
+        if (in_degree[target] == 0) {
+          queue[tail] = target;
+          ++tail;
+        }
+      }
+    }
+    return Arrays.copyOf(queue, tail);
+  }
+
+  private static final class Frame
+  {
+    private final ChaserDependencyNode node;
+    private final Iterator<DependencyNode> children;
+
+    Frame(
+      final ChaserDependencyNode inNode,
+      final Iterator<DependencyNode> inChildren)
+    {
+      this.node = Objects.requireNonNull(inNode, "node");
+      this.children = Objects.requireNonNull(inChildren, "children");
+    }
+  }
+
+  private static ChaserDependencyNode chaserNodeOf(
+    final Map<DependencyNode, ChaserDependencyNode> converted,
+    final DependencyNode node)
+  {
+    return converted.computeIfAbsent(node, ChaserGraphs::chaserNodeOfNode);
   }
 
   private static ChaserDependencyNode chaserNodeOfNode(
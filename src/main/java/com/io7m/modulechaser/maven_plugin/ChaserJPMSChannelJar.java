@@ -0,0 +1,240 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.modulechaser.maven_plugin;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.module.ModuleDescriptor;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.ZipException;
+
+/**
+ * A reader for the module metadata of jar files that parses the central
+ * directory directly, using positional reads on a file channel.
+ *
+ * Unlike {@link java.util.jar.JarFile}, no table of entries is constructed:
+ * The tail of the archive is read to locate the central directory, the
+ * central directory is scanned once for the candidate module descriptors
+ * and the manifest, and only those entries are read and decompressed. The
+ * cost of inspecting a jar is therefore dominated by the size of the
+ * central directory and the sizes of the entries of interest rather than
+ * by the number of entries in the archive or the size of the archive.
+ *
+ * The underlying channel is held open until the reader is closed.
+ */
+
+public final class ChaserJPMSChannelJar implements Closeable
+{
+  private final Path file;
+  private final FileChannel channel;
+  private final long size;
+
+  private ChaserJPMSChannelJar(
+    final Path inFile,
+    final FileChannel inChannel,
+    final long inSize)
+  {
+    this.file = Objects.requireNonNull(inFile, "file");
+    this.channel = Objects.requireNonNull(inChannel, "channel");
+    this.size = inSize;
+  }
+
+  /**
+   * Open the given jar file. The jar must be closed by the caller.
+   *
+   * @param file The jar file
+   *
+   * @return A jar reader
+   *
+   * @throws IOException On errors
+   */
+
+  public static ChaserJPMSChannelJar open(final Path file)
+    throws IOException
+  {
+    Objects.requireNonNull(file, "file");
+
+    final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+    try {
+      return new ChaserJPMSChannelJar(file, channel, channel.size());
+    } catch (final IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * @return The JPMS module name, if any
+   *
+   * @throws IOException On errors, or if the archive is malformed
+   */
+
+  public Optional<ChaserJPMSModuleName> moduleName()
+    throws IOException
+  {
+    final List<ChaserZip.Entry> found =
+      ChaserZip.findEntries(
+        this.centralDirectory(),
+        List.of(ChaserJPMSJar.MODULE_INFO, JarFile.MANIFEST_NAME),
+        ChaserJPMSJar.MODULE_INFO_SUFFIX);
+
+    final Optional<ChaserZip.Entry> root =
+      ChaserZip.firstNamed(found, List.of(ChaserJPMSJar.MODULE_INFO));
+    if (root.isPresent()) {
+      return Optional.of(this.descriptorName(root.get()));
+    }
+
+    final Optional<ChaserZip.Entry> manifest_entry =
+      ChaserZip.firstNamed(found, List.of(JarFile.MANIFEST_NAME));
+    if (manifest_entry.isEmpty()) {
+      return Optional.empty();
+    }
+
+    final ByteBuffer manifest_data = this.entryData(manifest_entry.get());
+    final byte[] manifest_bytes = new byte[manifest_data.remaining()];
+    manifest_data.get(manifest_bytes);
+
+    final Manifest manifest =
+      new Manifest(new ByteArrayInputStream(manifest_bytes));
+
+    if (ChaserJPMSJar.isMultiRelease(manifest)) {
+      final List<String> names = new ArrayList<>(found.size());
+      for (final ChaserZip.Entry entry : found) {
+        names.add(entry.name());
+      }
+
+      final Optional<String> versioned =
+        ChaserJPMSJar.highestVersionedDescriptor(names);
+      if (versioned.isPresent()) {
+        return Optional.of(
+          this.descriptorName(
+            ChaserZip.firstNamed(found, List.of(versioned.get())).get()));
+      }
+    }
+
+    final Attributes attributes = manifest.getMainAttributes();
+    final String name = attributes.getValue("Automatic-Module-Name");
+    if (name != null) {
+      return Optional.of(ChaserJPMSModuleName.of(name, true));
+    }
+    return Optional.empty();
+  }
+
+  private ChaserJPMSModuleName descriptorName(
+    final ChaserZip.Entry entry)
+    throws IOException
+  {
+    final ModuleDescriptor module =
+      ModuleDescriptor.read(this.entryData(entry));
+    return ChaserJPMSModuleName.of(module.name(), false);
+  }
+
+  private ByteBuffer centralDirectory()
+    throws IOException
+  {
+    final long tail_offset =
+      Math.max(0L, this.size - (long) ChaserZip.EOCD_SEARCH_SIZE);
+    final ByteBuffer tail =
+      this.read(tail_offset, this.size - tail_offset);
+
+    ChaserZip.CentralDirectory directory;
+    try {
+      directory = ChaserZip.centralDirectory(tail, tail_offset);
+    } catch (final ChaserZip.Zip64Required e) {
+      directory = ChaserZip.zip64CentralDirectory(
+        this.read(e.recordOffset(), ChaserZip.ZIP64_EOCD_SIZE));
+    }
+
+    /*
+     * The central directory of most jars fits entirely within the tail
+     * that has already been read.
+     */
+
+    final long relative = directory.offset() - tail_offset;
+    if (relative >= 0L && relative + directory.size() <= tail.capacity()) {
+      final ByteBuffer buffer = tail.duplicate();
+      buffer.position((int) relative);
+      buffer.limit((int) (relative + directory.size()));
+      return buffer.slice();
+    }
+    return this.read(directory.offset(), directory.size());
+  }
+
+  private ByteBuffer entryData(final ChaserZip.Entry entry)
+    throws IOException
+  {
+    final long header_offset = entry.localHeaderOffset();
+    final long data_offset =
+      header_offset + ChaserZip.localDataOffset(
+        this.read(header_offset, ChaserZip.LOCAL_HEADER_SIZE));
+
+    return ChaserZip.decompress(
+      entry,
+      this.read(data_offset, entry.sizeCompressed()));
+  }
+
+  private ByteBuffer read(
+    final long offset,
+    final long length)
+    throws IOException
+  {
+    if (offset < 0L
+      || length < 0L
+      || length > Integer.MAX_VALUE - 8
+      || length > this.size - offset) {
+      throw new ZipException(
+        new StringBuilder(64)
+          .append("Region out of bounds: ")
+          .append(this.file)
+          .append(" [")
+          .append(offset)
+          .append(", +")
+          .append(length)
+          .append("]")
+          .toString());
+    }
+
+    final ByteBuffer buffer = ByteBuffer.allocate((int) length);
+    while (buffer.hasRemaining()) {
+      final int count =
+        this.channel.read(buffer, offset + (long) buffer.position());
+      if (count == -1) {
+        throw new ZipException("Unexpected end of file: " + this.file);
+      }
+    }
+    return buffer.flip();
+  }
+
+  @Override
+  public void close()
+    throws IOException
+  {
+    this.channel.close();
+  }
+}
@@ -16,10 +16,18 @@
 
 package com.io7m.modulechaser.maven_plugin;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.module.ModuleDescriptor;
-import java.util.Comparator;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.jar.Attributes;
@@ -29,10 +37,24 @@ import java.util.jar.Manifest;
 
 /**
  * A JPMS jar file.
+ *
+ * The module descriptor of a jar is the root {@code module-info.class}
+ * entry if there is one. Otherwise, if the manifest declares the jar to be
+ * a multi-release jar, the versioned descriptor for the highest release in
+ * the jar is used, regardless of the release of the running JVM: The
+ * descriptor describes the module as published, not as it would be seen by
+ * this particular JVM.
  */
 
-public final class ChaserJPMSJar
+public final class ChaserJPMSJar implements Closeable
 {
+  static final String MODULE_INFO = "module-info.class";
+  static final String MODULE_INFO_SUFFIX = "/" + MODULE_INFO;
+
+  private static final String VERSIONS_PREFIX = "META-INF/versions/";
+  private static final int MULTI_RELEASE_LOWEST = 9;
+  private static final int ZIP_MAGIC_SIZE = 4;
+
   private final JarFile jar;
 
   private ChaserJPMSJar(final JarFile inJar)
@@ -53,6 +75,136 @@ public final class ChaserJPMSJar
     return new ChaserJPMSJar(jar);
   }
 
+  /**
+   * Open a jar file. The jar is opened once, without signature verification,
+   * and must be closed by the caller.
+   *
+   * @param file The jar file
+   *
+   * @return A JPMS jar file
+   *
+   * @throws IOException On errors, or if the file is not a zip file
+   */
+
+  public static ChaserJPMSJar open(final Path file)
+    throws IOException
+  {
+    Objects.requireNonNull(file, "file");
+    return new ChaserJPMSJar(
+      new JarFile(file.toFile(), false, JarFile.OPEN_READ));
+  }
+
+  /**
+   * Determine whether the given file appears to be a zip file by examining
+   * the leading magic bytes. This is considerably cheaper than attempting to
+   * parse the central directory of something that is not a zip file at all
+   * (such as a pom or a tarball).
+   *
+   * @param file The file
+   *
+   * @return {@code true} if the file is a regular file that starts with a zip
+   * local file header or an empty archive signature
+   *
+   * @throws IOException On errors
+   */
+
+  public static boolean appearsToBeZip(final Path file)
+    throws IOException
+  {
+    Objects.requireNonNull(file, "file");
+
+    if (!Files.isRegularFile(file)) {
+      return false;
+    }
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      final ByteBuffer magic = ByteBuffer.allocate(ZIP_MAGIC_SIZE);
+      while (magic.hasRemaining()) {
+        if (channel.read(magic) == -1) {
+          return false;
+        }
+      }
+      return magic.get(0) == 'P'
+        && magic.get(1) == 'K'
+        && isZipSignature(magic.get(2), magic.get(3));
+    }
+  }
+
+  private static boolean isZipSignature(
+    final byte first,
+    final byte second)
+  {
+    return (first == 3 && second == 4) || (first == 5 && second == 6);
+  }
+
+  /**
+   * @param name An entry name
+   *
+   * @return The release of the versioned module descriptor with the given
+   * name, or {@code -1} if the name does not name a versioned descriptor
+   */
+
+  private static int versionedDescriptorRelease(
+    final String name)
+  {
+    if (!name.startsWith(VERSIONS_PREFIX) || !name.endsWith(MODULE_INFO_SUFFIX)) {
+      return -1;
+    }
+
+    final String release =
+      name.substring(
+        VERSIONS_PREFIX.length(),
+        name.length() - MODULE_INFO_SUFFIX.length());
+
+    try {
+      final int value = Integer.parseInt(release);
+      if (value >= MULTI_RELEASE_LOWEST) {
+        return value;
+      }
+    } catch (final NumberFormatException e) {
+      return -1;
+    }
+    return -1;
+  }
+
+  /**
+   * Select the versioned module descriptor with the highest release from
+   * the given entry names.
+   *
+   * @param names The entry names
+   *
+   * @return The name of the versioned descriptor, if any
+   */
+
+  static Optional<String> highestVersionedDescriptor(
+    final Iterable<String> names)
+  {
+    String highest_name = null;
+    int highest = -1;
+    for (final String name : names) {
+      final int release = versionedDescriptorRelease(name);
+      if (release > highest) {
+        highest = release;
+        highest_name = name;
+      }
+    }
+    return Optional.ofNullable(highest_name);
+  }
+
+  /**
+   * @param manifest The manifest
+   *
+   * @return {@code true} if the manifest declares a multi-release jar
+   */
+
+  static boolean isMultiRelease(
+    final Manifest manifest)
+  {
+    final String value =
+      manifest.getMainAttributes().getValue(Attributes.Name.MULTI_RELEASE);
+    return "true".equalsIgnoreCase(value);
+  }
+
   /**
    * @return The JPMS module name, if any
    *
@@ -62,17 +214,15 @@ public final class ChaserJPMSJar
   public Optional<ChaserJPMSModuleName> moduleName()
     throws IOException
   {
-    final Optional<JarEntry> entry_opt =
-      this.jar.stream()
-        .filter(e -> e.getName().endsWith("module-info.class"))
-        .max(Comparator.comparing(JarEntry::getName));
-
-    if (entry_opt.isPresent()) {
-      final JarEntry entry = entry_opt.get();
-      try (InputStream stream = this.jar.getInputStream(entry)) {
-        final ModuleDescriptor descriptor = ModuleDescriptor.read(stream);
-        return Optional.of(ChaserJPMSModuleName.of(descriptor.name(), false));
-      }
+    /*
+     * Look up the root descriptor directly in the central directory rather
+     * than iterating over every entry in the jar. Only multi-release jars
+     * without a root descriptor need their entries to be examined.
+     */
+
+    final JarEntry root = this.jar.getJarEntry(MODULE_INFO);
+    if (root != null) {
+      return Optional.of(this.descriptorName(root));
     }
 
     final Manifest manifest = this.jar.getManifest();
@@ -84,6 +234,23 @@ public final class ChaserJPMSJar
       return Optional.empty();
     }
 
+    if (isMultiRelease(manifest)) {
+      final List<String> names = new ArrayList<>();
+      final Enumeration<JarEntry> entries = this.jar.entries();
+      while (entries.hasMoreElements()) {
+        final String name = entries.nextElement().getName();
+        if (name.endsWith(MODULE_INFO_SUFFIX)) {
+          names.add(name);
+        }
+      }
+
+      final Optional<String> versioned = highestVersionedDescriptor(names);
+      if (versioned.isPresent()) {
+        return Optional.of(
+          this.descriptorName(this.jar.getJarEntry(versioned.get())));
+      }
+    }
+
     final Attributes attributes = manifest.getMainAttributes();
     final String name = attributes.getValue("Automatic-Module-Name");
     if (name != null) {
@@ -91,4 +258,21 @@ public final class ChaserJPMSJar
     }
     return Optional.empty();
   }
+
+  private ChaserJPMSModuleName descriptorName(
+    final JarEntry entry)
+    throws IOException
+  {
+    try (InputStream stream = this.jar.getInputStream(entry)) {
+      final ModuleDescriptor descriptor = ModuleDescriptor.read(stream);
+      return ChaserJPMSModuleName.of(descriptor.name(), false);
+    }
+  }
+
+  @Override
+  public void close()
+    throws IOException
+  {
+    this.jar.close();
+  }
 }
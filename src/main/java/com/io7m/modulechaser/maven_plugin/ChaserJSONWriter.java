@@ -0,0 +1,273 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.maven_plugin;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.BitSet;
+import java.util.Objects;
+
+/**
+ * A minimal streaming JSON writer. Values are written directly to the
+ * underlying writer as they are produced; the writer holds no state other
+ * than the current nesting depth.
+ *
+ * The characters {@code <}, {@code >}, {@code &}, and the Unicode line and
+ * paragraph separators are always escaped in strings so that output can be
+ * embedded directly into HTML and XML documents and scripts.
+ */
+
+final class ChaserJSONWriter implements Closeable, Flushable
+{
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final Writer writer;
+  private final BitSet nonEmpty;
+  private int depth;
+  private boolean afterName;
+  private boolean newlinePending;
+
+  ChaserJSONWriter(final Writer inWriter)
+  {
+    this.writer = Objects.requireNonNull(inWriter, "writer");
+    this.nonEmpty = new BitSet();
+    this.depth = 0;
+    this.afterName = false;
+    this.newlinePending = false;
+  }
+
+  ChaserJSONWriter beginObject()
+    throws IOException
+  {
+    this.beforeValue();
+    this.writer.write('{');
+    this.push();
+    return this;
+  }
+
+  ChaserJSONWriter endObject()
+    throws IOException
+  {
+    this.pop();
+    this.writer.write('}');
+    return this;
+  }
+
+  ChaserJSONWriter beginArray()
+    throws IOException
+  {
+    this.beforeValue();
+    this.writer.write('[');
+    this.push();
+    return this;
+  }
+
+  ChaserJSONWriter endArray()
+    throws IOException
+  {
+    this.pop();
+    this.writer.write(']');
+    return this;
+  }
+
+  ChaserJSONWriter name(final String name)
+    throws IOException
+  {
+    this.beforeValue();
+    this.writeString(name);
+    this.writer.write(':');
+    this.afterName = true;
+    return this;
+  }
+
+  ChaserJSONWriter value(final String value)
+    throws IOException
+  {
+    this.beforeValue();
+    if (value == null) {
+      this.writer.write("null");
+    } else {
+      this.writeString(value);
+    }
+    return this;
+  }
+
+  ChaserJSONWriter value(final long value)
+    throws IOException
+  {
+    this.beforeValue();
+    this.writer.write(Long.toString(value));
+    return this;
+  }
+
+  ChaserJSONWriter value(final double value)
+    throws IOException
+  {
+    if (!Double.isFinite(value)) {
+      throw new IllegalArgumentException(
+        "JSON cannot represent non-finite number " + value);
+    }
+    this.beforeValue();
+    this.writer.write(Double.toString(value));
+    return this;
+  }
+
+  ChaserJSONWriter value(final boolean value)
+    throws IOException
+  {
+    this.beforeValue();
+    this.writer.write(value ? "true" : "false");
+    return this;
+  }
+
+  ChaserJSONWriter nullValue()
+    throws IOException
+  {
+    this.beforeValue();
+    this.writer.write("null");
+    return this;
+  }
+
+  /**
+   * Request a line break before the next token. Whitespace between tokens is
+   * insignificant in JSON; this is used to keep large arrays readable and
+   * diffable, one element per line.
+   */
+
+  void newline()
+  {
+    this.newlinePending = true;
+  }
+
+  @Override
+  public void flush()
+    throws IOException
+  {
+    this.writePendingNewline();
+    this.writer.flush();
+  }
+
+  @Override
+  public void close()
+    throws IOException
+  {
+    this.writer.close();
+  }
+
+  private void push()
+  {
+    this.nonEmpty.clear(this.depth);
+    ++this.depth;
+  }
+
+  private void pop()
+    throws IOException
+  {
+    if (this.depth == 0) {
+      throw new IllegalStateException("Unbalanced JSON structure");
+    }
+    --this.depth;
+    this.writePendingNewline();
+  }
+
+  private void writePendingNewline()
+    throws IOException
+  {
+    if (this.newlinePending) {
+      this.newlinePending = false;
+      this.writer.write('\n');
+    }
+  }
+
+  private void beforeValue()
+    throws IOException
+  {
+    if (this.afterName) {
+      this.afterName = false;
+      return;
+    }
+    if (this.depth > 0) {
+      final int index = this.depth - 1;
+      if (this.nonEmpty.get(index)) {
+        this.writer.write(',');
+      } else {
+        this.nonEmpty.set(index);
+      }
+    }
+    this.writePendingNewline();
+  }
+
+  private void writeString(final String text)
+    throws IOException
+  {
+    this.writer.write('"');
+
+    int start = 0;
+    final int length = text.length();
+    for (int index = 0; index < length; ++index) {
+      final char c = text.charAt(index);
+      final String replacement;
+      switch (c) {
+        case '"':
+          replacement = "\\\"";
+          break;
+        case '\\':
+          replacement = "\\\\";
+          break;
+        case '\n':
+          replacement = "\\n";
+          break;
+        case '\r':
+          replacement = "\\r";
+          break;
+        case '\t':
+          replacement = "\\t";
+          break;
+        case '<':
+        case '>':
+        case '&':
+        case '\u2028':
+        case '\u2029':
+          replacement = null;
+          break;
+        default:
+          if (c >= 0x20) {
+            continue;
+          }
+          replacement = null;
+          break;
+      }
+
+      this.writer.write(text, start, index - start);
+      if (replacement != null) {
+        this.writer.write(replacement);
+      } else {
+        this.writer.write("\\u");
+        this.writer.write(HEX[(c >> 12) & 0xf]);
+        this.writer.write(HEX[(c >> 8) & 0xf]);
+        this.writer.write(HEX[(c >> 4) & 0xf]);
+        this.writer.write(HEX[c & 0xf]);
+      }
+      start = index + 1;
+    }
+
+    this.writer.write(text, start, length - start);
+    this.writer.write('"');
+  }
+}
@@ -0,0 +1,608 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.maven_plugin;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Timing and counter metrics collected during the execution of a goal.
+ *
+ * All methods are safe to call from multiple threads.
+ */
+
+public final class ChaserMetrics
+{
+  /**
+   * The number of buckets in the node resolution latency histogram. Bucket
+   * {@code 0} counts latencies below one millisecond, bucket {@code n} counts
+   * latencies in {@code [2^(n-1), 2^n)} milliseconds, and the final bucket
+   * counts everything longer.
+   */
+
+  private static final int HISTOGRAM_BUCKETS = 20;
+
+  private final AtomicLongArray phaseNanos;
+  private final AtomicLongArray operationCounts;
+  private final AtomicLongArray operationNanos;
+  private final AtomicLongArray counters;
+  private final AtomicLongArray histogram;
+  private final AtomicLongArray queueSamples;
+  private final AtomicLongArray queueDepthTotal;
+  private final AtomicLongArray queueDepthMaximum;
+
+  private ChaserMetrics()
+  {
+    this.phaseNanos =
+      new AtomicLongArray(Phase.values().length);
+    this.operationCounts =
+      new AtomicLongArray(Operation.values().length);
+    this.operationNanos =
+      new AtomicLongArray(Operation.values().length);
+    this.counters =
+      new AtomicLongArray(Counter.values().length);
+    this.histogram =
+      new AtomicLongArray(HISTOGRAM_BUCKETS);
+    this.queueSamples =
+      new AtomicLongArray(Queue.values().length);
+    this.queueDepthTotal =
+      new AtomicLongArray(Queue.values().length);
+    this.queueDepthMaximum =
+      new AtomicLongArray(Queue.values().length);
+  }
+
+  /**
+   * @return A new set of metrics with all values set to zero
+   */
+
+  public static ChaserMetrics create()
+  {
+    return new ChaserMetrics();
+  }
+
+  /**
+   * The phases of goal execution. Phases are sequential, and are measured
+   * in wall-clock time.
+   */
+
+  public enum Phase
+  {
+    /**
+     * Building and merging the dependency graphs.
+     */
+
+    GRAPH_BUILD,
+
+    /**
+     * Resolving and inspecting every dependency in the graph.
+     */
+
+    ANALYSIS,
+
+    /**
+     * Writing the report.
+     */
+
+    SERIALIZATION,
+
+    /**
+     * Writing caches and state files.
+     */
+
+    CACHE_SAVE
+  }
+
+  /**
+   * The individual operations performed during analysis. Operations may
+   * execute concurrently; the recorded time is the sum of the durations of
+   * all operations of each kind.
+   */
+
+  public enum Operation
+  {
+    /**
+     * Retrieving the available versions of an artifact from remote metadata.
+     */
+
+    VERSION_RETRIEVAL,
+
+    /**
+     * Resolving (and possibly downloading) an artifact file.
+     */
+
+    ARTIFACT_RESOLUTION,
+
+    /**
+     * Inspecting a remote jar file using range requests.
+     */
+
+    REMOTE_INSPECTION,
+
+    /**
+     * Inspecting a local jar file for module metadata.
+     */
+
+    JAR_INSPECTION
+  }
+
+  /**
+   * Event counters.
+   */
+
+  public enum Counter
+  {
+    /**
+     * The number of bytes downloaded from remote repositories.
+     */
+
+    BYTES_DOWNLOADED,
+
+    /**
+     * The number of version lookups performed through the version cache.
+     */
+
+    VERSION_CACHE_LOOKUPS,
+
+    /**
+     * The number of version lookups that missed the version cache.
+     */
+
+    VERSION_CACHE_MISSES,
+
+    /**
+     * The number of status cache hits.
+     */
+
+    STATUS_CACHE_HITS,
+
+    /**
+     * The number of status cache misses.
+     */
+
+    STATUS_CACHE_MISSES,
+
+    /**
+     * The number of dependencies reused from the previous report state.
+     */
+
+    REPORT_STATE_REUSED,
+
+    /**
+     * The number of dependencies that could not be resolved.
+     */
+
+    ERRORS,
+
+    /**
+     * The number of dependencies that could not be resolved offline.
+     */
+
+    UNAVAILABLE_OFFLINE,
+
+    /**
+     * The number of version lookups and highest-version resolutions that
+     * were satisfied by a request already made for the same coordinates.
+     */
+
+    COALESCED_REQUESTS,
+
+    /**
+     * The number of versions inspected while searching for the earliest
+     * modularized versions of dependencies.
+     */
+
+    VERSION_PROBES
+  }
+
+  /**
+   * The queues feeding the stages of the resolution pipeline.
+   */
+
+  public enum Queue
+  {
+    /**
+     * Dependencies awaiting a metadata lookup.
+     */
+
+    METADATA,
+
+    /**
+     * Dependencies awaiting the fetching of their artifacts.
+     */
+
+    FETCH,
+
+    /**
+     * Dependencies awaiting the inspection of their artifacts.
+     */
+
+    INSPECTION
+  }
+
+  /**
+   * Record the depth of a queue, as observed when an item is added to it.
+   *
+   * @param queue The queue
+   * @param depth The number of items in the queue
+   */
+
+  public void recordQueueDepth(
+    final Queue queue,
+    final int depth)
+  {
+    final int index = queue.ordinal();
+    this.queueSamples.incrementAndGet(index);
+    this.queueDepthTotal.addAndGet(index, depth);
+    this.queueDepthMaximum.accumulateAndGet(index, depth, Math::max);
+  }
+
+  /**
+   * @param queue The queue
+   *
+   * @return The largest observed depth of the queue
+   */
+
+  public long queueDepthMaximum(
+    final Queue queue)
+  {
+    return this.queueDepthMaximum.get(queue.ordinal());
+  }
+
+  /**
+   * @param queue The queue
+   *
+   * @return The mean observed depth of the queue, or {@code 0.0} if the
+   * queue was never used
+   */
+
+  public double queueDepthMean(
+    final Queue queue)
+  {
+    final long samples = this.queueSamples.get(queue.ordinal());
+    if (samples == 0L) {
+      return 0.0;
+    }
+    return (double) this.queueDepthTotal.get(queue.ordinal()) / samples;
+  }
+
+  /**
+   * Record the duration of a phase.
+   *
+   * @param phase The phase
+   * @param nanos The duration in nanoseconds
+   */
+
+  public void recordPhase(
+    final Phase phase,
+    final long nanos)
+  {
+    this.phaseNanos.addAndGet(phase.ordinal(), nanos);
+  }
+
+  /**
+   * Record the duration of an operation.
+   *
+   * @param operation The operation
+   * @param nanos     The duration in nanoseconds
+   */
+
+  public void recordOperation(
+    final Operation operation,
+    final long nanos)
+  {
+    this.operationCounts.incrementAndGet(operation.ordinal());
+    this.operationNanos.addAndGet(operation.ordinal(), nanos);
+  }
+
+  /**
+   * Record the time taken to produce the report for a single dependency.
+   *
+   * @param nanos The duration in nanoseconds
+   */
+
+  public void recordNodeResolution(
+    final long nanos)
+  {
+    this.histogram.incrementAndGet(bucketOf(nanos));
+  }
+
+  /**
+   * Add a value to a counter.
+   *
+   * @param counter The counter
+   * @param value   The value
+   */
+
+  public void add(
+    final Counter counter,
+    final long value)
+  {
+    this.counters.addAndGet(counter.ordinal(), value);
+  }
+
+  /**
+   * Increment a counter.
+   *
+   * @param counter The counter
+   */
+
+  public void increment(
+    final Counter counter)
+  {
+    this.counters.incrementAndGet(counter.ordinal());
+  }
+
+  /**
+   * @param counter The counter
+   *
+   * @return The current value of the counter
+   */
+
+  public long counter(
+    final Counter counter)
+  {
+    return this.counters.get(counter.ordinal());
+  }
+
+  /**
+   * @param phase The phase
+   *
+   * @return The total duration of the phase in nanoseconds
+   */
+
+  public long phaseNanos(
+    final Phase phase)
+  {
+    return this.phaseNanos.get(phase.ordinal());
+  }
+
+  /**
+   * @param operation The operation
+   *
+   * @return The number of times the operation was performed
+   */
+
+  public long operationCount(
+    final Operation operation)
+  {
+    return this.operationCounts.get(operation.ordinal());
+  }
+
+  /**
+   * @param operation The operation
+   *
+   * @return The total duration of the operation in nanoseconds
+   */
+
+  public long operationNanos(
+    final Operation operation)
+  {
+    return this.operationNanos.get(operation.ordinal());
+  }
+
+  /**
+   * @return The number of node resolutions recorded
+   */
+
+  public long nodeResolutions()
+  {
+    long total = 0L;
+    for (int index = 0; index < HISTOGRAM_BUCKETS; ++index) {
+      total += this.histogram.get(index);
+    }
+    return total;
+  }
+
+  /**
+   * Estimate a node resolution latency percentile. The result is the upper
+   * bound of the histogram bucket containing the percentile, and so is
+   * accurate to within a factor of two.
+   *
+   * @param percentile The percentile in {@code [0, 100]}
+   *
+   * @return The upper bound of the percentile in milliseconds, or
+   * {@link Long#MAX_VALUE} if it lies in the final, unbounded bucket
+   */
+
+  public long nodeResolutionPercentileMillis(
+    final double percentile)
+  {
+    final long total = this.nodeResolutions();
+    if (total == 0L) {
+      return 0L;
+    }
+
+    final long rank = (long) Math.ceil((percentile / 100.0) * (double) total);
+    long seen = 0L;
+    for (int index = 0; index < HISTOGRAM_BUCKETS; ++index) {
+      seen += this.histogram.get(index);
+      if (seen >= rank) {
+        return bucketUpperMillis(index);
+      }
+    }
+    return Long.MAX_VALUE;
+  }
+
+  /**
+   * @return A single-line human-readable summary of the metrics
+   */
+
+  public String summary()
+  {
+    return new StringBuilder(256)
+      .append("graph ")
+      .append(seconds(this.phaseNanos(Phase.GRAPH_BUILD)))
+      .append(", analysis ")
+      .append(seconds(this.phaseNanos(Phase.ANALYSIS)))
+      .append(", serialization ")
+      .append(seconds(this.phaseNanos(Phase.SERIALIZATION)))
+      .append("; ")
+      .append(this.nodeResolutions())
+      .append(" nodes (p50 <= ")
+      .append(millis(this.nodeResolutionPercentileMillis(50.0)))
+      .append(", p99 <= ")
+      .append(millis(this.nodeResolutionPercentileMillis(99.0)))
+      .append("); ")
+      .append(this.counter(Counter.ERRORS))
+      .append(" errors; ")
+      .append(this.counter(Counter.BYTES_DOWNLOADED))
+      .append(" bytes downloaded; status cache ")
+      .append(this.counter(Counter.STATUS_CACHE_HITS))
+      .append(" hits, ")
+      .append(this.counter(Counter.STATUS_CACHE_MISSES))
+      .append(" misses; version cache ")
+      .append(this.counter(Counter.VERSION_CACHE_LOOKUPS))
+      .append(" lookups, ")
+      .append(this.counter(Counter.VERSION_CACHE_MISSES))
+      .append(" misses; ")
+      .append(this.counter(Counter.REPORT_STATE_REUSED))
+      .append(" reused; ")
+      .append(this.counter(Counter.COALESCED_REQUESTS))
+      .append(" coalesced; ")
+      .append(this.counter(Counter.VERSION_PROBES))
+      .append(" version probes; queue depth maxima: metadata ")
+      .append(this.queueDepthMaximum(Queue.METADATA))
+      .append(", fetch ")
+      .append(this.queueDepthMaximum(Queue.FETCH))
+      .append(", inspection ")
+      .append(this.queueDepthMaximum(Queue.INSPECTION))
+      .toString();
+  }
+
+  /**
+   * Write the metrics as a JSON document.
+   *
+   * @param stream The output stream
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public void writeJSON(
+    final OutputStream stream)
+    throws IOException
+  {
+    Objects.requireNonNull(stream, "stream");
+
+    final ChaserJSONWriter json =
+      new ChaserJSONWriter(
+        new BufferedWriter(new OutputStreamWriter(stream, UTF_8)));
+
+    json.beginObject();
+    json.name("format").value("com.io7m.modulechaser.metrics");
+    json.name("formatVersion").value(1L);
+
+    json.newline();
+    json.name("phasesNanos");
+    json.beginObject();
+    for (final Phase phase : Phase.values()) {
+      json.name(phase.name()).value(this.phaseNanos(phase));
+    }
+    json.endObject();
+
+    json.newline();
+    json.name("operations");
+    json.beginObject();
+    for (final Operation operation : Operation.values()) {
+      json.name(operation.name());
+      json.beginObject();
+      json.name("count").value(this.operationCount(operation));
+      json.name("nanos").value(this.operationNanos(operation));
+      json.endObject();
+    }
+    json.endObject();
+
+    json.newline();
+    json.name("counters");
+    json.beginObject();
+    for (final Counter counter : Counter.values()) {
+      json.name(counter.name()).value(this.counter(counter));
+    }
+    json.endObject();
+
+    json.newline();
+    json.name("queues");
+    json.beginObject();
+    for (final Queue queue : Queue.values()) {
+      json.name(queue.name());
+      json.beginObject();
+      json.name("maximumDepth").value(this.queueDepthMaximum(queue));
+      json.name("meanDepth").value(this.queueDepthMean(queue));
+      json.endObject();
+    }
+    json.endObject();
+
+    json.newline();
+    json.name("nodeResolutionMillisHistogram");
+    json.beginArray();
+    for (int index = 0; index < HISTOGRAM_BUCKETS; ++index) {
+      json.beginObject();
+      if (index + 1 < HISTOGRAM_BUCKETS) {
+        json.name("lessThan").value(bucketUpperMillis(index));
+      } else {
+        json.name("lessThan").nullValue();
+      }
+      json.name("count").value(this.histogram.get(index));
+      json.endObject();
+    }
+    json.endArray();
+
+    json.newline();
+    json.endObject();
+    json.newline();
+    json.flush();
+  }
+
+  private static int bucketOf(
+    final long nanos)
+  {
+    final long millis = Math.max(0L, nanos / 1_000_000L);
+    final int bucket = 64 - Long.numberOfLeadingZeros(millis);
+    return Math.min(bucket, HISTOGRAM_BUCKETS - 1);
+  }
+
+  private static long bucketUpperMillis(
+    final int bucket)
+  {
+    if (bucket + 1 >= HISTOGRAM_BUCKETS) {
+      return Long.MAX_VALUE;
+    }
+    return 1L << bucket;
+  }
+
+  private static String seconds(
+    final long nanos)
+  {
+    return String.format(
+      Locale.ROOT, "%.3fs", Double.valueOf((double) nanos / 1.0e9));
+  }
+
+  private static String millis(
+    final long millis)
+  {
+    if (millis == Long.MAX_VALUE) {
+      return "inf";
+    }
+    return millis + "ms";
+  }
+}
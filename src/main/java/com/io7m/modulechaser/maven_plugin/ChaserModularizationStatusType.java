@@ -66,7 +66,14 @@ public interface ChaserModularizationStatusType
      * The dependency is unavailable.
      */
 
-    UNAVAILABLE
+    UNAVAILABLE,
+
+    /**
+     * The dependency is not present in the local repository, and remote
+     * repositories could not be consulted because the build is offline.
+     */
+
+    UNAVAILABLE_OFFLINE
   }
 
   /**
@@ -197,4 +204,28 @@ public interface ChaserModularizationStatusType
     @Value.Parameter
     Optional<Exception> error();
   }
+
+  /**
+   * The dependency is not present in the local repository, and remote
+   * repositories could not be consulted because the build is offline.
+   */
+
+  @ChaserImmutableStyleType
+  @Value.Immutable
+  interface ChaserModularizationStatusUnavailableOfflineType
+    extends ChaserModularizationStatusType
+  {
+    @Override
+    default Kind kind()
+    {
+      return Kind.UNAVAILABLE_OFFLINE;
+    }
+
+    /**
+     * @return The module version
+     */
+
+    @Value.Parameter
+    String version();
+  }
 }
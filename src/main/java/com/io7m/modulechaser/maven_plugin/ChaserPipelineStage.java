@@ -0,0 +1,173 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.maven_plugin;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A stage of the resolution pipeline: a fixed pool of worker threads fed
+ * by a bounded queue. Submitting work to a stage whose workers are busy and
+ * whose queue is full blocks until space is available, so that a fast
+ * stage cannot run arbitrarily far ahead of a slow one.
+ *
+ * A stage may instead be inline, in which case submitted tasks are run
+ * immediately on the submitting thread.
+ */
+
+final class ChaserPipelineStage implements AutoCloseable
+{
+  private final ChaserMetrics.Queue queue;
+  private final ChaserMetrics metrics;
+  private final Optional<ThreadPoolExecutor> executor;
+  private final Semaphore permits;
+
+  private ChaserPipelineStage(
+    final ChaserMetrics.Queue inQueue,
+    final ChaserMetrics inMetrics,
+    final Optional<ThreadPoolExecutor> inExecutor,
+    final Semaphore inPermits)
+  {
+    this.queue = Objects.requireNonNull(inQueue, "queue");
+    this.metrics = Objects.requireNonNull(inMetrics, "metrics");
+    this.executor = Objects.requireNonNull(inExecutor, "executor");
+    this.permits = Objects.requireNonNull(inPermits, "permits");
+  }
+
+  /**
+   * Create a stage.
+   *
+   * @param name     The name prefix for worker threads
+   * @param queue    The queue whose depth will be recorded
+   * @param metrics  The metrics
+   * @param threads  The number of worker threads
+   * @param capacity The capacity of the queue
+   *
+   * @return A stage
+   */
+
+  static ChaserPipelineStage create(
+    final String name,
+    final ChaserMetrics.Queue queue,
+    final ChaserMetrics metrics,
+    final int threads,
+    final int capacity)
+  {
+    Objects.requireNonNull(name, "name");
+
+    final ThreadPoolExecutor executor =
+      new ThreadPoolExecutor(
+        threads,
+        threads,
+        0L,
+        TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<>(),
+        runnable -> ChaserExecutors.createThread(name, runnable));
+
+    return new ChaserPipelineStage(
+      queue, metrics, Optional.of(executor), new Semaphore(threads + capacity));
+  }
+
+  /**
+   * Create an inline stage.
+   *
+   * @param queue   The queue whose depth will be recorded
+   * @param metrics The metrics
+   *
+   * @return A stage
+   */
+
+  static ChaserPipelineStage createInline(
+    final ChaserMetrics.Queue queue,
+    final ChaserMetrics metrics)
+  {
+    return new ChaserPipelineStage(
+      queue, metrics, Optional.empty(), new Semaphore(0));
+  }
+
+  /**
+   * Submit a task to the stage, blocking if the stage is full.
+   *
+   * @param task The task
+   *
+   * @throws InterruptedException If the calling thread is interrupted while
+   *                              waiting for space
+   */
+
+  void submit(
+    final Runnable task)
+    throws InterruptedException
+  {
+    Objects.requireNonNull(task, "task");
+
+    if (this.executor.isEmpty()) {
+      task.run();
+      return;
+    }
+
+    final ThreadPoolExecutor pool = this.executor.get();
+    this.permits.acquire();
+    try {
+      pool.execute(() -> {
+        try {
+          task.run();
+        } finally {
+          this.permits.release();
+        }
+      });
+    } catch (final RuntimeException e) {
+      this.permits.release();
+      throw e;
+    }
+
+    this.metrics.recordQueueDepth(this.queue, pool.getQueue().size());
+  }
+
+  /**
+   * Submit a task to the stage without waiting for space. This is used for
+   * work that a later stage feeds back to an earlier one: a stage that
+   * waited for space in a stage that was itself waiting for space in the
+   * first stage would never proceed.
+   *
+   * @param task The task
+   */
+
+  void submitUnbounded(
+    final Runnable task)
+  {
+    Objects.requireNonNull(task, "task");
+
+    if (this.executor.isEmpty()) {
+      task.run();
+      return;
+    }
+
+    final ThreadPoolExecutor pool = this.executor.get();
+    pool.execute(task);
+    this.metrics.recordQueueDepth(this.queue, pool.getQueue().size());
+  }
+
+  @Override
+  public void close()
+  {
+    this.executor.ifPresent(ThreadPoolExecutor::shutdownNow);
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.maven_plugin;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Functions to read and write the properties files used by caches.
+ */
+
+final class ChaserPropertiesFiles
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(ChaserPropertiesFiles.class);
+
+  private ChaserPropertiesFiles()
+  {
+
+  }
+
+  /**
+   * Read a properties file. A missing or unreadable file is treated as
+   * being empty.
+   *
+   * @param file The file
+   *
+   * @return The properties in the file
+   */
+
+  static Map<String, String> read(
+    final Path file)
+  {
+    Objects.requireNonNull(file, "file");
+
+    final Map<String, String> results = new TreeMap<>();
+    final Properties properties = new Properties();
+
+    try (InputStream stream = Files.newInputStream(file)) {
+      properties.load(stream);
+    } catch (final NoSuchFileException e) {
+      return results;
+    } catch (final IOException e) {
+      LOG.warn("unable to read {}: ", file, e);
+      return results;
+    }
+
+    for (final String key : properties.stringPropertyNames()) {
+      results.put(key, properties.getProperty(key));
+    }
+    return results;
+  }
+
+  /**
+   * Atomically replace a properties file.
+   *
+   * @param file    The file
+   * @param comment The file comment
+   * @param values  The properties
+   *
+   * @throws IOException On I/O errors
+   */
+
+  static void writeAtomically(
+    final Path file,
+    final String comment,
+    final Map<String, String> values)
+    throws IOException
+  {
+    Objects.requireNonNull(file, "file");
+    Objects.requireNonNull(comment, "comment");
+    Objects.requireNonNull(values, "values");
+
+    final Properties properties = new Properties();
+    for (final Map.Entry<String, String> entry : values.entrySet()) {
+      properties.setProperty(entry.getKey(), entry.getValue());
+    }
+
+    final Path directory = file.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+
+    final Path file_tmp =
+      Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+
+    try {
+      try (OutputStream stream = Files.newOutputStream(file_tmp)) {
+        properties.store(stream, comment);
+      }
+      Files.move(
+        file_tmp,
+        file,
+        StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(file_tmp);
+    }
+  }
+}
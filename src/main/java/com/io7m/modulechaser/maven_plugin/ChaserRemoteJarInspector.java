@@ -0,0 +1,435 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.maven_plugin;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * An inspector that reads the module metadata of remote jar files using
+ * HTTP range requests.
+ *
+ * Rather than downloading a complete jar file, the inspector fetches the end
+ * of central directory record, the central directory, and then only the
+ * module descriptor and manifest entries. These are written to a small
+ * local jar file that can be inspected in the same way as the original.
+ */
+
+public final class ChaserRemoteJarInspector
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(ChaserRemoteJarInspector.class);
+
+  private static final Pattern CONTENT_RANGE =
+    Pattern.compile("bytes\\s+(\\d+)-(\\d+)/(\\d+|\\*)");
+
+  private static final String MANIFEST_NAME = "META-INF/MANIFEST.MF";
+
+  /**
+   * The number of additional bytes fetched after a local file header to
+   * account for extra fields that are not described by the central
+   * directory.
+   */
+
+  private static final int LOCAL_EXTRA_SLACK = 256;
+
+  private final HttpClient client;
+  private final Path directory;
+  private final Duration timeout;
+  private final ChaserMetrics metrics;
+
+  private ChaserRemoteJarInspector(
+    final HttpClient inClient,
+    final Path inDirectory,
+    final Duration inTimeout,
+    final ChaserMetrics inMetrics)
+  {
+    this.client = Objects.requireNonNull(inClient, "client");
+    this.directory = Objects.requireNonNull(inDirectory, "directory");
+    this.timeout = Objects.requireNonNull(inTimeout, "timeout");
+    this.metrics = Objects.requireNonNull(inMetrics, "metrics");
+  }
+
+  /**
+   * Create an inspector.
+   *
+   * @param client    The HTTP client
+   * @param directory The directory that will hold the reduced jar files
+   * @param timeout   The timeout for individual requests
+   *
+   * @return An inspector
+   */
+
+  public static ChaserRemoteJarInspector create(
+    final HttpClient client,
+    final Path directory,
+    final Duration timeout)
+  {
+    return create(client, directory, timeout, ChaserMetrics.create());
+  }
+
+  /**
+   * Create an inspector.
+   *
+   * @param client    The HTTP client
+   * @param directory The directory that will hold the reduced jar files
+   * @param timeout   The timeout for individual requests
+   * @param metrics   The metrics updated with the number of bytes fetched
+   *
+   * @return An inspector
+   */
+
+  public static ChaserRemoteJarInspector create(
+    final HttpClient client,
+    final Path directory,
+    final Duration timeout,
+    final ChaserMetrics metrics)
+  {
+    return new ChaserRemoteJarInspector(client, directory, timeout, metrics);
+  }
+
+  /**
+   * Fetch the module metadata of the jar file at the given URI, producing
+   * a reduced local jar file containing only the module descriptor and
+   * manifest (if either are present). If a reduced jar file already exists
+   * for {@code relativePath}, it is returned without contacting the server.
+   *
+   * @param uri           The URI of the jar file
+   * @param authorization The value of an {@code Authorization} header, if any
+   * @param relativePath  The path of the reduced jar file relative to the
+   *                      inspector's directory
+   *
+   * @return The reduced jar file, or nothing if the server does not support
+   * range requests and the jar must be downloaded in full
+   *
+   * @throws IOException On I/O errors, or if the jar is malformed
+   */
+
+  public Optional<Path> fetch(
+    final URI uri,
+    final Optional<String> authorization,
+    final String relativePath)
+    throws IOException
+  {
+    Objects.requireNonNull(uri, "uri");
+    Objects.requireNonNull(authorization, "authorization");
+    Objects.requireNonNull(relativePath, "relativePath");
+
+    final Path output = this.directory.resolve(relativePath).normalize();
+    if (!output.startsWith(this.directory.normalize())) {
+      throw new IOException("Path escapes output directory: " + relativePath);
+    }
+    if (Files.isRegularFile(output)) {
+      LOG.debug("reduced jar exists: {}", output);
+      return Optional.of(output);
+    }
+
+    final Optional<Range> tail_opt =
+      this.fetchRange(uri, authorization, "bytes=-" + ChaserZip.EOCD_SEARCH_SIZE);
+    if (tail_opt.isEmpty()) {
+      return Optional.empty();
+    }
+
+    final Range tail = tail_opt.get();
+    final ChaserZip.CentralDirectory directory_location =
+      this.centralDirectoryOf(uri, authorization, tail);
+
+    final ByteBuffer directory_data;
+    if (tail.contains(directory_location.offset(), directory_location.size())) {
+      directory_data =
+        tail.slice(directory_location.offset(), directory_location.size());
+    } else {
+      directory_data =
+        this.fetchExactly(
+          uri,
+          authorization,
+          directory_location.offset(),
+          directory_location.size()).data;
+    }
+
+    final List<ChaserZip.Entry> found =
+      ChaserZip.findEntries(
+        directory_data,
+        List.of(ChaserJPMSJar.MODULE_INFO, MANIFEST_NAME),
+        ChaserJPMSJar.MODULE_INFO_SUFFIX);
+
+    final Optional<ChaserZip.Entry> descriptor = descriptorOf(found);
+    final Optional<ChaserZip.Entry> manifest =
+      ChaserZip.firstNamed(found, List.of(MANIFEST_NAME));
+
+    final Path output_directory = output.getParent();
+    Files.createDirectories(output_directory);
+
+    final Path output_tmp =
+      Files.createTempFile(
+        output_directory, output.getFileName().toString(), ".tmp");
+
+    try {
+      try (OutputStream stream = Files.newOutputStream(output_tmp);
+           ZipOutputStream zip = new ZipOutputStream(stream)) {
+        if (manifest.isPresent()) {
+          this.copyEntry(uri, authorization, tail, manifest.get(), zip);
+        }
+        if (descriptor.isPresent()) {
+          this.copyEntry(uri, authorization, tail, descriptor.get(), zip);
+        }
+      }
+      Files.move(
+        output_tmp,
+        output,
+        StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(output_tmp);
+    }
+
+    LOG.debug("reduced jar {} -> {}", uri, output);
+    return Optional.of(output);
+  }
+
+  /**
+   * Select the descriptor to be copied into the reduced jar: the root
+   * descriptor if there is one, and otherwise the versioned descriptor for
+   * the highest release. Whether a versioned descriptor applies depends on
+   * the manifest, which is copied alongside it, and so is decided when the
+   * reduced jar is inspected.
+   */
+
+  private static Optional<ChaserZip.Entry> descriptorOf(
+    final List<ChaserZip.Entry> found)
+  {
+    final Optional<ChaserZip.Entry> root =
+      ChaserZip.firstNamed(found, List.of(ChaserJPMSJar.MODULE_INFO));
+    if (root.isPresent()) {
+      return root;
+    }
+
+    final List<String> names = new ArrayList<>(found.size());
+    for (final ChaserZip.Entry entry : found) {
+      names.add(entry.name());
+    }
+    return ChaserJPMSJar.highestVersionedDescriptor(names)
+      .flatMap(name -> ChaserZip.firstNamed(found, List.of(name)));
+  }
+
+  private ChaserZip.CentralDirectory centralDirectoryOf(
+    final URI uri,
+    final Optional<String> authorization,
+    final Range tail)
+    throws IOException
+  {
+    try {
+      return ChaserZip.centralDirectory(tail.data, tail.start);
+    } catch (final ChaserZip.Zip64Required e) {
+      final Range record =
+        this.fetchExactly(uri, authorization, e.recordOffset(), 56L);
+      return ChaserZip.zip64CentralDirectory(record.data);
+    }
+  }
+
+  private void copyEntry(
+    final URI uri,
+    final Optional<String> authorization,
+    final Range tail,
+    final ChaserZip.Entry entry,
+    final ZipOutputStream zip)
+    throws IOException
+  {
+    final long header_guess =
+      ChaserZip.LOCAL_HEADER_SIZE
+        + (long) entry.name().length()
+        + LOCAL_EXTRA_SLACK
+        + entry.sizeCompressed();
+
+    Range local;
+    if (tail.contains(entry.localHeaderOffset(), ChaserZip.LOCAL_HEADER_SIZE)) {
+      local = tail;
+    } else {
+      local = this.fetchExactly(
+        uri, authorization, entry.localHeaderOffset(), header_guess);
+    }
+
+    final ByteBuffer header =
+      local.slice(entry.localHeaderOffset(), ChaserZip.LOCAL_HEADER_SIZE);
+    final long data_offset =
+      entry.localHeaderOffset() + ChaserZip.localDataOffset(header);
+
+    if (!local.contains(data_offset, entry.sizeCompressed())) {
+      local = this.fetchExactly(
+        uri, authorization, data_offset, entry.sizeCompressed());
+    }
+
+    final ByteBuffer data =
+      ChaserZip.decompress(
+        entry, local.slice(data_offset, entry.sizeCompressed()));
+
+    final byte[] bytes = new byte[data.remaining()];
+    data.get(bytes);
+
+    zip.putNextEntry(new ZipEntry(entry.name()));
+    zip.write(bytes);
+    zip.closeEntry();
+  }
+
+  private Range fetchExactly(
+    final URI uri,
+    final Optional<String> authorization,
+    final long offset,
+    final long size)
+    throws IOException
+  {
+    final long last = offset + size - 1L;
+    final Optional<Range> range =
+      this.fetchRange(uri, authorization, "bytes=" + offset + "-" + last);
+
+    if (range.isEmpty() || !range.get().contains(offset, size)) {
+      throw new ZipException(
+        new StringBuilder(128)
+          .append("Server did not return the requested range")
+          .append(System.lineSeparator())
+          .append("  URI: ")
+          .append(uri)
+          .append(System.lineSeparator())
+          .append("  Range: ")
+          .append(offset)
+          .append("-")
+          .append(last)
+          .append(System.lineSeparator())
+          .toString());
+    }
+    return range.get();
+  }
+
+  private Optional<Range> fetchRange(
+    final URI uri,
+    final Optional<String> authorization,
+    final String range)
+    throws IOException
+  {
+    final HttpRequest.Builder request_builder =
+      HttpRequest.newBuilder(uri)
+        .timeout(this.timeout)
+        .header("Range", range)
+        .GET();
+    authorization.ifPresent(value -> request_builder.header("Authorization", value));
+
+    final HttpResponse<InputStream> response;
+    try {
+      response = this.client.send(
+        request_builder.build(),
+        HttpResponse.BodyHandlers.ofInputStream());
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(e.getMessage());
+    }
+
+    try (InputStream body = response.body()) {
+      final int status = response.statusCode();
+      if (status != 206) {
+        /*
+         * The server either does not support ranges (and is about to send
+         * the entire file), or cannot provide the file at all. In both
+         * cases, the body is discarded unread.
+         */
+
+        LOG.debug("range request {} {} -> {}", uri, range, Integer.valueOf(status));
+        return Optional.empty();
+      }
+
+      final Optional<String> content_range =
+        response.headers().firstValue("Content-Range");
+      if (content_range.isEmpty()) {
+        return Optional.empty();
+      }
+
+      final Matcher matcher = CONTENT_RANGE.matcher(content_range.get().trim());
+      if (!matcher.matches()) {
+        return Optional.empty();
+      }
+
+      final long start = Long.parseLong(matcher.group(1));
+      final long end = Long.parseLong(matcher.group(2));
+      final long length = end - start + 1L;
+      if (length < 0L || length > Integer.MAX_VALUE - 8) {
+        throw new ZipException("Unusable range: " + content_range.get());
+      }
+
+      final byte[] data = body.readNBytes((int) length);
+      this.metrics.add(ChaserMetrics.Counter.BYTES_DOWNLOADED, data.length);
+      if (data.length != length) {
+        throw new ZipException("Truncated range response: " + uri);
+      }
+      return Optional.of(new Range(start, ByteBuffer.wrap(data)));
+    }
+  }
+
+  private static final class Range
+  {
+    private final long start;
+    private final ByteBuffer data;
+
+    Range(
+      final long inStart,
+      final ByteBuffer inData)
+    {
+      this.start = inStart;
+      this.data = Objects.requireNonNull(inData, "data");
+    }
+
+    boolean contains(
+      final long offset,
+      final long size)
+    {
+      return offset >= this.start
+        && offset + size <= this.start + this.data.remaining();
+    }
+
+    ByteBuffer slice(
+      final long offset,
+      final long size)
+    {
+      final ByteBuffer view = this.data.duplicate();
+      final int position = (int) (offset - this.start);
+      view.position(position);
+      view.limit(position + (int) size);
+      return view.slice();
+    }
+  }
+}
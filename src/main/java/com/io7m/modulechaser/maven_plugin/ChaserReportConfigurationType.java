@@ -0,0 +1,169 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.maven_plugin;
+
+import org.immutables.value.Value;
+
+import java.util.Optional;
+
+/**
+ * Configuration values for report generation.
+ */
+
+@ChaserImmutableStyleType
+@Value.Immutable
+public interface ChaserReportConfigurationType
+{
+  /**
+   * The number of threads inspecting artifacts. If this value, the
+   * {@link #metadataParallelism()}, and the {@link #fetchParallelism()}
+   * are all {@code 1}, dependencies are resolved sequentially on the
+   * calling thread.
+   *
+   * @return The resolution parallelism
+   */
+
+  @Value.Default
+  default int parallelism()
+  {
+    return 1;
+  }
+
+  /**
+   * @return The number of threads performing metadata lookups
+   */
+
+  @Value.Default
+  default int metadataParallelism()
+  {
+    return this.parallelism();
+  }
+
+  /**
+   * @return The number of threads fetching artifacts
+   */
+
+  @Value.Default
+  default int fetchParallelism()
+  {
+    return this.parallelism();
+  }
+
+  /**
+   * The number of dependencies that may wait in the queue of each pipeline
+   * stage before the preceding stage is made to wait.
+   *
+   * @return The capacity of each pipeline queue
+   */
+
+  @Value.Default
+  default int pipelineQueueCapacity()
+  {
+    return 64;
+  }
+
+  /**
+   * The number of dependencies whose resolution may be in flight at once
+   * when a report is generated with an asynchronous resolver.
+   *
+   * @return The maximum number of in-flight resolutions
+   *
+   * @see ChaserReports#reportOfAsync
+   */
+
+  @Value.Default
+  default int maximumInFlight()
+  {
+    return 256;
+  }
+
+  /**
+   * @return The cache of artifact modularization statuses, if any
+   */
+
+  Optional<ChaserStatusCache> statusCache();
+
+  /**
+   * @return The state of the previous report, if any
+   */
+
+  Optional<ChaserReportState> previousState();
+
+  /**
+   * @return The metrics updated during report generation
+   */
+
+  @Value.Default
+  default ChaserMetrics metrics()
+  {
+    return ChaserMetrics.create();
+  }
+
+  /**
+   * If a version source is present, the earliest modularized versions of
+   * each dependency are searched for.
+   *
+   * @return The source of versions for the search
+   *
+   * @see ChaserFirstVersionSearch
+   */
+
+  Optional<ChaserVersionSourceType> versionSource();
+
+  /**
+   * @return The maximum number of versions of each dependency inspected
+   * when searching for the earliest modularized versions
+   */
+
+  @Value.Default
+  default int versionProbeLimit()
+  {
+    return 16;
+  }
+
+  /**
+   * Check preconditions for the type.
+   */
+
+  @Value.Check
+  default void checkPreconditions()
+  {
+    checkPositive("Parallelism", this.parallelism());
+    checkPositive("Metadata parallelism", this.metadataParallelism());
+    checkPositive("Fetch parallelism", this.fetchParallelism());
+    checkPositive("Pipeline queue capacity", this.pipelineQueueCapacity());
+    checkPositive("Maximum in-flight resolutions", this.maximumInFlight());
+    checkPositive("Version probe limit", this.versionProbeLimit());
+  }
+
+  private static void checkPositive(
+    final String name,
+    final int value)
+  {
+    if (value < 1) {
+      throw new IllegalArgumentException(
+        new StringBuilder(64)
+          .append(name)
+          .append(" must be at least 1")
+          .append(System.lineSeparator())
+          .append("  Received: ")
+          .append(value)
+          .append(System.lineSeparator())
+          .toString());
+    }
+  }
+}
@@ -18,6 +18,8 @@ package com.io7m.modulechaser.maven_plugin;
 
 import org.immutables.value.Value;
 
+import java.util.Optional;
+
 /**
  * The status of a dependency in a report.
  */
@@ -39,4 +41,38 @@ public interface ChaserReportDependencyType
 
   @Value.Parameter
   ChaserModularizationStatusType statusHighest();
+
+  /**
+   * @return The earliest available version that declares a module name,
+   * if it has been determined
+   *
+   * @see ChaserFirstVersionSearch#firstModular()
+   */
+
+  Optional<String> firstModularVersion();
+
+  /**
+   * @return The earliest available version that contains a module
+   * descriptor, if it has been determined
+   *
+   * @see ChaserFirstVersionSearch#firstFullyModular()
+   */
+
+  Optional<String> firstFullyModularVersion();
+
+  /**
+   * A search for the first modularized versions may be abandoned, either
+   * because it reached the probe limit or because a version could not be
+   * inspected. The first versions of an incomplete search are unknown,
+   * rather than known to be absent.
+   *
+   * @return {@code true} if a search for the first modularized versions
+   * was started but did not finish
+   */
+
+  @Value.Default
+  default boolean firstVersionsIncomplete()
+  {
+    return false;
+  }
 }
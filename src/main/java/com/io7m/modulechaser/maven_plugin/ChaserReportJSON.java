@@ -0,0 +1,268 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.maven_plugin;
+
+import com.io7m.modulechaser.maven_plugin.ChaserModularizationStatusType.Kind;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.format.DateTimeFormatter.ISO_ZONED_DATE_TIME;
+
+/**
+ * Functions to generate JSON documents from reports.
+ *
+ * The document is an object with the following members:
+ *
+ * <ul>
+ *   <li>{@code format}: The string {@code com.io7m.modulechaser.report}</li>
+ *   <li>{@code formatVersion}: The version of the document format</li>
+ *   <li>{@code generated}: The time the document was generated</li>
+ *   <li>{@code statistics}: Per-kind status counts for the current and
+ *   highest versions</li>
+ *   <li>{@code roots}: The identifiers of the root nodes</li>
+ *   <li>{@code nodes}: The dependencies, in topological order (a node
+ *   appears before any of its dependencies), each with its coordinates and
+ *   the statuses of its current and highest versions, and the first
+ *   modularized and fully modularized versions where these are known</li>
+ *   <li>{@code edges}: The dependency edges, as pairs of node identifiers,
+ *   grouped by source node in the order of {@code nodes}</li>
+ * </ul>
+ *
+ * Output is written directly to the stream as it is produced.
+ */
+
+public final class ChaserReportJSON
+{
+  private static final String FORMAT = "com.io7m.modulechaser.report";
+  private static final long FORMAT_VERSION = 1L;
+
+  private ChaserReportJSON()
+  {
+
+  }
+
+  /**
+   * Generate a JSON document from the given report.
+   *
+   * @param report The report
+   * @param stream The output stream
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static void writeJSON(
+    final ChaserReport report,
+    final OutputStream stream)
+    throws IOException
+  {
+    Objects.requireNonNull(report, "report");
+    Objects.requireNonNull(stream, "stream");
+
+    final ChaserJSONWriter json =
+      new ChaserJSONWriter(
+        new BufferedWriter(new OutputStreamWriter(stream, UTF_8)));
+
+    json.beginObject();
+    json.name("format").value(FORMAT);
+    json.name("formatVersion").value(FORMAT_VERSION);
+    json.name("generated").value(
+      ZonedDateTime.now(ZoneId.of("UTC")).format(ISO_ZONED_DATE_TIME));
+
+    json.newline();
+    writeStatistics(json, report.statistics());
+
+    json.newline();
+    json.name("roots");
+    json.beginArray();
+    for (final ChaserDependencyNode root : report.roots()) {
+      json.value(root.anchorId());
+    }
+    json.endArray();
+
+    json.newline();
+    writeNodes(json, report);
+
+    json.newline();
+    writeEdges(json, report.compactGraph());
+
+    json.newline();
+    json.endObject();
+    json.newline();
+    json.flush();
+  }
+
+  private static void writeStatistics(
+    final ChaserJSONWriter json,
+    final ChaserReportStatistics statistics)
+    throws IOException
+  {
+    json.name("statistics");
+    json.beginObject();
+    json.name("total").value(statistics.total());
+
+    json.name("current");
+    json.beginObject();
+    for (final Kind kind : Kind.values()) {
+      json.name(kind.name()).value(statistics.countCurrent(kind));
+    }
+    json.endObject();
+
+    json.name("highest");
+    json.beginObject();
+    for (final Kind kind : Kind.values()) {
+      json.name(kind.name()).value(statistics.countHighest(kind));
+    }
+    json.endObject();
+
+    json.endObject();
+  }
+
+  private static void writeNodes(
+    final ChaserJSONWriter json,
+    final ChaserReport report)
+    throws IOException
+  {
+    final ChaserCompactGraph graph = report.compactGraph();
+    final List<ChaserReportDependency> reports = report.reportsById();
+
+    json.name("nodes");
+    json.beginArray();
+    for (int id = 0; id < graph.size(); ++id) {
+      final ChaserDependencyNode node = graph.node(id);
+      final ChaserReportDependency node_report = reports.get(id);
+
+      json.newline();
+      json.beginObject();
+      json.name("id").value(node.anchorId());
+      json.name("group").value(node.group());
+      json.name("artifact").value(node.artifact());
+      json.name("version").value(node.version());
+      json.name("classifier").value(node.classifier().orElse(null));
+      json.name("type").value(node.type());
+      json.name("scope").value(node.scope());
+      if (node_report != null) {
+        json.name("current");
+        writeStatus(json, node_report.statusCurrent());
+        json.name("highest");
+        writeStatus(json, node_report.statusHighest());
+
+        final Optional<String> first_modular =
+          node_report.firstModularVersion();
+        if (first_modular.isPresent()) {
+          json.name("firstModularVersion").value(first_modular.get());
+        }
+        final Optional<String> first_fully_modular =
+          node_report.firstFullyModularVersion();
+        if (first_fully_modular.isPresent()) {
+          json.name("firstFullyModularVersion").value(first_fully_modular.get());
+        }
+      }
+      json.endObject();
+    }
+    json.endArray();
+  }
+
+  private static void writeEdges(
+    final ChaserJSONWriter json,
+    final ChaserCompactGraph graph)
+    throws IOException
+  {
+    json.name("edges");
+    json.beginArray();
+    for (int source = 0; source < graph.size(); ++source) {
+      final String source_id = graph.node(source).anchorId();
+      final int count = graph.successorCount(source);
+      for (int index = 0; index < count; ++index) {
+        json.newline();
+        json.beginArray();
+        json.value(source_id);
+        json.value(graph.node(graph.successor(source, index)).anchorId());
+        json.endArray();
+      }
+    }
+    json.endArray();
+  }
+
+  private static void writeStatus(
+    final ChaserJSONWriter json,
+    final ChaserModularizationStatusType status_input)
+    throws IOException
+  {
+    json.beginObject();
+    json.name("kind").value(status_input.kind().name());
+
+    switch (status_input.kind()) {
+      case MODULARIZED_FULLY: {
+        final ChaserModularizationStatusModularizedFully status =
+          (ChaserModularizationStatusModularizedFully) status_input;
+        json.name("version").value(status.version());
+        json.name("moduleName").value(status.moduleName());
+        break;
+      }
+
+      case MODULARIZED_AUTOMATIC_MODULE_NAME: {
+        final ChaserModularizationStatusModularizedAutomaticModuleName status =
+          (ChaserModularizationStatusModularizedAutomaticModuleName) status_input;
+        json.name("version").value(status.version());
+        json.name("moduleName").value(status.moduleName());
+        break;
+      }
+
+      case NOT_MODULARIZED: {
+        final ChaserModularizationStatusNotModularized status =
+          (ChaserModularizationStatusNotModularized) status_input;
+        json.name("version").value(status.version());
+        break;
+      }
+
+      case NOT_JAR: {
+        final ChaserModularizationStatusNotJar status =
+          (ChaserModularizationStatusNotJar) status_input;
+        json.name("version").value(status.version());
+        break;
+      }
+
+      case UNAVAILABLE: {
+        final ChaserModularizationStatusUnavailable status =
+          (ChaserModularizationStatusUnavailable) status_input;
+        final Optional<Exception> error = status.error();
+        if (error.isPresent()) {
+          json.name("error").value(String.valueOf(error.get().getMessage()));
+        }
+        break;
+      }
+
+      case UNAVAILABLE_OFFLINE: {
+        final ChaserModularizationStatusUnavailableOffline status =
+          (ChaserModularizationStatusUnavailableOffline) status_input;
+        json.name("version").value(status.version());
+        break;
+      }
+    }
+
+    json.endObject();
+  }
+}
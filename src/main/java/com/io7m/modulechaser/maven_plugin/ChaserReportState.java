@@ -0,0 +1,538 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.maven_plugin;
+
+import org.apache.maven.artifact.ArtifactUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The state of a previous report, used to avoid resolving dependencies that
+ * have not changed since the report was generated.
+ *
+ * The state records, for each dependency, the statuses of the current and
+ * highest versions, and the time at which they were determined. A
+ * dependency is resolved again if it did not appear in the previous report
+ * (which includes any dependency whose version has changed), if its entry
+ * is older than the configured maximum age, if it is a snapshot, or if
+ * either status indicated that it was unavailable.
+ *
+ * When searching for the first modularized versions of dependencies, the
+ * results of the search are recorded alongside the statuses, and entries
+ * that were recorded without searching are not reused. The results of a
+ * search that was abandoned are not recorded, so that the search is
+ * performed again by the next report.
+ *
+ * Each entry records whether it was determined in offline mode. Entries
+ * determined offline reflect only the local repository, and are never
+ * reused when generating a report online.
+ */
+
+public final class ChaserReportState
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(ChaserReportState.class);
+
+  private static final String STATE_SUFFIX = ".state";
+  private static final String MODE_ONLINE = "ONLINE";
+  private static final String MODE_OFFLINE = "OFFLINE";
+
+  private final Path file;
+  private final Clock clock;
+  private final Duration maximumAge;
+  private final boolean versionSearch;
+  private final boolean offline;
+  private final Map<String, Entry> previous;
+  private final ConcurrentHashMap<String, Entry> current;
+  private final AtomicLong reused;
+
+  private ChaserReportState(
+    final Path inFile,
+    final Clock inClock,
+    final Duration inMaximumAge,
+    final boolean inVersionSearch,
+    final boolean inOffline,
+    final Map<String, Entry> inPrevious)
+  {
+    this.file =
+      Objects.requireNonNull(inFile, "file");
+    this.clock =
+      Objects.requireNonNull(inClock, "clock");
+    this.maximumAge =
+      Objects.requireNonNull(inMaximumAge, "maximumAge");
+    this.versionSearch =
+      inVersionSearch;
+    this.offline =
+      inOffline;
+    this.previous =
+      Objects.requireNonNull(inPrevious, "previous");
+    this.current =
+      new ConcurrentHashMap<>(inPrevious.size());
+    this.reused =
+      new AtomicLong(0L);
+  }
+
+  /**
+   * @param outputFile The report output file
+   *
+   * @return The file that holds the state of the report in {@code outputFile}
+   */
+
+  public static Path stateFileFor(
+    final Path outputFile)
+  {
+    Objects.requireNonNull(outputFile, "outputFile");
+    return outputFile.resolveSibling(outputFile.getFileName() + STATE_SUFFIX);
+  }
+
+  /**
+   * Open the report state in the given file. If the file does not exist,
+   * or is unreadable, an empty state is returned.
+   *
+   * @param file          The state file
+   * @param clock         The clock used to timestamp and expire entries
+   * @param maximumAge    The maximum age of entries that will be reused
+   * @param versionSearch {@code true} if first modularized versions are
+   *                      being searched for
+   * @param offline       {@code true} if the report is being generated in
+   *                      offline mode
+   *
+   * @return A report state
+   */
+
+  public static ChaserReportState open(
+    final Path file,
+    final Clock clock,
+    final Duration maximumAge,
+    final boolean versionSearch,
+    final boolean offline)
+  {
+    Objects.requireNonNull(file, "file");
+
+    final Map<String, Entry> entries = new HashMap<>();
+    final Map<String, String> properties = ChaserPropertiesFiles.read(file);
+    for (final Map.Entry<String, String> property : properties.entrySet()) {
+      final String key = property.getKey();
+      final String value = property.getValue();
+      try {
+        entries.put(key, Entry.parse(value));
+      } catch (final IllegalArgumentException e) {
+        LOG.debug("ignoring malformed report state entry {}: {}", key, value);
+      }
+    }
+
+    return new ChaserReportState(
+      file, clock, maximumAge, versionSearch, offline, entries);
+  }
+
+  /**
+   * @return The number of entries in the previous state
+   */
+
+  public int size()
+  {
+    return this.previous.size();
+  }
+
+  /**
+   * @return The number of dependencies reused from the previous state
+   */
+
+  public long reused()
+  {
+    return this.reused.get();
+  }
+
+  /**
+   * Find the previous report for the given dependency. If a report is
+   * returned, it is carried over into the new state unchanged.
+   *
+   * @param node The dependency
+   *
+   * @return The previous report, if it exists and may be reused
+   */
+
+  public Optional<ChaserReportDependency> find(
+    final ChaserDependencyNode node)
+  {
+    Objects.requireNonNull(node, "node");
+
+    if (ArtifactUtils.isSnapshot(node.version())) {
+      return Optional.empty();
+    }
+
+    final String key = keyOf(node);
+    final Entry entry = this.previous.get(key);
+    if (entry == null) {
+      return Optional.empty();
+    }
+
+    if (!entry.time.plus(this.maximumAge).isAfter(this.clock.instant())) {
+      LOG.debug("report state expired: {}", key);
+      return Optional.empty();
+    }
+
+    if (entry.offline && !this.offline) {
+      LOG.debug("report state was determined offline: {}", key);
+      return Optional.empty();
+    }
+
+    if (this.versionSearch && entry.firstVersions.isEmpty()) {
+      LOG.debug("report state was not searched: {}", key);
+      return Optional.empty();
+    }
+
+    LOG.debug("report state reused: {}", key);
+    this.current.put(key, entry);
+    this.reused.incrementAndGet();
+    return Optional.of(entry.toDependency());
+  }
+
+  /**
+   * Record the report for the given dependency. Reports that indicate that
+   * the dependency is unavailable are not recorded, and the first versions
+   * of a report whose search was abandoned are not recorded.
+   *
+   * @param node       The dependency
+   * @param dependency The report
+   */
+
+  public void put(
+    final ChaserDependencyNode node,
+    final ChaserReportDependency dependency)
+  {
+    Objects.requireNonNull(node, "node");
+    Objects.requireNonNull(dependency, "dependency");
+
+    final Optional<Status> status_current =
+      Status.of(dependency.statusCurrent());
+    final Optional<Status> status_highest =
+      Status.of(dependency.statusHighest());
+
+    final Optional<FirstVersions> first_versions;
+    if (this.versionSearch && !dependency.firstVersionsIncomplete()) {
+      first_versions = Optional.of(
+        new FirstVersions(
+          dependency.firstModularVersion(),
+          dependency.firstFullyModularVersion()));
+    } else {
+      first_versions = Optional.empty();
+    }
+
+    if (status_current.isPresent() && status_highest.isPresent()) {
+      this.current.put(
+        keyOf(node),
+        new Entry(
+          this.clock.instant(),
+          this.offline,
+          status_current.get(),
+          status_highest.get(),
+          first_versions));
+    }
+  }
+
+  /**
+   * Write the state to disk. The written state contains exactly those
+   * dependencies that were reused or recorded since the state was opened.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public void save()
+    throws IOException
+  {
+    final Map<String, String> values = new TreeMap<>();
+    for (final Map.Entry<String, Entry> entry : this.current.entrySet()) {
+      values.put(entry.getKey(), entry.getValue().serialize());
+    }
+
+    ChaserPropertiesFiles.writeAtomically(
+      this.file, "modulechaser report state", values);
+  }
+
+  private static String keyOf(
+    final ChaserDependencyNode node)
+  {
+    return new StringBuilder(64)
+      .append(node.group())
+      .append(':')
+      .append(node.artifact())
+      .append(':')
+      .append(node.version())
+      .append(':')
+      .append(node.classifier().orElse(""))
+      .append(':')
+      .append(node.type())
+      .toString();
+  }
+
+  private static final class Status
+  {
+    private final ChaserModularizationStatusType.Kind kind;
+    private final String version;
+    private final String moduleName;
+
+    Status(
+      final ChaserModularizationStatusType.Kind inKind,
+      final String inVersion,
+      final String inModuleName)
+    {
+      this.kind = Objects.requireNonNull(inKind, "kind");
+      this.version = Objects.requireNonNull(inVersion, "version");
+      this.moduleName = Objects.requireNonNull(inModuleName, "moduleName");
+    }
+
+    static Optional<Status> of(
+      final ChaserModularizationStatusType status)
+    {
+      switch (status.kind()) {
+        case MODULARIZED_FULLY: {
+          final ChaserModularizationStatusModularizedFully s =
+            (ChaserModularizationStatusModularizedFully) status;
+          return Optional.of(
+            new Status(status.kind(), s.version(), s.moduleName()));
+        }
+        case MODULARIZED_AUTOMATIC_MODULE_NAME: {
+          final ChaserModularizationStatusModularizedAutomaticModuleName s =
+            (ChaserModularizationStatusModularizedAutomaticModuleName) status;
+          return Optional.of(
+            new Status(status.kind(), s.version(), s.moduleName()));
+        }
+        case NOT_MODULARIZED: {
+          final ChaserModularizationStatusNotModularized s =
+            (ChaserModularizationStatusNotModularized) status;
+          return Optional.of(new Status(status.kind(), s.version(), "-"));
+        }
+        case NOT_JAR: {
+          final ChaserModularizationStatusNotJar s =
+            (ChaserModularizationStatusNotJar) status;
+          return Optional.of(new Status(status.kind(), s.version(), "-"));
+        }
+        case UNAVAILABLE:
+        case UNAVAILABLE_OFFLINE:
+          return Optional.empty();
+      }
+      throw new IllegalStateException("Unreachable code");
+    }
+
+    static Status parse(
+      final String kind,
+      final String version,
+      final String moduleName)
+    {
+      final ChaserModularizationStatusType.Kind k =
+        ChaserModularizationStatusType.Kind.valueOf(kind);
+      switch (k) {
+        case UNAVAILABLE:
+        case UNAVAILABLE_OFFLINE:
+          throw new IllegalArgumentException(
+            "Unavailable entries are not recorded");
+        case MODULARIZED_FULLY:
+        case MODULARIZED_AUTOMATIC_MODULE_NAME:
+        case NOT_MODULARIZED:
+        case NOT_JAR:
+          break;
+      }
+      return new Status(k, version, moduleName);
+    }
+
+    ChaserModularizationStatusType toStatus()
+    {
+      switch (this.kind) {
+        case MODULARIZED_FULLY:
+          return ChaserModularizationStatusModularizedFully.of(
+            this.moduleName,
+            this.version);
+        case MODULARIZED_AUTOMATIC_MODULE_NAME:
+          return ChaserModularizationStatusModularizedAutomaticModuleName.of(
+            this.moduleName,
+            this.version);
+        case NOT_MODULARIZED:
+          return ChaserModularizationStatusNotModularized.of(this.version);
+        case NOT_JAR:
+          return ChaserModularizationStatusNotJar.of(this.version);
+        case UNAVAILABLE:
+        case UNAVAILABLE_OFFLINE:
+          break;
+      }
+      throw new IllegalStateException("Unreachable code");
+    }
+
+    void serialize(final StringBuilder text)
+    {
+      text.append(this.kind.name());
+      text.append(' ');
+      text.append(this.version);
+      text.append(' ');
+      text.append(this.moduleName);
+    }
+  }
+
+  private static final class FirstVersions
+  {
+    private final Optional<String> modular;
+    private final Optional<String> fullyModular;
+
+    FirstVersions(
+      final Optional<String> inModular,
+      final Optional<String> inFullyModular)
+    {
+      this.modular = Objects.requireNonNull(inModular, "modular");
+      this.fullyModular = Objects.requireNonNull(inFullyModular, "fullyModular");
+    }
+
+    static FirstVersions parse(
+      final String modular,
+      final String fullyModular)
+    {
+      return new FirstVersions(
+        parseVersion(modular),
+        parseVersion(fullyModular));
+    }
+
+    private static Optional<String> parseVersion(
+      final String version)
+    {
+      if ("-".equals(version)) {
+        return Optional.empty();
+      }
+      return Optional.of(version);
+    }
+
+    void serialize(final StringBuilder text)
+    {
+      text.append(this.modular.orElse("-"));
+      text.append(' ');
+      text.append(this.fullyModular.orElse("-"));
+    }
+  }
+
+  private static final class Entry
+  {
+    private final Instant time;
+    private final boolean offline;
+    private final Status current;
+    private final Status highest;
+    private final Optional<FirstVersions> firstVersions;
+
+    Entry(
+      final Instant inTime,
+      final boolean inOffline,
+      final Status inCurrent,
+      final Status inHighest,
+      final Optional<FirstVersions> inFirstVersions)
+    {
+      this.time = Objects.requireNonNull(inTime, "time");
+      this.offline = inOffline;
+      this.current = Objects.requireNonNull(inCurrent, "current");
+      this.highest = Objects.requireNonNull(inHighest, "highest");
+      this.firstVersions =
+        Objects.requireNonNull(inFirstVersions, "firstVersions");
+    }
+
+    static Entry parse(
+      final String text)
+    {
+      /*
+       * Entries recorded without searching for first modularized versions
+       * have eight segments, and entries recorded with searching have ten.
+       */
+
+      final String[] segments = text.trim().split(" ");
+      if (segments.length != 8 && segments.length != 10) {
+        throw new IllegalArgumentException("Malformed entry: " + text);
+      }
+
+      final Optional<FirstVersions> first_versions;
+      if (segments.length == 10) {
+        first_versions =
+          Optional.of(FirstVersions.parse(segments[8], segments[9]));
+      } else {
+        first_versions = Optional.empty();
+      }
+
+      try {
+        return new Entry(
+          Instant.ofEpochMilli(Long.parseLong(segments[0])),
+          parseMode(segments[1]),
+          Status.parse(segments[2], segments[3], segments[4]),
+          Status.parse(segments[5], segments[6], segments[7]),
+          first_versions);
+      } catch (final NumberFormatException e) {
+        throw new IllegalArgumentException(e);
+      }
+    }
+
+    private static boolean parseMode(
+      final String mode)
+    {
+      switch (mode) {
+        case MODE_ONLINE:
+          return false;
+        case MODE_OFFLINE:
+          return true;
+        default:
+          throw new IllegalArgumentException("Malformed mode: " + mode);
+      }
+    }
+
+    String serialize()
+    {
+      final StringBuilder text = new StringBuilder(128);
+      text.append(this.time.toEpochMilli());
+      text.append(' ');
+      text.append(this.offline ? MODE_OFFLINE : MODE_ONLINE);
+      text.append(' ');
+      this.current.serialize(text);
+      text.append(' ');
+      this.highest.serialize(text);
+      if (this.firstVersions.isPresent()) {
+        text.append(' ');
+        this.firstVersions.get().serialize(text);
+      }
+      return text.toString();
+    }
+
+    ChaserReportDependency toDependency()
+    {
+      final ChaserReportDependency.Builder builder =
+        ChaserReportDependency.builder()
+          .setStatusCurrent(this.current.toStatus())
+          .setStatusHighest(this.highest.toStatus());
+
+      if (this.firstVersions.isPresent()) {
+        final FirstVersions first = this.firstVersions.get();
+        builder.setFirstModularVersion(first.modular);
+        builder.setFirstFullyModularVersion(first.fullyModular);
+      }
+      return builder.build();
+    }
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.maven_plugin;
+
+import com.io7m.modulechaser.maven_plugin.ChaserModularizationStatusType.Kind;
+import org.immutables.value.Value;
+
+import java.util.Map;
+
+import static com.io7m.modulechaser.maven_plugin.ChaserModularizationStatusType.Kind.MODULARIZED_AUTOMATIC_MODULE_NAME;
+import static com.io7m.modulechaser.maven_plugin.ChaserModularizationStatusType.Kind.MODULARIZED_FULLY;
+
+/**
+ * Aggregate statistics for a report: The number of dependencies with each
+ * kind of modularization status, for both the currently used versions and
+ * the highest available versions.
+ */
+
+@ChaserImmutableStyleType
+@Value.Immutable
+public interface ChaserReportStatisticsType
+{
+  /**
+   * @return The total number of dependencies
+   */
+
+  @Value.Parameter
+  long total();
+
+  /**
+   * @return The number of dependencies per status kind for the currently
+   * used versions
+   */
+
+  @Value.Parameter
+  Map<Kind, Long> countsCurrent();
+
+  /**
+   * @return The number of dependencies per status kind for the highest
+   * available versions
+   */
+
+  @Value.Parameter
+  Map<Kind, Long> countsHighest();
+
+  /**
+   * @param kind The status kind
+   *
+   * @return The number of currently used versions with the given status
+   */
+
+  default long countCurrent(final Kind kind)
+  {
+    return this.countsCurrent().getOrDefault(kind, Long.valueOf(0L)).longValue();
+  }
+
+  /**
+   * @param kind The status kind
+   *
+   * @return The number of highest available versions with the given status
+   */
+
+  default long countHighest(final Kind kind)
+  {
+    return this.countsHighest().getOrDefault(kind, Long.valueOf(0L)).longValue();
+  }
+
+  /**
+   * @param kind The status kind
+   *
+   * @return The percentage of currently used versions with the given status
+   */
+
+  default double percentageCurrent(final Kind kind)
+  {
+    return this.percentageOf(this.countCurrent(kind));
+  }
+
+  /**
+   * @param kind The status kind
+   *
+   * @return The percentage of highest available versions with the given
+   * status
+   */
+
+  default double percentageHighest(final Kind kind)
+  {
+    return this.percentageOf(this.countHighest(kind));
+  }
+
+  /**
+   * @return The percentage of currently used versions that are safe to use
+   * as dependencies of modular projects (that is, that are either fully
+   * modularized or have automatic module names)
+   */
+
+  default double percentageSafeCurrent()
+  {
+    return this.percentageOf(
+      this.countCurrent(MODULARIZED_FULLY)
+        + this.countCurrent(MODULARIZED_AUTOMATIC_MODULE_NAME));
+  }
+
+  /**
+   * @return The percentage of highest available versions that are safe to
+   * use as dependencies of modular projects (that is, that are either fully
+   * modularized or have automatic module names)
+   */
+
+  default double percentageSafeHighest()
+  {
+    return this.percentageOf(
+      this.countHighest(MODULARIZED_FULLY)
+        + this.countHighest(MODULARIZED_AUTOMATIC_MODULE_NAME));
+  }
+
+  private double percentageOf(final long count)
+  {
+    final long total = this.total();
+    if (total == 0L) {
+      return 0.0;
+    }
+    return ((double) count / (double) total) * 100.0;
+  }
+}
@@ -16,13 +16,21 @@
 
 package com.io7m.modulechaser.maven_plugin;
 
+import com.io7m.modulechaser.maven_plugin.ChaserModularizationStatusType.Kind;
 import org.immutables.value.Value;
-import org.jgrapht.graph.DirectedAcyclicGraph;
 
-import java.util.SortedMap;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * A full dependency report.
+ *
+ * The report holds the dependency graph in compact form, and the report for
+ * each dependency in a list indexed by the node identifiers of the graph.
+ * Neither requires any per-dependency objects beyond the nodes and their
+ * reports.
  */
 
 @ChaserImmutableStyleType
@@ -34,14 +42,113 @@ public interface ChaserReportType
    */
 
   @Value.Parameter
-  DirectedAcyclicGraph<ChaserDependencyNode, ChaserDependencyEdge> graph();
+  ChaserCompactGraph compactGraph();
 
   /**
-   * @return The set of reports, per each dependency
+   * The reports indexed by the node identifiers of {@link #compactGraph()}.
+   *
+   * @return The reports, by node identifier
    */
 
   @Value.Parameter
-  SortedMap<ChaserDependencyNode, ChaserReportDependency> reports();
+  List<ChaserReportDependency> reportsById();
+
+  /**
+   * The root nodes of the graph. For a report produced for a single project,
+   * this is the single node representing that project. For a report
+   * aggregated over several projects, this contains a node for each project,
+   * in the order that the projects were analyzed.
+   *
+   * @return The root nodes of the graph
+   */
+
+  @Value.Default
+  default List<ChaserDependencyNode> roots()
+  {
+    final ChaserCompactGraph graph = this.compactGraph();
+    final List<ChaserDependencyNode> roots = new ArrayList<>();
+    for (int id = 0; id < graph.size(); ++id) {
+      if (graph.predecessorCount(id) == 0) {
+        roots.add(graph.node(id));
+      }
+    }
+    return roots;
+  }
+
+  /**
+   * @param node The node
+   *
+   * @return The report for the given node
+   *
+   * @throws IllegalArgumentException If the node is not in the graph
+   */
+
+  default ChaserReportDependency reportOf(
+    final ChaserDependencyNode node)
+  {
+    return this.reportsById().get(this.compactGraph().idOf(node));
+  }
+
+  /**
+   * Check preconditions for the type.
+   */
+
+  @Value.Check
+  default void checkPreconditions()
+  {
+    final int nodes = this.compactGraph().size();
+    final int reports = this.reportsById().size();
+    if (nodes != reports) {
+      throw new IllegalArgumentException(
+        new StringBuilder(64)
+          .append("Each dependency must have exactly one report")
+          .append(System.lineSeparator())
+          .append("  Dependencies: ")
+          .append(nodes)
+          .append(System.lineSeparator())
+          .append("  Reports: ")
+          .append(reports)
+          .append(System.lineSeparator())
+          .toString());
+    }
+  }
+
+  /**
+   * @return {@code true} if any dependency has a known first modularized
+   * version
+   */
+
+  @Value.Lazy
+  default boolean hasFirstVersions()
+  {
+    return this.reportsById()
+      .stream()
+      .anyMatch(report -> report.firstModularVersion().isPresent()
+        || report.firstFullyModularVersion().isPresent());
+  }
+
+  /**
+   * Statistics are computed in a single pass over the reports when the
+   * report is constructed.
+   *
+   * @return The aggregate statistics for the report
+   */
+
+  @Value.Derived
+  @Value.Auxiliary
+  default ChaserReportStatistics statistics()
+  {
+    final Map<Kind, Long> current = new EnumMap<>(Kind.class);
+    final Map<Kind, Long> highest = new EnumMap<>(Kind.class);
+    for (final ChaserReportDependency report : this.reportsById()) {
+      current.merge(report.statusCurrent().kind(), Long.valueOf(1L), Long::sum);
+      highest.merge(report.statusHighest().kind(), Long.valueOf(1L), Long::sum);
+    }
+    return ChaserReportStatistics.of(
+      (long) this.reportsById().size(),
+      current,
+      highest);
+  }
 
   /**
    * @return The number of dependencies
@@ -49,7 +156,7 @@ public interface ChaserReportType
 
   default long dependenciesTotal()
   {
-    return this.reports().size();
+    return this.statistics().total();
   }
 
   /**
@@ -58,11 +165,7 @@ public interface ChaserReportType
 
   default long dependenciesFullyModularized()
   {
-    return this.reports()
-      .values()
-      .stream()
-      .filter(report -> report.statusHighest() instanceof ChaserModularizationStatusModularizedFully)
-      .count();
+    return this.statistics().countHighest(Kind.MODULARIZED_FULLY);
   }
 
   /**
@@ -71,11 +174,7 @@ public interface ChaserReportType
 
   default long dependenciesNamed()
   {
-    return this.reports()
-      .values()
-      .stream()
-      .filter(report -> report.statusHighest() instanceof ChaserModularizationStatusModularizedAutomaticModuleName)
-      .count();
+    return this.statistics().countHighest(Kind.MODULARIZED_AUTOMATIC_MODULE_NAME);
   }
 
   /**
@@ -84,10 +183,6 @@ public interface ChaserReportType
 
   default long dependenciesNotModularized()
   {
-    return this.reports()
-      .values()
-      .stream()
-      .filter(report -> report.statusHighest() instanceof ChaserModularizationStatusNotModularized)
-      .count();
+    return this.statistics().countHighest(Kind.NOT_MODULARIZED);
   }
 }
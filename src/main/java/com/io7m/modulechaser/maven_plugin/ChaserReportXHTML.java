@@ -16,38 +16,61 @@
 
 package com.io7m.modulechaser.maven_plugin;
 
-import org.jgrapht.graph.DirectedAcyclicGraph;
-import org.jgrapht.traverse.TopologicalOrderIterator;
-import org.w3c.dom.DOMImplementation;
+import com.io7m.modulechaser.maven_plugin.ChaserModularizationStatusType.Kind;
+import com.io7m.modulechaser.maven_plugin.ChaserReportXHTMLOptionsType.TableMode;
+import com.io7m.modulechaser.maven_plugin.ChaserReportXHTMLOptionsType.TreeMode;
 import org.w3c.dom.Document;
-import org.w3c.dom.DocumentType;
-import org.w3c.dom.Element;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.SortedMap;
-
-import static java.nio.charset.StandardCharsets.US_ASCII;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.io7m.modulechaser.maven_plugin.ChaserModularizationStatusType.Kind.MODULARIZED_AUTOMATIC_MODULE_NAME;
+import static com.io7m.modulechaser.maven_plugin.ChaserModularizationStatusType.Kind.MODULARIZED_FULLY;
+import static com.io7m.modulechaser.maven_plugin.ChaserModularizationStatusType.Kind.NOT_MODULARIZED;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.time.format.DateTimeFormatter.ISO_ZONED_DATE_TIME;
 
 /**
  * Functions to generate XHTML pages from reports.
+ *
+ * All output is produced by a single streaming writer: The {@code write}
+ * functions stream elements directly to the output as they are generated,
+ * so memory use does not grow with the size of the report. The
+ * {@code build} functions stream into a DOM document for callers that
+ * require one.
  */
 
 public final class ChaserReportXHTML
@@ -71,10 +94,38 @@ public final class ChaserReportXHTML
     final ChaserReport report,
     final OutputStream stream)
     throws ParserConfigurationException, TransformerException
+  {
+    writeXHTMLPage(report, ChaserReportXHTMLOptions.builder().build(), stream);
+  }
+
+  /**
+   * Generate an XHTML page from the given report.
+   *
+   * @param report  The report
+   * @param options The output options
+   * @param stream  The output stream
+   *
+   * @throws ParserConfigurationException On XML parser issues
+   * @throws TransformerException         On XML serializer issues
+   */
+
+  public static void writeXHTMLPage(
+    final ChaserReport report,
+    final ChaserReportXHTMLOptions options,
+    final OutputStream stream)
+    throws ParserConfigurationException, TransformerException
   {
     Objects.requireNonNull(report, "report");
+    Objects.requireNonNull(options, "options");
     Objects.requireNonNull(stream, "stream");
-    serializeDocument(stream, buildXHTMLPage(report));
+
+    try {
+      final ChaserXHTMLOutput output = ChaserXHTMLOutput.ofStream(stream, "html");
+      writePage(report, options, output);
+      output.finish();
+    } catch (final XMLStreamException e) {
+      throw new TransformerException(e);
+    }
   }
 
   /**
@@ -91,38 +142,85 @@ public final class ChaserReportXHTML
     final ChaserReport report,
     final OutputStream stream)
     throws ParserConfigurationException, TransformerException
+  {
+    writeXHTMLCore(report, ChaserReportXHTMLOptions.builder().build(), stream);
+  }
+
+  /**
+   * Generate an XHTML element from the given report.
+   *
+   * @param report  The report
+   * @param options The output options
+   * @param stream  The output stream
+   *
+   * @throws ParserConfigurationException On XML parser issues
+   * @throws TransformerException         On XML serializer issues
+   */
+
+  public static void writeXHTMLCore(
+    final ChaserReport report,
+    final ChaserReportXHTMLOptions options,
+    final OutputStream stream)
+    throws ParserConfigurationException, TransformerException
   {
     Objects.requireNonNull(report, "report");
+    Objects.requireNonNull(options, "options");
     Objects.requireNonNull(stream, "stream");
-    serializeDocument(stream, buildXHTMLCore(report));
+
+    try {
+      final ChaserXHTMLOutput output = ChaserXHTMLOutput.ofStream(stream, "div");
+      writeCore(report, options, output);
+      output.finish();
+    } catch (final XMLStreamException e) {
+      throw new TransformerException(e);
+    }
   }
 
-  private static void serializeDocument(
-    final OutputStream stream,
-    final Document document)
-    throws TransformerException
+  /**
+   * Generate an XHTML page from the given report.
+   *
+   * @param report The report
+   *
+   * @return A generated document
+   *
+   * @throws ParserConfigurationException On XML parser issues
+   */
+
+  public static Document buildXHTMLPage(
+    final ChaserReport report)
+    throws ParserConfigurationException
   {
-    final TransformerFactory transformer_factory =
-      TransformerFactory.newInstance();
-    final Transformer transformer =
-      transformer_factory.newTransformer();
+    return buildXHTMLPage(report, ChaserReportXHTMLOptions.builder().build());
+  }
+
+  /**
+   * Generate an XHTML page from the given report.
+   *
+   * @param report  The report
+   * @param options The output options
+   *
+   * @return A generated document
+   *
+   * @throws ParserConfigurationException On XML parser issues
+   */
 
-    final DOMImplementation dom = document.getImplementation();
-    final DocumentType doctype =
-      dom.createDocumentType(
-        "html",
-        "-//W3C//DTD XHTML 1.0 Strict//EN",
-        "http://www.w3.org/TR/xhtml1/DTD/xhtml1-strict.dtd");
-    transformer.setOutputProperty(
-      OutputKeys.DOCTYPE_PUBLIC, doctype.getPublicId());
-    transformer.setOutputProperty(
-      OutputKeys.DOCTYPE_SYSTEM, doctype.getSystemId());
-    transformer.setOutputProperty(
-      OutputKeys.INDENT, "yes");
-    transformer.setOutputProperty(
-      "{http://xml.apache.org/xslt}indent-amount", "2");
+  public static Document buildXHTMLPage(
+    final ChaserReport report,
+    final ChaserReportXHTMLOptions options)
+    throws ParserConfigurationException
+  {
+    Objects.requireNonNull(report, "report");
+    Objects.requireNonNull(options, "options");
 
-    transformer.transform(new DOMSource(document), new StreamResult(stream));
+    final Document doc = newDocument();
+    try {
+      final ChaserXHTMLOutput output = ChaserXHTMLOutput.ofDocument(doc);
+      writePage(report, options, output);
+      output.finish();
+    } catch (final XMLStreamException e) {
+      throw new IllegalStateException(e);
+    }
+    return doc;
   }
 
   /**
@@ -135,69 +233,400 @@ public final class ChaserReportXHTML
    * @throws ParserConfigurationException On XML parser issues
    */
 
-  public static Document buildXHTMLPage(
+  public static Document buildXHTMLCore(
     final ChaserReport report)
     throws ParserConfigurationException
+  {
+    return buildXHTMLCore(report, ChaserReportXHTMLOptions.builder().build());
+  }
+
+  /**
+   * Generate an XHTML page from the given report.
+   *
+   * @param report  The report
+   * @param options The output options
+   *
+   * @return A generated document
+   *
+   * @throws ParserConfigurationException On XML parser issues
+   */
+
+  public static Document buildXHTMLCore(
+    final ChaserReport report,
+    final ChaserReportXHTMLOptions options)
+    throws ParserConfigurationException
+  {
+    Objects.requireNonNull(report, "report");
+    Objects.requireNonNull(options, "options");
+
+    final Document doc = newDocument();
+    try {
+      final ChaserXHTMLOutput output = ChaserXHTMLOutput.ofDocument(doc);
+      writeCore(report, options, output);
+      output.finish();
+    } catch (final XMLStreamException e) {
+      throw new IllegalStateException(e);
+    }
+    return doc;
+  }
+
+  /**
+   * Generate a set of XHTML pages from the given report. The index page,
+   * written to {@code index}, contains the summary statistics and links to
+   * the other pages. The dependency table is divided into pages as
+   * specified by {@link ChaserReportXHTMLOptionsType#shardMode()}, and the
+   * dependency tree is written to a page of its own. All pages are written
+   * to the directory containing the index page, with names derived from the
+   * name of the index page. Links to a dependency take the form
+   * {@code page#anchor}, where the anchor is the stable
+   * {@link ChaserDependencyNodeType#anchorId()} of the dependency.
+   *
+   * Pages are generated concurrently, and a page is only written if its
+   * content differs from that of the existing file. Only the index page
+   * contains the generation time. Pages left over from previous runs that
+   * are no longer part of the report are deleted.
+   *
+   * @param report  The report
+   * @param options The output options
+   * @param index   The index page
+   *
+   * @return The number of pages that were written
+   *
+   * @throws IOException          On I/O errors
+   * @throws TransformerException On XML serializer issues
+   * @throws InterruptedException If the calling thread is interrupted
+   */
+
+  public static int writeXHTMLShards(
+    final ChaserReport report,
+    final ChaserReportXHTMLOptions options,
+    final Path index)
+    throws IOException, TransformerException, InterruptedException
   {
     Objects.requireNonNull(report, "report");
+    Objects.requireNonNull(options, "options");
+    Objects.requireNonNull(index, "index");
+
+    final Path directory = index.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+
+    final String base = baseNameOf(index);
+    final Shards shards = Shards.of(report.compactGraph(), options, base);
+    final String index_name = index.getFileName().toString();
+    final String tree_name = base + "-tree.xhtml";
+
+    final Map<String, PageType> pages = new LinkedHashMap<>();
+    pages.put(index_name, output -> {
+      writeIndexPage(report, options, shards, tree_name, output);
+    });
+    pages.put(tree_name, output -> {
+      writeTreePage(report, options, shards, index_name, output);
+    });
+    for (final Shard shard : shards.shards) {
+      pages.put(shard.file, output -> {
+        writeShardPage(report, shard, index_name, output);
+      });
+    }
 
-    final Document core_doc = buildXHTMLCore(report);
+    final int written = writePages(directory, pages, options.writeParallelism());
+    deleteStaleShards(directory, base, pages.keySet());
+    return written;
+  }
 
-    final DocumentBuilderFactory doc_factory =
-      DocumentBuilderFactory.newInstance();
-    final DocumentBuilder doc_builder =
-      doc_factory.newDocumentBuilder();
+  private static String baseNameOf(
+    final Path file)
+  {
+    final String name = file.getFileName().toString();
+    final int dot = name.lastIndexOf('.');
+    if (dot > 0) {
+      return name.substring(0, dot);
+    }
+    return name;
+  }
 
-    final Document doc = doc_builder.newDocument();
-    doc.setStrictErrorChecking(true);
+  private static int writePages(
+    final Path directory,
+    final Map<String, PageType> pages,
+    final int parallelism)
+    throws IOException, TransformerException, InterruptedException
+  {
+    final ExecutorService executor =
+      ChaserExecutors.executor("com.io7m.modulechaser.xhtml", parallelism);
 
-    final Element root = doc.createElement("html");
-    root.setAttribute("xmlns", "http://www.w3.org/1999/xhtml");
-    root.setAttribute("xml:lang", "en");
-    doc.appendChild(root);
+    try {
+      final List<Future<Boolean>> futures = new ArrayList<>(pages.size());
+      for (final Map.Entry<String, PageType> entry : pages.entrySet()) {
+        final Path file = directory.resolve(entry.getKey());
+        final PageType page = entry.getValue();
+        futures.add(executor.submit(() -> {
+          final ByteArrayOutputStream bytes = new ByteArrayOutputStream(65536);
+          final ChaserXHTMLOutput output = ChaserXHTMLOutput.ofStream(bytes, "html");
+          page.write(output);
+          output.finish();
+          return Boolean.valueOf(writeIfChanged(file, bytes.toByteArray()));
+        }));
+      }
 
-    final Element head = doc.createElement("head");
-    root.appendChild(head);
+      int written = 0;
+      for (final Future<Boolean> future : futures) {
+        if (waitForPage(future)) {
+          ++written;
+        }
+      }
+      return written;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
 
-    {
-      final Element title = doc.createElement("title");
-      head.appendChild(title);
-      title.setTextContent("Modularization Status");
+  private static boolean waitForPage(
+    final Future<Boolean> future)
+    throws IOException, TransformerException, InterruptedException
+  {
+    try {
+      return future.get().booleanValue();
+    } catch (final ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof XMLStreamException) {
+        throw new TransformerException(cause);
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IllegalStateException(cause);
     }
+  }
 
-    {
-      final Element link = doc.createElement("link");
-      head.appendChild(link);
-      link.setAttribute("rel", "stylesheet");
-      link.setAttribute("type", "text/css");
-      link.setAttribute("href", "style.css");
+  private static boolean writeIfChanged(
+    final Path file,
+    final byte[] data)
+    throws IOException
+  {
+    if (Files.isRegularFile(file)
+      && Files.size(file) == (long) data.length
+      && Arrays.equals(Files.readAllBytes(file), data)) {
+      return false;
     }
 
-    final Element body = doc.createElement("body");
-    root.appendChild(body);
+    final Path file_tmp =
+      Files.createTempFile(
+        file.getParent(), file.getFileName().toString(), ".tmp");
 
-    {
-      final Element body_header = doc.createElement("div");
-      body.appendChild(body_header);
+    try {
+      Files.write(file_tmp, data);
+      Files.move(
+        file_tmp,
+        file,
+        StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(file_tmp);
+    }
+    return true;
+  }
 
-      final Element h1 = doc.createElement("h1");
-      body_header.appendChild(h1);
-      h1.setTextContent("Modularization Status");
+  private static void deleteStaleShards(
+    final Path directory,
+    final String base,
+    final Set<String> current)
+    throws IOException
+  {
+    final String prefix_group = base + "-group-";
+    final String prefix_chunk = base + "-chunk-";
+
+    try (Stream<Path> files = Files.list(directory)) {
+      final List<Path> stale =
+        files.filter(file -> {
+          final String name = file.getFileName().toString();
+          return (name.startsWith(prefix_group) || name.startsWith(prefix_chunk))
+            && name.endsWith(".xhtml")
+            && !current.contains(name);
+        }).collect(Collectors.toList());
+
+      for (final Path file : stale) {
+        Files.deleteIfExists(file);
+      }
+    }
+  }
 
-      body_header.appendChild(buildExplanatoryTest(doc));
-      body_header.appendChild(buildStatisticsList(report, doc));
-      body_header.appendChild(buildLastGenerated(doc));
+  private static void writeIndexPage(
+    final ChaserReport report,
+    final ChaserReportXHTMLOptions options,
+    final Shards shards,
+    final String tree_name,
+    final ChaserXHTMLOutput output)
+    throws XMLStreamException
+  {
+    writePageStart(output, "Modularization Status");
+
+    output.start("div");
+    output.text("h1", "Modularization Status");
+    writeExplanatoryText(output);
+    writeStatisticsList(report, output);
+    writeLastGenerated(output);
+    output.end();
+
+    output.start("div");
+    output.text("h2", "Dependencies");
+
+    output.start("table");
+    output.start("thead");
+    output.start("tr");
+    output.text("th", "Page");
+    output.text("th", "Dependencies");
+    output.end();
+    output.end();
+
+    output.start("tbody");
+    for (final Shard shard : shards.shards) {
+      output.start("tr");
+      output.start("td");
+      output.start("a");
+      output.attribute("href", shard.file);
+      output.characters(shard.title);
+      output.end();
+      output.end();
+      output.text("td", Integer.toString(shard.ids.length));
+      output.end();
+    }
+    output.end();
+    output.end();
+
+    output.start("p");
+    output.start("a");
+    output.attribute("href", tree_name);
+    output.characters("Dependency Tree");
+    output.end();
+    output.end();
+
+    if (options.tableMode() == TableMode.INTERACTIVE) {
+      writeDependencyTableInteractive(report, output);
     }
+    output.end();
+
+    output.end();
+    output.end();
+  }
+
+  private static void writeTreePage(
+    final ChaserReport report,
+    final ChaserReportXHTMLOptions options,
+    final Shards shards,
+    final String index_name,
+    final ChaserXHTMLOutput output)
+    throws XMLStreamException
+  {
+    final ChaserCompactGraph graph = report.compactGraph();
+
+    writePageStart(output, "Modularization Status: Dependency Tree");
+    writeIndexLink(output, index_name);
+    writeDependencyTree(
+      report,
+      options,
+      id -> shards.fileOf[id] + "#" + graph.node(id).anchorId(),
+      output);
+    output.end();
+    output.end();
+  }
+
+  private static void writeShardPage(
+    final ChaserReport report,
+    final Shard shard,
+    final String index_name,
+    final ChaserXHTMLOutput output)
+    throws XMLStreamException
+  {
+    writePageStart(output, "Modularization Status: " + shard.title);
+    writeIndexLink(output, index_name);
+
+    output.start("div");
+    output.text("h2", shard.title);
+    writeDependencyTable(report, shard.ids, output);
+    output.end();
+
+    output.end();
+    output.end();
+  }
+
+  private static void writeIndexLink(
+    final ChaserXHTMLOutput output,
+    final String index_name)
+    throws XMLStreamException
+  {
+    output.start("p");
+    output.start("a");
+    output.attribute("href", index_name);
+    output.characters("Modularization Status");
+    output.end();
+    output.end();
+  }
 
-    body.appendChild(doc.importNode(core_doc.getDocumentElement(), true));
+  private static Document newDocument()
+    throws ParserConfigurationException
+  {
+    final DocumentBuilderFactory doc_factory =
+      DocumentBuilderFactory.newInstance();
+    final DocumentBuilder doc_builder =
+      doc_factory.newDocumentBuilder();
+
+    final Document doc = doc_builder.newDocument();
+    doc.setStrictErrorChecking(true);
     return doc;
   }
 
-  private static Element buildExplanatoryTest(final Document doc)
+  private static void writePage(
+    final ChaserReport report,
+    final ChaserReportXHTMLOptions options,
+    final ChaserXHTMLOutput output)
+    throws XMLStreamException
+  {
+    writePageStart(output, "Modularization Status");
+
+    output.start("div");
+    output.text("h1", "Modularization Status");
+    writeExplanatoryText(output);
+    writeStatisticsList(report, output);
+    writeLastGenerated(output);
+    output.end();
+
+    writeCore(report, options, output);
+    output.end();
+
+    output.end();
+  }
+
+  private static void writePageStart(
+    final ChaserXHTMLOutput output,
+    final String title)
+    throws XMLStreamException
   {
-    final Element p = doc.createElement("p");
+    output.start("html");
+    output.attribute("xmlns", "http://www.w3.org/1999/xhtml");
+    output.attribute("xml:lang", "en");
+
+    output.start("head");
+    output.text("title", title);
+    output.empty(
+      "link",
+      "href", "style.css",
+      "rel", "stylesheet",
+      "type", "text/css");
+    output.end();
+
+    output.start("body");
+  }
 
-    p.setTextContent(
+  private static void writeExplanatoryText(final ChaserXHTMLOutput output)
+    throws XMLStreamException
+  {
+    output.text(
+      "p",
       new StringBuilder(128)
         .append("Dependencies are given in reverse-topological order.")
         .append(System.lineSeparator())
@@ -212,398 +641,499 @@ public final class ChaserReportXHTML
         .append(
           "fully modularized before B and therefore B's maintainer should be contacted first.")
         .toString());
-    return p;
   }
 
-  private static Element buildLastGenerated(final Document doc)
+  private static void writeLastGenerated(final ChaserXHTMLOutput output)
+    throws XMLStreamException
   {
-    final Element p = doc.createElement("p");
     final String timeString =
       ZonedDateTime.now(ZoneId.of("UTC")).format(ISO_ZONED_DATE_TIME);
-    p.setTextContent("Last Generated: " + timeString);
-    return p;
+    output.text("p", "Last Generated: " + timeString);
   }
 
-  private static Element buildStatisticsList(
+  private static void writeStatisticsList(
     final ChaserReport report,
-    final Document doc)
+    final ChaserXHTMLOutput output)
+    throws XMLStreamException
   {
-    final Element ul = doc.createElement("ul");
-    final long total = report.dependenciesTotal();
-    final long fully = report.dependenciesFullyModularized();
-    final long named = report.dependenciesNamed();
-    final long not_ready = report.dependenciesNotModularized();
-    final double jlink = ((double) fully / (double) total) * 100.0;
-    final double safe = ((double) (fully + named) / (double) total) * 100.0;
-
+    final ChaserReportStatistics statistics = report.statistics();
+    final long total = statistics.total();
+    final long fully = statistics.countHighest(MODULARIZED_FULLY);
+    final long named =
+      statistics.countHighest(MODULARIZED_AUTOMATIC_MODULE_NAME);
+    final long not_ready = statistics.countHighest(NOT_MODULARIZED);
+    final double jlink = statistics.percentageHighest(MODULARIZED_FULLY);
+    final double safe = statistics.percentageSafeHighest();
+
+    output.start("ul");
+
+    output.text("li", new StringBuilder(128)
+      .append("Analyzed ")
+      .append(total)
+      .append(" dependencies")
+      .toString());
+
+    output.text("li", new StringBuilder(128)
+      .append(fully)
+      .append(" dependencies are fully modularized")
+      .toString());
+
+    output.text("li", new StringBuilder(128)
+      .append(named)
+      .append(" dependencies have Automatic-Module-Name entries")
+      .toString());
+
+    output.text("li", new StringBuilder(128)
+      .append(not_ready)
+      .append(" dependencies have not been modularized at all")
+      .toString());
+
+    output.text("li", new StringBuilder(128)
+      .append(String.format("%.02f", Double.valueOf(jlink)))
+      .append(
+        "% of the dependencies are ready to be used in jlink distributions")
+      .toString());
+
+    output.text("li", new StringBuilder(128)
+      .append(String.format("%.02f", Double.valueOf(safe)))
+      .append(
+        "% of the dependencies are safe to use as dependencies for modular projects")
+      .toString());
+
+    output.end();
+  }
 
-    {
-      final Element li = doc.createElement("li");
-      ul.appendChild(li);
-      li.setTextContent(new StringBuilder(128)
-                          .append("Analyzed ")
-                          .append(total)
-                          .append(" dependencies")
-                          .toString());
+  private static void writeCore(
+    final ChaserReport report,
+    final ChaserReportXHTMLOptions options,
+    final ChaserXHTMLOutput output)
+    throws XMLStreamException
+  {
+    final ChaserCompactGraph graph = report.compactGraph();
+    final int[] ids = new int[graph.size()];
+    for (int index = 0; index < ids.length; ++index) {
+      ids[index] = ids.length - 1 - index;
     }
 
-    {
-      final Element li = doc.createElement("li");
-      ul.appendChild(li);
-      li.setTextContent(new StringBuilder(128)
-                          .append(fully)
-                          .append(" dependencies are fully modularized")
-                          .toString());
+    output.start("div");
+    if (options.tableMode() == TableMode.INTERACTIVE) {
+      writeDependencyTableInteractive(report, output);
+    } else {
+      writeDependencyTable(report, ids, output);
     }
+    writeDependencyTree(
+      report,
+      options,
+      id -> "#" + graph.node(id).anchorId(),
+      output);
+    output.end();
+  }
 
-    {
-      final Element li = doc.createElement("li");
-      ul.appendChild(li);
-      li.setTextContent(new StringBuilder(128)
-                          .append(named)
-                          .append(
-                            " dependencies have Automatic-Module-Name entries")
-                          .toString());
-    }
+  private static void writeDependencyTree(
+    final ChaserReport report,
+    final ChaserReportXHTMLOptions options,
+    final IntFunction<String> links,
+    final ChaserXHTMLOutput output)
+    throws XMLStreamException
+  {
+    output.start("div");
+    output.text("h2", "Dependency Tree");
 
-    {
-      final Element li = doc.createElement("li");
-      ul.appendChild(li);
-      li.setTextContent(new StringBuilder(128)
-                          .append(not_ready)
-                          .append(
-                            " dependencies have not been modularized at all")
-                          .toString());
+    final List<ChaserDependencyNode> roots = report.roots();
+    if (roots.isEmpty()) {
+      throw new IllegalStateException("No root node present!");
     }
 
-    {
-      final Element li = doc.createElement("li");
-      ul.appendChild(li);
-      li.setTextContent(new StringBuilder(128)
-                          .append(String.format("%.02f", Double.valueOf(jlink)))
-                          .append(
-                            "% of the dependencies are ready to be used in jlink distributions")
-                          .toString());
+    final Tree tree =
+      new Tree(report.compactGraph(), options, links, output);
+
+    /*
+     * A report aggregated over several projects has a tree for each project.
+     * In the shared mode, a subtree expanded under one project is referenced,
+     * rather than expanded again, under the projects that follow it.
+     */
+
+    if (roots.size() == 1) {
+      tree.write(roots.get(0));
+    } else {
+      for (final ChaserDependencyNode root_node : roots) {
+        output.text("h3", root_node.toTerseString());
+        tree.write(root_node);
+      }
     }
+    output.end();
+  }
 
-    {
-      final Element li = doc.createElement("li");
-      ul.appendChild(li);
-      li.setTextContent(new StringBuilder(128)
-                          .append(String.format("%.02f", Double.valueOf(safe)))
-                          .append(
-                            "% of the dependencies are safe to use as dependencies for modular projects")
-                          .toString());
+  private static void writeDependencyTable(
+    final ChaserReport report,
+    final int[] ids,
+    final ChaserXHTMLOutput output)
+    throws XMLStreamException
+  {
+    output.start("table");
+
+    output.start("thead");
+    output.start("tr");
+    output.text("th", "Group");
+    output.text("th", "Artifact");
+    output.text("th", "Current Version");
+    output.text("th", "Current Status");
+    output.text("th", "Newest Version");
+    output.text("th", "Newest Status");
+
+    final boolean first_versions = report.hasFirstVersions();
+    if (first_versions) {
+      output.text("th", "First Modular Version");
+      output.text("th", "First Fully Modular Version");
     }
-    return ul;
-  }
+    output.end();
+    output.end();
 
-  /**
-   * Generate an XHTML page from the given report.
-   *
-   * @param report The report
-   *
-   * @return A generated document
-   *
-   * @throws ParserConfigurationException On XML parser issues
-   */
+    final ChaserCompactGraph graph = report.compactGraph();
+    final List<ChaserReportDependency> reports = report.reportsById();
 
-  public static Document buildXHTMLCore(
-    final ChaserReport report)
-    throws ParserConfigurationException
-  {
-    Objects.requireNonNull(report, "report");
+    output.start("tbody");
 
-    final DocumentBuilderFactory doc_factory =
-      DocumentBuilderFactory.newInstance();
-    final DocumentBuilder doc_builder =
-      doc_factory.newDocumentBuilder();
+    for (final int id : ids) {
+      final ChaserDependencyNode node = graph.node(id);
+      final ChaserReportDependencyType node_report = reports.get(id);
 
-    final Document doc = doc_builder.newDocument();
-    doc.setStrictErrorChecking(true);
+      output.start("tr");
+      output.attribute("id", node.anchorId());
 
-    final Element root = doc.createElement("div");
-    doc.appendChild(root);
+      output.start("td");
+      mavenCentralGroup(output, node);
+      output.end();
 
-    root.appendChild(buildDependencyTable(report, doc));
-    root.appendChild(buildDependencyTree(report, doc));
-    return doc;
-  }
+      output.start("td");
+      mavenCentralArtifact(output, node);
+      output.end();
 
-  private static Element buildDependencyTree(
-    final ChaserReport report,
-    final Document doc)
-  {
-    final Element root = doc.createElement("div");
-    final Element h2 = doc.createElement("h2");
-    root.appendChild(h2);
-    h2.setTextContent("Dependency Tree");
+      versionCell(output, node, node_report.statusCurrent());
+      statusCell(output, node_report.statusCurrent());
+      versionCell(output, node, node_report.statusHighest());
+      statusCell(output, node_report.statusHighest());
 
-    final ChaserDependencyNode root_node = findRootNode(report.graph());
-    root.appendChild(buildDependencyTreeRecursive(report, doc, root_node));
-    return root;
-  }
+      if (first_versions) {
+        firstVersionCell(output, node, node_report.firstModularVersion());
+        firstVersionCell(output, node, node_report.firstFullyModularVersion());
+      }
+      output.end();
+    }
 
-  private static ChaserDependencyNode findRootNode(
-    final DirectedAcyclicGraph<ChaserDependencyNode, ChaserDependencyEdge> graph)
-  {
-    return graph.vertexSet()
-      .stream()
-      .filter(n -> graph.inDegreeOf(n) == 0)
-      .findFirst()
-      .orElseThrow(() -> new IllegalStateException("No root node present!"));
+    output.end();
+    output.end();
   }
 
-  private static Element buildDependencyTreeRecursive(
+  /**
+   * Write the dependency table as an empty container, a block of report
+   * data, and the script that renders the table from the data.
+   */
+
+  private static void writeDependencyTableInteractive(
     final ChaserReport report,
-    final Document doc,
-    final ChaserDependencyNode node)
+    final ChaserXHTMLOutput output)
+    throws XMLStreamException
   {
-    final Element root = doc.createElement("ul");
-
-    final Element li = doc.createElement("li");
-    root.appendChild(li);
+    output.start("div");
+    output.attribute("id", "chaser_table");
+    output.start("noscript");
+    output.text("p", "The dependency table requires JavaScript.");
+    output.end();
+    output.end();
+
+    try (Writer script = output.scriptWriter()) {
+      script.write("var chaserReportData = ");
+      writeTableData(report, script);
+      script.write(";");
+    } catch (final IOException e) {
+      throw new XMLStreamException(e);
+    }
+    output.script(TableScript.TEXT);
+  }
 
-    final Element a = doc.createElement("a");
-    a.setAttribute("href", "#" + nodeId(node));
-    a.setTextContent(node.toTerseString());
-    li.appendChild(a);
+  /*
+   * The JSON writer escapes angle brackets, so the data can never contain
+   * a CDATA terminator or a closing script tag.
+   */
 
-    final DirectedAcyclicGraph<ChaserDependencyNode, ChaserDependencyEdge> graph = report.graph();
-    for (final ChaserDependencyEdge edge : graph.outgoingEdgesOf(node)) {
-      li.appendChild(buildDependencyTreeRecursive(report, doc, edge.target()));
+  private static void writeTableData(
+    final ChaserReport report,
+    final Writer writer)
+    throws IOException
+  {
+    final ChaserCompactGraph graph = report.compactGraph();
+    final List<ChaserReportDependency> reports = report.reportsById();
+    final ChaserJSONWriter json = new ChaserJSONWriter(writer);
+    json.beginObject();
+
+    json.name("kinds");
+    json.beginArray();
+    for (final Kind kind : Kind.values()) {
+      json.value(kind.name());
+    }
+    json.endArray();
+
+    json.newline();
+    json.name("nodes");
+    json.beginArray();
+    for (int id = 0; id < graph.size(); ++id) {
+      final ChaserDependencyNode node = graph.node(id);
+      final ChaserReportDependency node_report = reports.get(id);
+
+      json.newline();
+      json.beginArray();
+      json.value(node.anchorId());
+      json.value(node.group());
+      json.value(node.artifact());
+      json.value(node.version());
+      writeTableStatus(json, node_report.statusCurrent());
+      writeTableStatus(json, node_report.statusHighest());
+      writeTableVersion(json, node_report.firstModularVersion());
+      writeTableVersion(json, node_report.firstFullyModularVersion());
+      json.endArray();
+    }
+    json.endArray();
+
+    json.newline();
+    json.name("dependents");
+    json.beginArray();
+    for (int id = 0; id < graph.size(); ++id) {
+      json.newline();
+      json.beginArray();
+      final int count = graph.predecessorCount(id);
+      for (int index = 0; index < count; ++index) {
+        json.value((long) graph.predecessor(id, index));
+      }
+      json.endArray();
     }
+    json.endArray();
 
-    return root;
+    json.endObject();
+    json.flush();
   }
 
-  private static String nodeId(
-    final ChaserDependencyNode node)
+  private static void writeTableVersion(
+    final ChaserJSONWriter json,
+    final Optional<String> version)
+    throws IOException
   {
-    try {
-      final MessageDigest digest =
-        MessageDigest.getInstance("SHA-256");
-      final byte[] result =
-        digest.digest(node.toTerseString().getBytes(US_ASCII));
-      return "dep_" + Hex.show(result);
-    } catch (final NoSuchAlgorithmException e) {
-      throw new IllegalStateException(e);
+    if (version.isPresent()) {
+      json.value(version.get());
+    } else {
+      json.nullValue();
     }
   }
 
-  private static Element buildDependencyTable(
-    final ChaserReport report,
-    final Document doc)
+  private static void firstVersionCell(
+    final ChaserXHTMLOutput output,
+    final ChaserDependencyNode node,
+    final Optional<String> version)
+    throws XMLStreamException
   {
-    final Element table = doc.createElement("table");
-
-    {
-      final Element thead = doc.createElement("thead");
-      table.appendChild(thead);
-      final Element tr = doc.createElement("tr");
-      thead.appendChild(tr);
-
-      {
-        final Element th = doc.createElement("th");
-        tr.appendChild(th);
-        th.setTextContent("Group");
-      }
+    output.start("td");
+    if (version.isPresent()) {
+      mavenCentralArtifactVersion(output, node, version.get());
+    }
+    output.end();
+  }
 
-      {
-        final Element th = doc.createElement("th");
-        tr.appendChild(th);
-        th.setTextContent("Artifact");
-      }
+  private static void writeTableStatus(
+    final ChaserJSONWriter json,
+    final ChaserModularizationStatusType status_input)
+    throws IOException
+  {
+    json.value((long) status_input.kind().ordinal());
 
-      {
-        final Element th = doc.createElement("th");
-        tr.appendChild(th);
-        th.setTextContent("Current Version");
+    switch (status_input.kind()) {
+      case MODULARIZED_FULLY: {
+        final ChaserModularizationStatusModularizedFully status =
+          (ChaserModularizationStatusModularizedFully) status_input;
+        json.value(status.version());
+        json.value(status.moduleName());
+        return;
       }
 
-      {
-        final Element th = doc.createElement("th");
-        tr.appendChild(th);
-        th.setTextContent("Current Status");
+      case MODULARIZED_AUTOMATIC_MODULE_NAME: {
+        final ChaserModularizationStatusModularizedAutomaticModuleName status =
+          (ChaserModularizationStatusModularizedAutomaticModuleName) status_input;
+        json.value(status.version());
+        json.value(status.moduleName());
+        return;
       }
 
-      {
-        final Element th = doc.createElement("th");
-        tr.appendChild(th);
-        th.setTextContent("Newest Version");
+      case NOT_MODULARIZED: {
+        final ChaserModularizationStatusNotModularized status =
+          (ChaserModularizationStatusNotModularized) status_input;
+        json.value(status.version());
+        json.nullValue();
+        return;
       }
 
-      {
-        final Element th = doc.createElement("th");
-        tr.appendChild(th);
-        th.setTextContent("Newest Status");
+      case NOT_JAR: {
+        final ChaserModularizationStatusNotJar status =
+          (ChaserModularizationStatusNotJar) status_input;
+        json.value(status.version());
+        json.nullValue();
+        return;
       }
-    }
-
-    final SortedMap<ChaserDependencyNode, ChaserReportDependency> reports =
-      report.reports();
-    final TopologicalOrderIterator<ChaserDependencyNode, ChaserDependencyEdge> iter =
-      new TopologicalOrderIterator<>(report.graph());
-
-    final List<ChaserDependencyNode> nodes = new ArrayList<>(reports.size());
-    while (iter.hasNext()) {
-      nodes.add(iter.next());
-    }
-
-    Collections.reverse(nodes);
 
-    final Element table_body = doc.createElement("tbody");
-    table.appendChild(table_body);
-
-    for (final ChaserDependencyNode node : nodes) {
-      final ChaserReportDependencyType node_report = reports.get(node);
-
-      final Element tr = doc.createElement("tr");
-      table_body.appendChild(tr);
-      tr.setAttribute("id", nodeId(node));
-
-      {
-        final Element td = doc.createElement("td");
-        tr.appendChild(td);
-        td.appendChild(mavenCentralGroup(doc, node));
+      case UNAVAILABLE: {
+        json.nullValue();
+        json.nullValue();
+        return;
       }
 
-      {
-        final Element td = doc.createElement("td");
-        tr.appendChild(td);
-        td.appendChild(mavenCentralArtifact(doc, node));
+      case UNAVAILABLE_OFFLINE: {
+        final ChaserModularizationStatusUnavailableOffline status =
+          (ChaserModularizationStatusUnavailableOffline) status_input;
+        json.value(status.version());
+        json.nullValue();
+        return;
       }
-
-      tr.appendChild(versionCell(doc, node, node_report.statusCurrent()));
-      tr.appendChild(statusCell(doc, node_report.statusCurrent()));
-      tr.appendChild(versionCell(doc, node, node_report.statusHighest()));
-      tr.appendChild(statusCell(doc, node_report.statusHighest()));
     }
 
-    return table;
+    throw new IllegalStateException("Unreachable code");
   }
 
-  private static Element versionCell(
-    final Document doc,
+  private static void versionCell(
+    final ChaserXHTMLOutput output,
     final ChaserDependencyNode node,
     final ChaserModularizationStatusType status_input)
+    throws XMLStreamException
   {
     switch (status_input.kind()) {
       case MODULARIZED_FULLY: {
         final ChaserModularizationStatusModularizedFully status =
           (ChaserModularizationStatusModularizedFully) status_input;
 
-        final Element td = doc.createElement("td");
-        td.appendChild(mavenCentralArtifactVersion(
-          doc,
-          node,
-          status.version()));
-        return td;
+        output.start("td");
+        mavenCentralArtifactVersion(output, node, status.version());
+        output.end();
+        return;
       }
 
       case MODULARIZED_AUTOMATIC_MODULE_NAME: {
         final ChaserModularizationStatusModularizedAutomaticModuleName status =
           (ChaserModularizationStatusModularizedAutomaticModuleName) status_input;
 
-        final Element td = doc.createElement("td");
-        td.appendChild(mavenCentralArtifactVersion(
-          doc,
-          node,
-          status.version()));
-        return td;
+        output.start("td");
+        mavenCentralArtifactVersion(output, node, status.version());
+        output.end();
+        return;
       }
 
       case NOT_MODULARIZED: {
         final ChaserModularizationStatusNotModularized status =
           (ChaserModularizationStatusNotModularized) status_input;
 
-        final Element td = doc.createElement("td");
-        td.appendChild(mavenCentralArtifactVersion(
-          doc,
-          node,
-          status.version()));
-        return td;
+        output.start("td");
+        mavenCentralArtifactVersion(output, node, status.version());
+        output.end();
+        return;
       }
 
       case NOT_JAR: {
         final ChaserModularizationStatusNotJar status =
           (ChaserModularizationStatusNotJar) status_input;
 
-        final Element td = doc.createElement("td");
-        td.appendChild(mavenCentralArtifactVersion(
-          doc,
-          node,
-          status.version()));
-        return td;
+        output.start("td");
+        mavenCentralArtifactVersion(output, node, status.version());
+        output.end();
+        return;
       }
 
       case UNAVAILABLE: {
-        final Element td = doc.createElement("td");
-        td.setTextContent("Unavailable");
-        return td;
+        output.text("td", "Unavailable");
+        return;
+      }
+
+      case UNAVAILABLE_OFFLINE: {
+        final ChaserModularizationStatusUnavailableOffline status =
+          (ChaserModularizationStatusUnavailableOffline) status_input;
+
+        output.start("td");
+        mavenCentralArtifactVersion(output, node, status.version());
+        output.end();
+        return;
       }
     }
 
     throw new IllegalStateException("Unreachable code");
   }
 
-  private static Element statusCell(
-    final Document doc,
+  private static void statusCell(
+    final ChaserXHTMLOutput output,
     final ChaserModularizationStatusType status_input)
+    throws XMLStreamException
   {
     switch (status_input.kind()) {
       case MODULARIZED_FULLY: {
         final ChaserModularizationStatusModularizedFully status =
           (ChaserModularizationStatusModularizedFully) status_input;
 
-        final Element td = doc.createElement("td");
-        td.setAttribute("class", "chaser_module_full");
-        td.setTextContent("Modularized: " + status.moduleName());
-        return td;
+        output.start("td");
+        output.attribute("class", "chaser_module_full");
+        output.characters("Modularized: " + status.moduleName());
+        output.end();
+        return;
       }
 
       case MODULARIZED_AUTOMATIC_MODULE_NAME: {
         final ChaserModularizationStatusModularizedAutomaticModuleName status =
           (ChaserModularizationStatusModularizedAutomaticModuleName) status_input;
 
-        final Element td = doc.createElement("td");
-        td.setAttribute("class", "chaser_module_automatic");
-        td.setTextContent("Automatic Module: " + status.moduleName());
-        return td;
+        output.start("td");
+        output.attribute("class", "chaser_module_automatic");
+        output.characters("Automatic Module: " + status.moduleName());
+        output.end();
+        return;
       }
 
       case NOT_MODULARIZED: {
-        final Element td = doc.createElement("td");
-        td.setAttribute("class", "chaser_module_not_modularized");
-        td.setTextContent("Not modularized");
-        return td;
+        output.start("td");
+        output.attribute("class", "chaser_module_not_modularized");
+        output.characters("Not modularized");
+        output.end();
+        return;
       }
 
       case NOT_JAR: {
-        final Element td = doc.createElement("td");
-        td.setAttribute("class", "chaser_module_not_jar");
-        td.setTextContent("Not A Jar");
-        return td;
+        output.start("td");
+        output.attribute("class", "chaser_module_not_jar");
+        output.characters("Not A Jar");
+        output.end();
+        return;
       }
 
       case UNAVAILABLE: {
-        final Element td = doc.createElement("td");
-        td.setAttribute("class", "chaser_module_unavailable");
-        td.setTextContent("Unavailable");
-        return td;
+        output.start("td");
+        output.attribute("class", "chaser_module_unavailable");
+        output.characters("Unavailable");
+        output.end();
+        return;
+      }
+
+      case UNAVAILABLE_OFFLINE: {
+        output.start("td");
+        output.attribute("class", "chaser_module_unavailable_offline");
+        output.characters("Unavailable Offline");
+        output.end();
+        return;
       }
     }
 
     throw new IllegalStateException("Unreachable code");
   }
 
-  private static Element mavenCentralArtifactVersion(
-    final Document document,
+  private static void mavenCentralArtifactVersion(
+    final ChaserXHTMLOutput output,
     final ChaserDependencyNode node,
     final String version)
+    throws XMLStreamException
   {
-    final Element a = document.createElement("a");
-    a.setAttribute(
+    output.start("a");
+    output.attribute(
       "href",
       new StringBuilder(64)
         .append("http://search.maven.org/#artifactdetails|")
@@ -614,41 +1144,304 @@ public final class ChaserReportXHTML
         .append(version)
         .append("|")
         .toString());
-    a.setTextContent(version);
-    return a;
+    output.characters(version);
+    output.end();
   }
 
-  private static Element mavenCentralArtifact(
-    final Document document,
+  private static void mavenCentralArtifact(
+    final ChaserXHTMLOutput output,
     final ChaserDependencyNode node)
+    throws XMLStreamException
   {
-    final Element a = document.createElement("a");
-    a.setAttribute(
+    output.start("a");
+    output.attribute(
       "href",
       new StringBuilder(64)
         .append("http://search.maven.org/#search|ga|1|g%3A%22")
         .append(node.group())
+        .append("%22%20AND%20%22")
+        .append(node.artifact())
         .append("%22")
         .toString());
-    a.setTextContent(node.artifact());
-    return a;
+    output.characters(node.artifact());
+    output.end();
   }
 
-  private static Element mavenCentralGroup(
-    final Document document,
+  private static void mavenCentralGroup(
+    final ChaserXHTMLOutput output,
     final ChaserDependencyNode node)
+    throws XMLStreamException
   {
-    final Element a = document.createElement("a");
-    a.setAttribute(
+    output.start("a");
+    output.attribute(
       "href",
       new StringBuilder(64)
         .append("http://search.maven.org/#search|ga|1|g%3A%22")
         .append(node.group())
-        .append("%22%20AND%20%22")
-        .append(node.artifact())
         .append("%22")
         .toString());
-    a.setTextContent(node.group());
-    return a;
+    output.characters(node.group());
+    output.end();
+  }
+
+  /**
+   * The script that renders interactive tables, loaded on first use.
+   */
+
+  private static final class TableScript
+  {
+    private static final String TEXT = load();
+
+    private TableScript()
+    {
+
+    }
+
+    private static String load()
+    {
+      try (InputStream stream =
+             ChaserReportXHTML.class.getResourceAsStream("chaser-table.js")) {
+        if (stream == null) {
+          throw new IllegalStateException(
+            "Missing resource: chaser-table.js");
+        }
+        return UTF_8.decode(ByteBuffer.wrap(stream.readAllBytes())).toString();
+      } catch (final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  private interface PageType
+  {
+    void write(ChaserXHTMLOutput output)
+      throws XMLStreamException;
+  }
+
+  /**
+   * A page of the dependency table.
+   */
+
+  private static final class Shard
+  {
+    private final String file;
+    private final String title;
+    private final int[] ids;
+
+    Shard(
+      final String inFile,
+      final String inTitle,
+      final int[] inIds)
+    {
+      this.file = Objects.requireNonNull(inFile, "file");
+      this.title = Objects.requireNonNull(inTitle, "title");
+      this.ids = Objects.requireNonNull(inIds, "ids");
+    }
+  }
+
+  /**
+   * The division of the dependency table into pages. Each page lists its
+   * dependencies in reverse topological order.
+   */
+
+  private static final class Shards
+  {
+    private final List<Shard> shards;
+    private final String[] fileOf;
+
+    private Shards(
+      final List<Shard> inShards,
+      final String[] inFileOf)
+    {
+      this.shards = Objects.requireNonNull(inShards, "shards");
+      this.fileOf = Objects.requireNonNull(inFileOf, "fileOf");
+    }
+
+    static Shards of(
+      final ChaserCompactGraph graph,
+      final ChaserReportXHTMLOptions options,
+      final String base)
+    {
+      final int size = graph.size();
+      final List<Shard> shards = new ArrayList<>();
+
+      switch (options.shardMode()) {
+        case GROUP: {
+          final SortedMap<String, List<Integer>> groups = new TreeMap<>();
+          for (int id = size - 1; id >= 0; --id) {
+            groups.computeIfAbsent(graph.node(id).group(), k -> new ArrayList<>())
+              .add(Integer.valueOf(id));
+          }
+
+          final Set<String> used = new HashSet<>(groups.size());
+          for (final Map.Entry<String, List<Integer>> entry : groups.entrySet()) {
+            final String group = entry.getKey();
+            String file = base + "-group-" + fileSafe(group) + ".xhtml";
+            for (int suffix = 1; !used.add(file); ++suffix) {
+              file = base + "-group-" + fileSafe(group) + "-" + suffix + ".xhtml";
+            }
+
+            final List<Integer> members = entry.getValue();
+            final int[] ids = new int[members.size()];
+            for (int index = 0; index < ids.length; ++index) {
+              ids[index] = members.get(index).intValue();
+            }
+            shards.add(new Shard(file, group, ids));
+          }
+          break;
+        }
+
+        case CHUNK: {
+          final int chunk = options.shardChunkSize();
+          for (int start = 0; start < size; start += chunk) {
+            final int count = Math.min(chunk, size - start);
+            final int[] ids = new int[count];
+            for (int index = 0; index < count; ++index) {
+              ids[index] = size - 1 - (start + index);
+            }
+            shards.add(new Shard(
+              String.format("%s-chunk-%04d.xhtml", base, Integer.valueOf(shards.size())),
+              new StringBuilder(64)
+                .append("Dependencies ")
+                .append(start + 1)
+                .append(" to ")
+                .append(start + count)
+                .toString(),
+              ids));
+          }
+          break;
+        }
+      }
+
+      final String[] file_of = new String[size];
+      for (final Shard shard : shards) {
+        for (final int id : shard.ids) {
+          file_of[id] = shard.file;
+        }
+      }
+      return new Shards(shards, file_of);
+    }
+
+    private static String fileSafe(
+      final String text)
+    {
+      final StringBuilder result = new StringBuilder(text.length());
+      for (int index = 0; index < text.length(); ++index) {
+        final char c = text.charAt(index);
+        result.append(isFileSafe(c) ? c : '_');
+      }
+      return result.toString();
+    }
+
+    private static boolean isFileSafe(
+      final char c)
+    {
+      switch (c) {
+        case '.':
+        case '-':
+        case '_':
+          return true;
+        default:
+          return Character.isLetterOrDigit(c) && c < 0x80;
+      }
+    }
+  }
+
+  /**
+   * A dependency tree renderer.
+   */
+
+  private static final class Tree
+  {
+    private final ChaserCompactGraph graph;
+    private final IntFunction<String> links;
+    private final ChaserXHTMLOutput output;
+    private final boolean shared;
+    private final int depthLimit;
+    private final BitSet expanded;
+
+    Tree(
+      final ChaserCompactGraph inGraph,
+      final ChaserReportXHTMLOptions inOptions,
+      final IntFunction<String> inLinks,
+      final ChaserXHTMLOutput inOutput)
+    {
+      this.graph = Objects.requireNonNull(inGraph, "graph");
+      this.links = Objects.requireNonNull(inLinks, "links");
+      this.output = Objects.requireNonNull(inOutput, "output");
+      this.shared = inOptions.treeMode() == TreeMode.SHARED;
+      this.depthLimit = inOptions.treeDepthLimit();
+      this.expanded = new BitSet(inGraph.size());
+    }
+
+    void write(
+      final ChaserDependencyNode root)
+      throws XMLStreamException
+    {
+      this.writeRecursive(this.graph.idOf(root), 1);
+    }
+
+    private void writeRecursive(
+      final int id,
+      final int depth)
+      throws XMLStreamException
+    {
+      final ChaserDependencyNode node = this.graph.node(id);
+      final int count = this.graph.successorCount(id);
+      final boolean reference =
+        this.shared && count > 0 && this.expanded.get(id);
+      final boolean truncated =
+        !reference && count > 0 && this.depthLimit > 0 && depth >= this.depthLimit;
+
+      this.output.start("ul");
+      this.output.start("li");
+
+      final boolean expand = count > 0 && !reference && !truncated;
+      if (expand && this.shared) {
+        this.expanded.set(id);
+        this.output.attribute("id", treeAnchorOf(node));
+      }
+
+      this.output.start("a");
+      this.output.attribute("href", this.links.apply(id));
+      this.output.characters(node.toTerseString());
+      this.output.end();
+
+      if (reference) {
+        this.output.start("a");
+        this.output.attribute("class", "chaser_tree_reference");
+        this.output.attribute("href", "#" + treeAnchorOf(node));
+        this.output.characters("(see above)");
+        this.output.end();
+      }
+
+      if (truncated) {
+        this.output.start("span");
+        this.output.attribute("class", "chaser_tree_truncated");
+        this.output.characters(
+          new StringBuilder(64)
+            .append("(")
+            .append(count)
+            .append(count == 1 ? " dependency" : " dependencies")
+            .append(" not shown)")
+            .toString());
+        this.output.end();
+      }
+
+      if (expand) {
+        for (int index = 0; index < count; ++index) {
+          this.writeRecursive(this.graph.successor(id, index), depth + 1);
+        }
+      }
+
+      this.output.end();
+      this.output.end();
+    }
+
+    private static String treeAnchorOf(
+      final ChaserDependencyNode node)
+    {
+      return "tree_" + node.anchorId();
+    }
   }
 }
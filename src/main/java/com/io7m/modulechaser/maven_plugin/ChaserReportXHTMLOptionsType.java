@@ -0,0 +1,206 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.maven_plugin;
+
+import org.immutables.value.Value;
+
+/**
+ * Options for XHTML report generation.
+ */
+
+@ChaserImmutableStyleType
+@Value.Immutable
+public interface ChaserReportXHTMLOptionsType
+{
+  /**
+   * @return The mode used to render the dependency tree
+   */
+
+  @Value.Default
+  default TreeMode treeMode()
+  {
+    return TreeMode.FULL;
+  }
+
+  /**
+   * The maximum depth to which the dependency tree is expanded, where the
+   * root is at depth {@code 1}. Nodes at the maximum depth are rendered
+   * with a count of their hidden dependencies. A value of {@code 0}
+   * indicates that the tree is not limited.
+   *
+   * @return The tree depth limit
+   */
+
+  @Value.Default
+  default int treeDepthLimit()
+  {
+    return 0;
+  }
+
+  /**
+   * @return The mode used to render the dependency table
+   */
+
+  @Value.Default
+  default TableMode tableMode()
+  {
+    return TableMode.STATIC;
+  }
+
+  /**
+   * @return The way in which dependencies are divided into pages when
+   * sharded output is produced
+   */
+
+  @Value.Default
+  default ShardMode shardMode()
+  {
+    return ShardMode.GROUP;
+  }
+
+  /**
+   * @return The maximum number of dependencies on each page when
+   * dependencies are divided into pages by {@link ShardMode#CHUNK}
+   */
+
+  @Value.Default
+  default int shardChunkSize()
+  {
+    return 1000;
+  }
+
+  /**
+   * @return The maximum number of pages that will be generated concurrently
+   * when sharded output is produced
+   */
+
+  @Value.Default
+  default int writeParallelism()
+  {
+    return 1;
+  }
+
+  /**
+   * Check preconditions for the type.
+   */
+
+  @Value.Check
+  default void checkPreconditions()
+  {
+    if (this.treeDepthLimit() < 0) {
+      throw new IllegalArgumentException(
+        new StringBuilder(64)
+          .append("Tree depth limit must be non-negative")
+          .append(System.lineSeparator())
+          .append("  Received: ")
+          .append(this.treeDepthLimit())
+          .append(System.lineSeparator())
+          .toString());
+    }
+    checkPositive("Shard chunk size", this.shardChunkSize());
+    checkPositive("Write parallelism", this.writeParallelism());
+  }
+
+  private static void checkPositive(
+    final String name,
+    final int value)
+  {
+    if (value < 1) {
+      throw new IllegalArgumentException(
+        new StringBuilder(64)
+          .append(name)
+          .append(" must be at least 1")
+          .append(System.lineSeparator())
+          .append("  Received: ")
+          .append(value)
+          .append(System.lineSeparator())
+          .toString());
+    }
+  }
+
+  /**
+   * The mode used to render the dependency tree.
+   */
+
+  enum TreeMode
+  {
+    /**
+     * The subtree of a node is expanded at every occurrence of the node. The
+     * size of the tree is proportional to the number of paths through the
+     * graph, which can be exponential in the number of nodes.
+     */
+
+    FULL,
+
+    /**
+     * The subtree of a node is expanded only at the first occurrence of the
+     * node; later occurrences link back to the first. The size of the tree
+     * is proportional to the number of edges in the graph.
+     */
+
+    SHARED
+  }
+
+  /**
+   * The mode used to render the dependency table.
+   */
+
+  enum TableMode
+  {
+    /**
+     * The table is written as a static XHTML table containing a row for
+     * each dependency.
+     */
+
+    STATIC,
+
+    /**
+     * The report data is embedded in the page as a compact data block,
+     * along with a script that renders a sortable, filterable table in which
+     * only the visible rows are present in the document, and that lists the
+     * direct and indirect dependents of a selected dependency. The page
+     * remains a single static file. For sharded output, the interactive
+     * table of all dependencies appears on the index page, and the shard
+     * pages retain static tables.
+     */
+
+    INTERACTIVE
+  }
+
+  /**
+   * The way in which dependencies are divided into pages.
+   */
+
+  enum ShardMode
+  {
+    /**
+     * One page is produced for each group ID. Page names are derived from
+     * the group ID, and so remain stable as dependencies are added and
+     * removed.
+     */
+
+    GROUP,
+
+    /**
+     * Dependencies are divided, in reverse topological order, into pages of
+     * at most {@link ChaserReportXHTMLOptionsType#shardChunkSize()}
+     * dependencies.
+     */
+
+    CHUNK
+  }
+}
@@ -16,18 +16,24 @@
 
 package com.io7m.modulechaser.maven_plugin;
 
+import org.apache.maven.artifact.ArtifactUtils;
 import org.jgrapht.graph.DirectedAcyclicGraph;
-import org.jgrapht.traverse.TopologicalOrderIterator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.TreeMap;
-import java.util.jar.JarFile;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.zip.ZipException;
 
 /**
  * Functions to generate reports.
@@ -38,6 +44,13 @@ public final class ChaserReports
   private static final Logger LOG =
     LoggerFactory.getLogger(ChaserReports.class);
 
+  private static final String METADATA_THREAD_NAME =
+    "com.io7m.modulechaser.metadata";
+  private static final String FETCH_THREAD_NAME =
+    "com.io7m.modulechaser.fetch";
+  private static final String INSPECTOR_THREAD_NAME =
+    "com.io7m.modulechaser.inspector";
+
   private ChaserReports()
   {
 
@@ -59,82 +72,788 @@ public final class ChaserReports
     Objects.requireNonNull(resolver, "resolver");
     Objects.requireNonNull(graph, "graph");
 
-    final TopologicalOrderIterator<ChaserDependencyNode, ChaserDependencyEdge> iter =
-      new TopologicalOrderIterator<>(graph);
-    final TreeMap<ChaserDependencyNode, ChaserReportDependency> reports =
-      new TreeMap<>();
-
-    while (iter.hasNext()) {
-      final ChaserDependencyNode next = iter.next();
-      LOG.debug("node: {}", next);
-
-      try {
-        final ChaserDependencyResolved resolved = resolver.resolve(next);
-        final Path current_file = resolved.sourceFile();
-        final Path highest_file = resolved.highestFile();
-        final String current_version = resolved.source().version();
-        final String highest_version = resolved.highestVersion();
-
-        LOG.debug("current file:    {}", current_file);
-        LOG.debug("current version: {}", current_version);
-        LOG.debug("highest file:    {}", highest_file);
-        LOG.debug("highest version: {}", highest_version);
-
-        final ChaserModularizationStatusType status_current =
-          determineStatus(current_file, current_version);
-        final ChaserModularizationStatusType status_highest =
-          determineStatus(highest_file, highest_version);
-
-        reports.put(
-          next,
-          ChaserReportDependency.of(status_current, status_highest));
-      } catch (final Exception e) {
-        LOG.error("error resolving: ", e);
-        reports.put(next, ChaserReportDependency.of(
-          ChaserModularizationStatusUnavailable.of(Optional.of(e)),
-          ChaserModularizationStatusUnavailable.of(Optional.of(e))));
+    try {
+      return reportOf(
+        resolver,
+        graph,
+        ChaserReportConfiguration.builder().build());
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Generate a report using the resolver and graph.
+   *
+   * Each dependency passes through three stages: metadata lookup, artifact
+   * fetching, and artifact inspection. If the resolver is a
+   * {@link ChaserStagedDependencyResolverType}, the lookup and fetching
+   * are performed by separate stages; otherwise, the entire resolution is
+   * performed by the fetching stage.
+   *
+   * If {@link ChaserReportConfigurationType#parallelism()},
+   * {@link ChaserReportConfigurationType#metadataParallelism()}, and
+   * {@link ChaserReportConfigurationType#fetchParallelism()} are all
+   * {@code 1}, each dependency is taken through every stage on the calling
+   * thread before the next dependency is started. Otherwise, each stage has
+   * its own pool of worker threads and its own bounded queue, so that
+   * network and disk are kept busy independently, and the depth of each
+   * queue is recorded in the configured metrics. The resulting report is
+   * the same in either case.
+   *
+   * @param resolver      The resolver
+   * @param graph         The graph
+   * @param configuration The report configuration
+   *
+   * @return A report
+   *
+   * @throws InterruptedException If the calling thread is interrupted
+   */
+
+  public static ChaserReport reportOf(
+    final ChaserDependencyResolverType resolver,
+    final DirectedAcyclicGraph<ChaserDependencyNode, ChaserDependencyEdge> graph,
+    final ChaserReportConfiguration configuration)
+    throws InterruptedException
+  {
+    Objects.requireNonNull(resolver, "resolver");
+    Objects.requireNonNull(graph, "graph");
+    Objects.requireNonNull(configuration, "configuration");
+
+    final ChaserStagedDependencyResolverType staged = stagedOf(resolver);
+    return reportOfStages(
+      graph,
+      configuration,
+      (stages, item) -> stages.metadata.submit(item.guard(() -> {
+        final ChaserDependencyPlan plan = staged.plan(item.node);
+        stages.fetch.submit(item.guard(() -> {
+          final ChaserDependencyResolved resolved = staged.fetch(plan);
+          stages.inspection.submit(item.guard(
+            () -> inspect(configuration, stages, item, resolved)));
+        }));
+      })));
+  }
+
+  /**
+   * Generate a report using an asynchronous resolver and graph.
+   *
+   * Resolutions are started from the calling thread without waiting for
+   * earlier resolutions to complete, up to a maximum of
+   * {@link ChaserReportConfigurationType#maximumInFlight()} dependencies
+   * at once; the calling thread waits only when that many dependencies are
+   * in flight. As each resolution completes, the resolved artifacts are
+   * handed to the inspection stage, and any search for the earliest
+   * modularized versions proceeds as in
+   * {@link #reportOf(ChaserDependencyResolverType, DirectedAcyclicGraph, ChaserReportConfiguration)}.
+   * The number of threads occupied by resolution is therefore determined by
+   * the resolver: A resolver performing non-blocking I/O needs none, and a
+   * blocking resolver adapted with
+   * {@link ChaserAsyncResolvers#ofBlocking(ChaserDependencyResolverType, java.util.concurrent.Executor)}
+   * needs as many as its executor provides. The resulting report is the
+   * same as that produced by the blocking resolver.
+   *
+   * @param resolver      The resolver
+   * @param graph         The graph
+   * @param configuration The report configuration
+   *
+   * @return A report
+   *
+   * @throws InterruptedException If the calling thread is interrupted
+   */
+
+  public static ChaserReport reportOfAsync(
+    final ChaserAsyncDependencyResolverType resolver,
+    final DirectedAcyclicGraph<ChaserDependencyNode, ChaserDependencyEdge> graph,
+    final ChaserReportConfiguration configuration)
+    throws InterruptedException
+  {
+    Objects.requireNonNull(resolver, "resolver");
+    Objects.requireNonNull(graph, "graph");
+    Objects.requireNonNull(configuration, "configuration");
+
+    final Semaphore permits = new Semaphore(configuration.maximumInFlight());
+    return reportOfStages(
+      graph,
+      configuration,
+      (stages, item) -> {
+
+        /*
+         * A permit is held from the start of each resolution until the
+         * dependency's report is complete. This bounds the number of
+         * dependencies in flight, and therefore also the number waiting
+         * for inspection, without dedicating a thread to each of them.
+         */
+
+        permits.acquire();
+        item.future.whenComplete((report, error) -> permits.release());
+
+        final CompletionStage<ChaserDependencyResolved> resolution;
+        try {
+          resolution = resolver.resolveAsync(item.node);
+        } catch (final RuntimeException e) {
+          item.fail(e);
+          return;
+        }
+
+        resolution.whenComplete((resolved, error) -> {
+          if (error != null) {
+            item.fail(error);
+            return;
+          }
+          stages.inspection.submitUnbounded(item.guard(
+            () -> inspect(configuration, stages, item, resolved)));
+        });
+      });
+  }
+
+  private static ChaserReport reportOfStages(
+    final DirectedAcyclicGraph<ChaserDependencyNode, ChaserDependencyEdge> graph,
+    final ChaserReportConfiguration configuration,
+    final ResolutionType resolution)
+    throws InterruptedException
+  {
+    try (ChaserPipelineStage metadata =
+           stageOf(
+             configuration,
+             METADATA_THREAD_NAME,
+             ChaserMetrics.Queue.METADATA,
+             configuration.metadataParallelism());
+         ChaserPipelineStage fetch =
+           stageOf(
+             configuration,
+             FETCH_THREAD_NAME,
+             ChaserMetrics.Queue.FETCH,
+             configuration.fetchParallelism());
+         ChaserPipelineStage inspection =
+           stageOf(
+             configuration,
+             INSPECTOR_THREAD_NAME,
+             ChaserMetrics.Queue.INSPECTION,
+             configuration.parallelism())) {
+
+      return reportOfItems(
+        graph,
+        configuration,
+        new Stages(metadata, fetch, inspection),
+        resolution);
+    }
+  }
+
+  private static ChaserPipelineStage stageOf(
+    final ChaserReportConfiguration configuration,
+    final String name,
+    final ChaserMetrics.Queue queue,
+    final int threads)
+  {
+    final ChaserMetrics metrics = configuration.metrics();
+    if (isSequential(configuration)) {
+      return ChaserPipelineStage.createInline(queue, metrics);
+    }
+    return ChaserPipelineStage.create(
+      name, queue, metrics, threads, configuration.pipelineQueueCapacity());
+  }
+
+  private static boolean isSequential(
+    final ChaserReportConfiguration configuration)
+  {
+    return configuration.parallelism() == 1
+      && configuration.metadataParallelism() == 1
+      && configuration.fetchParallelism() == 1;
+  }
+
+  private static ChaserStagedDependencyResolverType stagedOf(
+    final ChaserDependencyResolverType resolver)
+  {
+    if (resolver instanceof ChaserStagedDependencyResolverType) {
+      return (ChaserStagedDependencyResolverType) resolver;
+    }
+
+    /*
+     * A resolver that cannot separate the lookup from the fetching does
+     * all of its work in the fetching stage; the plan merely carries the
+     * node through the lookup stage.
+     */
+
+    return new ChaserStagedDependencyResolverType()
+    {
+      @Override
+      public ChaserDependencyPlan plan(
+        final ChaserDependencyNode node)
+      {
+        return ChaserDependencyPlan.of(node, node.version());
+      }
+
+      @Override
+      public ChaserDependencyResolved fetch(
+        final ChaserDependencyPlan plan)
+        throws Exception
+      {
+        return resolver.resolve(plan.source());
       }
+    };
+  }
+
+  private static ChaserReport reportOfItems(
+    final DirectedAcyclicGraph<ChaserDependencyNode, ChaserDependencyEdge> graph,
+    final ChaserReportConfiguration configuration,
+    final Stages stages,
+    final ResolutionType resolution)
+    throws InterruptedException
+  {
+    final ChaserCompactGraph compact = ChaserCompactGraph.of(graph);
+    final List<ChaserDependencyNode> nodes = compact.topologicalOrder();
+    final ChaserMetrics metrics = configuration.metrics();
+
+    final List<Future<ChaserReportDependency>> futures =
+      new ArrayList<>(nodes.size());
+
+    for (final ChaserDependencyNode node : nodes) {
+      final PipelineItem item = new PipelineItem(configuration, node);
+      futures.add(item.future);
+
+      final Optional<ChaserReportState> state_opt =
+        configuration.previousState();
+      if (state_opt.isPresent()) {
+        final Optional<ChaserReportDependency> previous =
+          state_opt.get().find(node);
+        if (previous.isPresent()) {
+          metrics.increment(ChaserMetrics.Counter.REPORT_STATE_REUSED);
+          item.completeReused(previous.get());
+          continue;
+        }
+      }
+
+      resolution.start(stages, item);
     }
 
-    return ChaserReport.of(graph, reports);
+    /*
+     * The nodes were visited in identifier order, so the reports can be
+     * collected directly into a list indexed by identifier.
+     */
+
+    final List<ChaserReportDependency> reports =
+      new ArrayList<>(futures.size());
+
+    for (final Future<ChaserReportDependency> future : futures) {
+      reports.add(waitFor(future));
+    }
+
+    return ChaserReport.of(compact, reports);
   }
 
-  private static ChaserModularizationStatusType determineStatus(
+  /**
+   * Inspect the artifacts of a resolved dependency, and search for its
+   * earliest modularized versions if required.
+   */
+
+  private static void inspect(
+    final ChaserReportConfiguration configuration,
+    final Stages stages,
+    final PipelineItem item,
+    final ChaserDependencyResolved resolved)
+  {
+    final ChaserReportDependency report =
+      reportDependencyOfResolved(configuration, item.node, resolved);
+    final Optional<ChaserVersionSourceType> source =
+      configuration.versionSource();
+    if (source.isPresent() && isModular(report.statusHighest())) {
+      new FirstVersionSearch(
+        configuration,
+        source.get(),
+        stages,
+        item,
+        report,
+        resolved.highestVersion()).start();
+    } else {
+      item.complete(report);
+    }
+  }
+
+  /**
+   * The means by which a dependency is resolved and handed to the
+   * inspection stage. Each stage hands its result to the next stage,
+   * blocking if the next stage is full. Only the starting of new
+   * dependencies happens on the calling thread.
+   */
+
+  private interface ResolutionType
+  {
+    void start(
+      Stages stages,
+      PipelineItem item)
+      throws InterruptedException;
+  }
+
+  /**
+   * The stages through which each dependency passes.
+   */
+
+  private static final class Stages
+  {
+    private final ChaserPipelineStage metadata;
+    private final ChaserPipelineStage fetch;
+    private final ChaserPipelineStage inspection;
+
+    Stages(
+      final ChaserPipelineStage inMetadata,
+      final ChaserPipelineStage inFetch,
+      final ChaserPipelineStage inInspection)
+    {
+      this.metadata = Objects.requireNonNull(inMetadata, "metadata");
+      this.fetch = Objects.requireNonNull(inFetch, "fetch");
+      this.inspection = Objects.requireNonNull(inInspection, "inspection");
+    }
+  }
+
+  private interface PipelineTaskType
+  {
+    void run()
+      throws Exception;
+  }
+
+  /**
+   * A dependency travelling through the stages.
+   */
+
+  private static final class PipelineItem
+  {
+    private final ChaserReportConfiguration configuration;
+    private final ChaserDependencyNode node;
+    private final CompletableFuture<ChaserReportDependency> future;
+    private final long timeStart;
+
+    PipelineItem(
+      final ChaserReportConfiguration inConfiguration,
+      final ChaserDependencyNode inNode)
+    {
+      this.configuration =
+        Objects.requireNonNull(inConfiguration, "configuration");
+      this.node =
+        Objects.requireNonNull(inNode, "node");
+      this.future =
+        new CompletableFuture<>();
+      this.timeStart =
+        System.nanoTime();
+
+      LOG.debug("node: {}", inNode);
+    }
+
+    /**
+     * Wrap a stage task so that any failure completes this item rather than
+     * being lost on a worker thread.
+     */
+
+    Runnable guard(
+      final PipelineTaskType task)
+    {
+      return () -> {
+        try {
+          task.run();
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+          this.future.completeExceptionally(e);
+        } catch (final Exception e) {
+          this.complete(
+            reportDependencyOfFailure(this.configuration, this.node, e));
+        } catch (final Throwable e) {
+          this.future.completeExceptionally(e);
+          throw e;
+        }
+      };
+    }
+
+    /**
+     * Complete this item with the failure of an asynchronous resolution.
+     */
+
+    void fail(
+      final Throwable error)
+    {
+      Throwable cause = error;
+      if (cause instanceof CompletionException && cause.getCause() != null) {
+        cause = cause.getCause();
+      }
+      if (cause instanceof Exception) {
+        this.complete(
+          reportDependencyOfFailure(this.configuration, this.node, (Exception) cause));
+      } else {
+        this.future.completeExceptionally(cause);
+      }
+    }
+
+    void completeReused(
+      final ChaserReportDependency report)
+    {
+      this.configuration.metrics()
+        .recordNodeResolution(System.nanoTime() - this.timeStart);
+      this.future.complete(report);
+    }
+
+    void complete(
+      final ChaserReportDependency report)
+    {
+      this.configuration.previousState()
+        .ifPresent(state -> state.put(this.node, report));
+      this.configuration.metrics()
+        .recordNodeResolution(System.nanoTime() - this.timeStart);
+      this.future.complete(report);
+    }
+  }
+
+  private static boolean isModular(
+    final ChaserModularizationStatusType status)
+  {
+    switch (status.kind()) {
+      case MODULARIZED_FULLY:
+      case MODULARIZED_AUTOMATIC_MODULE_NAME:
+        return true;
+      case NOT_MODULARIZED:
+      case NOT_JAR:
+      case UNAVAILABLE:
+      case UNAVAILABLE_OFFLINE:
+        return false;
+    }
+    throw new IllegalStateException("Unreachable code");
+  }
+
+  /**
+   * A search for the earliest modularized versions of a dependency whose
+   * highest version is modularized. Modularization is assumed to be
+   * monotonic, so there is nothing to find otherwise.
+   *
+   * The search is taken through the same stages as the dependency itself:
+   * the available versions are looked up by the metadata stage, each
+   * probed version is fetched by the fetch stage, and inspected by the
+   * inspection stage, which then decides on the next probe. Work fed back
+   * into an earlier stage does not wait for space in that stage. A failure
+   * at any point abandons the search, leaving the dependency's report
+   * otherwise intact.
+   */
+
+  private static final class FirstVersionSearch
+  {
+    private final ChaserReportConfiguration configuration;
+    private final ChaserVersionSourceType source;
+    private final Stages stages;
+    private final PipelineItem item;
+    private final ChaserReportDependency report;
+    private final String highestVersion;
+    private ChaserFirstVersionSearch search;
+
+    FirstVersionSearch(
+      final ChaserReportConfiguration inConfiguration,
+      final ChaserVersionSourceType inSource,
+      final Stages inStages,
+      final PipelineItem inItem,
+      final ChaserReportDependency inReport,
+      final String inHighestVersion)
+    {
+      this.configuration =
+        Objects.requireNonNull(inConfiguration, "configuration");
+      this.source =
+        Objects.requireNonNull(inSource, "source");
+      this.stages =
+        Objects.requireNonNull(inStages, "stages");
+      this.item =
+        Objects.requireNonNull(inItem, "item");
+      this.report =
+        Objects.requireNonNull(inReport, "report");
+      this.highestVersion =
+        Objects.requireNonNull(inHighestVersion, "highestVersion");
+    }
+
+    void start()
+    {
+      this.stages.metadata.submitUnbounded(this.guard(() -> {
+        final ChaserDependencyNode node = this.item.node;
+        final List<String> versions = new ArrayList<>();
+        for (final String version : this.source.versions(node)) {
+          if (!ArtifactUtils.isSnapshot(version)) {
+            versions.add(version);
+          }
+        }
+
+        this.search = ChaserFirstVersionSearch.create(
+          versions, this.configuration.versionProbeLimit());
+        this.search.assume(node.version(), this.report.statusCurrent());
+        this.search.assume(this.highestVersion, this.report.statusHighest());
+        this.step();
+      }));
+    }
+
+    private void step()
+      throws IOException
+    {
+      final Optional<ChaserStatusCache> cache_opt =
+        this.configuration.statusCache();
+
+      while (true) {
+        final Optional<String> version_opt = this.search.nextProbe();
+        if (version_opt.isEmpty()) {
+          this.finish();
+          return;
+        }
+
+        final String version = version_opt.get();
+        final ChaserDependencyNode probe_node = this.probeNodeOf(version);
+
+        /*
+         * Released artifacts do not change, so a cached status can be
+         * used without fetching the artifact again.
+         */
+
+        if (cache_opt.isPresent()) {
+          final Optional<ChaserModularizationStatusType> cached =
+            cache_opt.get().findRelease(probe_node);
+          if (cached.isPresent()) {
+            this.configuration.metrics()
+              .increment(ChaserMetrics.Counter.STATUS_CACHE_HITS);
+            this.search.record(version, cached.get());
+            continue;
+          }
+        }
+
+        this.stages.fetch.submitUnbounded(this.guard(() -> {
+          final Path file = this.source.fetch(probe_node);
+          this.stages.inspection.submitUnbounded(this.guard(() -> {
+            this.search.record(
+              version,
+              determineStatusCached(this.configuration, probe_node, file));
+            this.step();
+          }));
+        }));
+        return;
+      }
+    }
+
+    private ChaserDependencyNode probeNodeOf(
+      final String version)
+    {
+      final ChaserDependencyNode node = this.item.node;
+      return ChaserDependencyNode.of(
+        node.group(),
+        node.artifact(),
+        version,
+        node.classifier(),
+        node.type(),
+        node.scope());
+    }
+
+    private void finish()
+    {
+      final ChaserReportDependency.Builder builder =
+        ChaserReportDependency.builder()
+          .setStatusCurrent(this.report.statusCurrent())
+          .setStatusHighest(this.report.statusHighest());
+
+      if (this.search != null) {
+        this.configuration.metrics().add(
+          ChaserMetrics.Counter.VERSION_PROBES,
+          (long) this.search.probes());
+        builder.setFirstModularVersion(this.search.firstModular());
+        builder.setFirstFullyModularVersion(this.search.firstFullyModular());
+        builder.setFirstVersionsIncomplete(!this.search.isComplete());
+      } else {
+        builder.setFirstVersionsIncomplete(true);
+      }
+      this.item.complete(builder.build());
+    }
+
+    private Runnable guard(
+      final PipelineTaskType task)
+    {
+      return () -> {
+        try {
+          task.run();
+        } catch (final Exception e) {
+          if (e instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+          }
+          LOG.debug(
+            "first version search failed: {}: ",
+            this.item.node.toTerseString(),
+            e);
+          this.finish();
+        }
+      };
+    }
+  }
+
+  private static ChaserReportDependency waitFor(
+    final Future<ChaserReportDependency> future)
+    throws InterruptedException
+  {
+    try {
+      return future.get();
+    } catch (final ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof InterruptedException) {
+        throw (InterruptedException) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  private static ChaserReportDependency reportDependencyOfResolved(
+    final ChaserReportConfiguration configuration,
+    final ChaserDependencyNode node,
+    final ChaserDependencyResolved resolved)
+  {
+    try {
+      final Path current_file = resolved.sourceFile();
+      final Path highest_file = resolved.highestFile();
+      final String current_version = resolved.source().version();
+      final String highest_version = resolved.highestVersion();
+
+      LOG.debug("current file:    {}", current_file);
+      LOG.debug("current version: {}", current_version);
+      LOG.debug("highest file:    {}", highest_file);
+      LOG.debug("highest version: {}", highest_version);
+
+      final ChaserDependencyNode highest_node =
+        ChaserDependencyNode.of(
+          node.group(),
+          node.artifact(),
+          highest_version,
+          node.classifier(),
+          node.type(),
+          node.scope());
+
+      final ChaserModularizationStatusType status_current =
+        determineStatusCached(configuration, node, current_file);
+      final ChaserModularizationStatusType status_highest =
+        determineStatusCached(configuration, highest_node, highest_file);
+
+      return ChaserReportDependency.of(status_current, status_highest);
+    } catch (final Exception e) {
+      return reportDependencyOfFailure(configuration, node, e);
+    }
+  }
+
+  private static ChaserReportDependency reportDependencyOfFailure(
+    final ChaserReportConfiguration configuration,
+    final ChaserDependencyNode node,
+    final Exception e)
+  {
+    if (e instanceof ChaserUnavailableOfflineException) {
+      final ChaserUnavailableOfflineException offline =
+        (ChaserUnavailableOfflineException) e;
+      LOG.debug("unavailable offline: {}", node.toTerseString());
+      configuration.metrics()
+        .increment(ChaserMetrics.Counter.UNAVAILABLE_OFFLINE);
+      return ChaserReportDependency.of(
+        ChaserModularizationStatusUnavailableOffline.of(offline.version()),
+        ChaserModularizationStatusUnavailableOffline.of(offline.version()));
+    }
+
+    LOG.error("error resolving: ", e);
+    configuration.metrics()
+      .increment(ChaserMetrics.Counter.ERRORS);
+    return ChaserReportDependency.of(
+      ChaserModularizationStatusUnavailable.of(Optional.of(e)),
+      ChaserModularizationStatusUnavailable.of(Optional.of(e)));
+  }
+
+  private static ChaserModularizationStatusType determineStatusCached(
+    final ChaserReportConfiguration configuration,
+    final ChaserDependencyNode node,
+    final Path file)
+    throws IOException
+  {
+    final ChaserMetrics metrics = configuration.metrics();
+    final Optional<ChaserStatusCache> cache_opt = configuration.statusCache();
+    if (cache_opt.isEmpty()) {
+      return determineStatusTimed(metrics, file, node.version());
+    }
+
+    final ChaserStatusCache cache = cache_opt.get();
+    final Optional<ChaserModularizationStatusType> cached =
+      cache.find(node, file);
+
+    if (cached.isPresent()) {
+      LOG.debug("status cache hit: {}", node.toTerseString());
+      metrics.increment(ChaserMetrics.Counter.STATUS_CACHE_HITS);
+      return cached.get();
+    }
+
+    LOG.debug("status cache miss: {}", node.toTerseString());
+    metrics.increment(ChaserMetrics.Counter.STATUS_CACHE_MISSES);
+    final ChaserModularizationStatusType status =
+      determineStatusTimed(metrics, file, node.version());
+    cache.put(node, file, status);
+    return status;
+  }
+
+  private static ChaserModularizationStatusType determineStatusTimed(
+    final ChaserMetrics metrics,
     final Path file,
     final String version)
     throws IOException
   {
-    if (appearsToBeJar(file)) {
-      final ChaserJPMSJar jar = ChaserJPMSJar.ofJar(new JarFile(file.toFile()));
-      return jar.moduleName().map(name -> {
-        if (name.isAutomatic()) {
-          return ChaserModularizationStatusModularizedAutomaticModuleName.of(
-            name.name(),
-            version);
-        }
-        return ChaserModularizationStatusModularizedFully.of(
-          name.name(),
-          version);
-      }).orElse(ChaserModularizationStatusNotModularized.of(version));
+    final long time_start = System.nanoTime();
+    try {
+      return determineStatus(file, version);
+    } finally {
+      metrics.recordOperation(
+        ChaserMetrics.Operation.JAR_INSPECTION,
+        System.nanoTime() - time_start);
     }
-    return ChaserModularizationStatusNotJar.of(version);
   }
 
-  private static boolean appearsToBeJar(final Path path)
+  private static ChaserModularizationStatusType determineStatus(
+    final Path file,
+    final String version)
+    throws IOException
   {
+    if (!ChaserJPMSJar.appearsToBeZip(file)) {
+      return ChaserModularizationStatusNotJar.of(version);
+    }
+
+    final Optional<ChaserJPMSModuleName> name_opt;
     try {
-      if (Files.isRegularFile(path)) {
-        try (JarFile ignored = new JarFile(
-          path.toFile(),
-          false,
-          JarFile.OPEN_READ)) {
-          return true;
-        }
-      }
-      return false;
-    } catch (final IOException e) {
+      name_opt = moduleNameOf(file);
+    } catch (final ZipException e) {
       LOG.debug("error opening file as jar: ", e);
-      return false;
+      return ChaserModularizationStatusNotJar.of(version);
+    }
+
+    return name_opt.map(name -> {
+      if (name.isAutomatic()) {
+        return ChaserModularizationStatusModularizedAutomaticModuleName.of(
+          name.name(),
+          version);
+      }
+      return ChaserModularizationStatusModularizedFully.of(
+        name.name(),
+        version);
+    }).orElse(ChaserModularizationStatusNotModularized.of(version));
+  }
+
+  private static Optional<ChaserJPMSModuleName> moduleNameOf(
+    final Path file)
+    throws IOException
+  {
+    /*
+     * Read the module metadata directly from the central directory of the
+     * archive, falling back to the (more forgiving) JarFile implementation
+     * for archives that the direct reader cannot handle.
+     */
+
+    try (ChaserJPMSChannelJar jar = ChaserJPMSChannelJar.open(file)) {
+      return jar.moduleName();
+    } catch (final ZipException e) {
+      LOG.debug("direct jar inspection failed, falling back: {}: ", file, e);
+    }
+
+    try (ChaserJPMSJar jar = ChaserJPMSJar.open(file)) {
+      return jar.moduleName();
     }
   }
 }
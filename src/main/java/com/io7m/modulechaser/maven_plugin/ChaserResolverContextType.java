@@ -0,0 +1,139 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.maven_plugin;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.handler.manager.ArtifactHandlerManager;
+import org.apache.maven.artifact.metadata.ArtifactMetadataSource;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.shared.transfer.artifact.resolve.ArtifactResolver;
+import org.apache.maven.shared.transfer.artifact.resolve.ArtifactResolverException;
+import org.immutables.value.Value;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The services and configuration used to resolve dependencies.
+ */
+
+@ChaserImmutableStyleType
+@Value.Immutable
+public interface ChaserResolverContextType
+{
+  /**
+   * @return The plugin log
+   */
+
+  Log log();
+
+  /**
+   * @return The project whose dependencies are being resolved
+   */
+
+  MavenProject project();
+
+  /**
+   * The remote repositories that will be consulted. When several projects
+   * are analyzed together, this must include the repositories of every
+   * project, as dependencies of one project may only be available from the
+   * repositories that it declares.
+   *
+   * @return The remote repositories
+   */
+
+  @Value.Default
+  default List<ArtifactRepository> remoteRepositories()
+  {
+    return this.project().getRemoteArtifactRepositories();
+  }
+
+  /**
+   * @return The current Maven session
+   */
+
+  MavenSession session();
+
+  /**
+   * @return The artifact handler manager
+   */
+
+  ArtifactHandlerManager artifactHandlerManager();
+
+  /**
+   * @return The artifact resolver
+   */
+
+  ArtifactResolver artifactResolver();
+
+  /**
+   * @return The artifact metadata source
+   */
+
+  ArtifactMetadataSource metadataSource();
+
+  /**
+   * @return The cache of available artifact versions
+   */
+
+  ChaserVersionCache versionCache();
+
+  /**
+   * @return The inspector used to examine remote jar files without
+   * downloading them, if remote inspection is enabled
+   */
+
+  Optional<ChaserRemoteJarInspector> remoteInspector();
+
+  /**
+   * @return {@code true} if remote repositories must not be consulted
+   */
+
+  @Value.Default
+  default boolean offline()
+  {
+    return false;
+  }
+
+  /**
+   * @return The metrics updated during resolution
+   */
+
+  @Value.Default
+  default ChaserMetrics metrics()
+  {
+    return ChaserMetrics.create();
+  }
+
+  /**
+   * The highest versions of artifacts that have been resolved, keyed by
+   * {@code group:artifact:version:classifier:type}. Dependencies that differ
+   * only in their current version or scope share a single resolution of
+   * the highest version.
+   *
+   * @return The highest-version resolutions
+   */
+
+  @Value.Default
+  default ChaserCoalescer<String, Artifact, ArtifactResolverException> highestArtifacts()
+  {
+    return ChaserCoalescer.create(ArtifactResolverException.class);
+  }
+}
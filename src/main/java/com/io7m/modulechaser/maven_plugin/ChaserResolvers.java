@@ -16,26 +16,39 @@
 
 package com.io7m.modulechaser.maven_plugin;
 
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.ArtifactUtils;
 import org.apache.maven.artifact.DefaultArtifact;
 import org.apache.maven.artifact.handler.ArtifactHandler;
-import org.apache.maven.artifact.handler.manager.ArtifactHandlerManager;
 import org.apache.maven.artifact.metadata.ArtifactMetadataRetrievalException;
 import org.apache.maven.artifact.metadata.ArtifactMetadataSource;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.repository.Authentication;
 import org.apache.maven.artifact.versioning.ArtifactVersion;
+import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.DefaultProjectBuildingRequest;
-import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.ProjectBuildingRequest;
 import org.apache.maven.repository.legacy.metadata.DefaultMetadataResolutionRequest;
-import org.apache.maven.shared.transfer.artifact.resolve.ArtifactResolver;
 import org.apache.maven.shared.transfer.artifact.resolve.ArtifactResolverException;
 import org.apache.maven.shared.transfer.artifact.resolve.ArtifactResult;
 
 import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 final class ChaserResolvers
 {
@@ -45,37 +58,72 @@ final class ChaserResolvers
   }
 
   public static ChaserDependencyResolved resolve(
-    final Log log,
-    final MavenProject project,
-    final MavenSession session,
-    final ArtifactHandlerManager artifactHandlerManager,
-    final ArtifactResolver artifactResolver,
-    final ArtifactMetadataSource metadataSource,
+    final ChaserResolverContext context,
     final ChaserDependencyNode node)
-    throws ArtifactResolverException, ArtifactMetadataRetrievalException
-  {
-    Objects.requireNonNull(log, "log");
-    Objects.requireNonNull(project, "project");
-    Objects.requireNonNull(session, "session");
-    Objects.requireNonNull(artifactHandlerManager, "artifactHandlerManager");
-    Objects.requireNonNull(artifactResolver, "artifactResolver");
-    Objects.requireNonNull(metadataSource, "metadataSource");
-    Objects.requireNonNull(node, "node");
+    throws ArtifactResolverException,
+    ArtifactMetadataRetrievalException,
+    ChaserUnavailableOfflineException
+  {
+    return fetch(context, plan(context, node));
+  }
 
-    log.debug("resolve: " + node.toTerseString());
+  /**
+   * Determine the highest available version of the given node. This
+   * consults remote repository metadata (or, offline, the local
+   * repository), but fetches no artifacts.
+   *
+   * @param context The resolver context
+   * @param node    The node
+   *
+   * @return A resolution plan
+   *
+   * @throws ArtifactResolverException          If no versions are available
+   * @throws ArtifactMetadataRetrievalException On metadata errors
+   * @throws ChaserUnavailableOfflineException  If the node is unavailable
+   *                                            offline
+   */
 
-    final ArtifactHandler handler =
-      artifactHandlerManager.getArtifactHandler(node.type());
+  public static ChaserDependencyPlan plan(
+    final ChaserResolverContext context,
+    final ChaserDependencyNode node)
+    throws ArtifactResolverException,
+    ArtifactMetadataRetrievalException,
+    ChaserUnavailableOfflineException
+  {
+    Objects.requireNonNull(context, "context");
+    Objects.requireNonNull(node, "node");
+
+    final Log log = context.log();
+    log.debug("plan: " + node.toTerseString());
 
+    final ArtifactHandler handler = handlerOf(context, node);
     final DefaultArtifact current_artifact =
-      new DefaultArtifact(
-        node.group(),
-        node.artifact(),
-        node.version(),
-        node.scope(),
-        node.type(),
-        node.classifier().orElse(null),
-        handler);
+      artifactOf(node, node.version(), handler);
+
+    if (context.offline()) {
+      return planOffline(context, node, handler, current_artifact);
+    }
+
+    final List<ArtifactVersion> versions =
+      remoteVersions(context, current_artifact);
+
+    if (versions.isEmpty()) {
+      throw new ArtifactResolverException(
+        "No version available for " + node.toTerseString(),
+        new IOException("No available versions"));
+    }
+
+    final ArtifactVersion highest = versions.get(versions.size() - 1);
+    return ChaserDependencyPlan.of(node, highest.toString());
+  }
+
+  private static List<ArtifactVersion> remoteVersions(
+    final ChaserResolverContext context,
+    final DefaultArtifact current_artifact)
+    throws ArtifactMetadataRetrievalException
+  {
+    final MavenSession session = context.session();
+    final ArtifactMetadataSource metadataSource = context.metadataSource();
 
     final DefaultMetadataResolutionRequest version_request =
       new DefaultMetadataResolutionRequest();
@@ -83,47 +131,557 @@ final class ChaserResolvers
     version_request.setForceUpdate(true);
     version_request.setOffline(false);
     version_request.setLocalRepository(session.getLocalRepository());
-    version_request.setRemoteRepositories(project.getRemoteArtifactRepositories());
+    version_request.setRemoteRepositories(context.remoteRepositories());
+
+    final ChaserMetrics metrics = context.metrics();
+    metrics.increment(ChaserMetrics.Counter.VERSION_CACHE_LOOKUPS);
 
     final List<ArtifactVersion> versions =
-      metadataSource.retrieveAvailableVersions(version_request);
+      new ArrayList<>(
+        context.versionCache().retrieve(
+          current_artifact.getGroupId(),
+          current_artifact.getArtifactId(),
+          version_request.getRemoteRepositories(),
+          () -> retrieveVersions(metrics, metadataSource, version_request)));
 
     Collections.sort(versions);
+    return versions;
+  }
 
-    if (versions.isEmpty()) {
-      throw new ArtifactResolverException(
-        "No version available for " + node.toTerseString(),
-        new IOException("No available versions"));
+  /**
+   * Determine the available versions of the given node. When offline, only
+   * versions whose artifacts are present in the local repository are
+   * returned.
+   *
+   * @param context The resolver context
+   * @param node    The node
+   *
+   * @return The available versions, in ascending order
+   *
+   * @throws ArtifactMetadataRetrievalException On metadata errors
+   */
+
+  public static List<String> versionsOf(
+    final ChaserResolverContext context,
+    final ChaserDependencyNode node)
+    throws ArtifactMetadataRetrievalException
+  {
+    Objects.requireNonNull(context, "context");
+    Objects.requireNonNull(node, "node");
+
+    final ArtifactHandler handler = handlerOf(context, node);
+    final DefaultArtifact current_artifact =
+      artifactOf(node, node.version(), handler);
+
+    final List<ArtifactVersion> versions;
+    if (context.offline()) {
+      final ArtifactRepository local = context.session().getLocalRepository();
+      final TreeSet<ArtifactVersion> local_versions = new TreeSet<>();
+      local_versions.addAll(localMetadataVersions(context, current_artifact));
+      local_versions.addAll(
+        localDirectoryVersions(localFileOf(local, current_artifact)));
+      versions = new ArrayList<>(local_versions.size());
+      for (final ArtifactVersion version : local_versions) {
+        final Path file =
+          localFileOf(local, artifactOf(node, version.toString(), handler));
+        if (Files.isRegularFile(file)) {
+          versions.add(version);
+        }
+      }
+    } else {
+      versions = remoteVersions(context, current_artifact);
     }
 
-    final ArtifactVersion highest = versions.get(versions.size() - 1);
+    return versions.stream()
+      .map(ArtifactVersion::toString)
+      .collect(Collectors.toList());
+  }
+
+  /**
+   * Fetch the artifact for the given node. When remote inspection is
+   * enabled, a reduced copy of the artifact containing only its module
+   * metadata may be returned.
+   *
+   * @param context The resolver context
+   * @param node    The node
+   *
+   * @return The artifact file
+   *
+   * @throws ArtifactResolverException         On resolution errors
+   * @throws ChaserUnavailableOfflineException If the artifact is
+   *                                           unavailable offline
+   */
+
+  public static Path fetchVersion(
+    final ChaserResolverContext context,
+    final ChaserDependencyNode node)
+    throws ArtifactResolverException, ChaserUnavailableOfflineException
+  {
+    Objects.requireNonNull(context, "context");
+    Objects.requireNonNull(node, "node");
+
+    context.log().debug("fetch version: " + node.toTerseString());
+
+    final DefaultArtifact artifact =
+      artifactOf(node, node.version(), handlerOf(context, node));
+
+    if (context.offline()) {
+      final Path file =
+        localFileOf(context.session().getLocalRepository(), artifact);
+      if (!Files.isRegularFile(file)) {
+        throw new ChaserUnavailableOfflineException(
+          "Artifact is not present in the local repository: "
+            + node.toTerseString(),
+          node.version());
+      }
+      return file;
+    }
+
+    return resolveInspectable(context, artifact).getFile().toPath();
+  }
+
+  /**
+   * Fetch the current and highest versions of the dependency named by the
+   * given plan.
+   *
+   * @param context The resolver context
+   * @param plan    The plan
+   *
+   * @return The resolved dependency
+   *
+   * @throws ArtifactResolverException         On resolution errors
+   * @throws ChaserUnavailableOfflineException If the dependency is
+   *                                           unavailable offline
+   */
+
+  public static ChaserDependencyResolved fetch(
+    final ChaserResolverContext context,
+    final ChaserDependencyPlan plan)
+    throws ArtifactResolverException, ChaserUnavailableOfflineException
+  {
+    Objects.requireNonNull(context, "context");
+    Objects.requireNonNull(plan, "plan");
+
+    final ChaserDependencyNode node = plan.source();
+    context.log().debug("fetch: " + node.toTerseString());
+
+    final ArtifactHandler handler = handlerOf(context, node);
+    final DefaultArtifact current_artifact =
+      artifactOf(node, node.version(), handler);
+    final DefaultArtifact highest_artifact =
+      artifactOf(node, plan.highestVersion(), handler);
+
+    if (context.offline()) {
+      return fetchOffline(context, plan, current_artifact, highest_artifact);
+    }
 
     final ProjectBuildingRequest current_request =
-      new DefaultProjectBuildingRequest(session.getProjectBuildingRequest());
+      buildingRequestOf(context);
 
     final ArtifactResult current_resolved =
-      artifactResolver.resolveArtifact(current_request, current_artifact);
+      resolveArtifact(context, current_request, current_artifact);
 
-    final DefaultArtifact highest_artifact =
-      new DefaultArtifact(
-        node.group(),
-        node.artifact(),
-        highest.toString(),
-        node.scope(),
-        node.type(),
-        node.classifier().orElse(null),
-        handler);
+    final Path current_file =
+      current_resolved.getArtifact().getFile().toPath();
+
+    /*
+     * Dependencies that differ only in their current version or scope have
+     * the same highest version, so the highest version is only ever
+     * resolved (or inspected remotely) once per set of coordinates.
+     */
+
+    final Artifact highest_resolved =
+      context.highestArtifacts()
+        .get(
+          highestKeyOf(highest_artifact),
+          () -> resolveHighest(context, node, highest_artifact));
+
+    return ChaserDependencyResolved.of(
+      node,
+      current_file,
+      highest_resolved.getVersion(),
+      highest_resolved.getFile().toPath());
+  }
+
+  private static ArtifactHandler handlerOf(
+    final ChaserResolverContext context,
+    final ChaserDependencyNode node)
+  {
+    return context.artifactHandlerManager().getArtifactHandler(node.type());
+  }
+
+  private static DefaultArtifact artifactOf(
+    final ChaserDependencyNode node,
+    final String version,
+    final ArtifactHandler handler)
+  {
+    return new DefaultArtifact(
+      node.group(),
+      node.artifact(),
+      version,
+      node.scope(),
+      node.type(),
+      node.classifier().orElse(null),
+      handler);
+  }
+
+  private static String highestKeyOf(
+    final Artifact artifact)
+  {
+    return new StringBuilder(128)
+      .append(artifact.getGroupId())
+      .append(':')
+      .append(artifact.getArtifactId())
+      .append(':')
+      .append(artifact.getVersion())
+      .append(':')
+      .append(Objects.requireNonNullElse(artifact.getClassifier(), ""))
+      .append(':')
+      .append(artifact.getType())
+      .toString();
+  }
+
+  private static Artifact resolveHighest(
+    final ChaserResolverContext context,
+    final ChaserDependencyNode node,
+    final DefaultArtifact highest_artifact)
+    throws ArtifactResolverException
+  {
+    if (!Objects.equals(highest_artifact.getVersion(), node.version())) {
+      return resolveInspectable(context, highest_artifact);
+    }
 
     final ProjectBuildingRequest highest_request =
-      new DefaultProjectBuildingRequest(session.getProjectBuildingRequest());
+      buildingRequestOf(context);
+
+    return resolveArtifact(context, highest_request, highest_artifact)
+      .getArtifact();
+  }
+
+  private static Artifact resolveInspectable(
+    final ChaserResolverContext context,
+    final DefaultArtifact artifact)
+    throws ArtifactResolverException
+  {
+    final Optional<Path> remote = inspectRemotely(context, artifact);
+    if (remote.isPresent()) {
+      final DefaultArtifact inspected =
+        new DefaultArtifact(
+          artifact.getGroupId(),
+          artifact.getArtifactId(),
+          artifact.getVersion(),
+          artifact.getScope(),
+          artifact.getType(),
+          artifact.getClassifier(),
+          artifact.getArtifactHandler());
+      inspected.setFile(remote.get().toFile());
+      return inspected;
+    }
 
-    final ArtifactResult highest_resolved =
-      artifactResolver.resolveArtifact(highest_request, highest_artifact);
+    final ProjectBuildingRequest request =
+      buildingRequestOf(context);
+
+    return resolveArtifact(context, request, artifact).getArtifact();
+  }
+
+  private static List<ArtifactVersion> retrieveVersions(
+    final ChaserMetrics metrics,
+    final ArtifactMetadataSource metadataSource,
+    final DefaultMetadataResolutionRequest request)
+    throws ArtifactMetadataRetrievalException
+  {
+    metrics.increment(ChaserMetrics.Counter.VERSION_CACHE_MISSES);
+
+    final long time_start = System.nanoTime();
+    try {
+      return metadataSource.retrieveAvailableVersions(request);
+    } finally {
+      metrics.recordOperation(
+        ChaserMetrics.Operation.VERSION_RETRIEVAL,
+        System.nanoTime() - time_start);
+    }
+  }
+
+  /**
+   * Create a building request that resolves artifacts from the remote
+   * repositories of the context, rather than only those of the session.
+   */
+
+  private static ProjectBuildingRequest buildingRequestOf(
+    final ChaserResolverContext context)
+  {
+    final ProjectBuildingRequest request =
+      new DefaultProjectBuildingRequest(
+        context.session().getProjectBuildingRequest());
+    request.setRemoteRepositories(context.remoteRepositories());
+    return request;
+  }
+
+  private static ArtifactResult resolveArtifact(
+    final ChaserResolverContext context,
+    final ProjectBuildingRequest request,
+    final DefaultArtifact artifact)
+    throws ArtifactResolverException
+  {
+    final ChaserMetrics metrics = context.metrics();
+    final Path local_file =
+      localFileOf(context.session().getLocalRepository(), artifact);
+    final boolean present = Files.isRegularFile(local_file);
+
+    final long time_start = System.nanoTime();
+    try {
+      final ArtifactResult result =
+        context.artifactResolver().resolveArtifact(request, artifact);
+
+      /*
+       * An artifact that was not present in the local repository before
+       * resolution, and is present afterwards, was downloaded.
+       */
+
+      if (!present) {
+        final Path file = result.getArtifact().getFile().toPath();
+        try {
+          metrics.add(ChaserMetrics.Counter.BYTES_DOWNLOADED, Files.size(file));
+        } catch (final IOException e) {
+          context.log().debug("could not determine size: " + file);
+        }
+      }
+      return result;
+    } finally {
+      metrics.recordOperation(
+        ChaserMetrics.Operation.ARTIFACT_RESOLUTION,
+        System.nanoTime() - time_start);
+    }
+  }
+
+  private static Optional<Path> inspectRemotely(
+    final ChaserResolverContext context,
+    final DefaultArtifact artifact)
+  {
+    final Optional<ChaserRemoteJarInspector> inspector_opt =
+      context.remoteInspector();
+    if (inspector_opt.isEmpty()) {
+      return Optional.empty();
+    }
+
+    /*
+     * Snapshot versions would require resolving timestamped file names from
+     * remote metadata, and artifacts that are already present locally do not
+     * need to be fetched at all.
+     */
+
+    if (ArtifactUtils.isSnapshot(artifact.getVersion())) {
+      return Optional.empty();
+    }
+
+    final ArtifactRepository local = context.session().getLocalRepository();
+    if (Files.isRegularFile(localFileOf(local, artifact))) {
+      return Optional.empty();
+    }
+
+    final ChaserRemoteJarInspector inspector = inspector_opt.get();
+    final Log log = context.log();
+
+    final List<ArtifactRepository> repositories =
+      context.remoteRepositories();
+    for (final ArtifactRepository repository : repositories) {
+      final String path = repository.pathOf(artifact);
+      final Optional<String> uri_opt = remoteURIOf(repository, path);
+      if (uri_opt.isEmpty()) {
+        continue;
+      }
+
+      final String uri_text = uri_opt.get();
+      final long time_start = System.nanoTime();
+      try {
+        final Optional<Path> result =
+          inspector.fetch(
+            URI.create(uri_text),
+            authorizationOf(repository),
+            repository.getId() + "/" + path);
+        if (result.isPresent()) {
+          return result;
+        }
+      } catch (final IOException | IllegalArgumentException e) {
+        log.debug("remote inspection failed: " + uri_text + ": " + e.getMessage());
+      } finally {
+        context.metrics().recordOperation(
+          ChaserMetrics.Operation.REMOTE_INSPECTION,
+          System.nanoTime() - time_start);
+      }
+    }
+
+    return Optional.empty();
+  }
+
+  private static Optional<String> remoteURIOf(
+    final ArtifactRepository repository,
+    final String path)
+  {
+    /*
+     * Repositories reached through a proxy, or over anything other than
+     * HTTP, are left to the artifact resolver.
+     */
+
+    final String url = repository.getUrl();
+    if (url == null || repository.getProxy() != null) {
+      return Optional.empty();
+    }
+    if (!(url.startsWith("http://") || url.startsWith("https://"))) {
+      return Optional.empty();
+    }
+
+    final StringBuilder uri_text = new StringBuilder(128);
+    uri_text.append(url);
+    if (!url.endsWith("/")) {
+      uri_text.append('/');
+    }
+    uri_text.append(path);
+    return Optional.of(uri_text.toString());
+  }
+
+  private static Optional<String> authorizationOf(
+    final ArtifactRepository repository)
+  {
+    final Authentication authentication = repository.getAuthentication();
+    if (authentication == null || authentication.getUsername() == null) {
+      return Optional.empty();
+    }
+
+    final String password =
+      authentication.getPassword() != null ? authentication.getPassword() : "";
+    final String credentials = authentication.getUsername() + ":" + password;
+    return Optional.of(
+      "Basic " + Base64.getEncoder()
+        .encodeToString(credentials.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  private static ChaserDependencyPlan planOffline(
+    final ChaserResolverContext context,
+    final ChaserDependencyNode node,
+    final ArtifactHandler handler,
+    final DefaultArtifact current_artifact)
+    throws ChaserUnavailableOfflineException
+  {
+    /*
+     * The highest version is the highest version named in the local
+     * repository metadata, or present as a directory in the local
+     * repository, for which an artifact file is present locally.
+     */
+
+    final ArtifactRepository local = context.session().getLocalRepository();
+
+    final Path current_file = localFileOf(local, current_artifact);
+    if (!Files.isRegularFile(current_file)) {
+      throw new ChaserUnavailableOfflineException(
+        "Artifact is not present in the local repository: "
+          + node.toTerseString(),
+        node.version());
+    }
+
+    final TreeSet<ArtifactVersion> versions = new TreeSet<>();
+    versions.addAll(localMetadataVersions(context, current_artifact));
+    versions.addAll(localDirectoryVersions(current_file));
+
+    final ArtifactVersion current_version =
+      new DefaultArtifactVersion(node.version());
+
+    for (final ArtifactVersion version : versions.descendingSet()) {
+      if (version.compareTo(current_version) <= 0) {
+        break;
+      }
+
+      final DefaultArtifact highest_artifact =
+        artifactOf(node, version.toString(), handler);
+
+      final Path highest_file = localFileOf(local, highest_artifact);
+      if (Files.isRegularFile(highest_file)) {
+        return ChaserDependencyPlan.of(node, version.toString());
+      }
+    }
+
+    return ChaserDependencyPlan.of(node, node.version());
+  }
+
+  private static ChaserDependencyResolved fetchOffline(
+    final ChaserResolverContext context,
+    final ChaserDependencyPlan plan,
+    final DefaultArtifact current_artifact,
+    final DefaultArtifact highest_artifact)
+    throws ChaserUnavailableOfflineException
+  {
+    final ArtifactRepository local = context.session().getLocalRepository();
+    final ChaserDependencyNode node = plan.source();
+
+    final Path current_file = localFileOf(local, current_artifact);
+    final Path highest_file = localFileOf(local, highest_artifact);
+    if (!Files.isRegularFile(current_file) || !Files.isRegularFile(highest_file)) {
+      throw new ChaserUnavailableOfflineException(
+        "Artifact is not present in the local repository: "
+          + node.toTerseString(),
+        node.version());
+    }
 
     return ChaserDependencyResolved.of(
       node,
-      current_resolved.getArtifact().getFile().toPath(),
-      highest_resolved.getArtifact().getVersion(),
-      highest_resolved.getArtifact().getFile().toPath());
+      current_file,
+      plan.highestVersion(),
+      highest_file);
+  }
+
+  private static List<ArtifactVersion> localMetadataVersions(
+    final ChaserResolverContext context,
+    final DefaultArtifact artifact)
+  {
+    final MavenSession session = context.session();
+
+    final DefaultMetadataResolutionRequest version_request =
+      new DefaultMetadataResolutionRequest();
+    version_request.setArtifact(artifact);
+    version_request.setForceUpdate(false);
+    version_request.setOffline(true);
+    version_request.setLocalRepository(session.getLocalRepository());
+    version_request.setRemoteRepositories(context.remoteRepositories());
+
+    try {
+      return context.metadataSource().retrieveAvailableVersions(version_request);
+    } catch (final ArtifactMetadataRetrievalException e) {
+      context.log().debug("unable to read local metadata: " + e.getMessage());
+      return List.of();
+    }
+  }
+
+  private static List<ArtifactVersion> localDirectoryVersions(
+    final Path current_file)
+  {
+    /*
+     * Artifacts are stored in the local repository as
+     * group/artifact/version/file, so the directory two levels above the
+     * artifact file contains one directory per locally present version.
+     */
+
+    final Path version_directory = current_file.getParent();
+    if (version_directory == null) {
+      return List.of();
+    }
+    final Path artifact_directory = version_directory.getParent();
+    if (artifact_directory == null) {
+      return List.of();
+    }
+
+    try (Stream<Path> paths = Files.list(artifact_directory)) {
+      return paths.filter(Files::isDirectory)
+        .map(path -> new DefaultArtifactVersion(path.getFileName().toString()))
+        .collect(Collectors.toList());
+    } catch (final IOException e) {
+      return List.of();
+    }
+  }
+
+  private static Path localFileOf(
+    final ArtifactRepository local,
+    final DefaultArtifact artifact)
+  {
+    return Paths.get(local.getBasedir(), local.pathOf(artifact));
   }
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.maven_plugin;
+
+/**
+ * A dependency resolver that separates the metadata lookup for a
+ * dependency from the fetching of its artifacts, so that the two can be
+ * performed by different stages of a pipeline.
+ *
+ * @see ChaserReports
+ */
+
+public interface ChaserStagedDependencyResolverType
+  extends ChaserDependencyResolverType
+{
+  /**
+   * Determine the highest available version of the given node.
+   *
+   * @param node The node
+   *
+   * @return A resolution plan
+   *
+   * @throws Exception On errors
+   */
+
+  ChaserDependencyPlan plan(
+    ChaserDependencyNode node)
+    throws Exception;
+
+  /**
+   * Fetch the artifacts named by the given plan.
+   *
+   * @param plan The plan
+   *
+   * @return The resolved dependency
+   *
+   * @throws Exception On errors
+   */
+
+  ChaserDependencyResolved fetch(
+    ChaserDependencyPlan plan)
+    throws Exception;
+
+  @Override
+  default ChaserDependencyResolved resolve(
+    final ChaserDependencyNode node)
+    throws Exception
+  {
+    return this.fetch(this.plan(node));
+  }
+}
@@ -0,0 +1,393 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.maven_plugin;
+
+import org.apache.maven.artifact.ArtifactUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A persistent cache of the modularization status of artifact files.
+ *
+ * Entries are keyed by the full coordinates of an artifact. Release
+ * artifacts are assumed to be immutable and are only checked against the
+ * recorded file size, whilst snapshot artifacts are revalidated against the
+ * recorded SHA-256 checksum of the file. No checksum is computed for
+ * release artifacts.
+ */
+
+public final class ChaserStatusCache
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(ChaserStatusCache.class);
+
+  private static final String INDEX_NAME = "status-cache.properties";
+  private static final String NO_CHECKSUM = "-";
+
+  private final Path file;
+  private final ConcurrentHashMap<String, Entry> entries;
+  private volatile boolean modified;
+
+  private ChaserStatusCache(
+    final Path inFile,
+    final ConcurrentHashMap<String, Entry> inEntries)
+  {
+    this.file = Objects.requireNonNull(inFile, "file");
+    this.entries = Objects.requireNonNull(inEntries, "entries");
+    this.modified = false;
+  }
+
+  /**
+   * Open a status cache in the given directory. If the directory does not
+   * contain a cache, or the cache is unreadable, an empty cache is returned.
+   *
+   * @param directory The cache directory
+   *
+   * @return A status cache
+   */
+
+  public static ChaserStatusCache open(
+    final Path directory)
+  {
+    Objects.requireNonNull(directory, "directory");
+
+    final Path file = directory.resolve(INDEX_NAME);
+    return new ChaserStatusCache(file, load(file));
+  }
+
+  private static ConcurrentHashMap<String, Entry> load(
+    final Path file)
+  {
+    final ConcurrentHashMap<String, Entry> results = new ConcurrentHashMap<>();
+    final Map<String, String> properties = ChaserPropertiesFiles.read(file);
+    for (final Map.Entry<String, String> property : properties.entrySet()) {
+      final String key = property.getKey();
+      final String value = property.getValue();
+      try {
+        results.put(key, Entry.parse(value));
+      } catch (final IllegalArgumentException e) {
+        LOG.debug("ignoring malformed status cache entry {}: {}", key, value);
+      }
+    }
+    return results;
+  }
+
+  /**
+   * @return The number of entries in the cache
+   */
+
+  public int size()
+  {
+    return this.entries.size();
+  }
+
+  /**
+   * Find a cached status for the given artifact.
+   *
+   * @param node         The artifact coordinates
+   * @param artifactFile The artifact file
+   *
+   * @return The cached status, if a valid entry exists
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public Optional<ChaserModularizationStatusType> find(
+    final ChaserDependencyNode node,
+    final Path artifactFile)
+    throws IOException
+  {
+    Objects.requireNonNull(node, "node");
+    Objects.requireNonNull(artifactFile, "artifactFile");
+
+    final Entry entry = this.entries.get(keyOf(node));
+    if (entry == null) {
+      return Optional.empty();
+    }
+
+    if (!Files.isRegularFile(artifactFile)) {
+      return Optional.empty();
+    }
+    if (Files.size(artifactFile) != entry.size) {
+      return Optional.empty();
+    }
+    if (ArtifactUtils.isSnapshot(node.version())) {
+      if (!Objects.equals(checksumOf(artifactFile), entry.checksum)) {
+        return Optional.empty();
+      }
+    }
+
+    return Optional.of(entry.toStatus(node.version()));
+  }
+
+  /**
+   * Find a cached status for the given artifact without consulting the
+   * artifact file. Released artifacts do not change once published, so a
+   * cached status for a release version remains valid; no status is
+   * returned for snapshot versions.
+   *
+   * @param node The artifact coordinates
+   *
+   * @return The cached status, if an entry exists
+   */
+
+  public Optional<ChaserModularizationStatusType> findRelease(
+    final ChaserDependencyNode node)
+  {
+    Objects.requireNonNull(node, "node");
+
+    if (ArtifactUtils.isSnapshot(node.version())) {
+      return Optional.empty();
+    }
+
+    final Entry entry = this.entries.get(keyOf(node));
+    if (entry == null) {
+      return Optional.empty();
+    }
+    return Optional.of(entry.toStatus(node.version()));
+  }
+
+  /**
+   * Record the status of the given artifact. Statuses that indicate that
+   * an artifact is unavailable are not recorded.
+   *
+   * @param node         The artifact coordinates
+   * @param artifactFile The artifact file
+   * @param status       The status of the artifact
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public void put(
+    final ChaserDependencyNode node,
+    final Path artifactFile,
+    final ChaserModularizationStatusType status)
+    throws IOException
+  {
+    Objects.requireNonNull(node, "node");
+    Objects.requireNonNull(artifactFile, "artifactFile");
+    Objects.requireNonNull(status, "status");
+
+    switch (status.kind()) {
+      case UNAVAILABLE:
+      case UNAVAILABLE_OFFLINE:
+        return;
+      case MODULARIZED_FULLY:
+      case MODULARIZED_AUTOMATIC_MODULE_NAME:
+      case NOT_MODULARIZED:
+      case NOT_JAR:
+        break;
+    }
+    if (!Files.isRegularFile(artifactFile)) {
+      return;
+    }
+
+    final String checksum;
+    if (ArtifactUtils.isSnapshot(node.version())) {
+      checksum = checksumOf(artifactFile);
+    } else {
+      checksum = NO_CHECKSUM;
+    }
+
+    this.entries.put(
+      keyOf(node),
+      new Entry(
+        status.kind(),
+        Files.size(artifactFile),
+        checksum,
+        moduleNameOf(status)));
+    this.modified = true;
+  }
+
+  /**
+   * Write the cache to disk, if it has been modified. Entries written by
+   * other processes since the cache was opened are preserved.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public void save()
+    throws IOException
+  {
+    if (!this.modified) {
+      return;
+    }
+
+    final Map<String, Entry> merged = load(this.file);
+    merged.putAll(this.entries);
+
+    final Map<String, String> values = new TreeMap<>();
+    for (final Map.Entry<String, Entry> entry : merged.entrySet()) {
+      values.put(entry.getKey(), entry.getValue().serialize());
+    }
+
+    ChaserPropertiesFiles.writeAtomically(
+      this.file, "modulechaser status cache", values);
+
+    this.modified = false;
+  }
+
+  private static String keyOf(
+    final ChaserDependencyNode node)
+  {
+    return new StringBuilder(64)
+      .append(node.group())
+      .append(':')
+      .append(node.artifact())
+      .append(':')
+      .append(node.version())
+      .append(':')
+      .append(node.classifier().orElse(""))
+      .append(':')
+      .append(node.type())
+      .toString();
+  }
+
+  private static String moduleNameOf(
+    final ChaserModularizationStatusType status)
+  {
+    switch (status.kind()) {
+      case MODULARIZED_FULLY:
+        return ((ChaserModularizationStatusModularizedFully) status).moduleName();
+      case MODULARIZED_AUTOMATIC_MODULE_NAME:
+        return ((ChaserModularizationStatusModularizedAutomaticModuleName) status).moduleName();
+      case NOT_MODULARIZED:
+      case NOT_JAR:
+      case UNAVAILABLE:
+      case UNAVAILABLE_OFFLINE:
+        return "";
+    }
+    throw new IllegalStateException("Unreachable code");
+  }
+
+  private static String checksumOf(
+    final Path path)
+    throws IOException
+  {
+    try {
+      final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      final byte[] buffer = new byte[65536];
+      try (InputStream stream = Files.newInputStream(path)) {
+        while (true) {
+          final int r = stream.read(buffer);
+          if (r == -1) {
+            break;
+          }
+          digest.update(buffer, 0, r);
+        }
+      }
+      return Hex.show(digest.digest());
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static final class Entry
+  {
+    private final ChaserModularizationStatusType.Kind kind;
+    private final long size;
+    private final String checksum;
+    private final String moduleName;
+
+    Entry(
+      final ChaserModularizationStatusType.Kind inKind,
+      final long inSize,
+      final String inChecksum,
+      final String inModuleName)
+    {
+      this.kind = Objects.requireNonNull(inKind, "kind");
+      this.size = inSize;
+      this.checksum = Objects.requireNonNull(inChecksum, "checksum");
+      this.moduleName = Objects.requireNonNull(inModuleName, "moduleName");
+    }
+
+    static Entry parse(
+      final String text)
+    {
+      final String[] segments = text.split(" ", 4);
+      if (segments.length < 3) {
+        throw new IllegalArgumentException("Malformed entry: " + text);
+      }
+
+      final ChaserModularizationStatusType.Kind kind =
+        ChaserModularizationStatusType.Kind.valueOf(segments[0]);
+      switch (kind) {
+        case UNAVAILABLE:
+        case UNAVAILABLE_OFFLINE:
+          throw new IllegalArgumentException(
+            "Unavailable entries are not cached");
+        case MODULARIZED_FULLY:
+        case MODULARIZED_AUTOMATIC_MODULE_NAME:
+        case NOT_MODULARIZED:
+        case NOT_JAR:
+          break;
+      }
+
+      final String name = segments.length == 4 ? segments[3] : "";
+      return new Entry(kind, Long.parseLong(segments[1]), segments[2], name);
+    }
+
+    String serialize()
+    {
+      return new StringBuilder(128)
+        .append(this.kind.name())
+        .append(' ')
+        .append(this.size)
+        .append(' ')
+        .append(this.checksum)
+        .append(' ')
+        .append(this.moduleName)
+        .toString()
+        .trim();
+    }
+
+    ChaserModularizationStatusType toStatus(
+      final String version)
+    {
+      switch (this.kind) {
+        case MODULARIZED_FULLY:
+          return ChaserModularizationStatusModularizedFully.of(
+            this.moduleName,
+            version);
+        case MODULARIZED_AUTOMATIC_MODULE_NAME:
+          return ChaserModularizationStatusModularizedAutomaticModuleName.of(
+            this.moduleName,
+            version);
+        case NOT_MODULARIZED:
+          return ChaserModularizationStatusNotModularized.of(version);
+        case NOT_JAR:
+          return ChaserModularizationStatusNotJar.of(version);
+        case UNAVAILABLE:
+        case UNAVAILABLE_OFFLINE:
+          break;
+      }
+      throw new IllegalStateException("Unreachable code");
+    }
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.maven_plugin;
+
+import java.util.Objects;
+
+/**
+ * An exception raised when a dependency cannot be resolved because it is
+ * not present in the local repository and the build is offline.
+ */
+
+public final class ChaserUnavailableOfflineException extends Exception
+{
+  private static final long serialVersionUID = 1L;
+
+  private final String version;
+
+  /**
+   * Construct an exception.
+   *
+   * @param message   The exception message
+   * @param inVersion The version of the dependency
+   */
+
+  public ChaserUnavailableOfflineException(
+    final String message,
+    final String inVersion)
+  {
+    super(message);
+    this.version = Objects.requireNonNull(inVersion, "version");
+  }
+
+  /**
+   * @return The version of the dependency
+   */
+
+  public String version()
+  {
+    return this.version;
+  }
+}
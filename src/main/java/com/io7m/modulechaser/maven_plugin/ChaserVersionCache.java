@@ -0,0 +1,356 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.maven_plugin;
+
+import org.apache.maven.artifact.metadata.ArtifactMetadataRetrievalException;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.versioning.ArtifactVersion;
+import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * A persistent cache of the versions available for artifacts.
+ *
+ * Entries are keyed by {@code group:artifact} and record the set of
+ * repositories that were consulted. An entry expires once the smallest
+ * time-to-live of the consulted repositories has elapsed.
+ *
+ * Within a single execution, requests for the same artifact and
+ * repositories are coalesced: concurrent misses share a single retrieval,
+ * and later requests reuse its result even if the time-to-live is zero.
+ */
+
+public final class ChaserVersionCache
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(ChaserVersionCache.class);
+
+  private static final String INDEX_NAME = "version-cache.properties";
+
+  private final Path file;
+  private final Clock clock;
+  private final Duration ttlDefault;
+  private final Map<String, Duration> ttlRepositories;
+  private final ConcurrentHashMap<String, Entry> entries;
+  private final ChaserCoalescer<String, List<ArtifactVersion>, ArtifactMetadataRetrievalException> requests;
+  private volatile boolean modified;
+
+  private ChaserVersionCache(
+    final Path inFile,
+    final Clock inClock,
+    final Duration inTTLDefault,
+    final Map<String, Duration> inTTLRepositories,
+    final ConcurrentHashMap<String, Entry> inEntries)
+  {
+    this.file =
+      Objects.requireNonNull(inFile, "file");
+    this.clock =
+      Objects.requireNonNull(inClock, "clock");
+    this.ttlDefault =
+      Objects.requireNonNull(inTTLDefault, "ttlDefault");
+    this.ttlRepositories =
+      Map.copyOf(Objects.requireNonNull(inTTLRepositories, "ttlRepositories"));
+    this.entries =
+      Objects.requireNonNull(inEntries, "entries");
+    this.requests =
+      ChaserCoalescer.create(ArtifactMetadataRetrievalException.class);
+    this.modified = false;
+  }
+
+  /**
+   * Open a version cache in the given directory. If the directory does not
+   * contain a cache, or the cache is unreadable, an empty cache is returned.
+   *
+   * @param directory       The cache directory
+   * @param clock           The clock used to timestamp and expire entries
+   * @param ttlDefault      The time-to-live for repositories not mentioned in
+   *                        {@code ttlRepositories}
+   * @param ttlRepositories The time-to-live for individual repositories, by
+   *                        repository ID
+   *
+   * @return A version cache
+   */
+
+  public static ChaserVersionCache open(
+    final Path directory,
+    final Clock clock,
+    final Duration ttlDefault,
+    final Map<String, Duration> ttlRepositories)
+  {
+    Objects.requireNonNull(directory, "directory");
+
+    final Path file = directory.resolve(INDEX_NAME);
+    return new ChaserVersionCache(
+      file,
+      clock,
+      ttlDefault,
+      ttlRepositories,
+      load(file));
+  }
+
+  private static ConcurrentHashMap<String, Entry> load(
+    final Path file)
+  {
+    final ConcurrentHashMap<String, Entry> results = new ConcurrentHashMap<>();
+    final Map<String, String> properties = ChaserPropertiesFiles.read(file);
+    for (final Map.Entry<String, String> property : properties.entrySet()) {
+      final String key = property.getKey();
+      final String value = property.getValue();
+      try {
+        results.put(key, Entry.parse(value));
+      } catch (final IllegalArgumentException e) {
+        LOG.debug("ignoring malformed version cache entry {}: {}", key, value);
+      }
+    }
+    return results;
+  }
+
+  /**
+   * A source of versions, consulted when the cache has no valid entry.
+   */
+
+  public interface VersionSourceType
+  {
+    /**
+     * @return The available versions
+     *
+     * @throws ArtifactMetadataRetrievalException On errors
+     */
+
+    List<ArtifactVersion> retrieve()
+      throws ArtifactMetadataRetrievalException;
+  }
+
+  /**
+   * Retrieve the available versions of the given artifact, consulting
+   * {@code source} if no unexpired entry exists.
+   *
+   * @param group        The group ID
+   * @param artifact     The artifact ID
+   * @param repositories The repositories that {@code source} will consult
+   * @param source       The version source
+   *
+   * @return The available versions
+   *
+   * @throws ArtifactMetadataRetrievalException On errors
+   */
+
+  public List<ArtifactVersion> retrieve(
+    final String group,
+    final String artifact,
+    final List<ArtifactRepository> repositories,
+    final VersionSourceType source)
+    throws ArtifactMetadataRetrievalException
+  {
+    Objects.requireNonNull(group, "group");
+    Objects.requireNonNull(artifact, "artifact");
+    Objects.requireNonNull(repositories, "repositories");
+    Objects.requireNonNull(source, "source");
+
+    final String key = group + ":" + artifact;
+    final String repositories_key = repositoriesKey(repositories);
+    final Duration ttl = this.ttlOf(repositories);
+    final Instant now = this.clock.instant();
+
+    final Entry existing = this.entries.get(key);
+    if (existing != null
+      && Objects.equals(existing.repositories, repositories_key)
+      && existing.time.plus(ttl).isAfter(now)) {
+      LOG.debug("version cache hit: {}", key);
+      return existing.toVersions();
+    }
+
+    return this.requests.get(
+      key + " " + repositories_key,
+      () -> this.retrieveMiss(key, repositories_key, ttl, now, source));
+  }
+
+  private List<ArtifactVersion> retrieveMiss(
+    final String key,
+    final String repositories_key,
+    final Duration ttl,
+    final Instant now,
+    final VersionSourceType source)
+    throws ArtifactMetadataRetrievalException
+  {
+    LOG.debug("version cache miss: {}", key);
+    final List<ArtifactVersion> versions = List.copyOf(source.retrieve());
+
+    if (!ttl.isZero()) {
+      this.entries.put(
+        key,
+        new Entry(
+          now,
+          repositories_key,
+          versions.stream()
+            .map(ArtifactVersion::toString)
+            .collect(Collectors.toList())));
+      this.modified = true;
+    }
+    return versions;
+  }
+
+  /**
+   * @return The number of retrievals that were satisfied by a retrieval
+   * already performed or in flight for another request during this
+   * execution
+   */
+
+  public long coalesced()
+  {
+    return this.requests.shared();
+  }
+
+  /**
+   * Write the cache to disk, if it has been modified. Entries written by
+   * other processes since the cache was opened are preserved unless they
+   * are older than the entries in this cache.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public void save()
+    throws IOException
+  {
+    if (!this.modified) {
+      return;
+    }
+
+    final Map<String, Entry> merged = load(this.file);
+    for (final Map.Entry<String, Entry> entry : this.entries.entrySet()) {
+      merged.merge(
+        entry.getKey(),
+        entry.getValue(),
+        (x, y) -> x.time.isAfter(y.time) ? x : y);
+    }
+
+    final Map<String, String> values = new TreeMap<>();
+    for (final Map.Entry<String, Entry> entry : merged.entrySet()) {
+      values.put(entry.getKey(), entry.getValue().serialize());
+    }
+
+    ChaserPropertiesFiles.writeAtomically(
+      this.file, "modulechaser version cache", values);
+    this.modified = false;
+  }
+
+  private Duration ttlOf(
+    final List<ArtifactRepository> repositories)
+  {
+    Duration ttl = this.ttlDefault;
+    if (!repositories.isEmpty()) {
+      ttl = null;
+      for (final ArtifactRepository repository : repositories) {
+        final Duration repository_ttl =
+          this.ttlRepositories.getOrDefault(repository.getId(), this.ttlDefault);
+        if (ttl == null || repository_ttl.compareTo(ttl) < 0) {
+          ttl = repository_ttl;
+        }
+      }
+    }
+    return ttl;
+  }
+
+  private static String repositoriesKey(
+    final List<ArtifactRepository> repositories)
+  {
+    if (repositories.isEmpty()) {
+      return "-";
+    }
+    return repositories.stream()
+      .map(ArtifactRepository::getId)
+      .sorted()
+      .collect(Collectors.joining(","));
+  }
+
+  private static final class Entry
+  {
+    private final Instant time;
+    private final String repositories;
+    private final List<String> versions;
+
+    Entry(
+      final Instant inTime,
+      final String inRepositories,
+      final List<String> inVersions)
+    {
+      this.time = Objects.requireNonNull(inTime, "time");
+      this.repositories = Objects.requireNonNull(inRepositories, "repositories");
+      this.versions = List.copyOf(inVersions);
+    }
+
+    static Entry parse(
+      final String text)
+    {
+      final String[] segments = text.trim().split(" ");
+      if (segments.length < 2) {
+        throw new IllegalArgumentException("Malformed entry: " + text);
+      }
+
+      final List<String> versions = new ArrayList<>(segments.length - 2);
+      for (int index = 2; index < segments.length; ++index) {
+        versions.add(segments[index]);
+      }
+
+      try {
+        return new Entry(
+          Instant.ofEpochMilli(Long.parseLong(segments[0])),
+          segments[1],
+          versions);
+      } catch (final NumberFormatException e) {
+        throw new IllegalArgumentException(e);
+      }
+    }
+
+    String serialize()
+    {
+      final StringBuilder text = new StringBuilder(128);
+      text.append(this.time.toEpochMilli());
+      text.append(' ');
+      text.append(this.repositories);
+      for (final String version : this.versions) {
+        text.append(' ');
+        text.append(version);
+      }
+      return text.toString();
+    }
+
+    List<ArtifactVersion> toVersions()
+    {
+      final List<ArtifactVersion> results =
+        new ArrayList<>(this.versions.size());
+      for (final String version : this.versions) {
+        results.add(new DefaultArtifactVersion(version));
+      }
+      return results;
+    }
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.maven_plugin;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * A source of the versions of a dependency other than those that appear in
+ * the dependency graph.
+ */
+
+public interface ChaserVersionSourceType
+{
+  /**
+   * Determine the available versions of the given dependency.
+   *
+   * @param node The dependency
+   *
+   * @return The available versions, in ascending order
+   *
+   * @throws Exception On errors
+   */
+
+  List<String> versions(ChaserDependencyNode node)
+    throws Exception;
+
+  /**
+   * Fetch the artifact for the given dependency.
+   *
+   * @param node The dependency, at the version to be fetched
+   *
+   * @return The artifact file
+   *
+   * @throws Exception On errors
+   */
+
+  Path fetch(ChaserDependencyNode node)
+    throws Exception;
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.maven_plugin;
+
+import org.w3c.dom.Document;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.transform.dom.DOMResult;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.BitSet;
+import java.util.Objects;
+
+/**
+ * A thin layer over a streaming XML writer that tracks element nesting in
+ * order to produce indented output. Elements contain either text or other
+ * elements, never both, so indentation never alters text content.
+ */
+
+final class ChaserXHTMLOutput
+{
+  private static final String DOCTYPE_PUBLIC =
+    "-//W3C//DTD XHTML 1.0 Strict//EN";
+  private static final String DOCTYPE_SYSTEM =
+    "http://www.w3.org/TR/xhtml1/DTD/xhtml1-strict.dtd";
+
+  private final XMLStreamWriter writer;
+  private final boolean indent;
+  private final BitSet children;
+  private int depth;
+
+  private ChaserXHTMLOutput(
+    final XMLStreamWriter inWriter,
+    final boolean inIndent)
+  {
+    this.writer = Objects.requireNonNull(inWriter, "writer");
+    this.indent = inIndent;
+    this.children = new BitSet();
+    this.depth = 0;
+  }
+
+  static ChaserXHTMLOutput ofStream(
+    final OutputStream stream,
+    final String root)
+    throws XMLStreamException
+  {
+    final XMLStreamWriter writer =
+      XMLOutputFactory.newFactory()
+        .createXMLStreamWriter(new BufferedOutputStream(stream), "UTF-8");
+
+    writer.writeStartDocument("UTF-8", "1.0");
+    writer.writeCharacters(System.lineSeparator());
+    writer.writeDTD(
+      new StringBuilder(128)
+        .append("<!DOCTYPE ")
+        .append(root)
+        .append(" PUBLIC \"")
+        .append(DOCTYPE_PUBLIC)
+        .append("\" \"")
+        .append(DOCTYPE_SYSTEM)
+        .append("\">")
+        .toString());
+    return new ChaserXHTMLOutput(writer, true);
+  }
+
+  static ChaserXHTMLOutput ofDocument(
+    final Document document)
+    throws XMLStreamException
+  {
+    return new ChaserXHTMLOutput(
+      XMLOutputFactory.newFactory()
+        .createXMLStreamWriter(new DOMResult(document)),
+      false);
+  }
+
+  void start(final String name)
+    throws XMLStreamException
+  {
+    if (this.depth > 0) {
+      this.children.set(this.depth - 1);
+    }
+    this.newline();
+    this.writer.writeStartElement(name);
+    this.children.clear(this.depth);
+    ++this.depth;
+  }
+
+  /*
+   * The attributes of empty elements are passed as name/value pairs
+   * rather than written afterwards: The DOM-backed writer in the JDK
+   * attaches attributes written after an empty element to its parent.
+   */
+
+  void empty(
+    final String name,
+    final String... attributes)
+    throws XMLStreamException
+  {
+    if (this.depth > 0) {
+      this.children.set(this.depth - 1);
+    }
+    this.newline();
+
+    if (this.indent) {
+      this.writer.writeEmptyElement(name);
+      this.attributes(attributes);
+    } else {
+      this.writer.writeStartElement(name);
+      this.attributes(attributes);
+      this.writer.writeEndElement();
+    }
+  }
+
+  private void attributes(final String[] attributes)
+    throws XMLStreamException
+  {
+    for (int index = 0; index + 1 < attributes.length; index += 2) {
+      this.writer.writeAttribute(attributes[index], attributes[index + 1]);
+    }
+  }
+
+  void attribute(
+    final String name,
+    final String value)
+    throws XMLStreamException
+  {
+    this.writer.writeAttribute(name, value);
+  }
+
+  void characters(final String text)
+    throws XMLStreamException
+  {
+    this.writer.writeCharacters(text);
+  }
+
+  /*
+   * Scripts are written as CDATA sections, commented so that the page can
+   * also be parsed as HTML.
+   */
+
+  void script(final String text)
+    throws XMLStreamException
+  {
+    this.scriptStart();
+    this.scriptSection(text);
+    this.end();
+  }
+
+  /**
+   * Start a script whose text is supplied incrementally through the
+   * returned writer. Closing the writer ends the script.
+   */
+
+  Writer scriptWriter()
+    throws XMLStreamException
+  {
+    this.scriptStart();
+    return new ScriptWriter(this);
+  }
+
+  private void scriptStart()
+    throws XMLStreamException
+  {
+    this.start("script");
+    this.attribute("type", "text/javascript");
+    this.writer.writeCharacters(System.lineSeparator() + "//");
+  }
+
+  /*
+   * Each section ends with a comment marker, so that when the page is
+   * parsed as HTML, the boundary between two sections falls on a comment
+   * line.
+   */
+
+  private void scriptSection(final String text)
+    throws XMLStreamException
+  {
+    if (text.contains("]]>")) {
+      throw new IllegalArgumentException("Script contains a CDATA terminator");
+    }
+
+    this.writer.writeCData(
+      System.lineSeparator() + text + System.lineSeparator() + "//");
+  }
+
+  void text(
+    final String name,
+    final String text)
+    throws XMLStreamException
+  {
+    this.start(name);
+    this.characters(text);
+    this.end();
+  }
+
+  void end()
+    throws XMLStreamException
+  {
+    --this.depth;
+    if (this.children.get(this.depth)) {
+      this.newline();
+    }
+    this.writer.writeEndElement();
+  }
+
+  void finish()
+    throws XMLStreamException
+  {
+    if (this.indent) {
+      this.writer.writeCharacters(System.lineSeparator());
+    }
+    this.writer.writeEndDocument();
+    this.writer.flush();
+    this.writer.close();
+  }
+
+  private void newline()
+    throws XMLStreamException
+  {
+    if (this.indent) {
+      this.writer.writeCharacters(System.lineSeparator());
+      for (int index = 0; index < this.depth; ++index) {
+        this.writer.writeCharacters("  ");
+      }
+    }
+  }
+
+  /**
+   * A writer that emits script text as a series of CDATA sections. Text is
+   * buffered until a section is large enough to be written, and sections
+   * are only ever broken at line boundaries, so a script whose lines are
+   * short never holds more than one section in memory.
+   */
+
+  private static final class ScriptWriter extends Writer
+  {
+    private static final int SECTION_SIZE = 65536;
+
+    private final ChaserXHTMLOutput output;
+    private final StringBuilder buffer;
+    private boolean closed;
+
+    ScriptWriter(
+      final ChaserXHTMLOutput inOutput)
+    {
+      this.output = Objects.requireNonNull(inOutput, "output");
+      this.buffer = new StringBuilder(SECTION_SIZE);
+      this.closed = false;
+    }
+
+    @Override
+    public void write(
+      final char[] data,
+      final int offset,
+      final int length)
+      throws IOException
+    {
+      if (this.closed) {
+        throw new IOException("Script writer is closed");
+      }
+
+      this.buffer.append(data, offset, length);
+      if (this.buffer.length() >= SECTION_SIZE) {
+        final int end = this.buffer.lastIndexOf("\n");
+        if (end >= 0) {
+          this.section(this.buffer.substring(0, end));
+          this.buffer.delete(0, end + 1);
+        }
+      }
+    }
+
+    @Override
+    public void flush()
+    {
+
+    }
+
+    @Override
+    public void close()
+      throws IOException
+    {
+      if (this.closed) {
+        return;
+      }
+
+      this.closed = true;
+      this.section(this.buffer.toString());
+      this.buffer.setLength(0);
+      try {
+        this.output.end();
+      } catch (final XMLStreamException e) {
+        throw new IOException(e);
+      }
+    }
+
+    private void section(final String text)
+      throws IOException
+    {
+      try {
+        this.output.scriptSection(text);
+      } catch (final XMLStreamException e) {
+        throw new IOException(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,598 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.maven_plugin;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Functions to parse the structures of zip archives directly from buffers.
+ *
+ * The functions here read only the end of central directory record, the
+ * central directory, and the local headers of individual entries. This
+ * allows for inspecting archives without reading (or even having access to)
+ * the full archive.
+ */
+
+final class ChaserZip
+{
+  /**
+   * The size of the fixed part of the end of central directory record.
+   */
+
+  static final int EOCD_SIZE = 22;
+
+  /**
+   * The maximum number of bytes at the end of an archive that can contain
+   * the end of central directory record, including a maximum-length comment
+   * and the zip64 end of central directory locator.
+   */
+
+  static final int EOCD_SEARCH_SIZE = EOCD_SIZE + 65535 + 20;
+
+  /**
+   * The size of the fixed part of a local file header.
+   */
+
+  static final int LOCAL_HEADER_SIZE = 30;
+
+  /**
+   * The size of the fixed part of a zip64 end of central directory record.
+   */
+
+  static final int ZIP64_EOCD_SIZE = 56;
+
+  private static final int SIGNATURE_EOCD = 0x06054b50;
+  private static final int SIGNATURE_ZIP64_EOCD = 0x06064b50;
+  private static final int SIGNATURE_ZIP64_LOCATOR = 0x07064b50;
+  private static final int SIGNATURE_CENTRAL = 0x02014b50;
+  private static final int SIGNATURE_LOCAL = 0x04034b50;
+  private static final int CENTRAL_HEADER_SIZE = 46;
+  private static final int METHOD_STORED = 0;
+  private static final int METHOD_DEFLATED = 8;
+
+  private ChaserZip()
+  {
+
+  }
+
+  /**
+   * The location of the central directory of an archive.
+   */
+
+  static final class CentralDirectory
+  {
+    private final long offset;
+    private final long size;
+    private final long entries;
+
+    CentralDirectory(
+      final long inOffset,
+      final long inSize,
+      final long inEntries)
+    {
+      this.offset = inOffset;
+      this.size = inSize;
+      this.entries = inEntries;
+    }
+
+    /**
+     * @return The offset of the central directory from the start of the
+     * archive
+     */
+
+    long offset()
+    {
+      return this.offset;
+    }
+
+    /**
+     * @return The size in bytes of the central directory
+     */
+
+    long size()
+    {
+      return this.size;
+    }
+
+    /**
+     * @return The number of entries in the central directory
+     */
+
+    long entries()
+    {
+      return this.entries;
+    }
+  }
+
+  /**
+   * An entry located in the central directory.
+   */
+
+  static final class Entry
+  {
+    private final String name;
+    private final int method;
+    private final long sizeCompressed;
+    private final long sizeUncompressed;
+    private final long localHeaderOffset;
+
+    Entry(
+      final String inName,
+      final int inMethod,
+      final long inSizeCompressed,
+      final long inSizeUncompressed,
+      final long inLocalHeaderOffset)
+    {
+      this.name = Objects.requireNonNull(inName, "name");
+      this.method = inMethod;
+      this.sizeCompressed = inSizeCompressed;
+      this.sizeUncompressed = inSizeUncompressed;
+      this.localHeaderOffset = inLocalHeaderOffset;
+    }
+
+    /**
+     * @return The entry name
+     */
+
+    String name()
+    {
+      return this.name;
+    }
+
+    /**
+     * @return The size of the compressed entry data
+     */
+
+    long sizeCompressed()
+    {
+      return this.sizeCompressed;
+    }
+
+    /**
+     * @return The size of the uncompressed entry data
+     */
+
+    long sizeUncompressed()
+    {
+      return this.sizeUncompressed;
+    }
+
+    /**
+     * @return The offset of the local file header from the start of the
+     * archive
+     */
+
+    long localHeaderOffset()
+    {
+      return this.localHeaderOffset;
+    }
+  }
+
+  /**
+   * A request for the location of the zip64 end of central directory record,
+   * produced when the end of central directory record indicates that the
+   * archive uses zip64 extensions.
+   */
+
+  static final class Zip64Required extends ZipException
+  {
+    private static final long serialVersionUID = 1L;
+
+    private final long recordOffset;
+
+    Zip64Required(
+      final long inRecordOffset)
+    {
+      super("Archive requires zip64 end of central directory record");
+      this.recordOffset = inRecordOffset;
+    }
+
+    /**
+     * @return The offset of the zip64 end of central directory record
+     */
+
+    long recordOffset()
+    {
+      return this.recordOffset;
+    }
+  }
+
+  /**
+   * Find the central directory given a buffer containing the final bytes
+   * of an archive.
+   *
+   * @param tail       The final bytes of the archive
+   * @param tailOffset The offset of the first byte of {@code tail} from the
+   *                   start of the archive
+   *
+   * @return The central directory location
+   *
+   * @throws ZipException If the archive is malformed
+   * @throws Zip64Required If the zip64 end of central directory record must
+   *                       be read with {@link #zip64CentralDirectory(ByteBuffer)}
+   */
+
+  static CentralDirectory centralDirectory(
+    final ByteBuffer tail,
+    final long tailOffset)
+    throws ZipException
+  {
+    final ByteBuffer buffer = tail.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    final int base = buffer.position();
+    final int eocd = findEndOfCentralDirectory(buffer);
+
+    final long entries = unsigned16(buffer, eocd + 10);
+    final long size = unsigned32(buffer, eocd + 12);
+    final long offset = unsigned32(buffer, eocd + 16);
+
+    if (entries == 0xffffL || size == 0xffffffffL || offset == 0xffffffffL) {
+      final int locator = eocd - 20;
+      if (locator >= base && buffer.getInt(locator) == SIGNATURE_ZIP64_LOCATOR) {
+        final long record = buffer.getLong(locator + 8);
+        final long record_relative = record - tailOffset;
+        if (record_relative >= 0L
+          && record_relative + ZIP64_EOCD_SIZE <= buffer.limit() - base) {
+          final ByteBuffer record_buffer = buffer.duplicate();
+          record_buffer.position(base + (int) record_relative);
+          return zip64CentralDirectory(record_buffer);
+        }
+        throw new Zip64Required(record);
+      }
+    }
+
+    return new CentralDirectory(offset, size, entries);
+  }
+
+  /**
+   * Find the central directory given a buffer positioned at the start of
+   * a zip64 end of central directory record.
+   *
+   * @param record The record
+   *
+   * @return The central directory location
+   *
+   * @throws ZipException If the archive is malformed
+   */
+
+  static CentralDirectory zip64CentralDirectory(
+    final ByteBuffer record)
+    throws ZipException
+  {
+    final ByteBuffer buffer = record.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    final int base = buffer.position();
+    if (buffer.remaining() < ZIP64_EOCD_SIZE
+      || buffer.getInt(base) != SIGNATURE_ZIP64_EOCD) {
+      throw new ZipException("Malformed zip64 end of central directory record");
+    }
+
+    return new CentralDirectory(
+      buffer.getLong(base + 48),
+      buffer.getLong(base + 40),
+      buffer.getLong(base + 32));
+  }
+
+  private static int findEndOfCentralDirectory(
+    final ByteBuffer buffer)
+    throws ZipException
+  {
+    final int base = buffer.position();
+    final int lowest = Math.max(base, buffer.limit() - EOCD_SEARCH_SIZE);
+    for (int index = buffer.limit() - EOCD_SIZE; index >= lowest; --index) {
+      if (buffer.getInt(index) == SIGNATURE_EOCD) {
+        final int comment = unsigned16(buffer, index + 20);
+        if (index + EOCD_SIZE + comment <= buffer.limit()) {
+          return index;
+        }
+      }
+    }
+    throw new ZipException("No end of central directory record found");
+  }
+
+  /**
+   * Find the entries with the given names, and the entries whose names end
+   * with the given suffix, in the central directory. Names are compared
+   * against the raw bytes of the central directory, so no strings are
+   * created for entries that do not match.
+   *
+   * @param directory A buffer containing the whole central directory
+   * @param names     The entry names
+   * @param suffix    The entry name suffix
+   *
+   * @return The matching entries
+   *
+   * @throws ZipException If the central directory is malformed
+   */
+
+  static List<Entry> findEntries(
+    final ByteBuffer directory,
+    final List<String> names,
+    final String suffix)
+    throws ZipException
+  {
+    Objects.requireNonNull(directory, "directory");
+    Objects.requireNonNull(names, "names");
+    Objects.requireNonNull(suffix, "suffix");
+
+    final byte[][] names_bytes = new byte[names.size()][];
+    for (int index = 0; index < names.size(); ++index) {
+      names_bytes[index] = names.get(index).getBytes(StandardCharsets.UTF_8);
+    }
+    final byte[] suffix_bytes = suffix.getBytes(StandardCharsets.UTF_8);
+
+    final ByteBuffer buffer =
+      directory.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    final List<Entry> results = new ArrayList<>(names.size());
+
+    int position = buffer.position();
+    while (position + CENTRAL_HEADER_SIZE <= buffer.limit()) {
+      if (buffer.getInt(position) != SIGNATURE_CENTRAL) {
+        throw new ZipException(
+          "Malformed central directory header at offset " + position);
+      }
+
+      final int name_length = unsigned16(buffer, position + 28);
+      final int extra_length = unsigned16(buffer, position + 30);
+      final int comment_length = unsigned16(buffer, position + 32);
+      final int name_offset = position + CENTRAL_HEADER_SIZE;
+      final int next = name_offset + name_length + extra_length + comment_length;
+      if (next > buffer.limit()) {
+        throw new ZipException("Truncated central directory");
+      }
+
+      final Optional<String> name =
+        matchName(buffer, name_offset, name_length, names, names_bytes, suffix_bytes);
+      if (name.isPresent()) {
+        results.add(entryAt(
+          buffer,
+          position,
+          name.get(),
+          name_offset + name_length,
+          extra_length));
+      }
+      position = next;
+    }
+
+    if (position != buffer.limit()) {
+      throw new ZipException("Truncated central directory");
+    }
+    return results;
+  }
+
+  private static Optional<String> matchName(
+    final ByteBuffer buffer,
+    final int offset,
+    final int length,
+    final List<String> names,
+    final byte[][] namesBytes,
+    final byte[] suffix)
+  {
+    for (int index = 0; index < namesBytes.length; ++index) {
+      if (regionEquals(buffer, offset, length, namesBytes[index])) {
+        return Optional.of(names.get(index));
+      }
+    }
+
+    if (length >= suffix.length) {
+      final int suffix_offset = offset + length - suffix.length;
+      if (regionEquals(buffer, suffix_offset, suffix.length, suffix)) {
+        final ByteBuffer name = buffer.duplicate();
+        name.limit(offset + length);
+        name.position(offset);
+        return Optional.of(StandardCharsets.UTF_8.decode(name).toString());
+      }
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Select the entry whose name appears earliest in the given list of names.
+   *
+   * @param entries The entries, as returned by
+   *                {@link #findEntries(ByteBuffer, List, String)}
+   * @param names   The entry names, in descending order of precedence
+   *
+   * @return The entry with the highest precedence, if any
+   */
+
+  static Optional<Entry> firstNamed(
+    final List<Entry> entries,
+    final List<String> names)
+  {
+    for (final String name : names) {
+      for (final Entry entry : entries) {
+        if (Objects.equals(entry.name(), name)) {
+          return Optional.of(entry);
+        }
+      }
+    }
+    return Optional.empty();
+  }
+
+  private static Entry entryAt(
+    final ByteBuffer buffer,
+    final int position,
+    final String name,
+    final int extra_offset,
+    final int extra_length)
+  {
+    final int method = unsigned16(buffer, position + 10);
+    long size_compressed = unsigned32(buffer, position + 20);
+    long size_uncompressed = unsigned32(buffer, position + 24);
+    long local_offset = unsigned32(buffer, position + 42);
+
+    /*
+     * Values that do not fit into 32 bits are stored in the zip64 extended
+     * information extra field, in a fixed order, and only if the
+     * corresponding header field is saturated.
+     */
+
+    int extra = extra_offset;
+    final int extra_end = extra_offset + extra_length;
+    while (extra + 4 <= extra_end) {
+      final int tag = unsigned16(buffer, extra);
+      final int size = unsigned16(buffer, extra + 2);
+      if (tag == 0x0001) {
+        int field = extra + 4;
+        if (size_uncompressed == 0xffffffffL && field + 8 <= extra_end) {
+          size_uncompressed = buffer.getLong(field);
+          field += 8;
+        }
+        if (size_compressed == 0xffffffffL && field + 8 <= extra_end) {
+          size_compressed = buffer.getLong(field);
+          field += 8;
+        }
+        if (local_offset == 0xffffffffL && field + 8 <= extra_end) {
+          local_offset = buffer.getLong(field);
+        }
+        break;
+      }
+      extra += 4 + size;
+    }
+
+    return new Entry(
+      name,
+      method,
+      size_compressed,
+      size_uncompressed,
+      local_offset);
+  }
+
+  /**
+   * Determine the offset of the entry data relative to the start of the
+   * local file header.
+   *
+   * @param localHeader A buffer positioned at the start of the local header
+   *
+   * @return The offset of the entry data
+   *
+   * @throws ZipException If the local header is malformed
+   */
+
+  static int localDataOffset(
+    final ByteBuffer localHeader)
+    throws ZipException
+  {
+    final ByteBuffer buffer =
+      localHeader.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    final int base = buffer.position();
+    if (buffer.remaining() < LOCAL_HEADER_SIZE
+      || buffer.getInt(base) != SIGNATURE_LOCAL) {
+      throw new ZipException("Malformed local file header");
+    }
+
+    final int name_length = unsigned16(buffer, base + 26);
+    final int extra_length = unsigned16(buffer, base + 28);
+    return LOCAL_HEADER_SIZE + name_length + extra_length;
+  }
+
+  /**
+   * Decompress the data of an entry.
+   *
+   * @param entry      The entry
+   * @param compressed A buffer containing exactly the compressed data
+   *
+   * @return The uncompressed data
+   *
+   * @throws IOException If the data cannot be decompressed
+   */
+
+  static ByteBuffer decompress(
+    final Entry entry,
+    final ByteBuffer compressed)
+    throws IOException
+  {
+    Objects.requireNonNull(entry, "entry");
+    Objects.requireNonNull(compressed, "compressed");
+
+    if (entry.sizeUncompressed > Integer.MAX_VALUE - 8) {
+      throw new ZipException("Entry too large: " + entry.name);
+    }
+
+    switch (entry.method) {
+      case METHOD_STORED: {
+        return compressed.slice();
+      }
+      case METHOD_DEFLATED: {
+        final ByteBuffer output =
+          ByteBuffer.allocate((int) entry.sizeUncompressed);
+        final Inflater inflater = new Inflater(true);
+        try {
+          inflater.setInput(compressed.duplicate());
+          while (output.hasRemaining() && !inflater.finished()) {
+            if (inflater.inflate(output) == 0
+              && (inflater.needsInput() || inflater.needsDictionary())) {
+              break;
+            }
+          }
+        } catch (final DataFormatException e) {
+          throw new ZipException(e.getMessage());
+        } finally {
+          inflater.end();
+        }
+        if (output.hasRemaining()) {
+          throw new ZipException("Truncated entry: " + entry.name);
+        }
+        return output.flip();
+      }
+      default: {
+        throw new ZipException(
+          "Unsupported compression method " + entry.method + ": " + entry.name);
+      }
+    }
+  }
+
+  private static boolean regionEquals(
+    final ByteBuffer buffer,
+    final int offset,
+    final int length,
+    final byte[] name)
+  {
+    if (length != name.length) {
+      return false;
+    }
+    for (int index = 0; index < length; ++index) {
+      if (buffer.get(offset + index) != name[index]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int unsigned16(
+    final ByteBuffer buffer,
+    final int offset)
+  {
+    return buffer.getShort(offset) & 0xffff;
+  }
+
+  private static long unsigned32(
+    final ByteBuffer buffer,
+    final int offset)
+  {
+    return buffer.getInt(offset) & 0xffffffffL;
+  }
+}
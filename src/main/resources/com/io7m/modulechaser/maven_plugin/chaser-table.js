@@ -0,0 +1,396 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+/*
+ * An interactive dependency table.
+ *
+ * The report data is read from the chaserReportData variable, which holds:
+ *
+ *   kinds:      The names of the status kinds.
+ *   nodes:      One array per dependency, in topological order:
+ *               [anchor, group, artifact, version,
+ *                current kind, current version, current module,
+ *                newest kind, newest version, newest module,
+ *                first modular version, first fully modular version]
+ *   dependents: For each dependency, the indices of the dependencies that
+ *               depend directly on it.
+ *
+ * The first modular version columns are only shown if at least one
+ * dependency has a known first modular version.
+ *
+ * Only the rows that are visible in the scrolling area are present in the
+ * document at any one time.
+ */
+
+(function () {
+  "use strict";
+
+  var XHTML = "http://www.w3.org/1999/xhtml";
+  var ROW_HEIGHT = 24;
+  var ROW_BUFFER = 16;
+
+  var KIND_LABELS = {
+    MODULARIZED_FULLY: "Modularized",
+    MODULARIZED_AUTOMATIC_MODULE_NAME: "Automatic Module",
+    NOT_MODULARIZED: "Not modularized",
+    NOT_JAR: "Not A Jar",
+    UNAVAILABLE: "Unavailable",
+    UNAVAILABLE_OFFLINE: "Unavailable Offline"
+  };
+
+  var KIND_CLASSES = {
+    MODULARIZED_FULLY: "chaser_module_full",
+    MODULARIZED_AUTOMATIC_MODULE_NAME: "chaser_module_automatic",
+    NOT_MODULARIZED: "chaser_module_not_modularized",
+    NOT_JAR: "chaser_module_not_jar",
+    UNAVAILABLE: "chaser_module_unavailable",
+    UNAVAILABLE_OFFLINE: "chaser_module_unavailable_offline"
+  };
+
+  var data = window.chaserReportData;
+  var root = document.getElementById("chaser_table");
+  if (!data || !root) {
+    return;
+  }
+
+  var nodes = data.nodes;
+  var kinds = data.kinds;
+  var dependents = data.dependents;
+
+  var byAnchor = {};
+  var searchText = [];
+  var firstVersions = false;
+  for (var i = 0; i < nodes.length; ++i) {
+    if (nodes[i][10] !== null || nodes[i][11] !== null) {
+      firstVersions = true;
+    }
+    byAnchor[nodes[i][0]] = i;
+    searchText[i] = [
+      terse(i),
+      statusText(nodes[i][4], nodes[i][6]),
+      statusText(nodes[i][7], nodes[i][9])
+    ].join(" ").toLowerCase();
+  }
+
+  function element(name, className, text) {
+    var e = document.createElementNS(XHTML, name);
+    if (className) {
+      e.setAttribute("class", className);
+    }
+    if (text !== undefined && text !== null) {
+      e.appendChild(document.createTextNode(text));
+    }
+    return e;
+  }
+
+  function link(href, text) {
+    var e = element("a", null, text);
+    e.setAttribute("href", href);
+    return e;
+  }
+
+  function terse(index) {
+    var n = nodes[index];
+    return n[1] + ":" + n[2] + ":" + n[3];
+  }
+
+  function statusText(kind, module) {
+    var label = KIND_LABELS[kinds[kind]];
+    if (module !== null) {
+      return label + ": " + module;
+    }
+    return label;
+  }
+
+  function versionOf(index, column) {
+    var version = nodes[index][column];
+    if (version === null) {
+      return "Unavailable";
+    }
+    return version;
+  }
+
+  function groupHref(n) {
+    return "http://search.maven.org/#search|ga|1|g%3A%22" + n[1] + "%22";
+  }
+
+  function artifactHref(n) {
+    return "http://search.maven.org/#search|ga|1|g%3A%22" + n[1]
+      + "%22%20AND%20%22" + n[2] + "%22";
+  }
+
+  function versionHref(n, version) {
+    return "http://search.maven.org/#artifactdetails|" + n[1] + "|" + n[2]
+      + "|" + version + "|";
+  }
+
+  /*
+   * The columns of the table, and the keys by which they are sorted.
+   */
+
+  var columns = [
+    { title: "Group", key: function (index) { return nodes[index][1]; } },
+    { title: "Artifact", key: function (index) { return nodes[index][2]; } },
+    { title: "Current Version", key: function (index) { return versionOf(index, 5); } },
+    { title: "Current Status", key: function (index) { return statusText(nodes[index][4], nodes[index][6]); } },
+    { title: "Newest Version", key: function (index) { return versionOf(index, 8); } },
+    { title: "Newest Status", key: function (index) { return statusText(nodes[index][7], nodes[index][9]); } }
+  ];
+
+  if (firstVersions) {
+    columns.push(
+      { title: "First Modular Version", key: function (index) { return nodes[index][10] || ""; } },
+      { title: "First Fully Modular Version", key: function (index) { return nodes[index][11] || ""; } });
+  }
+
+  /*
+   * The default order is reverse topological order.
+   */
+
+  var order = [];
+  for (var j = nodes.length - 1; j >= 0; --j) {
+    order.push(j);
+  }
+
+  var view = order.slice();
+  var sortColumn = -1;
+  var sortAscending = true;
+  var selected = -1;
+
+  var filterInput = element("input", "chaser_table_filter");
+  filterInput.setAttribute("type", "text");
+  filterInput.setAttribute("placeholder", "Filter dependencies");
+  var countText = element("span", "chaser_table_count");
+  var scroller = element("div", "chaser_table_scroller");
+  scroller.style.height = (ROW_HEIGHT * 24) + "px";
+  var table = element("table", "chaser_table_rows");
+  var thead = element("thead");
+  var headRow = element("tr");
+  var tbody = element("tbody");
+  var panel = element("div", "chaser_table_dependents");
+
+  columns.forEach(function (column, index) {
+    var th = element("th", null, column.title);
+    th.addEventListener("click", function () {
+      sortBy(index);
+    });
+    headRow.appendChild(th);
+  });
+
+  thead.appendChild(headRow);
+  table.appendChild(thead);
+  table.appendChild(tbody);
+  scroller.appendChild(table);
+
+  var controls = element("p");
+  controls.appendChild(filterInput);
+  controls.appendChild(countText);
+  root.appendChild(controls);
+  root.appendChild(scroller);
+  root.appendChild(panel);
+
+  function spacer(height) {
+    var tr = element("tr", "chaser_table_spacer");
+    var td = element("td");
+    td.setAttribute("colspan", String(columns.length));
+    td.style.height = height + "px";
+    td.style.padding = "0";
+    tr.appendChild(td);
+    return tr;
+  }
+
+  function cell(tr, className, child) {
+    var td = element("td", className);
+    td.appendChild(child);
+    tr.appendChild(td);
+  }
+
+  function row(index) {
+    var n = nodes[index];
+    var tr = element("tr", index === selected ? "chaser_table_selected" : null);
+    tr.style.height = ROW_HEIGHT + "px";
+    cell(tr, null, link(groupHref(n), n[1]));
+    cell(tr, null, link(artifactHref(n), n[2]));
+    cell(tr, null, n[5] === null
+      ? document.createTextNode("Unavailable") : link(versionHref(n, n[5]), n[5]));
+    cell(tr, KIND_CLASSES[kinds[n[4]]], document.createTextNode(statusText(n[4], n[6])));
+    cell(tr, null, n[8] === null
+      ? document.createTextNode("Unavailable") : link(versionHref(n, n[8]), n[8]));
+    cell(tr, KIND_CLASSES[kinds[n[7]]], document.createTextNode(statusText(n[7], n[9])));
+    if (firstVersions) {
+      cell(tr, null, n[10] === null
+        ? document.createTextNode("") : link(versionHref(n, n[10]), n[10]));
+      cell(tr, null, n[11] === null
+        ? document.createTextNode("") : link(versionHref(n, n[11]), n[11]));
+    }
+    tr.addEventListener("click", function (event) {
+      if (event.target.nodeName.toLowerCase() !== "a") {
+        select(index);
+      }
+    });
+    return tr;
+  }
+
+  function render() {
+    var total = view.length;
+    var first = Math.max(0, Math.floor(scroller.scrollTop / ROW_HEIGHT) - ROW_BUFFER);
+    var visible = Math.ceil(scroller.clientHeight / ROW_HEIGHT) + (ROW_BUFFER * 2);
+    var last = Math.min(total, first + visible);
+
+    while (tbody.firstChild) {
+      tbody.removeChild(tbody.firstChild);
+    }
+
+    tbody.appendChild(spacer(first * ROW_HEIGHT));
+    for (var k = first; k < last; ++k) {
+      tbody.appendChild(row(view[k]));
+    }
+    tbody.appendChild(spacer((total - last) * ROW_HEIGHT));
+
+    countText.textContent =
+      " Showing " + total + " of " + nodes.length + " dependencies";
+  }
+
+  function compare(column, a, b) {
+    var ka = columns[column].key(a);
+    var kb = columns[column].key(b);
+    if (ka < kb) {
+      return -1;
+    }
+    if (ka > kb) {
+      return 1;
+    }
+    return b - a;
+  }
+
+  function refresh() {
+    var words = filterInput.value.toLowerCase().split(/\s+/).filter(function (w) {
+      return w.length > 0;
+    });
+
+    view = order.filter(function (index) {
+      for (var w = 0; w < words.length; ++w) {
+        if (searchText[index].indexOf(words[w]) === -1) {
+          return false;
+        }
+      }
+      return true;
+    });
+
+    if (sortColumn !== -1) {
+      view.sort(function (a, b) {
+        var r = compare(sortColumn, a, b);
+        return sortAscending ? r : -r;
+      });
+    }
+    render();
+  }
+
+  function sortBy(column) {
+    if (sortColumn === column) {
+      sortAscending = !sortAscending;
+    } else {
+      sortColumn = column;
+      sortAscending = true;
+    }
+    refresh();
+  }
+
+  function scrollToNode(index) {
+    var position = view.indexOf(index);
+    if (position === -1) {
+      filterInput.value = "";
+      refresh();
+      position = view.indexOf(index);
+    }
+    scroller.scrollTop = Math.max(0, (position - 2) * ROW_HEIGHT);
+    render();
+  }
+
+  /*
+   * The dependents of a node are found by a breadth-first search over the
+   * precomputed index of direct dependents.
+   */
+
+  function dependentsOf(index) {
+    var seen = {};
+    var direct = dependents[index].slice();
+    var indirect = [];
+    var queue = direct.slice();
+    direct.forEach(function (d) {
+      seen[d] = true;
+    });
+    while (queue.length > 0) {
+      var current = queue.shift();
+      dependents[current].forEach(function (d) {
+        if (!seen[d]) {
+          seen[d] = true;
+          indirect.push(d);
+          queue.push(d);
+        }
+      });
+    }
+    return { direct: direct, indirect: indirect };
+  }
+
+  function dependentList(title, indices) {
+    var section = element("div");
+    section.appendChild(element("h4", null, title + " (" + indices.length + ")"));
+    var list = element("ul");
+    indices.slice().sort(function (a, b) {
+      var ta = terse(a);
+      var tb = terse(b);
+      return ta < tb ? -1 : (ta > tb ? 1 : 0);
+    }).forEach(function (d) {
+      var item = element("li");
+      var a = link("#" + nodes[d][0], terse(d));
+      item.appendChild(a);
+      list.appendChild(item);
+    });
+    section.appendChild(list);
+    return section;
+  }
+
+  function select(index) {
+    selected = index;
+    render();
+
+    while (panel.firstChild) {
+      panel.removeChild(panel.firstChild);
+    }
+
+    var found = dependentsOf(index);
+    panel.appendChild(element("h3", null, "Dependents of " + terse(index)));
+    panel.appendChild(dependentList("Direct", found.direct));
+    panel.appendChild(dependentList("Indirect", found.indirect));
+  }
+
+  function followHash() {
+    var anchor = window.location.hash.substring(1);
+    if (Object.prototype.hasOwnProperty.call(byAnchor, anchor)) {
+      var index = byAnchor[anchor];
+      scrollToNode(index);
+      select(index);
+    }
+  }
+
+  filterInput.addEventListener("input", refresh);
+  scroller.addEventListener("scroll", render);
+  window.addEventListener("hashchange", followHash);
+
+  refresh();
+  followHash();
+}());
@@ -0,0 +1,386 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.modulechaser.tests;
+
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyEdge;
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyNode;
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyResolved;
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyResolverType;
+import com.io7m.modulechaser.maven_plugin.ChaserFirstVersionSearch;
+import com.io7m.modulechaser.maven_plugin.ChaserMetrics;
+import com.io7m.modulechaser.maven_plugin.ChaserModularizationStatusModularizedAutomaticModuleName;
+import com.io7m.modulechaser.maven_plugin.ChaserModularizationStatusModularizedFully;
+import com.io7m.modulechaser.maven_plugin.ChaserModularizationStatusNotModularized;
+import com.io7m.modulechaser.maven_plugin.ChaserModularizationStatusType;
+import com.io7m.modulechaser.maven_plugin.ChaserModularizationStatusUnavailable;
+import com.io7m.modulechaser.maven_plugin.ChaserReport;
+import com.io7m.modulechaser.maven_plugin.ChaserReportConfiguration;
+import com.io7m.modulechaser.maven_plugin.ChaserReportDependency;
+import com.io7m.modulechaser.maven_plugin.ChaserReports;
+import com.io7m.modulechaser.maven_plugin.ChaserVersionSourceType;
+import org.jgrapht.graph.DirectedAcyclicGraph;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public final class ChaserFirstVersionSearchTest
+{
+  private static List<String> versions(
+    final int count)
+  {
+    final List<String> versions = new ArrayList<>(count);
+    for (int index = 0; index < count; ++index) {
+      versions.add("1." + index);
+    }
+    return versions;
+  }
+
+  /**
+   * @return The status of version {@code index} of an artifact that first
+   * declared a module name at {@code modular} and first contained a module
+   * descriptor at {@code fully}
+   */
+
+  private static ChaserModularizationStatusType statusOf(
+    final List<String> versions,
+    final int index,
+    final int modular,
+    final int fully)
+  {
+    final String version = versions.get(index);
+    if (index >= fully) {
+      return ChaserModularizationStatusModularizedFully.of("m", version);
+    }
+    if (index >= modular) {
+      return ChaserModularizationStatusModularizedAutomaticModuleName.of("m", version);
+    }
+    return ChaserModularizationStatusNotModularized.of(version);
+  }
+
+  /**
+   * The answer given by inspecting every version in order.
+   */
+
+  private static Optional<String> linearFirst(
+    final List<String> versions,
+    final int modular,
+    final int fully,
+    final ChaserModularizationStatusType.Kind kind)
+  {
+    for (int index = 0; index < versions.size(); ++index) {
+      final ChaserModularizationStatusType.Kind found =
+        statusOf(versions, index, modular, fully).kind();
+      if (found == ChaserModularizationStatusType.Kind.MODULARIZED_FULLY
+        || found == kind) {
+        return Optional.of(versions.get(index));
+      }
+    }
+    return Optional.empty();
+  }
+
+  private static int log2Ceiling(
+    final int value)
+  {
+    return 32 - Integer.numberOfLeadingZeros(Math.max(0, value - 1));
+  }
+
+  private static ChaserFirstVersionSearch run(
+    final ChaserFirstVersionSearch search,
+    final List<String> versions,
+    final int modular,
+    final int fully)
+  {
+    final Set<String> probed = new HashSet<>();
+    while (true) {
+      final Optional<String> probe = search.nextProbe();
+      if (probe.isEmpty()) {
+        return search;
+      }
+      Assert.assertTrue(probed.add(probe.get()));
+      search.record(
+        probe.get(),
+        statusOf(versions, versions.indexOf(probe.get()), modular, fully));
+    }
+  }
+
+  private static void deleteRecursively(
+    final Path path)
+    throws IOException
+  {
+    try (Stream<Path> paths = Files.walk(path)) {
+      for (final Path file : paths.sorted(Comparator.reverseOrder())
+        .collect(Collectors.toList())) {
+        Files.deleteIfExists(file);
+      }
+    }
+  }
+
+  /**
+   * For every monotonic history of up to 12 versions, the search finds the
+   * same first versions as a linear scan, probing each version at most once
+   * and at most a logarithmic number of versions per level, both with and
+   * without known current and highest statuses.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testSameAsLinear()
+    throws Exception
+  {
+    for (int count = 0; count <= 12; ++count) {
+      final List<String> versions = versions(count);
+      final int bound = 2 * (log2Ceiling(count) + 1);
+
+      for (int modular = 0; modular <= count; ++modular) {
+        for (int fully = modular; fully <= count; ++fully) {
+          final Optional<String> expected_modular = linearFirst(
+            versions, modular, fully,
+            ChaserModularizationStatusType.Kind.MODULARIZED_AUTOMATIC_MODULE_NAME);
+          final Optional<String> expected_fully = linearFirst(
+            versions, modular, fully,
+            ChaserModularizationStatusType.Kind.MODULARIZED_FULLY);
+
+          final ChaserFirstVersionSearch plain =
+            run(ChaserFirstVersionSearch.create(versions, 100), versions, modular, fully);
+          Assert.assertTrue(plain.isComplete());
+          Assert.assertEquals(expected_modular, plain.firstModular());
+          Assert.assertEquals(expected_fully, plain.firstFullyModular());
+          Assert.assertTrue(plain.probes() <= bound);
+
+          if (count == 0) {
+            Assert.assertEquals(0, plain.probes());
+            continue;
+          }
+
+          final ChaserFirstVersionSearch assumed =
+            ChaserFirstVersionSearch.create(versions, 100);
+          assumed.assume(
+            versions.get(0), statusOf(versions, 0, modular, fully));
+          assumed.assume(
+            versions.get(count - 1), statusOf(versions, count - 1, modular, fully));
+          run(assumed, versions, modular, fully);
+          Assert.assertTrue(assumed.isComplete());
+          Assert.assertEquals(expected_modular, assumed.firstModular());
+          Assert.assertEquals(expected_fully, assumed.firstFullyModular());
+          Assert.assertTrue(assumed.probes() <= bound);
+        }
+      }
+    }
+  }
+
+  /**
+   * A search that reaches the probe limit is abandoned, and reports no
+   * further probes.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testProbeLimit()
+    throws Exception
+  {
+    final List<String> versions = versions(64);
+    final ChaserFirstVersionSearch search =
+      run(ChaserFirstVersionSearch.create(versions, 3), versions, 17, 40);
+
+    Assert.assertEquals(3, search.probes());
+    Assert.assertFalse(search.isComplete());
+    Assert.assertEquals(Optional.empty(), search.nextProbe());
+
+    final ChaserFirstVersionSearch none =
+      ChaserFirstVersionSearch.create(versions, 0);
+    Assert.assertEquals(Optional.empty(), none.nextProbe());
+    Assert.assertFalse(none.isComplete());
+    Assert.assertEquals(0, none.probes());
+  }
+
+  /**
+   * A version whose status cannot be determined abandons the search.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUnavailableAbandons()
+    throws Exception
+  {
+    final List<String> versions = versions(8);
+    final ChaserFirstVersionSearch search =
+      ChaserFirstVersionSearch.create(versions, 100);
+
+    final String probe = search.nextProbe().orElseThrow();
+    search.record(probe, ChaserModularizationStatusUnavailable.of(Optional.empty()));
+
+    Assert.assertEquals(Optional.empty(), search.nextProbe());
+    Assert.assertFalse(search.isComplete());
+    Assert.assertEquals(Optional.empty(), search.firstModular());
+  }
+
+  /**
+   * Invalid arguments are rejected.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testInvalid()
+    throws Exception
+  {
+    try {
+      ChaserFirstVersionSearch.create(versions(1), -1);
+      Assert.fail();
+    } catch (final IllegalArgumentException e) {
+      // Expected
+    }
+
+    final ChaserFirstVersionSearch search =
+      ChaserFirstVersionSearch.create(versions(1), 1);
+    try {
+      search.record("2.0", ChaserModularizationStatusNotModularized.of("2.0"));
+      Assert.fail();
+    } catch (final IllegalArgumentException e) {
+      // Expected
+    }
+  }
+
+  /**
+   * A report with a version source finds the first versions by inspecting
+   * the jars of earlier versions, and marks the first versions as
+   * incomplete when the probe limit is reached.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testReports()
+    throws Exception
+  {
+    final Path directory = Files.createTempDirectory("modulechaser-search");
+    try {
+      final List<String> versions = versions(12);
+      for (int index = 0; index < versions.size(); ++index) {
+        final ChaserSyntheticJarKind kind;
+        if (index >= 7) {
+          kind = ChaserSyntheticJarKind.MODULAR;
+        } else if (index >= 4) {
+          kind = ChaserSyntheticJarKind.AUTOMATIC;
+        } else {
+          kind = ChaserSyntheticJarKind.PLAIN;
+        }
+        ChaserSyntheticJars.writeSmall(
+          directory.resolve(versions.get(index) + ".jar"), "com.example.a", kind);
+      }
+
+      final ChaserDependencyNode root = ChaserDependencyNode.of(
+        "com.example", "root", "1.0", Optional.empty(), "jar", "compile");
+      final ChaserDependencyNode node = ChaserDependencyNode.of(
+        "com.example", "a", "1.0", Optional.empty(), "jar", "compile");
+
+      final DirectedAcyclicGraph<ChaserDependencyNode, ChaserDependencyEdge> graph =
+        new DirectedAcyclicGraph<>(ChaserDependencyEdge.class);
+      graph.addVertex(root);
+      graph.addVertex(node);
+      graph.addEdge(root, node, ChaserDependencyEdge.of(root, node));
+
+      final String highest = versions.get(versions.size() - 1);
+      final ChaserVersionSourceType source = new ChaserVersionSourceType()
+      {
+        @Override
+        public List<String> versions(
+          final ChaserDependencyNode dependency)
+        {
+          return versions;
+        }
+
+        @Override
+        public Path fetch(
+          final ChaserDependencyNode dependency)
+        {
+          return directory.resolve(dependency.version() + ".jar");
+        }
+      };
+
+      /*
+       * The root is not modularized at any version, and so is not searched.
+       */
+
+      final Path root_file = directory.resolve("root.jar");
+      ChaserSyntheticJars.writeSmall(
+        root_file, "com.example.root", ChaserSyntheticJarKind.PLAIN);
+
+      final ChaserDependencyResolverType resolver = dependency -> {
+        if (dependency.equals(root)) {
+          return ChaserDependencyResolved.of(
+            dependency, root_file, dependency.version(), root_file);
+        }
+        return ChaserDependencyResolved.of(
+          dependency,
+          directory.resolve(dependency.version() + ".jar"),
+          highest,
+          directory.resolve(highest + ".jar"));
+      };
+
+      final ChaserMetrics metrics = ChaserMetrics.create();
+      final ChaserReport report = ChaserReports.reportOf(
+        resolver,
+        graph,
+        ChaserReportConfiguration.builder()
+          .setVersionSource(source)
+          .setMetrics(metrics)
+          .build());
+
+      final ChaserReportDependency dependency = report.reportOf(node);
+      Assert.assertFalse(dependency.firstVersionsIncomplete());
+      Assert.assertEquals(Optional.of("1.4"), dependency.firstModularVersion());
+      Assert.assertEquals(Optional.of("1.7"), dependency.firstFullyModularVersion());
+
+      /*
+       * The current and highest versions are already known, so a linear
+       * scan would inspect the remaining ten versions.
+       */
+
+      final long probes = metrics.counter(ChaserMetrics.Counter.VERSION_PROBES);
+      Assert.assertTrue(probes > 0L);
+      Assert.assertTrue(probes < (long) versions.size() - 2L);
+
+      final ChaserReport limited = ChaserReports.reportOf(
+        resolver,
+        graph,
+        ChaserReportConfiguration.builder()
+          .setVersionSource(source)
+          .setVersionProbeLimit(1)
+          .build());
+
+      Assert.assertTrue(limited.reportOf(node).firstVersionsIncomplete());
+    } finally {
+      deleteRecursively(directory);
+    }
+  }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.modulechaser.tests;
+
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyEdge;
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyNode;
+import com.io7m.modulechaser.maven_plugin.ChaserGraphs;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.shared.dependency.graph.DependencyNode;
+import org.apache.maven.shared.dependency.graph.internal.DefaultDependencyNode;
+import org.jgrapht.graph.DirectedAcyclicGraph;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReference;
+
+public final class ChaserGraphsTest
+{
+  private static final int CHAIN_LENGTH = 5_000;
+  private static final int NODE_COUNT = 100_000;
+
+  /**
+   * The stack size of the thread that builds the graph. A recursive
+   * traversal of the chain would need far more than this.
+   */
+
+  private static final long STACK_SIZE = 256L * 1024L;
+
+  private static Artifact artifact(
+    final String name)
+  {
+    return new DefaultArtifact(
+      "com.example",
+      name,
+      "1.0.0",
+      "compile",
+      "jar",
+      null,
+      new DefaultArtifactHandler("jar"));
+  }
+
+  private static DefaultDependencyNode node(
+    final DependencyNode parent,
+    final String name)
+  {
+    final DefaultDependencyNode node =
+      new DefaultDependencyNode(parent, artifact(name), null, null, null);
+    node.setChildren(new ArrayList<>());
+    return node;
+  }
+
+  /**
+   * Build a tree in which the root leads to a chain of {@link #CHAIN_LENGTH}
+   * dependencies, every link of which also depends on one shared artifact
+   * and on a share of the remaining leaf artifacts, for a total of
+   * {@link #NODE_COUNT} distinct artifacts.
+   */
+
+  private static DependencyNode deepTree()
+  {
+    final DefaultDependencyNode root = node(null, "root");
+
+    final List<DefaultDependencyNode> chain = new ArrayList<>(CHAIN_LENGTH);
+    DefaultDependencyNode parent = root;
+    for (int index = 0; index < CHAIN_LENGTH; ++index) {
+      final DefaultDependencyNode link = node(parent, "chain-" + index);
+      parent.getChildren().add(link);
+      chain.add(link);
+      parent = link;
+    }
+
+    for (final DefaultDependencyNode link : chain) {
+      link.getChildren().add(node(link, "shared"));
+    }
+
+    final int leaves = NODE_COUNT - CHAIN_LENGTH - 2;
+    for (int index = 0; index < leaves; ++index) {
+      final DefaultDependencyNode link = chain.get(index % CHAIN_LENGTH);
+      link.getChildren().add(node(link, "leaf-" + index));
+    }
+    return root;
+  }
+
+  /**
+   * A large tree with a deep chain of dependencies is converted without
+   * exhausting a small stack, and each distinct artifact appears once.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testDeepTree()
+    throws Exception
+  {
+    final DependencyNode tree = deepTree();
+
+    final AtomicReference<DirectedAcyclicGraph<ChaserDependencyNode, ChaserDependencyEdge>> result =
+      new AtomicReference<>();
+    final AtomicReference<Throwable> failure =
+      new AtomicReference<>();
+
+    final Thread thread = new Thread(
+      null,
+      () -> {
+        try {
+          result.set(ChaserGraphs.graphOf(tree));
+        } catch (final Throwable e) {
+          failure.set(e);
+        }
+      },
+      "chaser-graphs-test",
+      STACK_SIZE);
+
+    thread.start();
+    thread.join();
+
+    if (failure.get() != null) {
+      throw new AssertionError("Graph construction failed", failure.get());
+    }
+
+    final DirectedAcyclicGraph<ChaserDependencyNode, ChaserDependencyEdge> graph =
+      result.get();
+
+    final int leaves = NODE_COUNT - CHAIN_LENGTH - 2;
+    Assert.assertEquals(NODE_COUNT, graph.vertexSet().size());
+    Assert.assertEquals(
+      CHAIN_LENGTH + CHAIN_LENGTH + leaves,
+      graph.edgeSet().size());
+
+    final ChaserDependencyNode shared = ChaserGraphs.nodeOf(node(null, "shared"));
+    Assert.assertEquals(CHAIN_LENGTH, graph.inDegreeOf(shared));
+  }
+
+  /**
+   * Add a copy of the subtree of the shared dependency "s" beneath the
+   * given parent.
+   */
+
+  private static void sharedSubtree(
+    final DefaultDependencyNode parent)
+  {
+    final DefaultDependencyNode s = node(parent, "s");
+    final DefaultDependencyNode t = node(s, "t");
+    final DefaultDependencyNode u = node(t, "u");
+    final DefaultDependencyNode v = node(s, "v");
+    parent.getChildren().add(s);
+    s.getChildren().add(t);
+    s.getChildren().add(v);
+    t.getChildren().add(u);
+  }
+
+  /**
+   * A dependency with its own dependencies that is reachable through two
+   * paths is expanded once, and every edge beneath it is present.
+   */
+
+  @Test
+  public void testDiamondWithSharedSubtree()
+  {
+    final DefaultDependencyNode root = node(null, "root");
+    final DefaultDependencyNode a = node(root, "a");
+    final DefaultDependencyNode b = node(root, "b");
+    root.getChildren().add(a);
+    root.getChildren().add(b);
+    sharedSubtree(a);
+    sharedSubtree(b);
+    b.getChildren().add(node(b, "w"));
+
+    final DirectedAcyclicGraph<ChaserDependencyNode, ChaserDependencyEdge> graph =
+      ChaserGraphs.graphOf(root);
+
+    final Set<String> edges = new TreeSet<>();
+    for (final ChaserDependencyEdge edge : graph.edgeSet()) {
+      edges.add(
+        graph.getEdgeSource(edge).artifact()
+          + " -> "
+          + graph.getEdgeTarget(edge).artifact());
+    }
+
+    Assert.assertEquals(
+      new TreeSet<>(List.of(
+        "root -> a",
+        "root -> b",
+        "a -> s",
+        "b -> s",
+        "b -> w",
+        "s -> t",
+        "s -> v",
+        "t -> u")),
+      edges);
+    Assert.assertEquals(8, graph.vertexSet().size());
+  }
+
+  /**
+   * When the trees of two projects disagree on the direction of a
+   * dependency between them, merging the trees would introduce a cycle;
+   * the edge encountered last is dropped, and the rest of the graph is kept.
+   */
+
+  @Test
+  public void testMergedCycleDropped()
+  {
+    final DefaultDependencyNode p1 = node(null, "p1");
+    final DefaultDependencyNode p1_p2 = node(p1, "p2");
+    final DefaultDependencyNode p1_z = node(p1_p2, "z");
+    p1.getChildren().add(p1_p2);
+    p1_p2.getChildren().add(p1_z);
+
+    final DefaultDependencyNode p2 = node(null, "p2");
+    final DefaultDependencyNode p2_p1 = node(p2, "p1");
+    p2.getChildren().add(p2_p1);
+
+    final DirectedAcyclicGraph<ChaserDependencyNode, ChaserDependencyEdge> graph =
+      ChaserGraphs.graphOf(List.of(p1, p2));
+
+    final Set<String> edges = new TreeSet<>();
+    for (final ChaserDependencyEdge edge : graph.edgeSet()) {
+      edges.add(
+        graph.getEdgeSource(edge).artifact()
+          + " -> "
+          + graph.getEdgeTarget(edge).artifact());
+    }
+
+    Assert.assertEquals(
+      new TreeSet<>(List.of(
+        "p1 -> p2",
+        "p2 -> z")),
+      edges);
+    Assert.assertEquals(3, graph.vertexSet().size());
+  }
+}
@@ -0,0 +1,419 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.modulechaser.tests;
+
+import com.io7m.modulechaser.maven_plugin.ChaserJPMSChannelJar;
+import com.io7m.modulechaser.maven_plugin.ChaserJPMSJar;
+import com.io7m.modulechaser.maven_plugin.ChaserJPMSModuleName;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public final class ChaserJPMSJarTest
+{
+  private Path directory;
+
+  private static Manifest manifest(
+    final boolean multiRelease,
+    final Optional<String> automaticName)
+  {
+    final Manifest manifest = new Manifest();
+    final Attributes attributes = manifest.getMainAttributes();
+    attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    if (multiRelease) {
+      attributes.put(Attributes.Name.MULTI_RELEASE, "true");
+    }
+    automaticName.ifPresent(
+      name -> attributes.putValue("Automatic-Module-Name", name));
+    return manifest;
+  }
+
+  private static void deleteRecursively(
+    final Path path)
+    throws IOException
+  {
+    try (Stream<Path> paths = Files.walk(path)) {
+      for (final Path file : paths.sorted(Comparator.reverseOrder())
+        .collect(Collectors.toList())) {
+        Files.deleteIfExists(file);
+      }
+    }
+  }
+
+  /**
+   * Write a zip file containing the given entries, in order. If a manifest
+   * is given, it is written first.
+   */
+
+  private Path zip(
+    final String name,
+    final Optional<Manifest> manifest,
+    final Map<String, byte[]> entries,
+    final int method)
+    throws IOException
+  {
+    final Path file = this.directory.resolve(name);
+    try (OutputStream stream = Files.newOutputStream(file);
+         ZipOutputStream output = new ZipOutputStream(stream)) {
+      if (manifest.isPresent()) {
+        output.putNextEntry(new ZipEntry(JarFile.MANIFEST_NAME));
+        manifest.get().write(output);
+        output.closeEntry();
+      }
+      for (final Map.Entry<String, byte[]> entry : entries.entrySet()) {
+        final byte[] data = entry.getValue();
+        final ZipEntry zip_entry = new ZipEntry(entry.getKey());
+        zip_entry.setMethod(method);
+        if (method == ZipEntry.STORED) {
+          final CRC32 crc = new CRC32();
+          crc.update(data);
+          zip_entry.setSize((long) data.length);
+          zip_entry.setCompressedSize((long) data.length);
+          zip_entry.setCrc(crc.getValue());
+        }
+        output.putNextEntry(zip_entry);
+        output.write(data);
+        output.closeEntry();
+      }
+    }
+    return file;
+  }
+
+  private static Optional<ChaserJPMSModuleName> channelNameOf(
+    final Path file)
+    throws IOException
+  {
+    try (ChaserJPMSChannelJar jar = ChaserJPMSChannelJar.open(file)) {
+      return jar.moduleName();
+    }
+  }
+
+  private static Optional<ChaserJPMSModuleName> jarNameOf(
+    final Path file)
+    throws IOException
+  {
+    try (ChaserJPMSJar jar = ChaserJPMSJar.open(file)) {
+      return jar.moduleName();
+    }
+  }
+
+  /**
+   * Check that both readers agree on the module name of the given file,
+   * and that the module name is the expected one.
+   */
+
+  private static void checkName(
+    final Path file,
+    final Optional<ChaserJPMSModuleName> expected)
+    throws IOException
+  {
+    Assert.assertTrue(ChaserJPMSJar.appearsToBeZip(file));
+    Assert.assertEquals(expected, jarNameOf(file));
+    Assert.assertEquals(expected, channelNameOf(file));
+  }
+
+  /**
+   * Check that both readers reject the given file.
+   */
+
+  private static void checkRejected(
+    final Path file)
+  {
+    try {
+      channelNameOf(file);
+      Assert.fail();
+    } catch (final IOException e) {
+      // Expected
+    }
+    try {
+      jarNameOf(file);
+      Assert.fail();
+    } catch (final IOException e) {
+      // Expected
+    }
+  }
+
+  @Before
+  public void setup()
+    throws IOException
+  {
+    this.directory = Files.createTempDirectory("modulechaser-jpms");
+  }
+
+  @After
+  public void tearDown()
+    throws IOException
+  {
+    deleteRecursively(this.directory);
+  }
+
+  /**
+   * Both readers agree on modular, automatic, and plain jars.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testKinds()
+    throws Exception
+  {
+    for (final ChaserSyntheticJarKind kind : ChaserSyntheticJarKind.values()) {
+      final Path file = this.directory.resolve(kind.name() + ".jar");
+      ChaserSyntheticJars.writeSmall(file, "com.example.a", kind);
+
+      switch (kind) {
+        case MODULAR:
+          checkName(file, Optional.of(
+            ChaserJPMSModuleName.of("com.example.a", false)));
+          break;
+        case AUTOMATIC:
+          checkName(file, Optional.of(
+            ChaserJPMSModuleName.of("com.example.a", true)));
+          break;
+        case PLAIN:
+          checkName(file, Optional.empty());
+          break;
+      }
+    }
+  }
+
+  /**
+   * Stored (uncompressed) entries are read as well as deflated entries.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testStored()
+    throws Exception
+  {
+    final Map<String, byte[]> entries = new LinkedHashMap<>();
+    entries.put(
+      "module-info.class",
+      ChaserSyntheticJars.moduleInfo("com.example.a"));
+
+    checkName(
+      this.zip(
+        "stored.jar",
+        Optional.of(manifest(false, Optional.empty())),
+        entries,
+        ZipEntry.STORED),
+      Optional.of(ChaserJPMSModuleName.of("com.example.a", false)));
+  }
+
+  /**
+   * The descriptor for the highest release is used in a multi-release jar
+   * without a root descriptor, and releases below 9 are ignored.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testMultiReleaseHighest()
+    throws Exception
+  {
+    final Map<String, byte[]> entries = new LinkedHashMap<>();
+    entries.put(
+      "META-INF/versions/11/module-info.class",
+      ChaserSyntheticJars.moduleInfo("com.example.eleven"));
+    entries.put(
+      "META-INF/versions/9/module-info.class",
+      ChaserSyntheticJars.moduleInfo("com.example.nine"));
+    entries.put(
+      "META-INF/versions/8/module-info.class",
+      ChaserSyntheticJars.moduleInfo("com.example.eight"));
+
+    checkName(
+      this.zip(
+        "mr.jar",
+        Optional.of(manifest(true, Optional.of("com.example.auto"))),
+        entries,
+        ZipEntry.DEFLATED),
+      Optional.of(ChaserJPMSModuleName.of("com.example.eleven", false)));
+
+    entries.remove("META-INF/versions/11/module-info.class");
+    entries.remove("META-INF/versions/9/module-info.class");
+
+    checkName(
+      this.zip(
+        "mr8.jar",
+        Optional.of(manifest(true, Optional.of("com.example.auto"))),
+        entries,
+        ZipEntry.DEFLATED),
+      Optional.of(ChaserJPMSModuleName.of("com.example.auto", true)));
+  }
+
+  /**
+   * The root descriptor takes priority over versioned descriptors.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testMultiReleaseRoot()
+    throws Exception
+  {
+    final Map<String, byte[]> entries = new LinkedHashMap<>();
+    entries.put(
+      "META-INF/versions/11/module-info.class",
+      ChaserSyntheticJars.moduleInfo("com.example.eleven"));
+    entries.put(
+      "module-info.class",
+      ChaserSyntheticJars.moduleInfo("com.example.root"));
+
+    checkName(
+      this.zip(
+        "mr.jar",
+        Optional.of(manifest(true, Optional.empty())),
+        entries,
+        ZipEntry.DEFLATED),
+      Optional.of(ChaserJPMSModuleName.of("com.example.root", false)));
+  }
+
+  /**
+   * Versioned descriptors are ignored in jars that do not declare
+   * themselves to be multi-release.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testVersionedNotMultiRelease()
+    throws Exception
+  {
+    final Map<String, byte[]> entries = new LinkedHashMap<>();
+    entries.put(
+      "META-INF/versions/11/module-info.class",
+      ChaserSyntheticJars.moduleInfo("com.example.eleven"));
+
+    checkName(
+      this.zip(
+        "auto.jar",
+        Optional.of(manifest(false, Optional.of("com.example.auto"))),
+        entries,
+        ZipEntry.DEFLATED),
+      Optional.of(ChaserJPMSModuleName.of("com.example.auto", true)));
+    checkName(
+      this.zip(
+        "plain.jar",
+        Optional.of(manifest(false, Optional.empty())),
+        entries,
+        ZipEntry.DEFLATED),
+      Optional.empty());
+  }
+
+  /**
+   * A jar without a manifest has no module name unless it has a root
+   * descriptor.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testNoManifest()
+    throws Exception
+  {
+    final Map<String, byte[]> entries = new LinkedHashMap<>();
+    entries.put("a/A.class", new byte[]{(byte) 0xca, (byte) 0xfe});
+
+    checkName(
+      this.zip(
+        "plain.jar",
+        Optional.empty(),
+        entries,
+        ZipEntry.DEFLATED),
+      Optional.empty());
+
+    entries.put(
+      "module-info.class",
+      ChaserSyntheticJars.moduleInfo("com.example.a"));
+    checkName(
+      this.zip(
+        "modular.jar",
+        Optional.empty(),
+        entries,
+        ZipEntry.DEFLATED),
+      Optional.of(ChaserJPMSModuleName.of("com.example.a", false)));
+  }
+
+  /**
+   * Files that are not zip files are identified as such, and rejected by
+   * both readers.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testNotZip()
+    throws Exception
+  {
+    final Path text = this.directory.resolve("text.jar");
+    Files.writeString(text, "<project></project>", StandardCharsets.UTF_8);
+    Assert.assertFalse(ChaserJPMSJar.appearsToBeZip(text));
+    checkRejected(text);
+
+    final Path empty = this.directory.resolve("empty.jar");
+    Files.write(empty, new byte[0]);
+    Assert.assertFalse(ChaserJPMSJar.appearsToBeZip(empty));
+    checkRejected(empty);
+
+    Assert.assertFalse(ChaserJPMSJar.appearsToBeZip(this.directory));
+  }
+
+  /**
+   * A truncated jar starts with a zip signature, but is rejected by both
+   * readers.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testTruncated()
+    throws Exception
+  {
+    final Path file = this.directory.resolve("truncated.jar");
+    ChaserSyntheticJars.writeSmall(
+      file, "com.example.a", ChaserSyntheticJarKind.MODULAR);
+
+    final byte[] data = Files.readAllBytes(file);
+    Files.write(file, Arrays.copyOf(data, data.length / 2));
+
+    Assert.assertTrue(ChaserJPMSJar.appearsToBeZip(file));
+    checkRejected(file);
+  }
+}
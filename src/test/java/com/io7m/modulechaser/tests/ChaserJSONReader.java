@@ -0,0 +1,265 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.modulechaser.tests;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A minimal JSON reader used to check the structure of generated documents.
+ * Objects are read as maps that preserve member order, arrays as lists,
+ * integers as longs, and all other numbers as doubles.
+ */
+
+public final class ChaserJSONReader
+{
+  private final String text;
+  private int position;
+
+  private ChaserJSONReader(
+    final String inText)
+  {
+    this.text = Objects.requireNonNull(inText, "text");
+    this.position = 0;
+  }
+
+  /**
+   * Read a JSON document.
+   *
+   * @param text The document text
+   *
+   * @return The document value
+   *
+   * @throws IllegalArgumentException If the document is malformed
+   */
+
+  public static Object read(
+    final String text)
+  {
+    final ChaserJSONReader reader = new ChaserJSONReader(text);
+    final Object value = reader.value();
+    reader.skipWhitespace();
+    if (reader.position != text.length()) {
+      throw reader.error("Trailing content");
+    }
+    return value;
+  }
+
+  private IllegalArgumentException error(
+    final String message)
+  {
+    return new IllegalArgumentException(
+      new StringBuilder(64)
+        .append(message)
+        .append(" at offset ")
+        .append(this.position)
+        .toString());
+  }
+
+  private void skipWhitespace()
+  {
+    while (this.position < this.text.length()
+      && Character.isWhitespace(this.text.charAt(this.position))) {
+      ++this.position;
+    }
+  }
+
+  private char peek()
+  {
+    this.skipWhitespace();
+    if (this.position >= this.text.length()) {
+      throw this.error("Unexpected end of document");
+    }
+    return this.text.charAt(this.position);
+  }
+
+  private void expect(
+    final char c)
+  {
+    if (this.peek() != c) {
+      throw this.error("Expected '" + c + "'");
+    }
+    ++this.position;
+  }
+
+  private boolean consume(
+    final String word)
+  {
+    if (this.text.startsWith(word, this.position)) {
+      this.position += word.length();
+      return true;
+    }
+    return false;
+  }
+
+  private Object value()
+  {
+    final char c = this.peek();
+    switch (c) {
+      case '{':
+        return this.object();
+      case '[':
+        return this.array();
+      case '"':
+        return this.string();
+      default:
+        break;
+    }
+
+    if (this.consume("null")) {
+      return null;
+    }
+    if (this.consume("true")) {
+      return Boolean.TRUE;
+    }
+    if (this.consume("false")) {
+      return Boolean.FALSE;
+    }
+    return this.number();
+  }
+
+  private Map<String, Object> object()
+  {
+    final Map<String, Object> members = new LinkedHashMap<>();
+    this.expect('{');
+    if (this.peek() == '}') {
+      ++this.position;
+      return members;
+    }
+
+    while (true) {
+      final String name = this.string();
+      this.expect(':');
+      if (members.put(name, this.value()) != null) {
+        throw this.error("Duplicate member " + name);
+      }
+      if (this.peek() == ',') {
+        ++this.position;
+        continue;
+      }
+      this.expect('}');
+      return members;
+    }
+  }
+
+  private List<Object> array()
+  {
+    final List<Object> elements = new ArrayList<>();
+    this.expect('[');
+    if (this.peek() == ']') {
+      ++this.position;
+      return elements;
+    }
+
+    while (true) {
+      elements.add(this.value());
+      if (this.peek() == ',') {
+        ++this.position;
+        continue;
+      }
+      this.expect(']');
+      return elements;
+    }
+  }
+
+  private String string()
+  {
+    this.expect('"');
+    final StringBuilder result = new StringBuilder(32);
+    while (true) {
+      if (this.position >= this.text.length()) {
+        throw this.error("Unterminated string");
+      }
+      final char c = this.text.charAt(this.position);
+      ++this.position;
+      if (c == '"') {
+        return result.toString();
+      }
+      if (c < 0x20) {
+        throw this.error("Unescaped control character");
+      }
+      if (c == '\\') {
+        result.append(this.escape());
+      } else {
+        result.append(c);
+      }
+    }
+  }
+
+  private char escape()
+  {
+    if (this.position >= this.text.length()) {
+      throw this.error("Unterminated escape");
+    }
+    final char c = this.text.charAt(this.position);
+    ++this.position;
+    switch (c) {
+      case '"':
+      case '\\':
+      case '/':
+        return c;
+      case 'b':
+        return '\b';
+      case 'f':
+        return '\f';
+      case 'n':
+        return '\n';
+      case 'r':
+        return '\r';
+      case 't':
+        return '\t';
+      case 'u': {
+        if (this.position + 4 > this.text.length()) {
+          throw this.error("Truncated escape");
+        }
+        final String hex = this.text.substring(this.position, this.position + 4);
+        this.position += 4;
+        return (char) Integer.parseInt(hex, 16);
+      }
+      default:
+        throw this.error("Unrecognized escape");
+    }
+  }
+
+  private Object number()
+  {
+    final int start = this.position;
+    while (this.position < this.text.length()
+      && "+-0123456789.eE".indexOf(this.text.charAt(this.position)) >= 0) {
+      ++this.position;
+    }
+
+    final String number = this.text.substring(start, this.position);
+    if (number.isEmpty()) {
+      throw this.error("Unexpected character");
+    }
+    try {
+      if (number.indexOf('.') >= 0
+        || number.indexOf('e') >= 0
+        || number.indexOf('E') >= 0) {
+        return Double.valueOf(number);
+      }
+      return Long.valueOf(number);
+    } catch (final NumberFormatException e) {
+      throw this.error("Malformed number");
+    }
+  }
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.modulechaser.tests;
+
+import com.io7m.modulechaser.maven_plugin.ChaserRemoteJarInspector;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+
+public final class ChaserRemoteJarInspectorTest
+{
+  private static final Pattern RANGE_SUFFIX =
+    Pattern.compile("bytes=-(\\d+)");
+  private static final Pattern RANGE =
+    Pattern.compile("bytes=(\\d+)-(\\d+)");
+
+  private Path directory;
+  private Path output;
+  private byte[] jar;
+  private HttpServer server;
+  private AtomicLong served;
+
+  private static byte[] makeJar(
+    final Path file)
+    throws IOException
+  {
+    final Manifest manifest = new Manifest();
+    final Attributes attributes = manifest.getMainAttributes();
+    attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    attributes.putValue("Automatic-Module-Name", "com.example.remote");
+
+    /*
+     * Incompressible padding ensures that the manifest is far from the
+     * central directory, so that it must be fetched with its own request.
+     */
+
+    final byte[] padding = new byte[1 << 20];
+    new Random(0L).nextBytes(padding);
+
+    try (OutputStream stream = Files.newOutputStream(file);
+         JarOutputStream jar_stream = new JarOutputStream(stream, manifest)) {
+      jar_stream.putNextEntry(new ZipEntry("padding.bin"));
+      jar_stream.write(padding);
+      jar_stream.closeEntry();
+      for (int index = 0; index < 100; ++index) {
+        jar_stream.putNextEntry(new ZipEntry("com/example/C" + index + ".class"));
+        jar_stream.write(index);
+        jar_stream.closeEntry();
+      }
+    }
+    return Files.readAllBytes(file);
+  }
+
+  private static void deleteRecursively(
+    final Path path)
+    throws IOException
+  {
+    try (Stream<Path> paths = Files.walk(path)) {
+      for (final Path file : paths.sorted(Comparator.reverseOrder())
+        .collect(Collectors.toList())) {
+        Files.deleteIfExists(file);
+      }
+    }
+  }
+
+  @Before
+  public void setup()
+    throws IOException
+  {
+    this.directory = Files.createTempDirectory("modulechaser-remote");
+    this.output = this.directory.resolve("reduced");
+    this.jar = makeJar(this.directory.resolve("original.jar"));
+    this.served = new AtomicLong(0L);
+    this.server = HttpServer.create(
+      new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    this.server.start();
+  }
+
+  @After
+  public void tearDown()
+    throws IOException
+  {
+    this.server.stop(0);
+    deleteRecursively(this.directory);
+  }
+
+  private ChaserRemoteJarInspector inspector()
+  {
+    return ChaserRemoteJarInspector.create(
+      HttpClient.newHttpClient(),
+      this.output,
+      Duration.ofSeconds(10L));
+  }
+
+  private URI uri()
+  {
+    final InetSocketAddress address = this.server.getAddress();
+    return URI.create(
+      "http://" + address.getHostString() + ":" + address.getPort() + "/a.jar");
+  }
+
+  private void send(
+    final HttpExchange exchange,
+    final int status,
+    final int offset,
+    final int length)
+    throws IOException
+  {
+    exchange.sendResponseHeaders(status, length);
+    try (OutputStream body = exchange.getResponseBody()) {
+      body.write(this.jar, offset, length);
+    }
+    this.served.addAndGet(length);
+  }
+
+  private void serveRanges(
+    final HttpExchange exchange)
+    throws IOException
+  {
+    final String range = exchange.getRequestHeaders().getFirst("Range");
+    final int size = this.jar.length;
+
+    int start = 0;
+    int end = size - 1;
+    final Matcher suffix = RANGE_SUFFIX.matcher(range);
+    final Matcher bounded = RANGE.matcher(range);
+    if (suffix.matches()) {
+      start = Math.max(0, size - Integer.parseInt(suffix.group(1)));
+    } else if (bounded.matches()) {
+      start = Integer.parseInt(bounded.group(1));
+      end = Math.min(end, Integer.parseInt(bounded.group(2)));
+    }
+
+    exchange.getResponseHeaders()
+      .add("Content-Range", "bytes " + start + "-" + end + "/" + size);
+    this.send(exchange, 206, start, end - start + 1);
+  }
+
+  private List<Path> outputFiles()
+    throws IOException
+  {
+    if (!Files.isDirectory(this.output)) {
+      return List.of();
+    }
+    try (Stream<Path> paths = Files.walk(this.output)) {
+      return paths.filter(Files::isRegularFile).collect(Collectors.toList());
+    }
+  }
+
+  /**
+   * A server that supports range requests yields a reduced jar containing
+   * the manifest, without the jar being downloaded in full.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testRangeRequests()
+    throws Exception
+  {
+    this.server.createContext("/", this::serveRanges);
+
+    final Optional<Path> result =
+      this.inspector().fetch(this.uri(), Optional.empty(), "r/a.jar");
+
+    Assert.assertTrue(result.isPresent());
+    Assert.assertEquals(this.output.resolve("r/a.jar"), result.get());
+    Assert.assertTrue(
+      "Served " + this.served.get() + " of " + this.jar.length,
+      this.served.get() < (long) this.jar.length / 4L);
+
+    try (JarFile reduced = new JarFile(result.get().toFile())) {
+      Assert.assertEquals(
+        "com.example.remote",
+        reduced.getManifest().getMainAttributes()
+          .getValue("Automatic-Module-Name"));
+      Assert.assertNull(reduced.getEntry("padding.bin"));
+    }
+
+    Assert.assertEquals(List.of(result.get()), this.outputFiles());
+  }
+
+  /**
+   * An existing reduced jar is returned without contacting the server.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testExisting()
+    throws Exception
+  {
+    this.server.createContext("/", this::serveRanges);
+
+    final ChaserRemoteJarInspector inspector = this.inspector();
+    inspector.fetch(this.uri(), Optional.empty(), "r/a.jar");
+    final long served_first = this.served.get();
+
+    final Optional<Path> result =
+      inspector.fetch(this.uri(), Optional.empty(), "r/a.jar");
+    Assert.assertTrue(result.isPresent());
+    Assert.assertEquals(served_first, this.served.get());
+  }
+
+  /**
+   * A server that ignores range requests yields nothing, and leaves no
+   * files behind.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testNoRangeRequests()
+    throws Exception
+  {
+    this.server.createContext(
+      "/", exchange -> this.send(exchange, 200, 0, this.jar.length));
+
+    final Optional<Path> result =
+      this.inspector().fetch(this.uri(), Optional.empty(), "r/a.jar");
+
+    Assert.assertEquals(Optional.empty(), result);
+    Assert.assertEquals(List.of(), this.outputFiles());
+  }
+
+  /**
+   * A server that fails partway through leaves no files behind.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testRangeFailure()
+    throws Exception
+  {
+    this.server.createContext("/", exchange -> {
+      final String range = exchange.getRequestHeaders().getFirst("Range");
+      if (RANGE_SUFFIX.matcher(range).matches()) {
+        this.serveRanges(exchange);
+      } else {
+        exchange.sendResponseHeaders(500, -1L);
+        exchange.close();
+      }
+    });
+
+    Assert.assertThrows(
+      IOException.class,
+      () -> this.inspector().fetch(this.uri(), Optional.empty(), "r/a.jar"));
+    Assert.assertEquals(List.of(), this.outputFiles());
+  }
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.modulechaser.tests;
+
+import com.io7m.modulechaser.maven_plugin.ChaserCompactGraph;
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyEdge;
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyNode;
+import com.io7m.modulechaser.maven_plugin.ChaserModularizationStatusModularizedAutomaticModuleName;
+import com.io7m.modulechaser.maven_plugin.ChaserModularizationStatusModularizedFully;
+import com.io7m.modulechaser.maven_plugin.ChaserModularizationStatusNotJar;
+import com.io7m.modulechaser.maven_plugin.ChaserModularizationStatusNotModularized;
+import com.io7m.modulechaser.maven_plugin.ChaserModularizationStatusType.Kind;
+import com.io7m.modulechaser.maven_plugin.ChaserModularizationStatusUnavailable;
+import com.io7m.modulechaser.maven_plugin.ChaserReport;
+import com.io7m.modulechaser.maven_plugin.ChaserReportDependency;
+import com.io7m.modulechaser.maven_plugin.ChaserReportJSON;
+import org.jgrapht.graph.DirectedAcyclicGraph;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public final class ChaserReportJSONTest
+{
+  private ChaserDependencyNode root;
+  private ChaserDependencyNode a;
+  private ChaserDependencyNode b;
+  private ChaserDependencyNode c;
+  private ChaserReport report;
+
+  private static ChaserDependencyNode node(
+    final String artifact,
+    final Optional<String> classifier)
+  {
+    return ChaserDependencyNode.of(
+      "com.example",
+      artifact,
+      "1.0.0",
+      classifier,
+      "jar",
+      "compile");
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Object> object(
+    final Object value)
+  {
+    Assert.assertTrue(value instanceof Map);
+    return (Map<String, Object>) value;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<Object> array(
+    final Object value)
+  {
+    Assert.assertTrue(value instanceof List);
+    return (List<Object>) value;
+  }
+
+  private static Map<String, Object> write(
+    final ChaserReport report)
+    throws Exception
+  {
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ChaserReportJSON.writeJSON(report, output);
+    return object(ChaserJSONReader.read(new String(output.toByteArray(), UTF_8)));
+  }
+
+  /**
+   * A diamond: the root depends on {@code b} and then {@code a}, both of
+   * which depend on {@code c}.
+   */
+
+  @Before
+  public void setup()
+  {
+    this.root = node("root", Optional.empty());
+    this.a = node("a", Optional.of("tests"));
+    this.b = node("b", Optional.empty());
+    this.c = node("c", Optional.empty());
+
+    final DirectedAcyclicGraph<ChaserDependencyNode, ChaserDependencyEdge> graph =
+      new DirectedAcyclicGraph<>(ChaserDependencyEdge.class);
+    for (final ChaserDependencyNode node : List.of(this.root, this.a, this.b, this.c)) {
+      graph.addVertex(node);
+    }
+    graph.addEdge(this.root, this.b, ChaserDependencyEdge.of(this.root, this.b));
+    graph.addEdge(this.root, this.a, ChaserDependencyEdge.of(this.root, this.a));
+    graph.addEdge(this.a, this.c, ChaserDependencyEdge.of(this.a, this.c));
+    graph.addEdge(this.b, this.c, ChaserDependencyEdge.of(this.b, this.c));
+
+    final Map<ChaserDependencyNode, ChaserReportDependency> reports =
+      new HashMap<>();
+    reports.put(
+      this.root,
+      ChaserReportDependency.builder()
+        .setStatusCurrent(ChaserModularizationStatusNotModularized.of("1.0.0"))
+        .setStatusHighest(
+          ChaserModularizationStatusModularizedFully.of("com.example.root", "2.0.0"))
+        .setFirstModularVersion("1.5.0")
+        .setFirstFullyModularVersion("2.0.0")
+        .build());
+    reports.put(
+      this.a,
+      ChaserReportDependency.of(
+        ChaserModularizationStatusModularizedAutomaticModuleName.of(
+          "com.example.a", "1.0.0"),
+        ChaserModularizationStatusModularizedAutomaticModuleName.of(
+          "com.example.a", "1.0.0")));
+    reports.put(
+      this.b,
+      ChaserReportDependency.of(
+        ChaserModularizationStatusNotJar.of("1.0.0"),
+        ChaserModularizationStatusNotJar.of("1.0.0")));
+    reports.put(
+      this.c,
+      ChaserReportDependency.of(
+        ChaserModularizationStatusUnavailable.of(
+          Optional.of(new FileNotFoundException("Missing \"c\"\n<here>"))),
+        ChaserModularizationStatusUnavailable.of(Optional.empty())));
+
+    final ChaserCompactGraph compact = ChaserCompactGraph.of(graph);
+    final List<ChaserReportDependency> reports_by_id = new ArrayList<>();
+    for (final ChaserDependencyNode node : compact.topologicalOrder()) {
+      reports_by_id.add(reports.get(node));
+    }
+    this.report = ChaserReport.of(compact, reports_by_id);
+  }
+
+  /**
+   * The document header, statistics, and roots are present.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testHeader()
+    throws Exception
+  {
+    final Map<String, Object> document = write(this.report);
+
+    Assert.assertEquals(
+      List.of("format", "formatVersion", "generated", "statistics", "roots", "nodes", "edges"),
+      new ArrayList<>(document.keySet()));
+    Assert.assertEquals("com.io7m.modulechaser.report", document.get("format"));
+    Assert.assertEquals(Long.valueOf(1L), document.get("formatVersion"));
+    ZonedDateTime.parse((String) document.get("generated"));
+
+    Assert.assertEquals(
+      List.of(this.root.anchorId()),
+      array(document.get("roots")));
+
+    final Map<String, Object> statistics = object(document.get("statistics"));
+    Assert.assertEquals(Long.valueOf(4L), statistics.get("total"));
+
+    final Map<String, Object> current = object(statistics.get("current"));
+    final Map<String, Object> highest = object(statistics.get("highest"));
+    for (final Kind kind : Kind.values()) {
+      Assert.assertEquals(
+        Long.valueOf(this.report.statistics().countCurrent(kind)),
+        current.get(kind.name()));
+      Assert.assertEquals(
+        Long.valueOf(this.report.statistics().countHighest(kind)),
+        highest.get(kind.name()));
+    }
+    Assert.assertEquals(Long.valueOf(1L), highest.get("MODULARIZED_FULLY"));
+    Assert.assertEquals(Long.valueOf(0L), current.get("MODULARIZED_FULLY"));
+  }
+
+  /**
+   * Each dependency appears once with its coordinates and statuses, and
+   * first versions appear only where they are known.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testNodes()
+    throws Exception
+  {
+    final List<Object> nodes = array(write(this.report).get("nodes"));
+    Assert.assertEquals(4, nodes.size());
+
+    final Map<String, Map<String, Object>> by_id = new HashMap<>();
+    for (final Object value : nodes) {
+      final Map<String, Object> node = object(value);
+      Assert.assertNull(by_id.put((String) node.get("id"), node));
+    }
+
+    final Map<String, Object> root_node = by_id.get(this.root.anchorId());
+    Assert.assertEquals("com.example", root_node.get("group"));
+    Assert.assertEquals("root", root_node.get("artifact"));
+    Assert.assertEquals("1.0.0", root_node.get("version"));
+    Assert.assertTrue(root_node.containsKey("classifier"));
+    Assert.assertNull(root_node.get("classifier"));
+    Assert.assertEquals("jar", root_node.get("type"));
+    Assert.assertEquals("compile", root_node.get("scope"));
+    Assert.assertEquals(
+      Map.of("kind", "NOT_MODULARIZED", "version", "1.0.0"),
+      root_node.get("current"));
+    Assert.assertEquals(
+      Map.of(
+        "kind", "MODULARIZED_FULLY",
+        "version", "2.0.0",
+        "moduleName", "com.example.root"),
+      root_node.get("highest"));
+    Assert.assertEquals("1.5.0", root_node.get("firstModularVersion"));
+    Assert.assertEquals("2.0.0", root_node.get("firstFullyModularVersion"));
+
+    final Map<String, Object> a_node = by_id.get(this.a.anchorId());
+    Assert.assertEquals("tests", a_node.get("classifier"));
+    Assert.assertEquals(
+      Map.of(
+        "kind", "MODULARIZED_AUTOMATIC_MODULE_NAME",
+        "version", "1.0.0",
+        "moduleName", "com.example.a"),
+      a_node.get("current"));
+    Assert.assertFalse(a_node.containsKey("firstModularVersion"));
+    Assert.assertFalse(a_node.containsKey("firstFullyModularVersion"));
+
+    final Map<String, Object> c_node = by_id.get(this.c.anchorId());
+    Assert.assertEquals(
+      Map.of("kind", "UNAVAILABLE", "error", "Missing \"c\"\n<here>"),
+      c_node.get("current"));
+    Assert.assertEquals(
+      Map.of("kind", "UNAVAILABLE"),
+      c_node.get("highest"));
+  }
+
+  /**
+   * Nodes are in topological order, and edges are exactly the edges of the
+   * graph, grouped by source node in the order of the nodes, with the
+   * successors of each node in the order the edges were added.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testOrder()
+    throws Exception
+  {
+    final Map<String, Object> document = write(this.report);
+
+    final List<String> order = new ArrayList<>();
+    for (final Object value : array(document.get("nodes"))) {
+      order.add((String) object(value).get("id"));
+    }
+
+    final Set<List<Object>> edges = new HashSet<>();
+    final List<String> root_successors = new ArrayList<>();
+    int previous_source = 0;
+    for (final Object value : array(document.get("edges"))) {
+      final List<Object> edge = array(value);
+      Assert.assertEquals(2, edge.size());
+
+      final int source = order.indexOf(edge.get(0));
+      final int target = order.indexOf(edge.get(1));
+      Assert.assertTrue(source >= 0);
+      Assert.assertTrue(source < target);
+      Assert.assertTrue(source >= previous_source);
+      previous_source = source;
+
+      Assert.assertTrue(edges.add(edge));
+      if (edge.get(0).equals(this.root.anchorId())) {
+        root_successors.add((String) edge.get(1));
+      }
+    }
+
+    Assert.assertEquals(
+      Set.of(
+        List.of(this.root.anchorId(), this.b.anchorId()),
+        List.of(this.root.anchorId(), this.a.anchorId()),
+        List.of(this.a.anchorId(), this.c.anchorId()),
+        List.of(this.b.anchorId(), this.c.anchorId())),
+      edges);
+    Assert.assertEquals(
+      List.of(this.b.anchorId(), this.a.anchorId()),
+      root_successors);
+    Assert.assertEquals(this.root.anchorId(), order.get(0));
+    Assert.assertEquals(this.c.anchorId(), order.get(3));
+  }
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.modulechaser.tests;
+
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyEdge;
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyNode;
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyResolved;
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyResolverType;
+import com.io7m.modulechaser.maven_plugin.ChaserMetrics;
+import com.io7m.modulechaser.maven_plugin.ChaserModularizationStatusModularizedFully;
+import com.io7m.modulechaser.maven_plugin.ChaserModularizationStatusNotModularized;
+import com.io7m.modulechaser.maven_plugin.ChaserModularizationStatusType;
+import com.io7m.modulechaser.maven_plugin.ChaserModularizationStatusUnavailable;
+import com.io7m.modulechaser.maven_plugin.ChaserReport;
+import com.io7m.modulechaser.maven_plugin.ChaserReportConfiguration;
+import com.io7m.modulechaser.maven_plugin.ChaserReportDependency;
+import com.io7m.modulechaser.maven_plugin.ChaserReportState;
+import com.io7m.modulechaser.maven_plugin.ChaserReports;
+import org.jgrapht.graph.DirectedAcyclicGraph;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public final class ChaserReportStateTest
+{
+  private static final Instant TIME_ZERO =
+    Instant.parse("2020-01-01T00:00:00Z");
+
+  private static final Duration MAXIMUM_AGE =
+    Duration.ofDays(1L);
+
+  private Path directory;
+  private Path stateFile;
+
+  private static ChaserDependencyNode node(
+    final String artifact,
+    final String version)
+  {
+    return ChaserDependencyNode.of(
+      "com.example",
+      artifact,
+      version,
+      Optional.empty(),
+      "jar",
+      "compile");
+  }
+
+  private static Clock clockAt(
+    final Duration offset)
+  {
+    return Clock.fixed(TIME_ZERO.plus(offset), ZoneOffset.UTC);
+  }
+
+  private static ChaserReportDependency modular(
+    final String version)
+  {
+    return ChaserReportDependency.of(
+      ChaserModularizationStatusNotModularized.of(version),
+      ChaserModularizationStatusModularizedFully.of("com.example.a", "2.0.0"));
+  }
+
+  private static void deleteRecursively(
+    final Path path)
+    throws IOException
+  {
+    try (Stream<Path> paths = Files.walk(path)) {
+      for (final Path file : paths.sorted(Comparator.reverseOrder())
+        .collect(Collectors.toList())) {
+        Files.deleteIfExists(file);
+      }
+    }
+  }
+
+  private ChaserReportState open(
+    final Duration offset,
+    final boolean versionSearch,
+    final boolean offline)
+  {
+    return ChaserReportState.open(
+      this.stateFile, clockAt(offset), MAXIMUM_AGE, versionSearch, offline);
+  }
+
+  @Before
+  public void setup()
+    throws IOException
+  {
+    this.directory = Files.createTempDirectory("modulechaser-state");
+    this.stateFile =
+      ChaserReportState.stateFileFor(this.directory.resolve("report.xhtml"));
+  }
+
+  @After
+  public void tearDown()
+    throws IOException
+  {
+    deleteRecursively(this.directory);
+  }
+
+  /**
+   * A recorded report is reused until it is older than the maximum age.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testExpiry()
+    throws Exception
+  {
+    final ChaserDependencyNode node = node("a", "1.0.0");
+
+    final ChaserReportState first = this.open(Duration.ZERO, false, false);
+    first.put(node, modular("1.0.0"));
+    first.save();
+
+    final ChaserReportState fresh =
+      this.open(MAXIMUM_AGE.minusSeconds(1L), false, false);
+    Assert.assertEquals(1, fresh.size());
+    Assert.assertEquals(Optional.of(modular("1.0.0")), fresh.find(node));
+    Assert.assertEquals(1L, fresh.reused());
+
+    final ChaserReportState expired =
+      this.open(MAXIMUM_AGE, false, false);
+    Assert.assertEquals(Optional.empty(), expired.find(node));
+    Assert.assertEquals(0L, expired.reused());
+  }
+
+  /**
+   * Snapshots and unavailable dependencies are never reused, and a
+   * dependency whose version has changed is not found.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testNotRecorded()
+    throws Exception
+  {
+    final ChaserDependencyNode snapshot = node("a", "1.0.0-SNAPSHOT");
+    final ChaserDependencyNode missing = node("b", "1.0.0");
+
+    final ChaserReportState first = this.open(Duration.ZERO, false, false);
+    first.put(snapshot, modular("1.0.0-SNAPSHOT"));
+    first.put(
+      missing,
+      ChaserReportDependency.of(
+        ChaserModularizationStatusUnavailable.of(Optional.empty()),
+        ChaserModularizationStatusUnavailable.of(Optional.empty())));
+    first.save();
+
+    final ChaserReportState second = this.open(Duration.ZERO, false, false);
+    Assert.assertEquals(1, second.size());
+    Assert.assertEquals(Optional.empty(), second.find(snapshot));
+    Assert.assertEquals(Optional.empty(), second.find(missing));
+    Assert.assertEquals(Optional.empty(), second.find(node("a", "1.0.1")));
+  }
+
+  /**
+   * Reports determined offline are reused only offline.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testOffline()
+    throws Exception
+  {
+    final ChaserDependencyNode node = node("a", "1.0.0");
+
+    final ChaserReportState first = this.open(Duration.ZERO, false, true);
+    first.put(node, modular("1.0.0"));
+    first.save();
+
+    Assert.assertEquals(
+      Optional.empty(),
+      this.open(Duration.ZERO, false, false).find(node));
+    Assert.assertEquals(
+      Optional.of(modular("1.0.0")),
+      this.open(Duration.ZERO, false, true).find(node));
+  }
+
+  /**
+   * When searching for first versions, reports recorded without a search
+   * or with an abandoned search are not reused, and the results of a
+   * complete search are reused, including the absence of any modularized
+   * version.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testVersionSearch()
+    throws Exception
+  {
+    final ChaserDependencyNode unsearched = node("a", "1.0.0");
+    final ChaserDependencyNode abandoned = node("b", "1.0.0");
+    final ChaserDependencyNode found = node("c", "1.0.0");
+    final ChaserDependencyNode absent = node("d", "1.0.0");
+
+    final ChaserReportDependency found_report =
+      ChaserReportDependency.builder()
+        .from(modular("1.0.0"))
+        .setFirstModularVersion("1.2.0")
+        .setFirstFullyModularVersion("1.5.0")
+        .build();
+
+    final ChaserReportState without = this.open(Duration.ZERO, false, false);
+    without.put(unsearched, modular("1.0.0"));
+    without.save();
+
+    final ChaserReportState with = this.open(Duration.ZERO, true, false);
+    Assert.assertEquals(Optional.empty(), with.find(unsearched));
+    with.put(
+      abandoned,
+      ChaserReportDependency.builder()
+        .from(modular("1.0.0"))
+        .setFirstModularVersion("1.2.0")
+        .setFirstVersionsIncomplete(true)
+        .build());
+    with.put(found, found_report);
+    with.put(absent, modular("1.0.0"));
+    with.save();
+
+    final ChaserReportState again = this.open(Duration.ZERO, true, false);
+    Assert.assertEquals(Optional.empty(), again.find(abandoned));
+    Assert.assertEquals(Optional.of(found_report), again.find(found));
+    Assert.assertEquals(Optional.of(modular("1.0.0")), again.find(absent));
+  }
+
+  /**
+   * A report produced from the previous state is identical to the report
+   * produced by resolving every dependency, and resolves only those
+   * dependencies that could not be reused.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testReportsIdentical()
+    throws Exception
+  {
+    final Path file = this.directory.resolve("a.jar");
+    ChaserSyntheticJars.writeSmall(
+      file, "com.example.a", ChaserSyntheticJarKind.MODULAR);
+
+    final DirectedAcyclicGraph<ChaserDependencyNode, ChaserDependencyEdge> graph =
+      new DirectedAcyclicGraph<>(ChaserDependencyEdge.class);
+    final ChaserDependencyNode root = node("root", "1.0.0");
+    final ChaserDependencyNode snapshot = node("snapshot", "1.0.0-SNAPSHOT");
+    final ChaserDependencyNode missing = node("missing", "1.0.0");
+    graph.addVertex(root);
+    for (final ChaserDependencyNode child : List.of(
+      node("a", "1.0.0"), node("b", "1.0.0"), snapshot, missing)) {
+      graph.addVertex(child);
+      graph.addEdge(root, child, ChaserDependencyEdge.of(root, child));
+    }
+
+    final AtomicInteger resolutions = new AtomicInteger(0);
+    final ChaserDependencyResolverType resolver = node -> {
+      resolutions.incrementAndGet();
+      if (node.equals(missing)) {
+        throw new FileNotFoundException(node.toTerseString());
+      }
+      return ChaserDependencyResolved.of(node, file, node.version(), file);
+    };
+
+    final ChaserReport expected = ChaserReports.reportOf(resolver, graph);
+    resolutions.set(0);
+
+    final ChaserReportState first_state =
+      this.open(Duration.ZERO, false, false);
+    ChaserReports.reportOf(
+      resolver,
+      graph,
+      ChaserReportConfiguration.builder()
+        .setPreviousState(first_state)
+        .build());
+    first_state.save();
+    Assert.assertEquals(graph.vertexSet().size(), resolutions.get());
+    resolutions.set(0);
+
+    final ChaserMetrics metrics = ChaserMetrics.create();
+    final ChaserReportState second_state =
+      this.open(Duration.ofHours(1L), false, false);
+    final ChaserReport second =
+      ChaserReports.reportOf(
+        resolver,
+        graph,
+        ChaserReportConfiguration.builder()
+          .setPreviousState(second_state)
+          .setMetrics(metrics)
+          .build());
+
+    Assert.assertEquals(2, resolutions.get());
+    Assert.assertEquals(3L, second_state.reused());
+    Assert.assertEquals(
+      3L, metrics.counter(ChaserMetrics.Counter.REPORT_STATE_REUSED));
+
+    for (final ChaserDependencyNode node : graph.vertexSet()) {
+      final ChaserReportDependency report = expected.reportOf(node);
+      if (node.equals(missing)) {
+        Assert.assertEquals(
+          ChaserModularizationStatusType.Kind.UNAVAILABLE,
+          second.reportOf(node).statusCurrent().kind());
+      } else {
+        Assert.assertEquals(report, second.reportOf(node));
+      }
+    }
+  }
+}
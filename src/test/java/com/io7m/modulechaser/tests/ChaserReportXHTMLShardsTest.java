@@ -0,0 +1,361 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.modulechaser.tests;
+
+import com.io7m.modulechaser.maven_plugin.ChaserCompactGraph;
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyEdge;
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyNode;
+import com.io7m.modulechaser.maven_plugin.ChaserModularizationStatusModularizedFully;
+import com.io7m.modulechaser.maven_plugin.ChaserModularizationStatusNotModularized;
+import com.io7m.modulechaser.maven_plugin.ChaserReport;
+import com.io7m.modulechaser.maven_plugin.ChaserReportDependency;
+import com.io7m.modulechaser.maven_plugin.ChaserReportXHTML;
+import com.io7m.modulechaser.maven_plugin.ChaserReportXHTMLOptions;
+import com.io7m.modulechaser.maven_plugin.ChaserReportXHTMLOptionsType.ShardMode;
+import org.jgrapht.graph.DirectedAcyclicGraph;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public final class ChaserReportXHTMLShardsTest
+{
+  private static final FileTime OLD_TIME =
+    FileTime.fromMillis(0L);
+
+  private static final ChaserDependencyNode ROOT =
+    node("com.example", "root");
+  private static final ChaserDependencyNode A =
+    node("com.example", "a");
+  private static final ChaserDependencyNode X =
+    node("org.example", "x");
+  private static final ChaserDependencyNode Y =
+    node("com/odd", "y");
+  private static final ChaserDependencyNode Z =
+    node("com_odd", "z");
+
+  private Path directory;
+  private Path index;
+
+  private static ChaserDependencyNode node(
+    final String group,
+    final String artifact)
+  {
+    return ChaserDependencyNode.of(
+      group,
+      artifact,
+      "1.0.0",
+      Optional.empty(),
+      "jar",
+      "compile");
+  }
+
+  /**
+   * Build a report in which the root depends on each of the given nodes.
+   * The node {@code modular}, if present, is reported as fully modularized.
+   */
+
+  private static ChaserReport report(
+    final List<ChaserDependencyNode> dependencies,
+    final Optional<ChaserDependencyNode> modular)
+  {
+    final DirectedAcyclicGraph<ChaserDependencyNode, ChaserDependencyEdge> graph =
+      new DirectedAcyclicGraph<>(ChaserDependencyEdge.class);
+    graph.addVertex(ROOT);
+    for (final ChaserDependencyNode node : dependencies) {
+      graph.addVertex(node);
+      graph.addEdge(ROOT, node, ChaserDependencyEdge.of(ROOT, node));
+    }
+
+    final ChaserCompactGraph compact = ChaserCompactGraph.of(graph);
+    final List<ChaserReportDependency> reports = new ArrayList<>();
+    for (final ChaserDependencyNode node : compact.topologicalOrder()) {
+      if (modular.isPresent() && modular.get().equals(node)) {
+        reports.add(
+          ChaserReportDependency.of(
+            ChaserModularizationStatusModularizedFully.of("m", node.version()),
+            ChaserModularizationStatusModularizedFully.of("m", node.version())));
+      } else {
+        reports.add(
+          ChaserReportDependency.of(
+            ChaserModularizationStatusNotModularized.of(node.version()),
+            ChaserModularizationStatusNotModularized.of(node.version())));
+      }
+    }
+    return ChaserReport.of(compact, reports);
+  }
+
+  private static ChaserReportXHTMLOptions options(
+    final ShardMode mode)
+  {
+    return ChaserReportXHTMLOptions.builder()
+      .setShardMode(mode)
+      .setShardChunkSize(2)
+      .setWriteParallelism(2)
+      .build();
+  }
+
+  private static void deleteRecursively(
+    final Path path)
+    throws IOException
+  {
+    try (Stream<Path> paths = Files.walk(path)) {
+      for (final Path file : paths.sorted(Comparator.reverseOrder())
+        .collect(Collectors.toList())) {
+        Files.deleteIfExists(file);
+      }
+    }
+  }
+
+  private Set<String> files()
+    throws IOException
+  {
+    try (Stream<Path> files = Files.list(this.directory)) {
+      return files.map(file -> file.getFileName().toString())
+        .collect(Collectors.toSet());
+    }
+  }
+
+  private String page(
+    final String name)
+    throws IOException
+  {
+    return Files.readString(this.directory.resolve(name), UTF_8);
+  }
+
+  private static boolean hasAnchor(
+    final String page,
+    final ChaserDependencyNode node)
+  {
+    return page.contains("id=\"" + node.anchorId() + "\"");
+  }
+
+  private void ageAll()
+    throws IOException
+  {
+    for (final String name : this.files()) {
+      Files.setLastModifiedTime(this.directory.resolve(name), OLD_TIME);
+    }
+  }
+
+  private boolean isAged(
+    final String name)
+    throws IOException
+  {
+    return OLD_TIME.equals(
+      Files.getLastModifiedTime(this.directory.resolve(name)));
+  }
+
+  @Before
+  public void setup()
+    throws IOException
+  {
+    this.directory = Files.createTempDirectory("modulechaser-shards");
+    this.index = this.directory.resolve("report.xhtml");
+  }
+
+  @After
+  public void tearDown()
+    throws IOException
+  {
+    deleteRecursively(this.directory);
+  }
+
+  /**
+   * One page is written for each group, with distinct file-safe names, and
+   * each dependency appears on the page for its group. Tree links point to
+   * the page that holds the dependency.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testGroups()
+    throws Exception
+  {
+    final int written =
+      ChaserReportXHTML.writeXHTMLShards(
+        report(List.of(A, X, Y, Z), Optional.empty()),
+        options(ShardMode.GROUP),
+        this.index);
+
+    final Set<String> expected = Set.of(
+      "report.xhtml",
+      "report-tree.xhtml",
+      "report-group-com.example.xhtml",
+      "report-group-org.example.xhtml",
+      "report-group-com_odd.xhtml",
+      "report-group-com_odd-1.xhtml");
+
+    Assert.assertEquals(expected, this.files());
+    Assert.assertEquals(expected.size(), written);
+
+    final String com_example = this.page("report-group-com.example.xhtml");
+    Assert.assertTrue(hasAnchor(com_example, ROOT));
+    Assert.assertTrue(hasAnchor(com_example, A));
+    Assert.assertFalse(hasAnchor(com_example, X));
+
+    final String org_example = this.page("report-group-org.example.xhtml");
+    Assert.assertTrue(hasAnchor(org_example, X));
+    Assert.assertFalse(hasAnchor(org_example, A));
+
+    /*
+     * "com/odd" sorts before "com_odd", so it receives the unsuffixed name.
+     */
+
+    Assert.assertTrue(hasAnchor(this.page("report-group-com_odd.xhtml"), Y));
+    Assert.assertTrue(hasAnchor(this.page("report-group-com_odd-1.xhtml"), Z));
+
+    final String tree = this.page("report-tree.xhtml");
+    Assert.assertTrue(
+      tree.contains("href=\"report-group-org.example.xhtml#" + X.anchorId() + "\""));
+    Assert.assertTrue(
+      tree.contains("href=\"report-group-com_odd-1.xhtml#" + Z.anchorId() + "\""));
+  }
+
+  /**
+   * Dependencies are divided into chunks of the configured size, in
+   * reverse topological order.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testChunks()
+    throws Exception
+  {
+    ChaserReportXHTML.writeXHTMLShards(
+      report(List.of(A, X, Y, Z), Optional.empty()),
+      options(ShardMode.CHUNK),
+      this.index);
+
+    Assert.assertEquals(
+      Set.of(
+        "report.xhtml",
+        "report-tree.xhtml",
+        "report-chunk-0000.xhtml",
+        "report-chunk-0001.xhtml",
+        "report-chunk-0002.xhtml"),
+      this.files());
+
+    final String last = this.page("report-chunk-0002.xhtml");
+    Assert.assertTrue(hasAnchor(last, ROOT));
+    for (final ChaserDependencyNode node : List.of(A, X, Y, Z)) {
+      Assert.assertFalse(hasAnchor(last, node));
+    }
+  }
+
+  /**
+   * Rewriting an unchanged report rewrites only the index page, which holds
+   * the generation time, and a change to one dependency rewrites only the
+   * page of that dependency along with the index.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testWriteOnlyChanged()
+    throws Exception
+  {
+    final ChaserReportXHTMLOptions options = options(ShardMode.GROUP);
+
+    ChaserReportXHTML.writeXHTMLShards(
+      report(List.of(A, X), Optional.empty()), options, this.index);
+    this.ageAll();
+
+    Assert.assertEquals(
+      1,
+      ChaserReportXHTML.writeXHTMLShards(
+        report(List.of(A, X), Optional.empty()), options, this.index));
+    Assert.assertFalse(this.isAged("report.xhtml"));
+    Assert.assertTrue(this.isAged("report-tree.xhtml"));
+    Assert.assertTrue(this.isAged("report-group-com.example.xhtml"));
+    Assert.assertTrue(this.isAged("report-group-org.example.xhtml"));
+
+    Assert.assertEquals(
+      2,
+      ChaserReportXHTML.writeXHTMLShards(
+        report(List.of(A, X), Optional.of(X)), options, this.index));
+    Assert.assertTrue(this.isAged("report-tree.xhtml"));
+    Assert.assertTrue(this.isAged("report-group-com.example.xhtml"));
+    Assert.assertFalse(this.isAged("report-group-org.example.xhtml"));
+  }
+
+  /**
+   * Pages that are no longer part of the report are deleted, and files that
+   * do not belong to the report are left alone.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testStaleDeleted()
+    throws Exception
+  {
+    final Path unrelated_report = this.directory.resolve("other-group-x.xhtml");
+    final Path unrelated_notes = this.directory.resolve("report-group-notes.txt");
+    Files.writeString(unrelated_report, "Other", UTF_8);
+    Files.writeString(unrelated_notes, "Notes", UTF_8);
+
+    ChaserReportXHTML.writeXHTMLShards(
+      report(List.of(A, X), Optional.empty()),
+      options(ShardMode.GROUP),
+      this.index);
+    Assert.assertTrue(this.files().contains("report-group-org.example.xhtml"));
+
+    ChaserReportXHTML.writeXHTMLShards(
+      report(List.of(A), Optional.empty()),
+      options(ShardMode.GROUP),
+      this.index);
+    Assert.assertEquals(
+      Set.of(
+        "report.xhtml",
+        "report-tree.xhtml",
+        "report-group-com.example.xhtml",
+        "other-group-x.xhtml",
+        "report-group-notes.txt"),
+      this.files());
+
+    ChaserReportXHTML.writeXHTMLShards(
+      report(List.of(A), Optional.empty()),
+      options(ShardMode.CHUNK),
+      this.index);
+    Assert.assertEquals(
+      Set.of(
+        "report.xhtml",
+        "report-tree.xhtml",
+        "report-chunk-0000.xhtml",
+        "other-group-x.xhtml",
+        "report-group-notes.txt"),
+      this.files());
+  }
+}
@@ -0,0 +1,358 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.modulechaser.tests;
+
+import com.io7m.modulechaser.maven_plugin.ChaserCompactGraph;
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyEdge;
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyNode;
+import com.io7m.modulechaser.maven_plugin.ChaserModularizationStatusNotModularized;
+import com.io7m.modulechaser.maven_plugin.ChaserReport;
+import com.io7m.modulechaser.maven_plugin.ChaserReportDependency;
+import com.io7m.modulechaser.maven_plugin.ChaserReportXHTML;
+import com.io7m.modulechaser.maven_plugin.ChaserReportXHTMLOptions;
+import com.io7m.modulechaser.maven_plugin.ChaserReportXHTMLOptionsType.TreeMode;
+import org.jgrapht.graph.DirectedAcyclicGraph;
+import org.junit.Assert;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public final class ChaserReportXHTMLTreeTest
+{
+  private static final ChaserDependencyNode ROOT = node("root");
+  private static final ChaserDependencyNode A = node("a");
+  private static final ChaserDependencyNode B = node("b");
+  private static final ChaserDependencyNode C = node("c");
+  private static final ChaserDependencyNode D = node("d");
+  private static final ChaserDependencyNode E = node("e");
+
+  private static ChaserDependencyNode node(
+    final String artifact)
+  {
+    return ChaserDependencyNode.of(
+      "com.example",
+      artifact,
+      "1.0.0",
+      Optional.empty(),
+      "jar",
+      "compile");
+  }
+
+  /**
+   * Build a report from the given edges, each of which is a pair of nodes.
+   */
+
+  private static ChaserReport report(
+    final List<List<ChaserDependencyNode>> edges)
+  {
+    final DirectedAcyclicGraph<ChaserDependencyNode, ChaserDependencyEdge> graph =
+      new DirectedAcyclicGraph<>(ChaserDependencyEdge.class);
+    for (final List<ChaserDependencyNode> edge : edges) {
+      final ChaserDependencyNode source = edge.get(0);
+      final ChaserDependencyNode target = edge.get(1);
+      graph.addVertex(source);
+      graph.addVertex(target);
+      graph.addEdge(source, target, ChaserDependencyEdge.of(source, target));
+    }
+
+    final ChaserCompactGraph compact = ChaserCompactGraph.of(graph);
+    final List<ChaserReportDependency> reports = new ArrayList<>();
+    for (final ChaserDependencyNode node : compact.topologicalOrder()) {
+      reports.add(
+        ChaserReportDependency.of(
+          ChaserModularizationStatusNotModularized.of(node.version()),
+          ChaserModularizationStatusNotModularized.of(node.version())));
+    }
+    return ChaserReport.of(compact, reports);
+  }
+
+  /**
+   * A diamond whose shared dependency {@code c} has the dependencies
+   * {@code d} and {@code e}.
+   */
+
+  private static ChaserReport diamond()
+  {
+    return report(List.of(
+      List.of(ROOT, A),
+      List.of(ROOT, B),
+      List.of(A, C),
+      List.of(B, C),
+      List.of(C, D),
+      List.of(C, E)));
+  }
+
+  private static Document tree(
+    final ChaserReport report,
+    final TreeMode mode,
+    final int depthLimit)
+    throws Exception
+  {
+    return ChaserReportXHTML.buildXHTMLCore(
+      report,
+      ChaserReportXHTMLOptions.builder()
+        .setTreeMode(mode)
+        .setTreeDepthLimit(depthLimit)
+        .build());
+  }
+
+  private static List<Element> elements(
+    final Document document,
+    final String name)
+  {
+    final NodeList nodes = document.getElementsByTagName(name);
+    final List<Element> results = new ArrayList<>(nodes.getLength());
+    for (int index = 0; index < nodes.getLength(); ++index) {
+      results.add((Element) nodes.item(index));
+    }
+    return results;
+  }
+
+  private static List<Element> withClass(
+    final Document document,
+    final String name,
+    final String elementClass)
+  {
+    final List<Element> results = new ArrayList<>();
+    for (final Element element : elements(document, name)) {
+      if (elementClass.equals(element.getAttribute("class"))) {
+        results.add(element);
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Find an element by identifier. Documents built without a schema do not
+   * declare any attributes as identifiers, so this searches the elements.
+   */
+
+  private static Element byId(
+    final Document document,
+    final String id)
+  {
+    for (final Element element : elements(document, "*")) {
+      if (id.equals(element.getAttribute("id"))) {
+        return element;
+      }
+    }
+    throw new AssertionError("No element with id " + id);
+  }
+
+  /**
+   * @return The tree entries: list items that start with a link
+   */
+
+  private static List<Element> entries(
+    final Document document)
+  {
+    final List<Element> results = new ArrayList<>();
+    for (final Element item : elements(document, "li")) {
+      Node first = item.getFirstChild();
+      while (first != null && first.getNodeType() != Node.ELEMENT_NODE) {
+        first = first.getNextSibling();
+      }
+      if (first != null && "a".equals(first.getNodeName())) {
+        results.add(item);
+      }
+    }
+    return results;
+  }
+
+  private static Map<String, Integer> occurrences(
+    final Document document)
+  {
+    final Map<String, Integer> results = new HashMap<>();
+    for (final Element entry : entries(document)) {
+      final Element link = (Element) entry.getElementsByTagName("a").item(0);
+      results.merge(link.getTextContent(), Integer.valueOf(1), Integer::sum);
+    }
+    return results;
+  }
+
+  /**
+   * The full tree expands the shared dependency at every occurrence, and
+   * contains no back-references.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testFull()
+    throws Exception
+  {
+    final Document document = tree(diamond(), TreeMode.FULL, 0);
+
+    final Map<String, Integer> occurrences = occurrences(document);
+    Assert.assertEquals(Integer.valueOf(1), occurrences.get(ROOT.toTerseString()));
+    Assert.assertEquals(Integer.valueOf(2), occurrences.get(C.toTerseString()));
+    Assert.assertEquals(Integer.valueOf(2), occurrences.get(D.toTerseString()));
+    Assert.assertEquals(Integer.valueOf(2), occurrences.get(E.toTerseString()));
+    Assert.assertEquals(
+      List.of(),
+      withClass(document, "a", "chaser_tree_reference"));
+  }
+
+  /**
+   * The shared tree expands the shared dependency once, and every later
+   * occurrence links back to an expansion that precedes it. Dependencies
+   * without dependencies of their own are never referenced.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testShared()
+    throws Exception
+  {
+    final Document document = tree(diamond(), TreeMode.SHARED, 0);
+
+    final Map<String, Integer> occurrences = occurrences(document);
+    Assert.assertEquals(Integer.valueOf(2), occurrences.get(C.toTerseString()));
+    Assert.assertEquals(Integer.valueOf(1), occurrences.get(D.toTerseString()));
+    Assert.assertEquals(Integer.valueOf(1), occurrences.get(E.toTerseString()));
+
+    final List<Element> references =
+      withClass(document, "a", "chaser_tree_reference");
+    Assert.assertEquals(1, references.size());
+    Assert.assertEquals(
+      "#tree_" + C.anchorId(),
+      references.get(0).getAttribute("href"));
+    Assert.assertEquals("(see above)", references.get(0).getTextContent());
+
+    final Element target = byId(document, "tree_" + C.anchorId());
+    Assert.assertEquals("li", target.getNodeName());
+    Assert.assertTrue(
+      (target.compareDocumentPosition(references.get(0))
+        & Node.DOCUMENT_POSITION_FOLLOWING) != 0);
+  }
+
+  /**
+   * In an aggregated report, a subtree expanded under one project is
+   * referenced under the projects that follow it.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testSharedAcrossRoots()
+    throws Exception
+  {
+    final ChaserDependencyNode p1 = node("p1");
+    final ChaserDependencyNode p2 = node("p2");
+    final ChaserReport base = report(List.of(
+      List.of(p1, C),
+      List.of(p2, C),
+      List.of(C, D)));
+    final ChaserReport report =
+      ChaserReport.builder()
+        .from(base)
+        .setRoots(List.of(p1, p2))
+        .build();
+
+    final Document document = tree(report, TreeMode.SHARED, 0);
+    Assert.assertEquals(
+      Integer.valueOf(1),
+      occurrences(document).get(D.toTerseString()));
+
+    final List<Element> references =
+      withClass(document, "a", "chaser_tree_reference");
+    Assert.assertEquals(1, references.size());
+
+    final Element reference_entry = (Element) references.get(0).getParentNode();
+    final Element target = byId(document, "tree_" + C.anchorId());
+    Assert.assertTrue(
+      (target.compareDocumentPosition(reference_entry)
+        & Node.DOCUMENT_POSITION_FOLLOWING) != 0);
+  }
+
+  /**
+   * Nodes at the depth limit are not expanded, and state the number of
+   * hidden dependencies.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testDepthLimit()
+    throws Exception
+  {
+    final Document shallow = tree(diamond(), TreeMode.FULL, 2);
+    final Map<String, Integer> shallow_occurrences = occurrences(shallow);
+    Assert.assertNull(shallow_occurrences.get(C.toTerseString()));
+
+    final List<Element> shallow_truncated =
+      withClass(shallow, "span", "chaser_tree_truncated");
+    Assert.assertEquals(2, shallow_truncated.size());
+    for (final Element element : shallow_truncated) {
+      Assert.assertEquals("(1 dependency not shown)", element.getTextContent());
+    }
+
+    final Document deeper = tree(diamond(), TreeMode.FULL, 3);
+    Assert.assertNull(occurrences(deeper).get(D.toTerseString()));
+
+    final List<Element> deeper_truncated =
+      withClass(deeper, "span", "chaser_tree_truncated");
+    Assert.assertEquals(2, deeper_truncated.size());
+    for (final Element element : deeper_truncated) {
+      Assert.assertEquals("(2 dependencies not shown)", element.getTextContent());
+    }
+
+    final Document unlimited = tree(diamond(), TreeMode.FULL, 0);
+    Assert.assertEquals(
+      List.of(),
+      withClass(unlimited, "span", "chaser_tree_truncated"));
+  }
+
+  /**
+   * A node truncated by the depth limit is not treated as expanded, so a
+   * later occurrence in the shared tree is expanded rather than referenced.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testSharedDepthLimit()
+    throws Exception
+  {
+    final ChaserReport report = report(List.of(
+      List.of(ROOT, A),
+      List.of(ROOT, C),
+      List.of(A, C),
+      List.of(C, D)));
+
+    final Document document = tree(report, TreeMode.SHARED, 3);
+    Assert.assertEquals(
+      Integer.valueOf(1),
+      occurrences(document).get(D.toTerseString()));
+    Assert.assertEquals(
+      List.of(),
+      withClass(document, "a", "chaser_tree_reference"));
+    Assert.assertEquals(
+      1,
+      withClass(document, "span", "chaser_tree_truncated").size());
+  }
+}
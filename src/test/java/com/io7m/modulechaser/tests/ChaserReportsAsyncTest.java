@@ -0,0 +1,366 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.tests;
+
+import com.io7m.modulechaser.maven_plugin.ChaserAsyncDependencyResolverType;
+import com.io7m.modulechaser.maven_plugin.ChaserAsyncResolvers;
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyEdge;
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyNode;
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyResolved;
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyResolverType;
+import com.io7m.modulechaser.maven_plugin.ChaserGraphs;
+import com.io7m.modulechaser.maven_plugin.ChaserModularizationStatusType;
+import com.io7m.modulechaser.maven_plugin.ChaserReport;
+import com.io7m.modulechaser.maven_plugin.ChaserReportConfiguration;
+import com.io7m.modulechaser.maven_plugin.ChaserReports;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.shared.dependency.graph.internal.DefaultDependencyNode;
+import org.jgrapht.graph.DirectedAcyclicGraph;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+
+public final class ChaserReportsAsyncTest
+{
+  private static final int NODE_COUNT = 300;
+  private static final long TIMEOUT_MILLISECONDS = 30_000L;
+
+  private Path directory;
+  private Path jar;
+
+  /**
+   * A resolver that performs no work of its own: each resolution is left
+   * pending until the test completes it, as a resolver performing
+   * non-blocking I/O would leave it pending until a response arrived.
+   */
+
+  private static final class DeferredResolver
+    implements ChaserAsyncDependencyResolverType
+  {
+    private final Path file;
+    private final ConcurrentLinkedQueue<Pending> pending;
+    private final AtomicInteger started;
+
+    DeferredResolver(
+      final Path inFile)
+    {
+      this.file = inFile;
+      this.pending = new ConcurrentLinkedQueue<>();
+      this.started = new AtomicInteger(0);
+    }
+
+    @Override
+    public CompletionStage<ChaserDependencyResolved> resolveAsync(
+      final ChaserDependencyNode node)
+    {
+      final CompletableFuture<ChaserDependencyResolved> future =
+        new CompletableFuture<>();
+      this.pending.add(new Pending(node, future));
+      this.started.incrementAndGet();
+      return future;
+    }
+
+    int completeAll()
+    {
+      int completed = 0;
+      while (true) {
+        final Pending next = this.pending.poll();
+        if (next == null) {
+          return completed;
+        }
+        if ("a13".equals(next.node.artifact())) {
+          next.future.completeExceptionally(new IOException("Unreachable"));
+        } else {
+          next.future.complete(
+            ChaserDependencyResolved.of(next.node, this.file, "2.0.0", this.file));
+        }
+        ++completed;
+      }
+    }
+  }
+
+  private static final class Pending
+  {
+    private final ChaserDependencyNode node;
+    private final CompletableFuture<ChaserDependencyResolved> future;
+
+    Pending(
+      final ChaserDependencyNode inNode,
+      final CompletableFuture<ChaserDependencyResolved> inFuture)
+    {
+      this.node = inNode;
+      this.future = inFuture;
+    }
+  }
+
+  private static DirectedAcyclicGraph<ChaserDependencyNode, ChaserDependencyEdge> graph()
+  {
+    final List<DefaultDependencyNode> nodes = new ArrayList<>(NODE_COUNT);
+    for (int index = 0; index < NODE_COUNT; ++index) {
+      final DefaultDependencyNode parent =
+        index == 0 ? null : nodes.get((index - 1) / 8);
+      final DefaultDependencyNode node =
+        new DefaultDependencyNode(
+          parent,
+          new DefaultArtifact(
+            "com.example",
+            "a" + index,
+            "1.0.0",
+            "compile",
+            "jar",
+            null,
+            new DefaultArtifactHandler("jar")),
+          null,
+          null,
+          null);
+      node.setChildren(new ArrayList<>());
+      if (parent != null) {
+        parent.getChildren().add(node);
+      }
+      nodes.add(node);
+    }
+    return ChaserGraphs.graphOf(nodes.get(0));
+  }
+
+  private static void waitUntil(
+    final String what,
+    final BooleanSupplier condition)
+    throws InterruptedException
+  {
+    final long deadline = System.currentTimeMillis() + TIMEOUT_MILLISECONDS;
+    while (!condition.getAsBoolean()) {
+      if (System.currentTimeMillis() > deadline) {
+        throw new AssertionError("Timed out waiting for: " + what);
+      }
+      Thread.sleep(10L);
+    }
+  }
+
+  private static Thread reportThread(
+    final DeferredResolver resolver,
+    final DirectedAcyclicGraph<ChaserDependencyNode, ChaserDependencyEdge> graph,
+    final ChaserReportConfiguration configuration,
+    final AtomicReference<ChaserReport> result,
+    final AtomicReference<Throwable> failure)
+  {
+    final Thread thread = new Thread(() -> {
+      try {
+        result.set(ChaserReports.reportOfAsync(resolver, graph, configuration));
+      } catch (final Throwable e) {
+        failure.set(e);
+      }
+    });
+    thread.setDaemon(true);
+    thread.start();
+    return thread;
+  }
+
+  private static void checkSameReports(
+    final ChaserReport expected,
+    final ChaserReport received)
+  {
+    Assert.assertEquals(
+      expected.compactGraph().size(), received.compactGraph().size());
+    for (final ChaserDependencyNode node : expected.compactGraph().topologicalOrder()) {
+      final ChaserModularizationStatusType.Kind expected_kind =
+        expected.reportOf(node).statusHighest().kind();
+      final ChaserModularizationStatusType.Kind received_kind =
+        received.reportOf(node).statusHighest().kind();
+      Assert.assertEquals(node.toTerseString(), expected_kind, received_kind);
+    }
+  }
+
+  @Before
+  public void setup()
+    throws IOException
+  {
+    this.directory = Files.createTempDirectory("modulechaser-async");
+    this.jar = this.directory.resolve("automatic.jar");
+
+    final Manifest manifest = new Manifest();
+    final Attributes attributes = manifest.getMainAttributes();
+    attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    attributes.putValue("Automatic-Module-Name", "com.example.automatic");
+    try (OutputStream stream = Files.newOutputStream(this.jar);
+         JarOutputStream output = new JarOutputStream(stream, manifest)) {
+      output.putNextEntry(new ZipEntry("com/example/C.class"));
+      output.write(0);
+      output.closeEntry();
+    }
+  }
+
+  @After
+  public void tearDown()
+    throws IOException
+  {
+    Files.deleteIfExists(this.jar);
+    Files.deleteIfExists(this.directory);
+  }
+
+  /**
+   * Every resolution is started before any of them completes, although no
+   * thread is occupied by any of them, and failed resolutions are reported
+   * as unavailable.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testAllInFlight()
+    throws Exception
+  {
+    final DirectedAcyclicGraph<ChaserDependencyNode, ChaserDependencyEdge> graph =
+      graph();
+    final DeferredResolver resolver = new DeferredResolver(this.jar);
+    final AtomicReference<ChaserReport> result = new AtomicReference<>();
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    final Thread thread = reportThread(
+      resolver,
+      graph,
+      ChaserReportConfiguration.builder()
+        .setMaximumInFlight(NODE_COUNT)
+        .build(),
+      result,
+      failure);
+
+    waitUntil(
+      "all resolutions started",
+      () -> resolver.started.get() == NODE_COUNT);
+
+    Assert.assertEquals(NODE_COUNT, resolver.completeAll());
+    thread.join(TIMEOUT_MILLISECONDS);
+    Assert.assertNull(failure.get());
+
+    final ChaserReport report = result.get();
+    Assert.assertEquals(NODE_COUNT, report.reportsById().size());
+    for (final ChaserDependencyNode node : report.compactGraph().topologicalOrder()) {
+      final ChaserModularizationStatusType.Kind kind =
+        report.reportOf(node).statusHighest().kind();
+      if ("a13".equals(node.artifact())) {
+        Assert.assertEquals(ChaserModularizationStatusType.Kind.UNAVAILABLE, kind);
+      } else {
+        Assert.assertEquals(
+          ChaserModularizationStatusType.Kind.MODULARIZED_AUTOMATIC_MODULE_NAME,
+          kind);
+      }
+    }
+  }
+
+  /**
+   * No more than the configured number of resolutions are in flight at
+   * once.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testInFlightBounded()
+    throws Exception
+  {
+    final int limit = 16;
+    final DirectedAcyclicGraph<ChaserDependencyNode, ChaserDependencyEdge> graph =
+      graph();
+    final DeferredResolver resolver = new DeferredResolver(this.jar);
+    final AtomicReference<ChaserReport> result = new AtomicReference<>();
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    final Thread thread = reportThread(
+      resolver,
+      graph,
+      ChaserReportConfiguration.builder()
+        .setMaximumInFlight(limit)
+        .build(),
+      result,
+      failure);
+
+    int completed = 0;
+    while (completed < NODE_COUNT) {
+      final int expected = Math.min(limit, NODE_COUNT - completed);
+      waitUntil(
+        "resolutions started",
+        () -> resolver.pending.size() >= expected);
+      Thread.sleep(20L);
+      Assert.assertEquals(expected, resolver.pending.size());
+      completed += resolver.completeAll();
+    }
+
+    thread.join(TIMEOUT_MILLISECONDS);
+    Assert.assertNull(failure.get());
+    Assert.assertEquals(NODE_COUNT, result.get().reportsById().size());
+  }
+
+  /**
+   * A blocking resolver adapted to run on a small pool produces the same
+   * report as the blocking resolver itself.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testBlockingAdapter()
+    throws Exception
+  {
+    final DirectedAcyclicGraph<ChaserDependencyNode, ChaserDependencyEdge> graph =
+      graph();
+    final ChaserDependencyResolverType blocking = node -> {
+      if ("a13".equals(node.artifact())) {
+        throw new IOException("Unreachable");
+      }
+      return ChaserDependencyResolved.of(node, this.jar, "2.0.0", this.jar);
+    };
+
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final ChaserReport expected =
+        ChaserReports.reportOf(blocking, graph);
+      final ChaserReport received =
+        ChaserReports.reportOfAsync(
+          ChaserAsyncResolvers.ofBlocking(blocking, executor),
+          graph,
+          ChaserReportConfiguration.builder()
+            .setParallelism(2)
+            .build());
+      checkSameReports(expected, received);
+    } finally {
+      executor.shutdown();
+      executor.awaitTermination(TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS);
+    }
+  }
+}
@@ -0,0 +1,478 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.modulechaser.tests;
+
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyEdge;
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyNode;
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyResolved;
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyResolverType;
+import com.io7m.modulechaser.maven_plugin.ChaserGraphs;
+import com.io7m.modulechaser.maven_plugin.ChaserMetrics;
+import com.io7m.modulechaser.maven_plugin.ChaserReport;
+import com.io7m.modulechaser.maven_plugin.ChaserReportConfiguration;
+import com.io7m.modulechaser.maven_plugin.ChaserReportXHTML;
+import com.io7m.modulechaser.maven_plugin.ChaserReportXHTMLOptions;
+import com.io7m.modulechaser.maven_plugin.ChaserReportXHTMLOptionsType.TreeMode;
+import com.io7m.modulechaser.maven_plugin.ChaserReports;
+import com.sun.management.ThreadMXBean;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.shared.dependency.graph.DependencyNode;
+import org.apache.maven.shared.dependency.graph.internal.DefaultDependencyNode;
+import org.jgrapht.graph.DirectedAcyclicGraph;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checks that the graph, report, and XHTML stages scale linearly with the
+ * size of the dependency graph. Each stage is run over synthetic graphs of
+ * several sizes, in two shapes: trees, and graphs dense with diamonds in
+ * which the shared dependencies have dependencies of their own. The number
+ * of operations performed per dependency must not grow at all. The number
+ * of bytes allocated per dependency on the calling thread must stay within
+ * a fixed budget, and may only grow by a small factor between sizes, so
+ * that quadratic behaviour (a growth by the ratio of the sizes) is caught.
+ * Running times are not measured, so the tests are not sensitive to the
+ * speed or load of the machine.
+ */
+
+public final class ChaserScalingTest
+{
+  private static final int[] SIZES = {1_000, 10_000, 50_000};
+  private static final double ALLOCATION_GROWTH_TOLERANCE = 1.5;
+
+  /*
+   * The allocation budgets, in bytes per node, are roughly twice the
+   * allocations measured when they were set: about 1,100 bytes per node of
+   * the dependency tree when building a graph, 19,000 bytes per dependency
+   * when producing a report (dominated by opening jar files), and 1,700
+   * bytes per row of the dependency tree when writing XHTML.
+   */
+
+  private static final long GRAPH_ALLOCATION_BUDGET = 2_000L;
+  private static final long REPORT_ALLOCATION_BUDGET = 36_000L;
+  private static final long XHTML_ALLOCATION_BUDGET = 3_500L;
+
+  private Path directory;
+  private List<Path> jars;
+  private ThreadMXBean threads;
+
+  private enum Shape
+  {
+    TREE,
+    DIAMONDS
+  }
+
+  private interface StageType<T>
+  {
+    T run()
+      throws Exception;
+  }
+
+  private static final class Measured<T>
+  {
+    private final T value;
+    private final long allocated;
+
+    Measured(
+      final T inValue,
+      final long inAllocated)
+    {
+      this.value = inValue;
+      this.allocated = inAllocated;
+    }
+  }
+
+  private static final class CountingNode extends DefaultDependencyNode
+  {
+    private final AtomicLong expansions;
+
+    CountingNode(
+      final DependencyNode parent,
+      final Artifact artifact,
+      final AtomicLong inExpansions)
+    {
+      super(parent, artifact, null, null, null);
+      this.expansions = inExpansions;
+      this.setChildren(new ArrayList<>());
+    }
+
+    @Override
+    public List<DependencyNode> getChildren()
+    {
+      this.expansions.incrementAndGet();
+      return super.getChildren();
+    }
+  }
+
+  private static final class CountingResolver
+    implements ChaserDependencyResolverType
+  {
+    private final List<Path> files;
+    private final AtomicLong calls;
+
+    CountingResolver(
+      final List<Path> inFiles)
+    {
+      this.files = inFiles;
+      this.calls = new AtomicLong(0L);
+    }
+
+    @Override
+    public ChaserDependencyResolved resolve(
+      final ChaserDependencyNode node)
+    {
+      this.calls.incrementAndGet();
+      final int hash = node.artifact().hashCode() & 0x7fffffff;
+      return ChaserDependencyResolved.of(
+        node,
+        this.files.get(hash % this.files.size()),
+        "2.0.0",
+        this.files.get((hash / 7) % this.files.size()));
+    }
+  }
+
+  private static final class CountingOutputStream extends OutputStream
+  {
+    private long count;
+
+    CountingOutputStream()
+    {
+
+    }
+
+    @Override
+    public void write(final int b)
+    {
+      ++this.count;
+    }
+
+    @Override
+    public void write(
+      final byte[] b,
+      final int off,
+      final int len)
+    {
+      this.count += len;
+    }
+  }
+
+  private static ChaserSyntheticGraph graph(
+    final Shape shape,
+    final int size)
+  {
+    final ChaserSyntheticGraphParameters.Builder parameters =
+      ChaserSyntheticGraphParameters.builder()
+        .setSize(size)
+        .setSeed(0x5eedL);
+
+    switch (shape) {
+      case TREE:
+        parameters.setDiamondDensity(0.0);
+        break;
+      case DIAMONDS:
+        parameters.setDiamondDensity(1.0);
+        parameters.setSharedSubtrees(true);
+        break;
+      default:
+        throw new IllegalStateException("Unreachable code");
+    }
+    return ChaserSyntheticGraphs.generate(parameters.build());
+  }
+
+  /**
+   * Copy the given dependency tree into nodes that count the number of
+   * times that their children are requested.
+   */
+
+  private static CountingNode counting(
+    final DependencyNode node,
+    final DependencyNode parent,
+    final AtomicLong expansions)
+  {
+    final CountingNode copy =
+      new CountingNode(parent, node.getArtifact(), expansions);
+    for (final DependencyNode child : node.getChildren()) {
+      copy.getChildren().add(counting(child, copy, expansions));
+    }
+    return copy;
+  }
+
+  /**
+   * The full tree is rendered for trees. The shared tree is rendered for
+   * graphs with diamonds, as the full tree of such a graph can be
+   * exponential in its size. Either way, the dependency tree of the page
+   * has one row per edge of the graph, and one for the root.
+   */
+
+  private static ChaserReportXHTMLOptions optionsOf(
+    final Shape shape)
+  {
+    return ChaserReportXHTMLOptions.builder()
+      .setTreeMode(shape == Shape.TREE ? TreeMode.FULL : TreeMode.SHARED)
+      .build();
+  }
+
+  private static void checkAllocations(
+    final String stage,
+    final long budget,
+    final long[] units,
+    final long[] allocated)
+  {
+    final double[] per_unit = new double[SIZES.length];
+    for (int index = 0; index < SIZES.length; ++index) {
+      per_unit[index] = (double) allocated[index] / (double) units[index];
+    }
+
+    for (int index = 1; index < SIZES.length; ++index) {
+      Assert.assertTrue(
+        String.format(
+          "%s allocations per node grew %.2fx from %d to %d nodes (%.1f -> %.1f bytes/node)",
+          stage,
+          Double.valueOf(per_unit[index] / per_unit[index - 1]),
+          Integer.valueOf(SIZES[index - 1]),
+          Integer.valueOf(SIZES[index]),
+          Double.valueOf(per_unit[index - 1]),
+          Double.valueOf(per_unit[index])),
+        per_unit[index] <= per_unit[index - 1] * ALLOCATION_GROWTH_TOLERANCE);
+    }
+
+    final double largest = per_unit[SIZES.length - 1];
+    Assert.assertTrue(
+      String.format(
+        "%s allocated %.1f bytes/node at %d nodes (budget %d bytes/node)",
+        stage,
+        Double.valueOf(largest),
+        Integer.valueOf(SIZES[SIZES.length - 1]),
+        Long.valueOf(budget)),
+      largest <= (double) budget);
+  }
+
+  private static Path jar(
+    final Path file,
+    final ChaserSyntheticJarKind kind)
+    throws IOException
+  {
+    ChaserSyntheticJars.writeSmall(file, "com.example." + file.getFileName(), kind);
+    return file;
+  }
+
+  /**
+   * Run the given stage twice, and measure the bytes allocated by the
+   * calling thread during the second run. The first run warms up the
+   * stage, so that one-off costs such as class loading are not counted.
+   * Operations counted by the stage therefore cover both runs.
+   */
+
+  private <T> Measured<T> measure(
+    final StageType<T> stage)
+    throws Exception
+  {
+    final long thread = Thread.currentThread().getId();
+    stage.run();
+    final long before = this.threads.getThreadAllocatedBytes(thread);
+    final T value = stage.run();
+    final long after = this.threads.getThreadAllocatedBytes(thread);
+    return new Measured<>(value, after - before);
+  }
+
+  @Before
+  public void setup()
+    throws IOException
+  {
+    this.threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    Assume.assumeTrue(this.threads.isThreadAllocatedMemorySupported());
+    this.threads.setThreadAllocatedMemoryEnabled(true);
+
+    this.directory = Files.createTempDirectory("modulechaser-scaling");
+    this.jars = List.of(
+      jar(this.directory.resolve("automatic.jar"), ChaserSyntheticJarKind.AUTOMATIC),
+      jar(this.directory.resolve("modular.jar"), ChaserSyntheticJarKind.MODULAR),
+      jar(this.directory.resolve("plain.jar"), ChaserSyntheticJarKind.PLAIN),
+      Files.writeString(this.directory.resolve("not.jar"), "Not a jar."));
+  }
+
+  @After
+  public void tearDown()
+    throws IOException
+  {
+    if (this.jars != null) {
+      for (final Path file : this.jars) {
+        Files.deleteIfExists(file);
+      }
+      Files.deleteIfExists(this.directory);
+    }
+  }
+
+  /**
+   * Each dependency is expanded exactly once when building a graph, however
+   * many times it appears in the dependency tree, and the allocations per
+   * node of the tree do not grow with the size of the tree.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testGraphScaling()
+    throws Exception
+  {
+    for (final Shape shape : Shape.values()) {
+      final long[] units = new long[SIZES.length];
+      final long[] allocated = new long[SIZES.length];
+
+      for (int index = 0; index < SIZES.length; ++index) {
+        final ChaserSyntheticGraph synthetic = graph(shape, SIZES[index]);
+        final AtomicLong expansions = new AtomicLong(0L);
+        final DependencyNode root = counting(synthetic.root(), null, expansions);
+
+        /*
+         * Every node of the dependency tree other than the root corresponds
+         * to one edge of the graph.
+         */
+
+        final long tree_nodes = (long) synthetic.edgeCount() + 1L;
+        expansions.set(0L);
+
+        final Measured<DirectedAcyclicGraph<ChaserDependencyNode, ChaserDependencyEdge>> graph =
+          this.measure(() -> ChaserGraphs.graphOf(root));
+
+        Assert.assertEquals(synthetic.size(), graph.value.vertexSet().size());
+        Assert.assertEquals(synthetic.edgeCount(), graph.value.edgeSet().size());
+        Assert.assertEquals(2L * synthetic.size(), expansions.get());
+
+        units[index] = tree_nodes;
+        allocated[index] = graph.allocated;
+      }
+
+      checkAllocations(
+        "GRAPH_BUILD " + shape, GRAPH_ALLOCATION_BUDGET, units, allocated);
+    }
+  }
+
+  /**
+   * Each dependency is resolved exactly once and its artifacts inspected a
+   * fixed number of times when producing a report, and the allocations per
+   * dependency do not grow with the size of the graph.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testReportScaling()
+    throws Exception
+  {
+    for (final Shape shape : Shape.values()) {
+      final long[] units = new long[SIZES.length];
+      final long[] allocated = new long[SIZES.length];
+      final double[] inspections = new double[SIZES.length];
+
+      for (int index = 0; index < SIZES.length; ++index) {
+        final int size = SIZES[index];
+        final DirectedAcyclicGraph<ChaserDependencyNode, ChaserDependencyEdge> graph =
+          ChaserGraphs.graphOf(graph(shape, size).root());
+
+        final CountingResolver resolver = new CountingResolver(this.jars);
+        final ChaserMetrics metrics = ChaserMetrics.create();
+        final ChaserReportConfiguration configuration =
+          ChaserReportConfiguration.builder()
+            .setMetrics(metrics)
+            .build();
+
+        final Measured<ChaserReport> report =
+          this.measure(() -> ChaserReports.reportOf(resolver, graph, configuration));
+
+        Assert.assertEquals(size, report.value.reportsById().size());
+        Assert.assertEquals(2L * size, resolver.calls.get());
+        inspections[index] =
+          (double) metrics.operationCount(ChaserMetrics.Operation.JAR_INSPECTION)
+            / (double) size;
+
+        units[index] = size;
+        allocated[index] = report.allocated;
+      }
+
+      Assert.assertEquals(inspections[0], inspections[1], 0.1);
+      Assert.assertEquals(inspections[1], inspections[2], 0.1);
+      checkAllocations(
+        "REPORT " + shape, REPORT_ALLOCATION_BUDGET, units, allocated);
+    }
+  }
+
+  /**
+   * The size of the XHTML page per row of the dependency tree does not grow
+   * with the size of the report, and neither do the allocations made while
+   * writing it.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testXHTMLScaling()
+    throws Exception
+  {
+    for (final Shape shape : Shape.values()) {
+      final long[] units = new long[SIZES.length];
+      final long[] allocated = new long[SIZES.length];
+      final double[] bytes = new double[SIZES.length];
+      final ChaserReportXHTMLOptions options = optionsOf(shape);
+
+      for (int index = 0; index < SIZES.length; ++index) {
+        final ChaserSyntheticGraph synthetic = graph(shape, SIZES[index]);
+        final ChaserReport report =
+          ChaserReports.reportOf(
+            new CountingResolver(this.jars),
+            ChaserGraphs.graphOf(synthetic.root()));
+
+        final long rows = (long) synthetic.edgeCount() + 1L;
+        final Measured<CountingOutputStream> output =
+          this.measure(() -> {
+            final CountingOutputStream stream = new CountingOutputStream();
+            ChaserReportXHTML.writeXHTMLPage(report, options, stream);
+            return stream;
+          });
+
+        bytes[index] = (double) output.value.count / (double) rows;
+        units[index] = rows;
+        allocated[index] = output.allocated;
+      }
+
+      for (int index = 1; index < SIZES.length; ++index) {
+        Assert.assertTrue(
+          String.format(
+            "%s XHTML bytes per row grew from %.1f to %.1f",
+            shape,
+            Double.valueOf(bytes[index - 1]),
+            Double.valueOf(bytes[index])),
+          bytes[index] <= bytes[index - 1] * 1.1);
+      }
+      checkAllocations(
+        "XHTML " + shape, XHTML_ALLOCATION_BUDGET, units, allocated);
+    }
+  }
+}
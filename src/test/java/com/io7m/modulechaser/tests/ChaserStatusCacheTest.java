@@ -0,0 +1,341 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.modulechaser.tests;
+
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyEdge;
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyNode;
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyResolved;
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyResolverType;
+import com.io7m.modulechaser.maven_plugin.ChaserMetrics;
+import com.io7m.modulechaser.maven_plugin.ChaserModularizationStatusModularizedAutomaticModuleName;
+import com.io7m.modulechaser.maven_plugin.ChaserModularizationStatusModularizedFully;
+import com.io7m.modulechaser.maven_plugin.ChaserModularizationStatusNotModularized;
+import com.io7m.modulechaser.maven_plugin.ChaserModularizationStatusType;
+import com.io7m.modulechaser.maven_plugin.ChaserModularizationStatusUnavailable;
+import com.io7m.modulechaser.maven_plugin.ChaserReport;
+import com.io7m.modulechaser.maven_plugin.ChaserReportConfiguration;
+import com.io7m.modulechaser.maven_plugin.ChaserReportDependency;
+import com.io7m.modulechaser.maven_plugin.ChaserReports;
+import com.io7m.modulechaser.maven_plugin.ChaserStatusCache;
+import org.jgrapht.graph.DirectedAcyclicGraph;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public final class ChaserStatusCacheTest
+{
+  private Path directory;
+  private Path cacheDirectory;
+
+  private static ChaserDependencyNode node(
+    final String artifact,
+    final String version)
+  {
+    return ChaserDependencyNode.of(
+      "com.example",
+      artifact,
+      version,
+      Optional.empty(),
+      "jar",
+      "compile");
+  }
+
+  private static void deleteRecursively(
+    final Path path)
+    throws IOException
+  {
+    try (Stream<Path> paths = Files.walk(path)) {
+      for (final Path file : paths.sorted(Comparator.reverseOrder())
+        .collect(Collectors.toList())) {
+        Files.deleteIfExists(file);
+      }
+    }
+  }
+
+  /**
+   * Overwrite the given file with different content of the same size.
+   */
+
+  private static void corrupt(
+    final Path file)
+    throws IOException
+  {
+    final byte[] data = Files.readAllBytes(file);
+    data[data.length / 2] = (byte) (data[data.length / 2] ^ 0xff);
+    Files.write(file, data);
+  }
+
+  private Path jar(
+    final String name,
+    final ChaserSyntheticJarKind kind)
+    throws IOException
+  {
+    final Path file = this.directory.resolve(name + ".jar");
+    ChaserSyntheticJars.writeSmall(file, "com.example." + name, kind);
+    return file;
+  }
+
+  @Before
+  public void setup()
+    throws IOException
+  {
+    this.directory = Files.createTempDirectory("modulechaser-status");
+    this.cacheDirectory = this.directory.resolve("cache");
+  }
+
+  @After
+  public void tearDown()
+    throws IOException
+  {
+    deleteRecursively(this.directory);
+  }
+
+  /**
+   * A saved status is found again, with the version of the query, after the
+   * cache is reopened.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testRoundTrip()
+    throws Exception
+  {
+    final Path file = this.jar("a", ChaserSyntheticJarKind.MODULAR);
+    final ChaserDependencyNode node = node("a", "1.0.0");
+
+    final ChaserStatusCache cache = ChaserStatusCache.open(this.cacheDirectory);
+    cache.put(
+      node,
+      file,
+      ChaserModularizationStatusModularizedFully.of("com.example.a", "1.0.0"));
+    cache.save();
+
+    final ChaserStatusCache reopened =
+      ChaserStatusCache.open(this.cacheDirectory);
+    Assert.assertEquals(1, reopened.size());
+    Assert.assertEquals(
+      Optional.of(
+        ChaserModularizationStatusModularizedFully.of("com.example.a", "1.0.0")),
+      reopened.find(node, file));
+    Assert.assertEquals(
+      Optional.of(
+        ChaserModularizationStatusModularizedFully.of("com.example.a", "1.0.0")),
+      reopened.findRelease(node));
+    Assert.assertEquals(
+      Optional.empty(),
+      reopened.find(node("b", "1.0.0"), file));
+  }
+
+  /**
+   * A release entry is invalidated by a change in the size of the file, but
+   * the contents of a release are not checksummed.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testReleaseSize()
+    throws Exception
+  {
+    final Path file = this.jar("a", ChaserSyntheticJarKind.AUTOMATIC);
+    final ChaserDependencyNode node = node("a", "1.0.0");
+    final ChaserModularizationStatusType status =
+      ChaserModularizationStatusModularizedAutomaticModuleName.of(
+        "com.example.a", "1.0.0");
+
+    final ChaserStatusCache cache = ChaserStatusCache.open(this.cacheDirectory);
+    cache.put(node, file, status);
+
+    corrupt(file);
+    Assert.assertEquals(Optional.of(status), cache.find(node, file));
+
+    Files.write(file, new byte[]{0x50, 0x4b}, StandardOpenOption.APPEND);
+    Assert.assertEquals(Optional.empty(), cache.find(node, file));
+
+    Files.delete(file);
+    Assert.assertEquals(Optional.empty(), cache.find(node, file));
+  }
+
+  /**
+   * A snapshot entry is invalidated by any change to the contents of the
+   * file, even one that preserves its size, and is valid again if the
+   * original contents are restored. Snapshots are never found without
+   * consulting the file.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testSnapshotChecksum()
+    throws Exception
+  {
+    final Path file = this.jar("a", ChaserSyntheticJarKind.PLAIN);
+    final byte[] original = Files.readAllBytes(file);
+    final ChaserDependencyNode node = node("a", "1.0.0-SNAPSHOT");
+    final ChaserModularizationStatusType status =
+      ChaserModularizationStatusNotModularized.of("1.0.0-SNAPSHOT");
+
+    final ChaserStatusCache cache = ChaserStatusCache.open(this.cacheDirectory);
+    cache.put(node, file, status);
+    Assert.assertEquals(Optional.of(status), cache.find(node, file));
+    Assert.assertEquals(Optional.empty(), cache.findRelease(node));
+
+    corrupt(file);
+    Assert.assertEquals(original.length, Files.size(file));
+    Assert.assertEquals(Optional.empty(), cache.find(node, file));
+
+    Files.write(file, original);
+    Assert.assertEquals(Optional.of(status), cache.find(node, file));
+  }
+
+  /**
+   * Unavailable artifacts are not recorded, and malformed entries in the
+   * index are ignored.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUnrecordedAndMalformed()
+    throws Exception
+  {
+    final Path file = this.jar("a", ChaserSyntheticJarKind.PLAIN);
+
+    final ChaserStatusCache cache = ChaserStatusCache.open(this.cacheDirectory);
+    cache.put(
+      node("a", "1.0.0"),
+      file,
+      ChaserModularizationStatusUnavailable.of(Optional.empty()));
+    Assert.assertEquals(0, cache.size());
+
+    Files.createDirectories(this.cacheDirectory);
+    Files.writeString(
+      this.cacheDirectory.resolve("status-cache.properties"),
+      String.join(
+        "\n",
+        "com.example\\:a\\:1.0.0\\:\\:jar=NOT_MODULARIZED " + Files.size(file) + " -",
+        "com.example\\:b\\:1.0.0\\:\\:jar=UNAVAILABLE 10 -",
+        "com.example\\:c\\:1.0.0\\:\\:jar=NONSENSE 10 -",
+        "com.example\\:d\\:1.0.0\\:\\:jar=NOT_JAR ten -",
+        "com.example\\:e\\:1.0.0\\:\\:jar=NOT_JAR",
+        ""),
+      StandardCharsets.ISO_8859_1);
+
+    final ChaserStatusCache reopened =
+      ChaserStatusCache.open(this.cacheDirectory);
+    Assert.assertEquals(1, reopened.size());
+    Assert.assertEquals(
+      Optional.of(ChaserModularizationStatusNotModularized.of("1.0.0")),
+      reopened.find(node("a", "1.0.0"), file));
+  }
+
+  /**
+   * A report produced with a populated cache is identical to a report
+   * produced without a cache, and examines no jar files.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testReportsIdentical()
+    throws Exception
+  {
+    final Map<String, Path> files = Map.of(
+      "root", this.jar("root", ChaserSyntheticJarKind.PLAIN),
+      "modular", this.jar("modular", ChaserSyntheticJarKind.MODULAR),
+      "automatic", this.jar("automatic", ChaserSyntheticJarKind.AUTOMATIC),
+      "plain", this.jar("plain", ChaserSyntheticJarKind.PLAIN),
+      "text", Files.writeString(this.directory.resolve("text.jar"), "Not a jar."));
+
+    final DirectedAcyclicGraph<ChaserDependencyNode, ChaserDependencyEdge> graph =
+      new DirectedAcyclicGraph<>(ChaserDependencyEdge.class);
+    final ChaserDependencyNode root = node("root", "1.0.0");
+    graph.addVertex(root);
+    for (final String name : List.of("modular", "automatic", "plain", "text")) {
+      final ChaserDependencyNode child = node(name, "1.0.0");
+      graph.addVertex(child);
+      graph.addEdge(root, child, ChaserDependencyEdge.of(root, child));
+    }
+
+    final ChaserDependencyResolverType resolver = node -> {
+      final Path file = files.get(node.artifact());
+      return ChaserDependencyResolved.of(node, file, node.version(), file);
+    };
+
+    final ChaserReport expected = ChaserReports.reportOf(resolver, graph);
+
+    final ChaserStatusCache cache = ChaserStatusCache.open(this.cacheDirectory);
+    final ChaserMetrics metrics_first = ChaserMetrics.create();
+    final ChaserReport first =
+      ChaserReports.reportOf(
+        resolver,
+        graph,
+        ChaserReportConfiguration.builder()
+          .setStatusCache(cache)
+          .setMetrics(metrics_first)
+          .build());
+    cache.save();
+
+    final ChaserMetrics metrics_second = ChaserMetrics.create();
+    final ChaserReport second =
+      ChaserReports.reportOf(
+        resolver,
+        graph,
+        ChaserReportConfiguration.builder()
+          .setStatusCache(ChaserStatusCache.open(this.cacheDirectory))
+          .setMetrics(metrics_second)
+          .build());
+
+    for (final ChaserDependencyNode node : graph.vertexSet()) {
+      final ChaserReportDependency report = expected.reportOf(node);
+      Assert.assertEquals(report, first.reportOf(node));
+      Assert.assertEquals(report, second.reportOf(node));
+    }
+
+    /*
+     * Each dependency is its own highest version, so the first run inspects
+     * each jar once and finds the second lookup in the cache.
+     */
+
+    Assert.assertEquals(
+      (long) graph.vertexSet().size(),
+      metrics_first.counter(ChaserMetrics.Counter.STATUS_CACHE_MISSES));
+    Assert.assertEquals(
+      metrics_first.counter(ChaserMetrics.Counter.STATUS_CACHE_HITS)
+        + metrics_first.counter(ChaserMetrics.Counter.STATUS_CACHE_MISSES),
+      metrics_second.counter(ChaserMetrics.Counter.STATUS_CACHE_HITS));
+    Assert.assertEquals(
+      0L, metrics_second.counter(ChaserMetrics.Counter.STATUS_CACHE_MISSES));
+    Assert.assertEquals(
+      0L, metrics_second.operationCount(ChaserMetrics.Operation.JAR_INSPECTION));
+  }
+}
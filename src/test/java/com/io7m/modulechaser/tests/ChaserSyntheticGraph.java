@@ -0,0 +1,190 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.tests;
+
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyNode;
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyResolved;
+import com.io7m.modulechaser.maven_plugin.ChaserDependencyResolverType;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.shared.dependency.graph.DependencyNode;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A synthetic dependency graph, presented as a Maven dependency tree, along
+ * with the kind of jar file that belongs to each dependency.
+ *
+ * @see ChaserSyntheticGraphs#generate(ChaserSyntheticGraphParameters)
+ */
+
+public final class ChaserSyntheticGraph
+{
+  private final ChaserSyntheticGraphParameters parameters;
+  private final DependencyNode root;
+  private final List<Artifact> artifacts;
+  private final List<ChaserSyntheticJarKind> kinds;
+  private final int edges;
+
+  ChaserSyntheticGraph(
+    final ChaserSyntheticGraphParameters inParameters,
+    final DependencyNode inRoot,
+    final List<Artifact> inArtifacts,
+    final List<ChaserSyntheticJarKind> inKinds,
+    final int inEdges)
+  {
+    this.parameters = Objects.requireNonNull(inParameters, "parameters");
+    this.root = Objects.requireNonNull(inRoot, "root");
+    this.artifacts = List.copyOf(inArtifacts);
+    this.kinds = List.copyOf(inKinds);
+    this.edges = inEdges;
+  }
+
+  /**
+   * @return The parameters used to generate the graph
+   */
+
+  public ChaserSyntheticGraphParameters parameters()
+  {
+    return this.parameters;
+  }
+
+  /**
+   * @return The root of the dependency tree
+   */
+
+  public DependencyNode root()
+  {
+    return this.root;
+  }
+
+  /**
+   * @return The number of distinct dependencies
+   */
+
+  public int size()
+  {
+    return this.artifacts.size();
+  }
+
+  /**
+   * @return The number of distinct edges in the dependency graph
+   */
+
+  public int edgeCount()
+  {
+    return this.edges;
+  }
+
+  /**
+   * @param index The dependency index
+   *
+   * @return The kind of jar file for the dependency
+   */
+
+  public ChaserSyntheticJarKind kindOf(
+    final int index)
+  {
+    return this.kinds.get(index);
+  }
+
+  /**
+   * Write a jar file for every dependency into the given directory.
+   *
+   * @param directory The output directory
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public void writeJars(
+    final Path directory)
+    throws IOException
+  {
+    Objects.requireNonNull(directory, "directory");
+
+    Files.createDirectories(directory);
+    for (int index = 0; index < this.artifacts.size(); ++index) {
+      final Artifact artifact = this.artifacts.get(index);
+      ChaserSyntheticJars.writeSmall(
+        directory.resolve(fileName(artifact.getArtifactId(), artifact.getVersion())),
+        ChaserSyntheticGraphs.moduleNameOf(index),
+        this.kinds.get(index));
+    }
+  }
+
+  /**
+   * Delete the jar files written by {@link #writeJars(Path)}.
+   *
+   * @param directory The output directory
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public void deleteJars(
+    final Path directory)
+    throws IOException
+  {
+    Objects.requireNonNull(directory, "directory");
+
+    for (final Artifact artifact : this.artifacts) {
+      Files.deleteIfExists(
+        directory.resolve(fileName(artifact.getArtifactId(), artifact.getVersion())));
+    }
+  }
+
+  /**
+   * Construct a resolver that resolves every dependency to the jar file
+   * written for it by {@link #writeJars(Path)}, without performing any
+   * other I/O. The current version of each dependency is treated as the
+   * highest available version.
+   *
+   * @param directory The directory containing the jar files
+   *
+   * @return A resolver
+   */
+
+  public ChaserDependencyResolverType resolver(
+    final Path directory)
+  {
+    Objects.requireNonNull(directory, "directory");
+
+    return node -> resolve(directory, node);
+  }
+
+  private static ChaserDependencyResolved resolve(
+    final Path directory,
+    final ChaserDependencyNode node)
+  {
+    final Path file = directory.resolve(fileName(node.artifact(), node.version()));
+    return ChaserDependencyResolved.of(node, file, node.version(), file);
+  }
+
+  private static String fileName(
+    final String artifact,
+    final String version)
+  {
+    return new StringBuilder(32)
+      .append(artifact)
+      .append('-')
+      .append(version)
+      .append(".jar")
+      .toString();
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.tests;
+
+import com.io7m.modulechaser.maven_plugin.ChaserImmutableStyleType;
+import org.immutables.value.Value;
+
+/**
+ * Parameters for generating synthetic dependency graphs.
+ */
+
+@ChaserImmutableStyleType
+@Value.Immutable
+public interface ChaserSyntheticGraphParametersType
+{
+  /**
+   * @return The number of distinct dependencies, including the root
+   */
+
+  int size();
+
+  /**
+   * @return The number of direct children of each non-leaf dependency in
+   * the spanning tree of the graph
+   */
+
+  @Value.Default
+  default int fanOut()
+  {
+    return 4;
+  }
+
+  /**
+   * The probability, for each of the {@link #fanOut()} slots of each
+   * non-leaf dependency, that the dependency gains an additional dependency
+   * on something already present elsewhere in the graph. A density of
+   * {@code 0.0} produces a tree.
+   *
+   * @return The diamond density in the range {@code [0.0, 1.0]}
+   */
+
+  @Value.Default
+  default double diamondDensity()
+  {
+    return 0.5;
+  }
+
+  /**
+   * If {@code false}, additional dependencies only ever refer to leaf
+   * dependencies (as is typical of shared utility libraries) and so the
+   * number of paths through the graph stays linear in its size. If
+   * {@code true}, additional dependencies may refer to arbitrary subtrees
+   * and the number of paths may grow exponentially.
+   *
+   * @return {@code true} if whole subtrees may be shared
+   */
+
+  @Value.Default
+  default boolean sharedSubtrees()
+  {
+    return false;
+  }
+
+  /**
+   * @return The relative weight of modular jar files
+   */
+
+  @Value.Default
+  default int weightModular()
+  {
+    return 1;
+  }
+
+  /**
+   * @return The relative weight of jar files with automatic module names
+   */
+
+  @Value.Default
+  default int weightAutomatic()
+  {
+    return 1;
+  }
+
+  /**
+   * @return The relative weight of jar files without module information
+   */
+
+  @Value.Default
+  default int weightPlain()
+  {
+    return 1;
+  }
+
+  /**
+   * @return The seed for the random number generator
+   */
+
+  @Value.Default
+  default long seed()
+  {
+    return 0L;
+  }
+
+  /**
+   * Check preconditions for the type.
+   */
+
+  @Value.Check
+  default void checkPreconditions()
+  {
+    final int weights =
+      this.weightModular() + this.weightAutomatic() + this.weightPlain();
+
+    final boolean shape_valid =
+      this.size() >= 1 && this.fanOut() >= 1;
+    final boolean density_valid =
+      this.diamondDensity() >= 0.0 && this.diamondDensity() <= 1.0;
+    final int weight_min =
+      Math.min(this.weightModular(),
+               Math.min(this.weightAutomatic(), this.weightPlain()));
+    final boolean weights_valid =
+      weight_min >= 0 && weights > 0;
+
+    if (!(shape_valid && density_valid && weights_valid)) {
+      throw new IllegalArgumentException(
+        new StringBuilder(128)
+          .append("Unusable graph parameters: size ")
+          .append(this.size())
+          .append(", fan-out ")
+          .append(this.fanOut())
+          .append(", diamond density ")
+          .append(this.diamondDensity())
+          .append(", weights ")
+          .append(this.weightModular())
+          .append('/')
+          .append(this.weightAutomatic())
+          .append('/')
+          .append(this.weightPlain())
+          .toString());
+    }
+  }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.tests;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.ArtifactHandler;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.shared.dependency.graph.DependencyNode;
+import org.apache.maven.shared.dependency.graph.internal.DefaultDependencyNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * Functions to generate synthetic dependency graphs of arbitrary size.
+ */
+
+public final class ChaserSyntheticGraphs
+{
+  private static final ArtifactHandler HANDLER =
+    new DefaultArtifactHandler("jar");
+
+  private static final int TARGET_ATTEMPTS = 8;
+
+  private ChaserSyntheticGraphs()
+  {
+
+  }
+
+  /**
+   * @param index The dependency index
+   *
+   * @return The module name used for the dependency's jar file
+   */
+
+  public static String moduleNameOf(
+    final int index)
+  {
+    return "com.io7m.synthetic.a" + index;
+  }
+
+  /**
+   * Generate a synthetic dependency graph.
+   *
+   * The graph is built on a spanning tree in which dependency {@code i > 0}
+   * is a child of dependency {@code (i - 1) / fanOut}. Additional "diamond"
+   * dependencies are then added from each non-leaf dependency to
+   * dependencies that appear earlier in a depth-first traversal of the
+   * spanning tree and that are not ancestors of it; this guarantees that
+   * the graph is acyclic, and that the first occurrence of each dependency
+   * in the resulting Maven dependency tree is the one that carries its
+   * children. Later occurrences are leaves, as they are in the verbose
+   * dependency trees that Maven produces.
+   *
+   * @param parameters The parameters
+   *
+   * @return A synthetic graph
+   */
+
+  public static ChaserSyntheticGraph generate(
+    final ChaserSyntheticGraphParameters parameters)
+  {
+    Objects.requireNonNull(parameters, "parameters");
+
+    final int size = parameters.size();
+    final int fan_out = parameters.fanOut();
+    final Random random = new Random(parameters.seed());
+
+    final int[] preorder = new int[size];
+    final int[] position = new int[size];
+    final int[] subtree = new int[size];
+    traverse(size, fan_out, preorder, position, subtree);
+
+    final List<Artifact> artifacts = new ArrayList<>(size);
+    final List<ChaserSyntheticJarKind> kinds = new ArrayList<>(size);
+    for (int index = 0; index < size; ++index) {
+      artifacts.add(artifactOf(index));
+      kinds.add(kindOf(parameters, random));
+    }
+
+    final List<List<Integer>> extras =
+      extrasOf(parameters, random, preorder, position, subtree);
+    int edges = size - 1;
+    for (final List<Integer> targets : extras) {
+      edges += targets.size();
+    }
+
+    final List<DefaultDependencyNode> nodes =
+      nodesOf(size, fan_out, artifacts, extras);
+
+    return new ChaserSyntheticGraph(
+      parameters, nodes.get(0), artifacts, kinds, edges);
+  }
+
+  /**
+   * Choose the additional (diamond-forming) dependencies of each
+   * non-leaf dependency.
+   */
+
+  private static List<List<Integer>> extrasOf(
+    final ChaserSyntheticGraphParameters parameters,
+    final Random random,
+    final int[] preorder,
+    final int[] position,
+    final int[] subtree)
+  {
+    final int size = parameters.size();
+    final int fan_out = parameters.fanOut();
+    final List<List<Integer>> extras = new ArrayList<>(size);
+    for (int index = 0; index < size; ++index) {
+      final List<Integer> targets = new ArrayList<>(0);
+      if (!isLeaf(index, size, fan_out)) {
+        for (int slot = 0; slot < fan_out; ++slot) {
+          if (random.nextDouble() < parameters.diamondDensity()) {
+            final int target =
+              pickTarget(
+                parameters, random, index, preorder, position, subtree, targets);
+            if (target >= 0) {
+              targets.add(Integer.valueOf(target));
+            }
+          }
+        }
+      }
+      extras.add(targets);
+    }
+    return extras;
+  }
+
+  private static List<DefaultDependencyNode> nodesOf(
+    final int size,
+    final int fanOut,
+    final List<Artifact> artifacts,
+    final List<List<Integer>> extras)
+  {
+    final List<DefaultDependencyNode> nodes = new ArrayList<>(size);
+    for (int index = 0; index < size; ++index) {
+      final DefaultDependencyNode parent =
+        index == 0 ? null : nodes.get((index - 1) / fanOut);
+      nodes.add(
+        new DefaultDependencyNode(parent, artifacts.get(index), null, null, null));
+    }
+
+    for (int index = 0; index < size; ++index) {
+      final DefaultDependencyNode node = nodes.get(index);
+      final List<DependencyNode> children = new ArrayList<>(fanOut);
+      final long first = (long) index * fanOut + 1L;
+      for (long child = first; child < first + fanOut && child < size; ++child) {
+        children.add(nodes.get((int) child));
+      }
+      for (final Integer target : extras.get(index)) {
+        final DefaultDependencyNode duplicate =
+          new DefaultDependencyNode(
+            node, artifacts.get(target.intValue()), null, null, null);
+        duplicate.setChildren(List.of());
+        children.add(duplicate);
+      }
+      node.setChildren(children);
+    }
+    return nodes;
+  }
+
+  private static boolean isLeaf(
+    final int index,
+    final int size,
+    final int fanOut)
+  {
+    return (long) index * fanOut + 1L >= size;
+  }
+
+  /**
+   * Compute the depth-first preorder of the spanning tree, the position of
+   * each dependency in that order, and the size of each subtree.
+   */
+
+  private static void traverse(
+    final int size,
+    final int fanOut,
+    final int[] preorder,
+    final int[] position,
+    final int[] subtree)
+  {
+    final ArrayDeque<Integer> stack = new ArrayDeque<>();
+    stack.push(Integer.valueOf(0));
+
+    int next = 0;
+    while (!stack.isEmpty()) {
+      final int index = stack.pop().intValue();
+      preorder[next] = index;
+      position[index] = next;
+      ++next;
+
+      final long first = (long) index * fanOut + 1L;
+      final long last = Math.min(first + fanOut, size) - 1L;
+      for (long child = last; child >= first; --child) {
+        stack.push(Integer.valueOf((int) child));
+      }
+    }
+
+    for (int index = size - 1; index >= 0; --index) {
+      subtree[index] = 1;
+      final long first = (long) index * fanOut + 1L;
+      for (long child = first; child < first + fanOut && child < size; ++child) {
+        subtree[index] += subtree[(int) child];
+      }
+    }
+  }
+
+  private static int pickTarget(
+    final ChaserSyntheticGraphParameters parameters,
+    final Random random,
+    final int index,
+    final int[] preorder,
+    final int[] position,
+    final int[] subtree,
+    final List<Integer> existing)
+  {
+    final int size = parameters.size();
+    final int limit = position[index];
+    if (limit == 0) {
+      return -1;
+    }
+
+    for (int attempt = 0; attempt < TARGET_ATTEMPTS; ++attempt) {
+      final int target = preorder[random.nextInt(limit)];
+      final int target_position = position[target];
+
+      final boolean ancestor =
+        target_position + subtree[target] > limit;
+      final boolean leaf =
+        isLeaf(target, size, parameters.fanOut());
+      final boolean acceptable =
+        !ancestor
+          && (parameters.sharedSubtrees() || leaf)
+          && !existing.contains(Integer.valueOf(target));
+
+      if (acceptable) {
+        return target;
+      }
+    }
+    return -1;
+  }
+
+  private static ChaserSyntheticJarKind kindOf(
+    final ChaserSyntheticGraphParameters parameters,
+    final Random random)
+  {
+    final int modular = parameters.weightModular();
+    final int automatic = parameters.weightAutomatic();
+    final int plain = parameters.weightPlain();
+
+    final int choice = random.nextInt(modular + automatic + plain);
+    if (choice < modular) {
+      return ChaserSyntheticJarKind.MODULAR;
+    }
+    if (choice < modular + automatic) {
+      return ChaserSyntheticJarKind.AUTOMATIC;
+    }
+    return ChaserSyntheticJarKind.PLAIN;
+  }
+
+  private static Artifact artifactOf(
+    final int index)
+  {
+    return new DefaultArtifact(
+      "com.io7m.synthetic.g" + index % 101,
+      "a" + index,
+      "1.0." + index % 10,
+      "compile",
+      "jar",
+      null,
+      HANDLER);
+  }
+}
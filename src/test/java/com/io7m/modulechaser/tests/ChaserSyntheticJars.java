@@ -0,0 +1,210 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.modulechaser.tests;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Functions to write small jar files for synthetic dependencies.
+ */
+
+public final class ChaserSyntheticJars
+{
+  private ChaserSyntheticJars()
+  {
+
+  }
+
+  /**
+   * Write a small jar file of the given kind for a synthetic dependency.
+   *
+   * @param file The output file
+   * @param name The module name
+   * @param kind The kind of jar file
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static void writeSmall(
+    final Path file,
+    final String name,
+    final ChaserSyntheticJarKind kind)
+    throws IOException
+  {
+    Objects.requireNonNull(file, "file");
+    Objects.requireNonNull(name, "name");
+    Objects.requireNonNull(kind, "kind");
+
+    final Manifest manifest = new Manifest();
+    final Attributes attributes = manifest.getMainAttributes();
+    attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    if (kind == ChaserSyntheticJarKind.AUTOMATIC) {
+      attributes.putValue("Automatic-Module-Name", name);
+    }
+
+    try (JarOutputStream output = open(file, manifest)) {
+      if (kind == ChaserSyntheticJarKind.MODULAR) {
+        entry(output, "module-info.class", moduleInfo(name));
+      }
+      classes(output, name, 4);
+    }
+  }
+
+  /**
+   * Produce the bytes of a minimal {@code module-info.class} file for a
+   * module with the given name. The module requires only {@code java.base}.
+   *
+   * @param name The module name
+   *
+   * @return The class file bytes
+   */
+
+  public static byte[] moduleInfo(
+    final String name)
+  {
+    Objects.requireNonNull(name, "name");
+
+    try {
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+      final DataOutputStream data = new DataOutputStream(bytes);
+
+      data.writeInt(0xCAFEBABE);
+      data.writeShort(0);
+      data.writeShort(53);
+
+      /*
+       * 1: Utf8 "module-info"
+       * 2: Class #1
+       * 3: Utf8 "Module"
+       * 4: Utf8 name
+       * 5: Module #4
+       * 6: Utf8 "java.base"
+       * 7: Module #6
+       */
+
+      data.writeShort(8);
+      data.writeByte(1);
+      data.writeUTF("module-info");
+      data.writeByte(7);
+      data.writeShort(1);
+      data.writeByte(1);
+      data.writeUTF("Module");
+      data.writeByte(1);
+      data.writeUTF(name);
+      data.writeByte(19);
+      data.writeShort(4);
+      data.writeByte(1);
+      data.writeUTF("java.base");
+      data.writeByte(19);
+      data.writeShort(6);
+
+      data.writeShort(0x8000);
+      data.writeShort(2);
+      data.writeShort(0);
+      data.writeShort(0);
+      data.writeShort(0);
+      data.writeShort(0);
+
+      data.writeShort(1);
+      data.writeShort(3);
+      data.writeInt(22);
+      data.writeShort(5);
+      data.writeShort(0);
+      data.writeShort(0);
+      data.writeShort(1);
+      data.writeShort(7);
+      data.writeShort(0x8000);
+      data.writeShort(0);
+      data.writeShort(0);
+      data.writeShort(0);
+      data.writeShort(0);
+      data.writeShort(0);
+      data.flush();
+      return bytes.toByteArray();
+    } catch (final IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static JarOutputStream open(
+    final Path file,
+    final Manifest manifest)
+    throws IOException
+  {
+    final OutputStream stream = Files.newOutputStream(file);
+    try {
+      return new JarOutputStream(stream, manifest);
+    } catch (final IOException e) {
+      stream.close();
+      throw e;
+    }
+  }
+
+  private static void classes(
+    final JarOutputStream output,
+    final String name,
+    final int count)
+    throws IOException
+  {
+    for (int index = 0; index < count; ++index) {
+      entry(output, classPath(name, index), classBytes(index));
+    }
+  }
+
+  private static String classPath(
+    final String name,
+    final int index)
+  {
+    return new StringBuilder(64)
+      .append(name.replace('.', '/'))
+      .append("/p")
+      .append(index / 100)
+      .append("/C")
+      .append(index)
+      .append(".class")
+      .toString();
+  }
+
+  private static byte[] classBytes(
+    final int index)
+  {
+    return ("class " + index).getBytes(UTF_8);
+  }
+
+  private static void entry(
+    final JarOutputStream output,
+    final String name,
+    final byte[] data)
+    throws IOException
+  {
+    output.putNextEntry(new JarEntry(name));
+    output.write(data);
+    output.closeEntry();
+  }
+}
@@ -0,0 +1,343 @@
+/*
+ * Copyright © 2020 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.modulechaser.tests;
+
+import com.io7m.modulechaser.maven_plugin.ChaserVersionCache;
+import org.apache.maven.artifact.metadata.ArtifactMetadataRetrievalException;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.repository.MavenArtifactRepository;
+import org.apache.maven.artifact.versioning.ArtifactVersion;
+import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public final class ChaserVersionCacheTest
+{
+  private static final Instant TIME_ZERO =
+    Instant.parse("2020-01-01T00:00:00Z");
+
+  private static final List<ArtifactVersion> VERSIONS =
+    List.of(
+      new DefaultArtifactVersion("1.0.0"),
+      new DefaultArtifactVersion("1.1.0"),
+      new DefaultArtifactVersion("2.0.0"));
+
+  private Path directory;
+  private AtomicInteger calls;
+
+  private static ArtifactRepository repository(
+    final String id)
+  {
+    final MavenArtifactRepository repository = new MavenArtifactRepository();
+    repository.setId(id);
+    return repository;
+  }
+
+  private static Clock clockAt(
+    final Duration offset)
+  {
+    return Clock.fixed(TIME_ZERO.plus(offset), ZoneOffset.UTC);
+  }
+
+  private static List<String> namesOf(
+    final List<ArtifactVersion> versions)
+  {
+    return versions.stream()
+      .map(ArtifactVersion::toString)
+      .collect(Collectors.toList());
+  }
+
+  private static void deleteRecursively(
+    final Path path)
+    throws IOException
+  {
+    try (Stream<Path> paths = Files.walk(path)) {
+      for (final Path file : paths.sorted(Comparator.reverseOrder())
+        .collect(Collectors.toList())) {
+        Files.deleteIfExists(file);
+      }
+    }
+  }
+
+  private ChaserVersionCache open(
+    final Duration offset,
+    final Duration ttl,
+    final Map<String, Duration> ttlRepositories)
+  {
+    return ChaserVersionCache.open(
+      this.directory, clockAt(offset), ttl, ttlRepositories);
+  }
+
+  private List<String> retrieve(
+    final ChaserVersionCache cache,
+    final List<ArtifactRepository> repositories)
+    throws ArtifactMetadataRetrievalException
+  {
+    return namesOf(cache.retrieve(
+      "com.example",
+      "a",
+      repositories,
+      () -> {
+        this.calls.incrementAndGet();
+        return VERSIONS;
+      }));
+  }
+
+  @Before
+  public void setup()
+    throws IOException
+  {
+    this.directory = Files.createTempDirectory("modulechaser-versions");
+    this.calls = new AtomicInteger(0);
+  }
+
+  @After
+  public void tearDown()
+    throws IOException
+  {
+    deleteRecursively(this.directory);
+  }
+
+  /**
+   * A saved entry is used by later executions until its time-to-live has
+   * elapsed, and the versions returned from the cache are the versions
+   * returned by the source.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testExpiry()
+    throws Exception
+  {
+    final List<ArtifactRepository> repositories =
+      List.of(repository("central"));
+    final Duration ttl = Duration.ofHours(1L);
+
+    final ChaserVersionCache first = this.open(Duration.ZERO, ttl, Map.of());
+    Assert.assertEquals(namesOf(VERSIONS), this.retrieve(first, repositories));
+    Assert.assertEquals(namesOf(VERSIONS), this.retrieve(first, repositories));
+    Assert.assertEquals(1, this.calls.get());
+    first.save();
+
+    final ChaserVersionCache fresh =
+      this.open(Duration.ofMinutes(59L), ttl, Map.of());
+    Assert.assertEquals(namesOf(VERSIONS), this.retrieve(fresh, repositories));
+    Assert.assertEquals(1, this.calls.get());
+
+    final ChaserVersionCache expired =
+      this.open(Duration.ofMinutes(61L), ttl, Map.of());
+    Assert.assertEquals(namesOf(VERSIONS), this.retrieve(expired, repositories));
+    Assert.assertEquals(2, this.calls.get());
+  }
+
+  /**
+   * The time-to-live of an entry is the shortest time-to-live of the
+   * repositories consulted.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testRepositoryTTLMinimum()
+    throws Exception
+  {
+    final List<ArtifactRepository> repositories =
+      List.of(repository("central"), repository("snapshots"));
+    final Duration ttl = Duration.ofDays(1L);
+    final Map<String, Duration> ttl_repositories =
+      Map.of("snapshots", Duration.ofMinutes(10L));
+
+    final ChaserVersionCache first =
+      this.open(Duration.ZERO, ttl, ttl_repositories);
+    this.retrieve(first, repositories);
+    first.save();
+
+    final ChaserVersionCache fresh =
+      this.open(Duration.ofMinutes(9L), ttl, ttl_repositories);
+    this.retrieve(fresh, repositories);
+    Assert.assertEquals(1, this.calls.get());
+
+    final ChaserVersionCache expired =
+      this.open(Duration.ofMinutes(11L), ttl, ttl_repositories);
+    this.retrieve(expired, repositories);
+    Assert.assertEquals(2, this.calls.get());
+  }
+
+  /**
+   * An entry recorded for one set of repositories is not used for a
+   * different set, but the order of the repositories is irrelevant.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testRepositorySet()
+    throws Exception
+  {
+    final Duration ttl = Duration.ofDays(1L);
+
+    final ChaserVersionCache first = this.open(Duration.ZERO, ttl, Map.of());
+    this.retrieve(first, List.of(repository("central")));
+    first.save();
+
+    final ChaserVersionCache second = this.open(Duration.ZERO, ttl, Map.of());
+    this.retrieve(second, List.of(repository("central"), repository("other")));
+    Assert.assertEquals(2, this.calls.get());
+    second.save();
+
+    final ChaserVersionCache third = this.open(Duration.ZERO, ttl, Map.of());
+    this.retrieve(third, List.of(repository("other"), repository("central")));
+    Assert.assertEquals(2, this.calls.get());
+  }
+
+  /**
+   * A time-to-live of zero is never written to disk, but a retrieval is
+   * still performed at most once per execution.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testZeroTTL()
+    throws Exception
+  {
+    final List<ArtifactRepository> repositories =
+      List.of(repository("central"));
+
+    final ChaserVersionCache first =
+      this.open(Duration.ZERO, Duration.ZERO, Map.of());
+    this.retrieve(first, repositories);
+    this.retrieve(first, repositories);
+    Assert.assertEquals(1, this.calls.get());
+    Assert.assertEquals(1L, first.coalesced());
+    first.save();
+
+    Assert.assertFalse(
+      Files.exists(this.directory.resolve("version-cache.properties")));
+
+    final ChaserVersionCache second =
+      this.open(Duration.ZERO, Duration.ZERO, Map.of());
+    this.retrieve(second, repositories);
+    Assert.assertEquals(2, this.calls.get());
+  }
+
+  /**
+   * Concurrent requests for the same artifact share a single retrieval.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testCoalescedInFlight()
+    throws Exception
+  {
+    final List<ArtifactRepository> repositories =
+      List.of(repository("central"));
+    final ChaserVersionCache cache =
+      this.open(Duration.ZERO, Duration.ofDays(1L), Map.of());
+
+    final CountDownLatch release = new CountDownLatch(1);
+    final ChaserVersionCache.VersionSourceType source = () -> {
+      this.calls.incrementAndGet();
+      try {
+        release.await();
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new ArtifactMetadataRetrievalException(e);
+      }
+      return VERSIONS;
+    };
+
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final Future<List<ArtifactVersion>> first = executor.submit(
+        () -> cache.retrieve("com.example", "a", repositories, source));
+      final Future<List<ArtifactVersion>> second = executor.submit(
+        () -> cache.retrieve("com.example", "a", repositories, source));
+
+      final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10L);
+      while (cache.coalesced() == 0L && System.nanoTime() < deadline) {
+        Thread.sleep(1L);
+      }
+      release.countDown();
+
+      Assert.assertEquals(
+        namesOf(VERSIONS), namesOf(first.get(10L, TimeUnit.SECONDS)));
+      Assert.assertEquals(
+        namesOf(VERSIONS), namesOf(second.get(10L, TimeUnit.SECONDS)));
+    } finally {
+      executor.shutdownNow();
+    }
+
+    Assert.assertEquals(1, this.calls.get());
+    Assert.assertEquals(1L, cache.coalesced());
+  }
+
+  /**
+   * A failed retrieval is neither cached nor shared, and a later request
+   * retries the source.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testFailureNotCached()
+    throws Exception
+  {
+    final List<ArtifactRepository> repositories =
+      List.of(repository("central"));
+    final ChaserVersionCache cache =
+      this.open(Duration.ZERO, Duration.ofDays(1L), Map.of());
+
+    try {
+      cache.retrieve("com.example", "a", repositories, () -> {
+        this.calls.incrementAndGet();
+        throw new ArtifactMetadataRetrievalException("Unreachable");
+      });
+      Assert.fail();
+    } catch (final ArtifactMetadataRetrievalException e) {
+      Assert.assertEquals("Unreachable", e.getMessage());
+    }
+
+    Assert.assertEquals(namesOf(VERSIONS), this.retrieve(cache, repositories));
+    Assert.assertEquals(2, this.calls.get());
+    Assert.assertEquals(0L, cache.coalesced());
+  }
+}